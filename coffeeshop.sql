@@ -41,7 +41,8 @@ CREATE TABLE `products` (
   `name` VARCHAR(100) NOT NULL,
   `price` DECIMAL(10,2) NOT NULL,
   `drink_types` SET('hot','iced','frappe') NOT NULL,
-  `image` VARCHAR(255) DEFAULT 'img/temp_icon.png'
+  `image` VARCHAR(255) DEFAULT 'img/temp_icon.png',
+  KEY `idx_products_name` (`name`, `id`)
 ) ENGINE=InnoDB;
 
 -- Inventory (Nguyên liệu)
@@ -53,7 +54,8 @@ CREATE TABLE `inventory` (
   `quantity` DECIMAL(10,2) NOT NULL DEFAULT 0,
   `min_stock` DECIMAL(10,2) DEFAULT 0,
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  KEY `idx_inventory_name` (`name`, `id`)
 ) ENGINE=InnoDB;
 
 -- Product Ingredients (Liên kết sản phẩm ↔ nguyên liệu)
@@ -74,6 +76,8 @@ CREATE TABLE `orders` (
   `order_type` ENUM('dine-in','takeaway') NOT NULL,
   `status` ENUM('unpaid','paid') DEFAULT 'unpaid',
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  KEY `idx_orders_created_at` (`created_at`),
+  KEY `idx_orders_status_created_at` (`status`, `created_at`),
   FOREIGN KEY (`table_id`) REFERENCES `tables`(`id`) ON DELETE SET NULL,
   FOREIGN KEY (`staff_id`) REFERENCES `users`(`id`) ON DELETE SET NULL ON UPDATE CASCADE
 ) ENGINE=InnoDB;
@@ -100,6 +104,7 @@ CREATE TABLE `payments` (
   `amount_received` DECIMAL(10,2) NOT NULL,
   `change_returned` DECIMAL(10,2) NOT NULL,
   `paid_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  KEY `idx_payments_paid_at` (`paid_at`),
   FOREIGN KEY (`order_id`) REFERENCES `orders`(`id`) ON DELETE CASCADE ON UPDATE CASCADE,
   UNIQUE KEY (`order_id`)  -- Để làm quan hệ 1-1: Một order chỉ có một payment
 ) ENGINE=InnoDB;
@@ -114,10 +119,53 @@ CREATE TABLE `transactions` (
   `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
   `display_order` INT DEFAULT 0,
   `order_id` INT NULL,
+  KEY `idx_transactions_created_at` (`created_at`),
+  KEY `idx_transactions_type_created_at` (`type`, `created_at`),
   FOREIGN KEY (`created_by`) REFERENCES `users`(`id`) ON DELETE SET NULL,
   FOREIGN KEY (`order_id`) REFERENCES `orders`(`id`) ON DELETE SET NULL
 ) ENGINE=InnoDB;
 
+-- Transaction Search (folded terms of reasons and order item notes, maintained by dao.TransactionSearchDAO;
+-- fill it for the sample data and rebuild it later with app.RebuildSearchIndex)
+CREATE TABLE `transaction_search` (
+  `term` VARCHAR(40) NOT NULL,
+  `created_at` DATETIME NOT NULL,
+  `transaction_id` INT NOT NULL,
+  `field` TINYINT NOT NULL,
+  `hits` SMALLINT NOT NULL,
+  PRIMARY KEY (`term`, `created_at`, `transaction_id`, `field`),
+  KEY `idx_transaction_search_transaction` (`transaction_id`)
+) ENGINE=InnoDB;
+
+-- Balance Checkpoints (closing balance of each finished day, written by dao.BalanceCheckpointDAO)
+CREATE TABLE `balance_checkpoints` (
+  `day` DATE PRIMARY KEY,
+  `closing_balance` DECIMAL(14,2) NOT NULL
+) ENGINE=InnoDB;
+
+-- Stock Movements (write-behind journal for hot ingredients, folded into inventory by StockLedger)
+-- No foreign keys on purpose: a FK check would take a shared lock on the hot inventory row
+CREATE TABLE `stock_movements` (
+  `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+  `inventory_id` INT NOT NULL,
+  `quantity` DECIMAL(10,2) NOT NULL,
+  `order_id` INT NULL,
+  `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  KEY `idx_stock_movements_inventory` (`inventory_id`)
+) ENGINE=InnoDB;
+
+-- Sales Rollup (hourly sales totals, maintained by OrderDAO.processPayment; rebuild with app.RebuildSalesRollup)
+CREATE TABLE `sales_rollup` (
+  `bucket_date` DATE NOT NULL,
+  `bucket_hour` TINYINT NOT NULL,
+  `slot` TINYINT NOT NULL DEFAULT 0,
+  `revenue` DECIMAL(12,2) NOT NULL DEFAULT 0,
+  `vat` DECIMAL(12,2) NOT NULL DEFAULT 0,
+  `order_count` INT NOT NULL DEFAULT 0,
+  `item_count` INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (`bucket_date`, `bucket_hour`, `slot`)
+) ENGINE=InnoDB;
+
 -----------------------------
 -- SAMPLE DATA
 -----------------------------
@@ -453,4 +501,11 @@ INSERT INTO `transactions` (`type`, `amount`, `reason`, `created_by`, `created_a
 ('expense', 60.00, 'Utilities Payment', 1, '2025-11-10 09:00:00'),
 ('expense', 100.00, 'Staff Bonus - Performance', 1, '2025-11-12 16:00:00');
 
+-- Sales rollup for the sample payments
+INSERT INTO `sales_rollup` (`bucket_date`, `bucket_hour`, `revenue`, `vat`, `order_count`, `item_count`)
+SELECT DATE(p.paid_at), HOUR(p.paid_at), SUM(p.total_price), SUM(p.vat), COUNT(*), COALESCE(SUM(i.items), 0)
+FROM `payments` p
+LEFT JOIN (SELECT order_id, SUM(quantity) AS items FROM `order_items` GROUP BY order_id) i ON i.order_id = p.order_id
+GROUP BY DATE(p.paid_at), HOUR(p.paid_at);
+
 COMMIT;
@@ -0,0 +1,12 @@
+-- Write-behind journal for hot-ingredient stock (see dao.StockLedger).
+-- Apply to databases created from an older coffeeshop.sql.
+USE `coffeeshop`;
+
+CREATE TABLE IF NOT EXISTS `stock_movements` (
+  `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+  `inventory_id` INT NOT NULL,
+  `quantity` DECIMAL(10,2) NOT NULL,
+  `order_id` INT NULL,
+  `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  KEY `idx_stock_movements_inventory` (`inventory_id`)
+) ENGINE=InnoDB;
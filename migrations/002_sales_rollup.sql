@@ -0,0 +1,23 @@
+-- Hourly sales rollup (see dao.SalesRollupDAO), backfilled from existing payments.
+-- Apply to databases created from an older coffeeshop.sql.
+-- To recompute it later: java app.RebuildSalesRollup
+USE `coffeeshop`;
+
+CREATE TABLE IF NOT EXISTS `sales_rollup` (
+  `bucket_date` DATE NOT NULL,
+  `bucket_hour` TINYINT NOT NULL,
+  `revenue` DECIMAL(12,2) NOT NULL DEFAULT 0,
+  `vat` DECIMAL(12,2) NOT NULL DEFAULT 0,
+  `order_count` INT NOT NULL DEFAULT 0,
+  `item_count` INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (`bucket_date`, `bucket_hour`)
+) ENGINE=InnoDB;
+
+START TRANSACTION;
+DELETE FROM `sales_rollup`;
+INSERT INTO `sales_rollup` (`bucket_date`, `bucket_hour`, `revenue`, `vat`, `order_count`, `item_count`)
+SELECT DATE(p.paid_at), HOUR(p.paid_at), SUM(p.total_price), SUM(p.vat), COUNT(*), COALESCE(SUM(i.items), 0)
+FROM `payments` p
+LEFT JOIN (SELECT order_id, SUM(quantity) AS items FROM `order_items` GROUP BY order_id) i ON i.order_id = p.order_id
+GROUP BY DATE(p.paid_at), HOUR(p.paid_at);
+COMMIT;
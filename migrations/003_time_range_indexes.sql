@@ -0,0 +1,39 @@
+-- Indexes for the half-open time-range filters built by dao.TimeRange
+-- (col >= ? AND col < ?). Apply to databases created from an older coffeeshop.sql.
+-- Safe to run again: each index is added only if information_schema does not list it yet.
+-- Compare plans and latencies with: java benchmark.TimeRangeQueryBenchmark
+USE `coffeeshop`;
+
+-- Reports, dashboard counts and best sellers filter orders by created_at,
+-- the unpaid badge and paid-only reports by status first
+SET @ddl := IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+                      WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'orders' AND INDEX_NAME = 'idx_orders_created_at'),
+               'DO 0',
+               'ALTER TABLE `orders` ADD KEY `idx_orders_created_at` (`created_at`)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl := IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+                      WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'orders' AND INDEX_NAME = 'idx_orders_status_created_at'),
+               'DO 0',
+               'ALTER TABLE `orders` ADD KEY `idx_orders_status_created_at` (`status`, `created_at`)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+-- Dashboard revenue and the sales rollup rebuild scan payments by paid_at
+SET @ddl := IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+                      WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'payments' AND INDEX_NAME = 'idx_payments_paid_at'),
+               'DO 0',
+               'ALTER TABLE `payments` ADD KEY `idx_payments_paid_at` (`paid_at`)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+-- Cashbook listing and expense totals
+SET @ddl := IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+                      WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'transactions' AND INDEX_NAME = 'idx_transactions_created_at'),
+               'DO 0',
+               'ALTER TABLE `transactions` ADD KEY `idx_transactions_created_at` (`created_at`)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl := IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+                      WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'transactions' AND INDEX_NAME = 'idx_transactions_type_created_at'),
+               'DO 0',
+               'ALTER TABLE `transactions` ADD KEY `idx_transactions_type_created_at` (`type`, `created_at`)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
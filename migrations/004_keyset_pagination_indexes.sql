@@ -0,0 +1,22 @@
+-- Indexes for the keyset ("View More") page queries in ProductDAO.getProductsPage and
+-- InventoryDAO.getInventoryPage, which seek with WHERE (name, id) > (?, ?) ORDER BY name, id.
+-- Apply to databases created from an older coffeeshop.sql.
+-- Safe to run again: each index is added only if information_schema does not list it yet.
+-- Compare page latencies by depth with: java benchmark.KeysetPaginationBenchmark
+USE `coffeeshop`;
+
+SET @ddl := IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+                      WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'products' AND INDEX_NAME = 'idx_products_name'),
+               'DO 0',
+               'ALTER TABLE `products` ADD KEY `idx_products_name` (`name`, `id`)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl := IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+                      WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'inventory' AND INDEX_NAME = 'idx_inventory_name'),
+               'DO 0',
+               'ALTER TABLE `inventory` ADD KEY `idx_inventory_name` (`name`, `id`)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+-- Transactions page on (created_at, id) DESC: idx_transactions_created_at from
+-- 003_time_range_indexes.sql already holds those pairs, since InnoDB appends the
+-- primary key to every secondary index. Users page on the primary key.
@@ -0,0 +1,9 @@
+-- Daily closing balances (see dao.BalanceCheckpointDAO).
+-- Apply to databases created from an older coffeeshop.sql. The table is filled on the
+-- first balance read after this runs, from the oldest transaction up to yesterday.
+USE `coffeeshop`;
+
+CREATE TABLE IF NOT EXISTS `balance_checkpoints` (
+  `day` DATE PRIMARY KEY,
+  `closing_balance` DECIMAL(14,2) NOT NULL
+) ENGINE=InnoDB;
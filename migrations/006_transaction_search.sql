@@ -0,0 +1,15 @@
+-- Inverted index over transaction reasons and order item notes (see dao.TransactionSearchDAO).
+-- Apply to databases created from an older coffeeshop.sql, then fill it once with:
+--   java app.RebuildSearchIndex
+-- Terms are folded in Java (accents stripped, đ -> d), so they cannot be backfilled here.
+USE `coffeeshop`;
+
+CREATE TABLE IF NOT EXISTS `transaction_search` (
+  `term` VARCHAR(40) NOT NULL,
+  `created_at` DATETIME NOT NULL,
+  `transaction_id` INT NOT NULL,
+  `field` TINYINT NOT NULL,
+  `hits` SMALLINT NOT NULL,
+  PRIMARY KEY (`term`, `created_at`, `transaction_id`, `field`),
+  KEY `idx_transaction_search_transaction` (`transaction_id`)
+) ENGINE=InnoDB;
@@ -0,0 +1,10 @@
+-- Split each sales_rollup hour into slots (see dao.SalesRollupDAO) so concurrent
+-- checkouts do not all wait on the current hour's row. Existing rows become slot 0.
+-- Safe to run again: the column is added only if information_schema does not list it yet.
+USE `coffeeshop`;
+
+SET @ddl := IF(EXISTS(SELECT 1 FROM information_schema.COLUMNS
+                      WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'sales_rollup' AND COLUMN_NAME = 'slot'),
+               'DO 0',
+               'ALTER TABLE `sales_rollup` ADD COLUMN `slot` TINYINT NOT NULL DEFAULT 0 AFTER `bucket_hour`, DROP PRIMARY KEY, ADD PRIMARY KEY (`bucket_date`, `bucket_hour`, `slot`)');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
@@ -6,6 +6,9 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.sql.*;
 import dao.DatabaseConnection;
+import dao.StockLedger;
+import utils.ImageCache;
+import utils.IconRegistry;
 import utils.SessionManager;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -63,6 +66,8 @@ public static void main(String[] args) {
             System.err.println("Error loading icon: " + e.getMessage());
         }
         primaryStage.setResizable(false);
+        // Decode shared UI icons while the login screen is up
+        IconRegistry.preload();
         // Load login FXML
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/auth/login.fxml"));
@@ -76,6 +81,9 @@ public static void main(String[] args) {
                 SessionManager.setOfflineStatus();
                 // Reset any pending orders
                 checkAndResetPendingOrders();
+                System.out.println("Image cache: " + ImageCache.getStats());
+                StockLedger.shutdown();
+                DatabaseConnection.shutdown();
                 primaryStage.close();
             });
         } catch (Exception e) {
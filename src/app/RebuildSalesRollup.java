@@ -0,0 +1,27 @@
+package app;
+
+import dao.DatabaseConnection;
+import dao.SalesRollupDAO;
+
+/**
+ * Recompute the sales_rollup table from payments, e.g. after editing payments by hand
+ * or restoring a backup. Usage: java app.RebuildSalesRollup
+ */
+public class RebuildSalesRollup {
+
+    public static void main(String[] args) {
+        int status = 0;
+        try {
+            long start = System.nanoTime();
+            int buckets = new SalesRollupDAO().rebuild();
+            System.out.println("sales_rollup rebuilt: " + buckets + " hour buckets in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 1;
+        } finally {
+            DatabaseConnection.shutdown();
+        }
+        System.exit(status);
+    }
+}
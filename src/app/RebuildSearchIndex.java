@@ -0,0 +1,27 @@
+package app;
+
+import dao.DatabaseConnection;
+import dao.TransactionSearchDAO;
+
+/**
+ * Recompute the transaction_search index from transactions and order items, e.g. after
+ * applying migration 006, importing data or restoring a backup. Usage: java app.RebuildSearchIndex
+ */
+public class RebuildSearchIndex {
+
+    public static void main(String[] args) {
+        int status = 0;
+        try {
+            long start = System.nanoTime();
+            int transactions = new TransactionSearchDAO().rebuild();
+            System.out.println("transaction_search rebuilt: " + transactions + " transactions in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 1;
+        } finally {
+            DatabaseConnection.shutdown();
+        }
+        System.exit(status);
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import dao.ConnectionPool;
+import dao.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Compares connection acquisition latency: a fresh DriverManager connection per call
+ * (the old DatabaseConnection behaviour) against borrowing from the pool.
+ * Needs the coffeeshop database from coffeeshop.sql running locally.
+ *
+ * Usage: java benchmark.ConnectionPoolBenchmark [iterations]
+ */
+public class ConnectionPoolBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int warmup = Math.max(10, iterations / 10);
+
+        try (Connection probe = DatabaseConnection.openUnpooledConnection()) {
+            System.out.println("Connected to " + probe.getMetaData().getURL());
+        } catch (SQLException e) {
+            System.err.println("Database not reachable, skipping benchmark: " + e.getMessage());
+            return;
+        }
+
+        measure("unpooled (DriverManager)", warmup, iterations, DatabaseConnection::openUnpooledConnection);
+
+        ConnectionPool pool = (ConnectionPool) DatabaseConnection.getDataSource();
+        measure("pooled", warmup, iterations, pool::getConnection);
+        System.out.println("Pool: total=" + pool.getTotalConnections() + ", idle=" + pool.getIdleConnections());
+        DatabaseConnection.shutdown();
+    }
+
+    private interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+
+    private static void measure(String label, int warmup, int iterations, ConnectionSource source) throws SQLException {
+        for (int i = 0; i < warmup; i++) {
+            borrowAndQuery(source);
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            borrowAndQuery(source);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        long sum = 0;
+        for (long s : samples) {
+            sum += s;
+        }
+        System.out.printf("%-26s n=%d  avg=%8.1fus  p50=%8.1fus  p99=%8.1fus  max=%8.1fus%n",
+                label, iterations,
+                sum / (double) iterations / 1000.0,
+                samples[iterations / 2] / 1000.0,
+                samples[(int) (iterations * 0.99)] / 1000.0,
+                samples[iterations - 1] / 1000.0);
+    }
+
+    // Acquire + one trivial query + release: what a single DAO call pays for its connection
+    private static void borrowAndQuery(ConnectionSource source) throws SQLException {
+        try (Connection conn = source.open();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1")) {
+            rs.next();
+        }
+    }
+}
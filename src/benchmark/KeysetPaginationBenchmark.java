@@ -0,0 +1,162 @@
+package benchmark;
+
+import dao.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Latency of fetching one cashbook page at increasing depth, with LIMIT/OFFSET (what
+ * TransactionDAO did before) and with the keyset seek TransactionDAO.getTransactionsPage
+ * uses now: WHERE (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC LIMIT ?.
+ *
+ * Works on its own bench_transactions table (1M rows by default, indexed like
+ * transactions) so the real data is untouched; --keep leaves it for the next run.
+ *
+ * Usage: java benchmark.KeysetPaginationBenchmark [rows] [runs] [--keep]
+ */
+public class KeysetPaginationBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int BATCH = 10_000;
+    private static final int[] PAGES = {1, 10, 100, 1_000, 10_000, 50_000};
+
+    public static void main(String[] args) throws Exception {
+        List<String> argList = new ArrayList<>(Arrays.asList(args));
+        boolean keep = argList.remove("--keep");
+        int rows = argList.size() > 0 ? Integer.parseInt(argList.get(0)) : 1_000_000;
+        int runs = argList.size() > 1 ? Integer.parseInt(argList.get(1)) : 5;
+
+        Connection conn;
+        try {
+            conn = DatabaseConnection.openUnpooledConnection();
+        } catch (SQLException e) {
+            System.err.println("Database not reachable, skipping benchmark: " + e.getMessage());
+            return;
+        }
+
+        try {
+            createTable(conn);
+            generate(conn, rows);
+
+            System.out.printf("%n%8s  %14s  %14s%n", "page", "OFFSET (ms)", "keyset (ms)");
+            for (int page : PAGES) {
+                long offset = (long) (page - 1) * PAGE_SIZE;
+                if (offset >= rows) {
+                    break;
+                }
+                // The keyset query needs the row the previous page ended on
+                Object[] cursor = page == 1 ? null : rowAt(conn, offset - 1);
+                double offsetMs = median(conn, runs, "SELECT id, type, amount, reason, created_at FROM bench_transactions " +
+                        "ORDER BY created_at DESC, id DESC LIMIT " + PAGE_SIZE + " OFFSET " + offset, null);
+                double keysetMs = median(conn, runs, "SELECT id, type, amount, reason, created_at FROM bench_transactions " +
+                        (cursor != null ? "WHERE (created_at, id) < (?, ?) " : "") +
+                        "ORDER BY created_at DESC, id DESC LIMIT " + PAGE_SIZE, cursor);
+                System.out.printf("%8d  %14.2f  %14.2f%n", page, offsetMs, keysetMs);
+            }
+
+            if (!keep) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("DROP TABLE bench_transactions");
+                }
+            }
+        } finally {
+            conn.close();
+        }
+    }
+
+    private static double median(Connection conn, int runs, String sql, Object[] cursor) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (cursor != null) {
+                stmt.setTimestamp(1, (Timestamp) cursor[0]);
+                stmt.setInt(2, (Integer) cursor[1]);
+            }
+            execute(stmt); // warm up the buffer pool
+            long[] nanos = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                long start = System.nanoTime();
+                execute(stmt);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            return nanos[runs / 2] / 1e6;
+        }
+    }
+
+    private static void execute(PreparedStatement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                rs.getObject(1);
+            }
+        }
+    }
+
+    private static Object[] rowAt(Connection conn, long offset) throws SQLException {
+        String sql = "SELECT created_at, id FROM bench_transactions ORDER BY created_at DESC, id DESC LIMIT 1 OFFSET " + offset;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return new Object[]{rs.getTimestamp(1), rs.getInt(2)};
+        }
+    }
+
+    private static void createTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS bench_transactions (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "type ENUM('income','expense') NOT NULL, " +
+                    "amount DECIMAL(10,2) NOT NULL, " +
+                    "reason VARCHAR(255), " +
+                    "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                    "KEY idx_bench_transactions_created_at (created_at)) ENGINE=InnoDB");
+        }
+    }
+
+    // Several rows per second on busy days, so created_at ties are common and id breaks them
+    private static void generate(Connection conn, int rows) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM bench_transactions")) {
+            rs.next();
+            if (rs.getInt(1) == rows) {
+                System.out.println("Reusing " + rows + " generated transactions");
+                return;
+            }
+        }
+
+        long start = System.nanoTime();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("TRUNCATE TABLE bench_transactions");
+        }
+        conn.setAutoCommit(false);
+        Random random = new Random(42);
+        LocalDateTime time = LocalDateTime.now().minusSeconds(rows * 30L);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO bench_transactions (type, amount, reason, created_at) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                time = time.plusSeconds(random.nextInt(60));
+                stmt.setString(1, random.nextInt(10) < 8 ? "income" : "expense");
+                stmt.setDouble(2, 1 + random.nextInt(50_000) / 100.0);
+                stmt.setString(3, "Generated transaction " + i);
+                stmt.setTimestamp(4, Timestamp.valueOf(time));
+                stmt.addBatch();
+                if (i % BATCH == 0) {
+                    stmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        }
+        conn.setAutoCommit(true);
+        System.out.printf("Generated %d transactions in %.1f s%n", rows, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,90 @@
+package benchmark;
+
+import dao.DatabaseConnection;
+import dao.OrderDAO;
+import model.OrderItem;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures order_items inserts/sec for 1, 10 and 100 line items,
+ * one INSERT per item vs addOrderItems() batching.
+ * Every round runs in a transaction that is rolled back, so no data is left behind.
+ *
+ * Usage: java benchmark.OrderItemBatchBenchmark [rounds]
+ */
+public class OrderItemBatchBenchmark {
+
+    private static final int[] SIZES = { 1, 10, 100 };
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        OrderDAO orderDAO = new OrderDAO();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                System.err.println("Database not reachable, skipping benchmark");
+                return;
+            }
+            int productId = firstProductId(conn);
+            if (productId == -1) {
+                System.err.println("No products in database, skipping benchmark");
+                return;
+            }
+            conn.setAutoCommit(false);
+
+            for (int size : SIZES) {
+                List<OrderItem> items = new ArrayList<>();
+                for (int i = 0; i < size; i++) {
+                    items.add(new OrderItem(0, 0, productId, "hot", 1, 3.5, "bench " + i));
+                }
+
+                // warm up both paths
+                run(conn, orderDAO, items, false);
+                run(conn, orderDAO, items, true);
+
+                long singleNanos = 0, batchNanos = 0;
+                for (int r = 0; r < rounds; r++) {
+                    singleNanos += run(conn, orderDAO, items, false);
+                    batchNanos += run(conn, orderDAO, items, true);
+                }
+                double rows = (double) size * rounds;
+                System.out.printf("%4d items: single %10.0f rows/s   batch %10.0f rows/s   (x%.1f)%n",
+                        size,
+                        rows / (singleNanos / 1e9),
+                        rows / (batchNanos / 1e9),
+                        singleNanos / (double) batchNanos);
+            }
+        }
+        DatabaseConnection.shutdown();
+    }
+
+    // Time only the item inserts; the throwaway order row is rolled back with them
+    private static long run(Connection conn, OrderDAO orderDAO, List<OrderItem> items, boolean batch) throws SQLException {
+        int orderId = orderDAO.createOrder(conn, null, 1, "takeaway");
+        long start = System.nanoTime();
+        if (batch) {
+            orderDAO.addOrderItems(conn, orderId, items);
+        } else {
+            for (OrderItem item : items) {
+                orderDAO.addOrderItem(conn, orderId, item.getProductId(), item.getDrinkType(),
+                        item.getQuantity(), item.getPrice(), item.getNote());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        conn.rollback();
+        return elapsed;
+    }
+
+    private static int firstProductId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM products ORDER BY id LIMIT 1")) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+}
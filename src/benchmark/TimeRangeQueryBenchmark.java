@@ -0,0 +1,281 @@
+package benchmark;
+
+import dao.DatabaseConnection;
+import dao.TimeRange;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Query plans and latencies of date filters written as DATE(col) = ? / YEAR(col) = ?
+ * AND MONTH(col) = ? against the half-open ranges from dao.TimeRange, before and after
+ * adding the indexes from migrations/003_time_range_indexes.sql.
+ *
+ * Works on its own bench_orders / bench_payments tables (two years of generated orders,
+ * 5M by default) so the real data is untouched. Generation takes a few minutes; with
+ * --keep the tables are left in place and reused by the next run.
+ *
+ * Usage: java benchmark.TimeRangeQueryBenchmark [orders] [runs] [--keep]
+ */
+public class TimeRangeQueryBenchmark {
+
+    private static final int BATCH = 10_000;
+    private static final int DAYS = 730;
+
+    private interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    private static class Case {
+        final String name;
+        final String sql;
+        final Binder binder;
+
+        Case(String name, String sql, Binder binder) {
+            this.name = name;
+            this.sql = sql;
+            this.binder = binder;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> argList = new ArrayList<>(Arrays.asList(args));
+        boolean keep = argList.remove("--keep");
+        int orders = argList.size() > 0 ? Integer.parseInt(argList.get(0)) : 5_000_000;
+        int runs = argList.size() > 1 ? Integer.parseInt(argList.get(1)) : 5;
+
+        Connection conn;
+        try {
+            conn = DatabaseConnection.openUnpooledConnection();
+        } catch (SQLException e) {
+            System.err.println("Database not reachable, skipping benchmark: " + e.getMessage());
+            return;
+        }
+
+        try {
+            createTables(conn);
+            generate(conn, orders);
+
+            List<Case> cases = cases(LocalDate.now().minusDays(DAYS / 2));
+
+            dropIndexes(conn);
+            System.out.println("\n=== Before: no indexes on created_at / paid_at ===");
+            runAll(conn, cases, runs);
+
+            long start = System.nanoTime();
+            addIndexes(conn);
+            System.out.printf("%nIndexes built in %.1f s%n", (System.nanoTime() - start) / 1e9);
+            System.out.println("\n=== After: indexes from 003_time_range_indexes.sql ===");
+            runAll(conn, cases, runs);
+
+            if (!keep) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("DROP TABLE bench_payments");
+                    stmt.executeUpdate("DROP TABLE bench_orders");
+                }
+            }
+        } finally {
+            conn.close();
+        }
+    }
+
+    // Each query once with the column wrapped in a function, once as a TimeRange
+    private static List<Case> cases(LocalDate day) {
+        TimeRange dayRange = TimeRange.day(day);
+        YearMonth month = YearMonth.from(day);
+        TimeRange monthRange = TimeRange.month(month);
+        TimeRange weekRange = TimeRange.days(day.minusDays(6), day);
+
+        List<Case> cases = new ArrayList<>();
+        cases.add(new Case("orders on one day / DATE(created_at) = ?",
+                "SELECT COUNT(*) FROM bench_orders WHERE DATE(created_at) = ?",
+                stmt -> stmt.setObject(1, day)));
+        cases.add(new Case("orders on one day / TimeRange",
+                "SELECT COUNT(*) FROM bench_orders WHERE " + dayRange.on("created_at"),
+                stmt -> dayRange.bind(stmt, 1)));
+
+        cases.add(new Case("unpaid on one day / status + DATE()",
+                "SELECT COUNT(*) FROM bench_orders WHERE status = 'unpaid' AND DATE(created_at) = ?",
+                stmt -> stmt.setObject(1, day)));
+        cases.add(new Case("unpaid on one day / status + TimeRange",
+                "SELECT COUNT(*) FROM bench_orders WHERE status = 'unpaid' AND " + dayRange.on("created_at"),
+                stmt -> dayRange.bind(stmt, 1)));
+
+        cases.add(new Case("month revenue / YEAR() AND MONTH()",
+                "SELECT SUM(total_price) FROM bench_payments WHERE YEAR(paid_at) = ? AND MONTH(paid_at) = ?",
+                stmt -> {
+                    stmt.setInt(1, month.getYear());
+                    stmt.setInt(2, month.getMonthValue());
+                }));
+        cases.add(new Case("month revenue / TimeRange",
+                "SELECT SUM(total_price) FROM bench_payments WHERE " + monthRange.on("paid_at"),
+                stmt -> monthRange.bind(stmt, 1)));
+
+        cases.add(new Case("paid week report / DATE() BETWEEN",
+                "SELECT DATE(o.created_at) AS d, COUNT(*), SUM(p.total_price) FROM bench_orders o " +
+                "JOIN bench_payments p ON p.order_id = o.id " +
+                "WHERE o.status = 'paid' AND DATE(o.created_at) BETWEEN ? AND ? GROUP BY d",
+                stmt -> {
+                    stmt.setObject(1, day.minusDays(6));
+                    stmt.setObject(2, day);
+                }));
+        cases.add(new Case("paid week report / TimeRange",
+                "SELECT DATE(o.created_at) AS d, COUNT(*), SUM(p.total_price) FROM bench_orders o " +
+                "JOIN bench_payments p ON p.order_id = o.id " +
+                "WHERE o.status = 'paid' AND " + weekRange.on("o.created_at") + " GROUP BY d",
+                stmt -> weekRange.bind(stmt, 1)));
+
+        System.out.println("Target day " + day + ", range " + dayRange);
+        return cases;
+    }
+
+    private static void runAll(Connection conn, List<Case> cases, int runs) throws SQLException {
+        for (Case c : cases) {
+            System.out.println("\n" + c.name);
+            explain(conn, c);
+            try (PreparedStatement stmt = conn.prepareStatement(c.sql)) {
+                c.binder.bind(stmt);
+                execute(stmt); // warm up the buffer pool
+                long[] nanos = new long[runs];
+                for (int i = 0; i < runs; i++) {
+                    long start = System.nanoTime();
+                    execute(stmt);
+                    nanos[i] = System.nanoTime() - start;
+                }
+                Arrays.sort(nanos);
+                System.out.printf("  latency: median %.2f ms, min %.2f ms, max %.2f ms (%d runs)%n",
+                        nanos[runs / 2] / 1e6, nanos[0] / 1e6, nanos[runs - 1] / 1e6, runs);
+            }
+        }
+    }
+
+    private static void explain(Connection conn, Case c) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + c.sql)) {
+            c.binder.bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    System.out.printf("  plan: table=%s type=%s key=%s rows=%s extra=%s%n",
+                            rs.getString("table"), rs.getString("type"), rs.getString("key"),
+                            rs.getString("rows"), rs.getString("Extra"));
+                }
+            }
+        }
+    }
+
+    private static void execute(PreparedStatement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                rs.getObject(1);
+            }
+        }
+    }
+
+    private static void createTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS bench_orders (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "staff_id INT NULL, " +
+                    "status ENUM('unpaid','paid') DEFAULT 'unpaid', " +
+                    "created_at DATETIME DEFAULT CURRENT_TIMESTAMP) ENGINE=InnoDB");
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS bench_payments (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "order_id INT NOT NULL, " +
+                    "total_price DECIMAL(10,2) NOT NULL, " +
+                    "paid_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                    "UNIQUE KEY (order_id)) ENGINE=InnoDB");
+        }
+    }
+
+    // Orders spread evenly over the last DAYS days, 3% left unpaid; one payment per paid order
+    private static void generate(Connection conn, int orders) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM bench_orders")) {
+            rs.next();
+            if (rs.getInt(1) == orders) {
+                System.out.println("Reusing " + orders + " generated orders");
+                return;
+            }
+        }
+
+        long start = System.nanoTime();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("TRUNCATE TABLE bench_payments");
+            stmt.executeUpdate("TRUNCATE TABLE bench_orders");
+        }
+        conn.setAutoCommit(false);
+        Random random = new Random(42);
+        LocalDateTime origin = LocalDate.now().minusDays(DAYS).atTime(7, 0);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO bench_orders (staff_id, status, created_at) VALUES (?, ?, ?)")) {
+            for (int i = 1; i <= orders; i++) {
+                LocalDateTime createdAt = origin
+                        .plusDays(random.nextInt(DAYS))
+                        .plusMinutes(random.nextInt(15 * 60));
+                stmt.setInt(1, 1 + random.nextInt(5));
+                stmt.setString(2, random.nextInt(100) < 3 ? "unpaid" : "paid");
+                stmt.setTimestamp(3, Timestamp.valueOf(createdAt));
+                stmt.addBatch();
+                if (i % BATCH == 0) {
+                    stmt.executeBatch();
+                    conn.commit();
+                    if (i % 500_000 == 0) {
+                        System.out.println("  generated " + i + " orders");
+                    }
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO bench_payments (order_id, total_price, paid_at) " +
+                    "SELECT id, 2 + (id % 40) * 0.5, created_at + INTERVAL (id % 90) MINUTE " +
+                    "FROM bench_orders WHERE status = 'paid'");
+            conn.commit();
+        }
+        conn.setAutoCommit(true);
+        System.out.printf("Generated %d orders in %.1f s%n", orders, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void addIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE bench_orders " +
+                    "ADD KEY idx_bench_orders_created_at (created_at), " +
+                    "ADD KEY idx_bench_orders_status_created_at (status, created_at)");
+            stmt.executeUpdate("ALTER TABLE bench_payments ADD KEY idx_bench_payments_paid_at (paid_at)");
+        }
+    }
+
+    private static void dropIndexes(Connection conn) throws SQLException {
+        dropIndexIfExists(conn, "bench_orders", "idx_bench_orders_created_at");
+        dropIndexIfExists(conn, "bench_orders", "idx_bench_orders_status_created_at");
+        dropIndexIfExists(conn, "bench_payments", "idx_bench_payments_paid_at");
+    }
+
+    private static void dropIndexIfExists(Connection conn, String table, String index) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ? LIMIT 1";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            stmt.setString(2, index);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return;
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE " + table + " DROP INDEX " + index);
+        }
+    }
+}
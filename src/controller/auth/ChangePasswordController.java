@@ -12,12 +12,14 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.HBox;
+import utils.Refreshable;
+import utils.IconRegistry;
 
 import java.net.URL;
 import java.sql.*;
 import java.util.ResourceBundle;
 
-public class ChangePasswordController implements Initializable {
+public class ChangePasswordController implements Initializable, Refreshable {
 
     @FXML private PasswordField currentPasswordField;
     @FXML private TextField currentPasswordTxtField;
@@ -65,6 +67,11 @@ public class ChangePasswordController implements Initializable {
         currentUsername = "admin"; // Replace with actual logged-in username
     }
 
+    @Override
+    public void onShow() {
+        resetForm();
+    }
+
     // Current Password - Show/Hide
     @FXML
     private void currentPasswordSetOnMousePressed(MouseEvent event) {
@@ -256,7 +263,7 @@ public class ChangePasswordController implements Initializable {
         // Thêm icon
         ImageView icon = new ImageView();
         try {
-            Image img = new Image(getClass().getResourceAsStream("/resources/img/triangle-exclamation-solid-full.png"));
+            Image img = IconRegistry.get(IconRegistry.WARNING);
             icon.setImage(img);
             icon.setFitWidth(16);
             icon.setFitHeight(16);
@@ -276,7 +283,7 @@ public class ChangePasswordController implements Initializable {
         // Thêm icon
         ImageView icon = new ImageView();
         try {
-            Image img = new Image(getClass().getResourceAsStream("/resources/img/circle-check-solid-full.png"));
+            Image img = IconRegistry.get(IconRegistry.CHECK);
             icon.setImage(img);
             icon.setFitWidth(16);
             icon.setFitHeight(16);
@@ -16,6 +16,7 @@ import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
 import model.User;
 import utils.SessionManager;
+import utils.ViewCache;
 
 public class LoginController {
     @FXML private TextField usernameTextField; // Updated label to reflect username
@@ -46,6 +47,7 @@ public class LoginController {
                 } else {
                     loadInterface("/view/staff/order.fxml"); // Load order view directly for staff
                 }
+                ViewCache.preloadForCurrentUser();
             }
         }
     }
@@ -1,7 +1,9 @@
 package controller.common;
 
-import dao.DatabaseConnection;
+import dao.Page;
 import dao.TransactionDAO;
+import dao.TransactionQuery;
+import javafx.animation.PauseTransition;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -21,21 +23,26 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import model.Order;
+import model.OrderDetails;
 import model.OrderItem;
 import model.Transaction;
+import service.OrderDetailsRepository;
+import utils.Refreshable;
+import utils.IconRegistry;
+import utils.ImageCache;
 import utils.SweetAlert;
 import utils.SessionManager;
 
-import java.io.File;
-import java.io.InputStream;
-import java.nio.file.Paths;
-import java.sql.*;
+import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
-public class CashbookController {
+public class CashbookController implements Refreshable {
 
     @FXML
     private TableView<Transaction> tableTransactions;
@@ -97,13 +104,16 @@ public class CashbookController {
     private Label lblDate;
 
     private TransactionDAO transactionDAO;
+    private final OrderDetailsRepository orderDetails = OrderDetailsRepository.getInstance();
     private ObservableList<Transaction> transactionList;
-    private ObservableList<Transaction> filteredList;
+    private TransactionQuery currentQuery = TransactionQuery.all();
+    private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(300));
 
     private Transaction currentTransaction;
     private boolean isEditMode = false;
 
-    private int currentPage = 0;
+    // Keyset cursor: the last row loaded so far ("View More" continues after it)
+    private Transaction lastLoaded;
     private final int PAGE_SIZE = 10;
     private boolean hasMoreRecords = true;
 
@@ -115,15 +125,12 @@ public class CashbookController {
             System.out.println("✓ TransactionDAO initialized");
 
             transactionList = FXCollections.observableArrayList();
-            filteredList = FXCollections.observableArrayList();
+            tableTransactions.setItems(transactionList);
             System.out.println("✓ Observable lists initialized");
 
             setupTableColumns();
             System.out.println("✓ Table columns setup complete");
 
-            loadInitialTransactionData();
-            System.out.println("✓ Initial transaction data loaded");
-
             setupSearchAndFilter();
             System.out.println("✓ Search and filter setup complete");
 
@@ -139,6 +146,11 @@ public class CashbookController {
         }
     }
 
+    @Override
+    public void onShow() {
+        loadInitialTransactionData();
+    }
+
     private void setupTableColumns() {
         colType.setCellValueFactory(new PropertyValueFactory<>("type"));
         colAmount.setCellValueFactory(new PropertyValueFactory<>("amount"));
@@ -239,79 +251,58 @@ public class CashbookController {
     }
 
     private void loadInitialTransactionData() {
-        currentPage = 0;
+        lastLoaded = null;
         transactionList.clear();
-        filteredList.clear();
         hasMoreRecords = true;
 
         loadNextPage();
-        updateViewMoreButton();
+        updateStatistics();
     }
 
     private void loadNextPage() {
         if (!hasMoreRecords) return;
 
-        List<Transaction> newTransactions = transactionDAO.getTransactionsPaginated(currentPage * PAGE_SIZE, PAGE_SIZE);
-        if (newTransactions.isEmpty()) {
-            hasMoreRecords = false;
-        } else {
-            transactionList.addAll(newTransactions);
-            currentPage++;
+        Page<Transaction> page = transactionDAO.getTransactionsPage(currentQuery, lastLoaded, PAGE_SIZE);
+        if (!page.isEmpty()) {
+            transactionList.addAll(page.getItems());
+            lastLoaded = page.getLast();
+            prefetchOrderDetails(page.getItems());
         }
-        applyFilters(); // Sẽ sort lại
+        hasMoreRecords = page.hasMore();
+        updateViewMoreButton();
     }
 
+    // Lọc trên server: kết quả và tổng tính trên toàn bộ giao dịch, không chỉ các trang đã tải
     private void applyFilters() {
-        String searchText = txtSearch.getText().toLowerCase().trim();
-        String typeFilter = cmbFilterType.getValue();
-        Date fromDate = dpFromDate.getValue() != null ? Date.valueOf(dpFromDate.getValue()) : null;
-        Date toDate = dpToDate.getValue() != null ? Date.valueOf(dpToDate.getValue()) : null;
-
-        filteredList.clear();
-
-        for (Transaction t : transactionList) {
-            boolean matchSearch = searchText.isEmpty() || t.getReason().toLowerCase().contains(searchText);
-            boolean matchType = typeFilter == null || "All".equals(typeFilter)
-                    || t.getType().equalsIgnoreCase(typeFilter);
-            boolean matchDate = (fromDate == null || !t.getCreatedAt().before(fromDate)) &&
-                    (toDate == null || !t.getCreatedAt().after(toDate));
-
-            if (matchSearch && matchType && matchDate) {
-                filteredList.add(t);
-            }
-        }
-
-        filteredList.sort((t1, t2) -> t2.getCreatedAt().compareTo(t1.getCreatedAt()));
-        tableTransactions.setItems(filteredList);
-        updateStatistics();
-
-        int totalCount = transactionDAO.getTotalCount();
-        hasMoreRecords = (currentPage * PAGE_SIZE) < totalCount;
-        updateViewMoreButton();
+        currentQuery = TransactionQuery.of(txtSearch.getText(), cmbFilterType.getValue(),
+                dpFromDate.getValue(), dpToDate.getValue());
+        loadInitialTransactionData();
     }
 
     private void updateStatistics() {
         if (lblTotalTransactions == null)
             return;
 
-        lblTotalTransactions.setText("Total: " + filteredList.size() + " transactions");
+        TransactionQuery.Totals totals = transactionDAO.getTotals(currentQuery);
+        if (totals == null)
+            return;
 
-        double totalIncome = 0, totalExpense = 0;
-        for (Transaction t : filteredList) {
-            if ("income".equalsIgnoreCase(t.getType()))
-                totalIncome += t.getAmount();
-            else if ("expense".equalsIgnoreCase(t.getType()))
-                totalExpense += t.getAmount();
-        }
-        double profitLoss = totalIncome - totalExpense;
-        double balance = transactionDAO.calculateBalance();
+        lblTotalTransactions.setText("Total: " + totals.getCount() + " transactions");
 
+        double balance = transactionDAO.calculateBalance();
         DecimalFormat df = new DecimalFormat("#,##0.00");
-        lblTotalIncome.setText("$" + df.format(totalIncome));
-        lblTotalExpense.setText("$" + df.format(totalExpense));
-        lblProfitLoss.setText("$" + df.format(profitLoss));
+        lblTotalIncome.setText("$" + df.format(totals.getIncome()));
+        lblTotalExpense.setText("$" + df.format(totals.getExpense()));
+        lblProfitLoss.setText("$" + df.format(totals.getNet()));
         lblCurrentBalance.setText("$" + df.format(balance));
-        lblBalance.setText("Balance: $ " + df.format(balance));
+
+        // Lọc đến một ngày: hiển thị số dư cuối ngày đó
+        LocalDate toDate = dpToDate.getValue();
+        if (toDate != null) {
+            lblBalance.setText("Balance as of " + toDate + ": $ " + df.format(transactionDAO.calculateBalance(toDate)));
+        } else {
+            lblBalance.setText("Balance: $ " + df.format(balance));
+        }
     }
 
     private void setupSearchAndFilter() {
@@ -319,11 +310,14 @@ public class CashbookController {
         cmbFilterType.setValue("All");
 
         cmbType.getItems().setAll("Income", "Expense");
+
+        searchDebounce.setOnFinished(e -> applyFilters());
     }
 
     @FXML
     private void handleSearch() {
-        applyFilters();
+        // Một truy vấn khi người dùng ngừng gõ, không phải mỗi phím
+        searchDebounce.playFromStart();
     }
 
     @FXML
@@ -338,11 +332,13 @@ public class CashbookController {
 
     @FXML
     private void handleRefresh() {
-        loadInitialTransactionData();
+        searchDebounce.stop();
         txtSearch.clear();
         cmbFilterType.setValue("All");
         dpFromDate.setValue(null);
         dpToDate.setValue(null);
+        currentQuery = TransactionQuery.all();
+        loadInitialTransactionData();
         updateDateLabel();
     }
 
@@ -542,54 +538,35 @@ public class CashbookController {
             return;
         }
 
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            String orderQuery = "SELECT o.*, u.username as staff_name " +
-                    "FROM orders o " +
-                    "JOIN users u ON o.staff_id = u.id " +
-                    "WHERE o.id = ?";
-            PreparedStatement orderStmt = conn.prepareStatement(orderQuery);
-            orderStmt.setInt(1, transaction.getOrderId());
-            ResultSet orderRs = orderStmt.executeQuery();
-
-            if (!orderRs.next()) {
-                showSweetAlert(SweetAlert.AlertType.ERROR, "Error", "Order not found.");
-                return;
-            }
-
-            String staffName = orderRs.getString("staff_name");
-            String orderType = orderRs.getString("order_type");
-            Integer tableId = orderRs.getObject("table_id") != null ? orderRs.getInt("table_id") : null;
-            String createdAt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(orderRs.getTimestamp("created_at"));
-
-            String itemsQuery = "SELECT oi.*, p.name as product_name, p.image " +
-                    "FROM order_items oi " +
-                    "JOIN products p ON oi.product_id = p.id " +
-                    "WHERE oi.order_id = ?";
-            PreparedStatement itemsStmt = conn.prepareStatement(itemsQuery);
-            itemsStmt.setInt(1, transaction.getOrderId());
-            ResultSet itemsRs = itemsStmt.executeQuery();
-
-            List<OrderItem> orderItems = new ArrayList<>();
-            while (itemsRs.next()) {
-                OrderItem item = new OrderItem();
-                item.setId(itemsRs.getInt("id"));
-                item.setProductId(itemsRs.getInt("product_id"));
-                item.setProductName(itemsRs.getString("product_name"));
-                item.setDrinkType(itemsRs.getString("drink_type"));
-                item.setQuantity(itemsRs.getInt("quantity"));
-                item.setPrice(itemsRs.getDouble("price"));
-                item.setNote(itemsRs.getString("note"));
-                item.setImage(itemsRs.getString("image"));
-                orderItems.add(item);
-            }
-
-            showOrderDetailsDialog(transaction.getOrderId(), staffName, orderType, tableId,
-                    createdAt, orderItems, transaction.getAmount());
-
+        // Thường đã có sẵn trong cache nhờ prefetch khi tải trang
+        OrderDetails details;
+        try {
+            details = orderDetails.get(transaction.getOrderId());
         } catch (SQLException e) {
             e.printStackTrace();
             showSweetAlert(SweetAlert.AlertType.ERROR, "Error", "Failed to load order details: " + e.getMessage());
+            return;
         }
+        if (details == null) {
+            showSweetAlert(SweetAlert.AlertType.ERROR, "Error", "Order not found.");
+            return;
+        }
+
+        Order order = details.getOrder();
+        String staffName = details.getStaffName() != null ? details.getStaffName() : "N/A";
+        showOrderDetailsDialog(order.getId(), staffName, order.getOrderType(), order.getTableId(),
+                order.getCreatedAt(), details.getItems(), transaction.getAmount());
+    }
+
+    // Tải trước chi tiết đơn của trang vừa hiển thị, để mở dialog không phải chờ
+    private void prefetchOrderDetails(List<Transaction> transactions) {
+        List<Integer> orderIds = new ArrayList<>();
+        for (Transaction t : transactions) {
+            if (t.getOrderId() != null && t.getOrderId() > 0) {
+                orderIds.add(t.getOrderId());
+            }
+        }
+        orderDetails.prefetch(orderIds);
     }
 
     private void showOrderDetailsDialog(int orderId, String staffName, String orderType,
@@ -628,7 +605,7 @@ public class CashbookController {
 
         ImageView icon = new ImageView();
         try {
-            icon.setImage(new Image(getClass().getResourceAsStream("/resources/img/clipboard-list-solid-full.png")));
+            icon.setImage(IconRegistry.get(IconRegistry.CLIPBOARD));
             icon.setFitWidth(24);
             icon.setFitHeight(24);
         } catch (Exception e) {
@@ -678,20 +655,7 @@ public class CashbookController {
             box.setStyle("-fx-background-color: white; -fx-background-radius: 10; -fx-border-color: #e2e8f0; -fx-border-width: 1;");
 
             // --- ẢNH ---
-            ImageView img = new ImageView();
-            String path = item.getImage() != null && !item.getImage().isEmpty() ? item.getImage() : "img/temp_icon.png";
-            try {
-                File f = new File(Paths.get("src/resources/" + path).toAbsolutePath().toString());
-                if (f.exists()) {
-                    img.setImage(new Image("file:" + f.getAbsolutePath()));
-                } else {
-                    InputStream is = getClass().getResourceAsStream("/resources/img/temp_icon.png");
-                    if (is != null) img.setImage(new Image(is));
-                }
-            } catch (Exception ex) {
-                InputStream is = getClass().getResourceAsStream("/resources/img/temp_icon.png");
-                if (is != null) img.setImage(new Image(is));
-            }
+            ImageView img = new ImageView(ImageCache.getProductImage(item.getImage(), 44, 44));
             img.setFitWidth(44);
             img.setFitHeight(44);
             img.setPreserveRatio(true);
@@ -1,39 +1,41 @@
 package controller.common;
 
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletionException;
 import java.text.DecimalFormat; // Added import
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.Tooltip;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import model.Order;
-import model.Inventory;
 import model.ProductSales;
+import service.DashboardSnapshotService;
+import utils.Refreshable;
+import utils.IconRegistry;
 import utils.SessionManager;
-import dao.DatabaseConnection;
+import utils.SweetAlert;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 
-public class DashboardController implements Initializable {
+public class DashboardController implements Initializable, Refreshable {
 
     @FXML private Label lblDate;
     @FXML private Button btnRefresh;
@@ -64,28 +66,26 @@ public class DashboardController implements Initializable {
     @FXML private Label lblAvgOrderValue;
     @FXML private Label lblPeakHour;
 
-    private Connection connectDb = DatabaseConnection.getConnection();
-    private LocalDate currentDate = LocalDate.now();
-    private YearMonth currentMonth = YearMonth.now();
+    private final DashboardSnapshotService snapshotService = new DashboardSnapshotService();
     private DecimalFormat df = new DecimalFormat("#.##"); // Initialized DecimalFormat
     private ObservableList<ProductSales> salesList = FXCollections.observableArrayList();
     private ObservableList<Order> orderList = FXCollections.observableArrayList();
-    private ObservableList<Inventory> inventoryList = FXCollections.observableArrayList();
-
-    private double previousDailyRevenue = 0;
-    private double previousMonthlyRevenue = 0;
+    // bumped per refresh so only the latest snapshot is applied
+    private long loadSequence = 0;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         updateDateLabel();
         setupTableColumns();
-        loadDashboardData();
-        if (SessionManager.isManager()) {
-            alertSection.setVisible(true);
-        }
         cbTimeFilter.getSelectionModel().selectFirst(); // Set default selection
     }
 
+    @Override
+    public void onShow() {
+        updateDateLabel();
+        loadDashboardData();
+    }
+
     private void updateDateLabel() {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("EEEE, dd/MM/yyyy", new Locale("en", "US"));
         lblDate.setText(LocalDateTime.now().format(formatter));
@@ -114,238 +114,60 @@ public class DashboardController implements Initializable {
     }
 
     private void loadDashboardData() {
-        loadDailyRevenue();
-        loadMonthlyRevenue();
-        loadOrdersCount();
-        loadOccupiedTables();
-        loadLowStock();
-        loadBestSellingProducts();
-        loadRecentOrders();
-        loadStaffOnline();
-        loadAvgOrderValue();
-        loadPeakHour();
-    }
-
-    private void loadDailyRevenue() {
-        String query = "SELECT SUM(total_price) as total FROM payments WHERE DATE(paid_at) = '" + currentDate + "'";
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            if (rs.next()) {
-                double revenue = rs.getDouble("total");
-                lblDailyRevenue.setText(df.format(revenue) + " $");
-                calculateDailyChange(revenue);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            lblDailyRevenue.setText("0 $");
-        }
-    }
-
-    private void calculateDailyChange(double currentRevenue) {
-        LocalDate yesterday = currentDate.minusDays(1);
-        String query = "SELECT SUM(total_price) as total FROM payments WHERE DATE(paid_at) = '" + yesterday + "'";
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            if (rs.next()) {
-                double previousRevenue = rs.getDouble("total");
-                double change = (previousRevenue > 0) ? ((currentRevenue - previousRevenue) / previousRevenue) * 100 : 0;
-
-                // Load icon
-                ImageView arrow = loadArrowIcon(change >= 0);
-                lblDailyChange.setGraphic(arrow);
-                lblDailyChange.setText((change >= 0 ? "+" : "") + df.format(change) + "% compared to yesterday");
-                lblDailyChange.setTextFill(change >= 0 ? javafx.scene.paint.Color.web("#A8F5A8") : javafx.scene.paint.Color.web("#FF6B6B"));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void loadMonthlyRevenue() {
-        String query = "SELECT SUM(total_price) as total FROM payments WHERE YEAR(paid_at) = " + currentMonth.getYear() + " AND MONTH(paid_at) = " + currentMonth.getMonthValue();
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            if (rs.next()) {
-                double revenue = rs.getDouble("total");
-                lblMonthlyRevenue.setText(df.format(revenue) + " $");
-                calculateMonthlyChange(revenue);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            lblMonthlyRevenue.setText("0 $");
-        }
-    }
-
-    private void calculateMonthlyChange(double currentRevenue) {
-        YearMonth previousMonth = currentMonth.minusMonths(1);
-        String query = "SELECT SUM(total_price) as total FROM payments WHERE YEAR(paid_at) = " + previousMonth.getYear() + " AND MONTH(paid_at) = " + previousMonth.getMonthValue();
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            if (rs.next()) {
-                double previousRevenue = rs.getDouble("total");
-                double change = (previousRevenue > 0) ? ((currentRevenue - previousRevenue) / previousRevenue) * 100 : 0;
-
-                // Load icon
-                ImageView arrow = loadArrowIcon(change >= 0);
-                lblMonthlyChange.setGraphic(arrow);
-                lblMonthlyChange.setText((change >= 0 ? "+" : "") + df.format(change) + "% compared to last month");
-                lblMonthlyChange.setTextFill(change >= 0 ? javafx.scene.paint.Color.web("#A8F5A8") : javafx.scene.paint.Color.web("#FF6B6B"));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void loadOrdersCount() {
-        String query = "SELECT COUNT(id) as total, SUM(CASE WHEN status = 'paid' THEN 1 ELSE 0 END) as paid, SUM(CASE WHEN status = 'unpaid' THEN 1 ELSE 0 END) as unpaid FROM orders WHERE DATE(created_at) = '" + currentDate + "'";
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            if (rs.next()) {
-                int total = rs.getInt("total");
-                int paid = rs.getInt("paid");
-                int unpaid = rs.getInt("unpaid");
-                lblTodayOrders.setText(String.valueOf(total));
-                lblPaidOrders.setText("Paid: " + paid);
-                lblUnpaidOrders.setText("Unpaid: " + unpaid);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            lblTodayOrders.setText("0");
-        }
-    }
-
-    private void loadOccupiedTables() {
-        String query = "SELECT COUNT(id) as occupied, (SELECT COUNT(id) FROM tables) as total FROM tables WHERE status = 'occupied'";
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            if (rs.next()) {
-                int occupied = rs.getInt("occupied");
-                int total = rs.getInt("total");
-                lblOccupiedTables.setText(occupied + "/" + total);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            lblOccupiedTables.setText("0/30");
-        }
-    }
-
-    private void loadLowStock() {
-        String query = "SELECT COUNT(id) as count FROM inventory WHERE quantity <= min_stock";
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            if (rs.next()) {
-                int count = rs.getInt("count");
-                lblLowStockWarning.setText("There are " + count + " items running low!");
-                alertSection.setVisible(count > 0);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void loadBestSellingProducts() {
-        salesList.clear();
-        String query = "SELECT p.id AS productId, p.name, SUM(oi.quantity) AS quantitySold, SUM(oi.quantity * oi.price) AS totalRevenue " +
-                "FROM order_items oi " +
-                "JOIN products p ON oi.product_id = p.id " +
-                "JOIN orders o ON oi.order_id = o.id " +
-                "WHERE DATE(o.created_at) = '" + currentDate + "' " +
-                "GROUP BY p.id, p.name " +
-                "ORDER BY quantitySold DESC " +
-                "LIMIT 10";
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            while (rs.next()) {
-                salesList.add(new ProductSales(
-                        rs.getInt("productId"),
-                        rs.getString("name"),
-                        rs.getInt("quantitySold"),
-                        rs.getDouble("totalRevenue")
-                ));
-            }
-            bestSellingTable.setItems(salesList);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void loadRecentOrders() {
-        orderList.clear();
-        String query = "SELECT o.id, o.table_id, o.staff_id, o.order_type, o.status, o.created_at, COALESCE(p.total_price, 0) as total_price " +
-                "FROM orders o LEFT JOIN payments p ON o.id = p.order_id " +
-                "ORDER BY o.created_at DESC LIMIT 10";
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            while (rs.next()) {
-                orderList.add(new Order(
-                        rs.getInt("id"),
-                        rs.getInt("table_id"), // Adjusted to int if constructor expects int
-                        rs.getInt("staff_id"),
-                        rs.getString("order_type"),
-                        rs.getString("status"),
-                        rs.getString("created_at"),
-                        rs.getDouble("total_price")
-                ));
-            }
-            recentOrdersTable.setItems(orderList);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void loadStaffOnline() {
-        String query = "SELECT COUNT(id) as online, (SELECT COUNT(id) FROM users) as total FROM users WHERE status = 'online'";
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            if (rs.next()) {
-                int online = rs.getInt("online");
-                int total = rs.getInt("total");
-                lblStaffOnline.setText(online + "/" + total);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            lblStaffOnline.setText("0/0");
-        }
-    }
-
-    private void loadAvgOrderValue() {
-        String query = "SELECT AVG(total_price) as avg FROM payments WHERE DATE(paid_at) = '" + currentDate + "'";
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            if (rs.next()) {
-                double avg = rs.getDouble("avg");
-                lblAvgOrderValue.setText(df.format(avg) + " $");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            lblAvgOrderValue.setText("0 $");
-        }
-    }
-
-    private void loadPeakHour() {
-        String query = "SELECT HOUR(created_at) as hour, COUNT(id) as count FROM orders WHERE DATE(created_at) = '" + currentDate + "' GROUP BY hour ORDER BY count DESC LIMIT 1";
-        try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            if (rs.next()) {
-                int hour = rs.getInt("hour");
-                lblPeakHour.setText(hour + ":00 - " + (hour + 1) + ":00");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            lblPeakHour.setText("--:-- - --:--");
-        }
+        long seq = ++loadSequence;
+        btnRefresh.setDisable(true);
+        snapshotService.load(LocalDate.now(), cbTimeFilter.getValue())
+                .whenComplete((snapshot, error) -> Platform.runLater(() -> {
+                    // a newer refresh was started meanwhile; its snapshot wins
+                    if (seq != loadSequence) return;
+                    btnRefresh.setDisable(false);
+                    if (error != null) {
+                        error.printStackTrace();
+                        showError("Failed to load dashboard: " + messageOf(error));
+                        return;
+                    }
+                    applySnapshot(snapshot);
+                    if (snapshot.isPartial()) {
+                        showError("Some dashboard figures could not be loaded (" + String.join(", ", snapshot.getFailures().keySet())
+                                + "): " + snapshot.getFailures().values().iterator().next());
+                    }
+                }));
+    }
+
+    // Push one snapshot into every widget in a single FX pass
+    private void applySnapshot(DashboardSnapshotService.Snapshot s) {
+        lblDailyRevenue.setText(df.format(s.getDailyRevenue()) + " $");
+        applyChange(lblDailyChange, s.getDailyChangePercent(), "% compared to yesterday");
+        lblMonthlyRevenue.setText(df.format(s.getMonthlyRevenue()) + " $");
+        applyChange(lblMonthlyChange, s.getMonthlyChangePercent(), "% compared to last month");
+
+        lblTodayOrders.setText(String.valueOf(s.getTodayOrders()));
+        lblPaidOrders.setText("Paid: " + s.getPaidOrders());
+        lblUnpaidOrders.setText("Unpaid: " + s.getUnpaidOrders());
+        lblOccupiedTables.setText(s.getOccupiedTables() + "/" + s.getTotalTables());
+
+        lblLowStockWarning.setText("There are " + s.getLowStockCount() + " items running low!");
+        alertSection.setVisible(SessionManager.isManager() || s.getLowStockCount() > 0);
+
+        salesList.setAll(s.getBestSellers());
+        bestSellingTable.setItems(salesList);
+        orderList.setAll(s.getRecentOrders());
+        recentOrdersTable.setItems(orderList);
+
+        lblStaffOnline.setText(s.getStaffOnline() + "/" + s.getTotalStaff());
+        lblAvgOrderValue.setText(df.format(s.getAvgOrderValue()) + " $");
+        lblPeakHour.setText(s.getPeakHour() >= 0 ? s.getPeakHour() + ":00 - " + (s.getPeakHour() + 1) + ":00" : "--:-- - --:--");
+
+        // Which sub-query dominates the load, on hover over Refresh
+        StringBuilder timings = new StringBuilder("Loaded in " + s.getTotalMs() + " ms");
+        s.getTimingsMs().forEach((name, ms) -> timings.append("\n").append(name).append(": ").append(ms).append(" ms"));
+        btnRefresh.setTooltip(new Tooltip(timings.toString()));
+    }
+
+    private void applyChange(Label label, double change, String suffix) {
+        label.setGraphic(loadArrowIcon(change >= 0));
+        label.setText((change >= 0 ? "+" : "") + df.format(change) + suffix);
+        label.setTextFill(change >= 0 ? javafx.scene.paint.Color.web("#A8F5A8") : javafx.scene.paint.Color.web("#FF6B6B"));
     }
 
     @FXML
@@ -355,55 +177,37 @@ public class DashboardController implements Initializable {
 
     @FXML
     private void handleTimeFilter(ActionEvent event) {
-        String selected = cbTimeFilter.getValue();
-        String query = "";
-        if ("This Week".equals(selected)) {
-            query = "SELECT p.id AS productId, p.name, SUM(oi.quantity) AS quantitySold, SUM(oi.quantity * oi.price) AS totalRevenue " +
-                    "FROM order_items oi " +
-                    "JOIN products p ON oi.product_id = p.id " +
-                    "JOIN orders o ON oi.order_id = o.id " +
-                    "WHERE o.created_at >= DATE_SUB(CURDATE(), INTERVAL 7 DAY) " +
-                    "GROUP BY p.id, p.name " +
-                    "ORDER BY quantitySold DESC " +
-                    "LIMIT 10";
-        } else if ("This Month".equals(selected)) {
-            query = "SELECT p.id AS productId, p.name, SUM(oi.quantity) AS quantitySold, SUM(oi.quantity * oi.price) AS totalRevenue " +
-                    "FROM order_items oi " +
-                    "JOIN products p ON oi.product_id = p.id " +
-                    "JOIN orders o ON oi.order_id = o.id " +
-                    "WHERE YEAR(o.created_at) = " + currentMonth.getYear() + " AND MONTH(o.created_at) = " + currentMonth.getMonthValue() + " " +
-                    "GROUP BY p.id, p.name " +
-                    "ORDER BY quantitySold DESC " +
-                    "LIMIT 10";
-        } else {
-            query = "SELECT p.id AS productId, p.name, SUM(oi.quantity) AS quantitySold, SUM(oi.quantity * oi.price) AS totalRevenue " +
-                    "FROM order_items oi " +
-                    "JOIN products p ON oi.product_id = p.id " +
-                    "JOIN orders o ON oi.order_id = o.id " +
-                    "WHERE DATE(o.created_at) = '" + currentDate + "' " +
-                    "GROUP BY p.id, p.name " +
-                    "ORDER BY quantitySold DESC " +
-                    "LIMIT 10";
-        }
-        loadBestSellingProducts(query);
+        snapshotService.loadBestSellers(LocalDate.now(), cbTimeFilter.getValue())
+                .whenComplete((list, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        error.printStackTrace();
+                        showError("Failed to load best sellers: " + messageOf(error));
+                        return;
+                    }
+                    salesList.setAll(list);
+                    bestSellingTable.setItems(salesList);
+                }));
     }
 
-    private void loadBestSellingProducts(String query) {
-        salesList.clear();
+    // The failure behind the CompletionException the future wraps it in
+    private static String messageOf(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+
+    private void showError(String content) {
         try {
-            Statement stmt = connectDb.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-            while (rs.next()) {
-                salesList.add(new ProductSales(
-                        rs.getInt("productId"),
-                        rs.getString("name"),
-                        rs.getInt("quantitySold"),
-                        rs.getDouble("totalRevenue")
-                ));
-            }
-            bestSellingTable.setItems(salesList);
-        } catch (SQLException e) {
-            e.printStackTrace();
+            if (btnRefresh.getScene() == null)
+                throw new NullPointerException("Scene is null");
+            Pane rootPane = (Pane) btnRefresh.getScene().getRoot();
+            SweetAlert.showAlert(rootPane, SweetAlert.AlertType.ERROR, "Error", content, null);
+        } catch (Exception e) {
+            System.err.println("SweetAlert failed: " + e.getMessage());
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Error");
+            alert.setHeaderText(null);
+            alert.setContentText(content);
+            alert.showAndWait();
         }
     }
 
@@ -416,8 +220,7 @@ public class DashboardController implements Initializable {
     private ImageView loadArrowIcon(boolean isUp) {
         ImageView arrow = new ImageView();
         try {
-            String path = isUp ? "/resources/img/arrow-trend-up-solid-full.png" : "/resources/img/arrow-trend-down-solid-full.png";
-            Image icon = new Image(getClass().getResourceAsStream(path));
+            Image icon = IconRegistry.get(isUp ? IconRegistry.ARROW_UP : IconRegistry.ARROW_DOWN);
             arrow.setImage(icon);
             arrow.setFitWidth(14);
             arrow.setFitHeight(14);
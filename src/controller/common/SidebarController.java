@@ -2,17 +2,11 @@
 
 package controller.common;
 
-import java.io.File;
 import java.io.IOException;
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.Statement;
-import java.time.LocalDate;
 import java.util.ResourceBundle;
-import java.util.Timer;
-import java.util.TimerTask;
-import dao.DatabaseConnection;
+import java.util.function.IntConsumer;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -28,17 +22,16 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.scene.Node;
+import service.OrderEventBus;
 import utils.SessionManager;
+import utils.ViewCache;
 
 public class SidebarController implements Initializable {
     Stage window;
     Scene scene;
     Parent root;
-    TimerTask task;
-    Timer timer;
-    Connection connectDb = DatabaseConnection.getConnection();
-    LocalDate currentDate;
-    int currentData;
+    private final OrderEventBus orderEvents = OrderEventBus.getInstance();
+    private IntConsumer unpaidListener;
 
     @FXML private BorderPane SceneBorderPane;
     @FXML private Button overviewBtn;
@@ -67,32 +60,15 @@ public class SidebarController implements Initializable {
     private HBox currentActiveMenu = null;
 
     private void alertOrder() {
-        task = new TimerTask() {
-            @Override
-            public void run() {
-                if (getOrderAlert() != 0) {
-                    orderAlert.setVisible(true);
-                } else {
-                    orderAlert.setVisible(false);
-                }
+        unpaidListener = count -> Platform.runLater(() -> {
+            // this sidebar was replaced by a new scene; stop listening
+            if (orderAlert.getScene() == null || orderAlert.getScene().getWindow() == null) {
+                orderEvents.unsubscribeUnpaidCount(unpaidListener);
+                return;
             }
-        };
-        timer = new Timer();
-        timer.schedule(task, 0L, 1000L);
-    }
-
-    private int getOrderAlert() {
-        String checkquery = "SELECT COUNT(1) as counter FROM orders WHERE status = 'unpaid' AND DATE(created_at) = '" + currentDate + "'";
-        try {
-            Statement statement = connectDb.createStatement();
-            ResultSet queryResult = statement.executeQuery(checkquery);
-            while (queryResult.next()) {
-                currentData = queryResult.getInt("counter");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return currentData;
+            orderAlert.setVisible(count > 0);
+        });
+        orderEvents.subscribeUnpaidCount(unpaidListener);
     }
 
     private void checkAdminRole() {
@@ -112,7 +88,6 @@ public class SidebarController implements Initializable {
     public void initialize(URL location, ResourceBundle resources) {
         checkAdminRole();
         currentAdminLabel.setText(SessionManager.getCurrentUsername() != null ? SessionManager.getCurrentUsername() : "Guest");
-        currentDate = LocalDate.now();
         SessionManager.setOnlineStatus();
         alertOrder();
         
@@ -138,54 +113,9 @@ public class SidebarController implements Initializable {
 
    public void loadScene(String UI) {
     try {
-        String fxmlPath = UI + ".fxml";
-        System.out.println("=== Loading Scene ===");
-        System.out.println("Requested path: " + fxmlPath);
-        
-        // Try multiple methods to load the FXML
-        URL fxmlUrl = null;
-        
-        // Method 1: Try from classpath
-        fxmlUrl = getClass().getResource(fxmlPath);
-        System.out.println("Method 1 (classpath): " + fxmlUrl);
-        
-        // Method 2: Try with leading slash
-        if (fxmlUrl == null && !fxmlPath.startsWith("/")) {
-            fxmlUrl = getClass().getResource("/" + fxmlPath);
-            System.out.println("Method 2 (with /): " + fxmlUrl);
-        }
-        
-        // Method 3: Try direct file path (for development in VS Code)
-        if (fxmlUrl == null) {
-            try {
-                String projectRoot = System.getProperty("user.dir");
-                File fxmlFile = new File(projectRoot, "src" + fxmlPath);
-                System.out.println("Method 3 (direct file): " + fxmlFile.getAbsolutePath());
-                
-                if (fxmlFile.exists()) {
-                    fxmlUrl = fxmlFile.toURI().toURL();
-                    System.out.println("✓ Found file directly: " + fxmlUrl);
-                }
-            } catch (Exception e) {
-                System.err.println("Method 3 failed: " + e.getMessage());
-            }
-        }
-        
-        if (fxmlUrl == null) {
-            throw new IOException("Could not find FXML file: " + fxmlPath);
-        }
-        
-        System.out.println("✓ Using URL: " + fxmlUrl);
-        
-        FXMLLoader loader = new FXMLLoader(fxmlUrl);
-        root = loader.load();
-        
-        if (root == null) {
-            throw new IOException("FXML content is null");
-        }
-        
+        // Cached views come back as-is and refresh themselves through onShow()
+        root = ViewCache.get(UI).getRoot();
         SceneBorderPane.setCenter(root);
-        System.out.println("✓ Successfully loaded and displayed scene");
         
         // Hide sidebar for order view
         if (UI.equals("/view/staff/order")) {
@@ -286,6 +216,7 @@ public class SidebarController implements Initializable {
 
     @FXML
     private void HandleLogOutClicked(ActionEvent event) throws IOException {
+        orderEvents.unsubscribeUnpaidCount(unpaidListener);
         SessionManager.logout();
         window = (Stage) ((Node) event.getSource()).getScene().getWindow();
         root = FXMLLoader.load(getClass().getResource("/view/auth/login.fxml"));
@@ -1,5 +1,6 @@
 package controller.manager;
 
+import dao.Page;
 import dao.UserDAO;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -12,13 +13,14 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import model.User;
+import utils.Refreshable;
 import utils.SweetAlert; // ← Thêm import này
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
 
-public class EmployeeController {
+public class EmployeeController implements Refreshable {
 
     @FXML private TableView<User> tableEmployees;
     @FXML private TableColumn<User, Integer> colId;
@@ -51,7 +53,8 @@ public class EmployeeController {
 
     private User currentUser;
     private boolean isEditMode = false;
-    private int currentPage = 0;
+    // Keyset cursor: the last user loaded so far
+    private User lastLoaded;
     private static final int PAGE_SIZE = 5;
     private boolean hasMoreData = true;
 
@@ -63,11 +66,15 @@ public class EmployeeController {
         filteredList = FXCollections.observableArrayList();
 
         setupTableColumns();
-        loadUserData();
         setupSearchAndFilter();
         setupShiftControls();
     }
 
+    @Override
+    public void onShow() {
+        loadUserData();
+    }
+
     private void setupTableColumns() {
         colId.setCellValueFactory(new PropertyValueFactory<>("id"));
         colUsername.setCellValueFactory(new PropertyValueFactory<>("username"));
@@ -144,16 +151,14 @@ public class EmployeeController {
     }
 
     private void loadUserData() {
-        currentPage = 0;
         userList.clear();
         filteredList.clear();
 
-        List<User> firstPage = userDAO.getUsersPaginated(0, PAGE_SIZE);
-        userList.addAll(firstPage);
-        filteredList.setAll(firstPage);
-
-        int totalCount = userDAO.getTotalCount();
-        hasMoreData = totalCount > PAGE_SIZE;
+        Page<User> firstPage = userDAO.getUsersPage(null, PAGE_SIZE);
+        lastLoaded = firstPage.getLast();
+        hasMoreData = firstPage.hasMore();
+        userList.addAll(firstPage.getItems());
+        filteredList.setAll(firstPage.getItems());
 
         tableEmployees.setItems(filteredList);
         updateStatistics();
@@ -164,17 +169,14 @@ public class EmployeeController {
     private void handleLoadMore() {
         if (!hasMoreData) return;
 
-        currentPage++;
-        List<User> nextPage = userDAO.getUsersPaginated(currentPage * PAGE_SIZE, PAGE_SIZE);
-
+        Page<User> nextPage = userDAO.getUsersPage(lastLoaded, PAGE_SIZE);
+        hasMoreData = nextPage.hasMore();
         if (!nextPage.isEmpty()) {
-            userList.addAll(nextPage);
+            lastLoaded = nextPage.getLast();
+            userList.addAll(nextPage.getItems());
             applyFilters();
         }
 
-        int totalCount = userDAO.getTotalCount();
-        hasMoreData = (currentPage + 1) * PAGE_SIZE < totalCount;
-
         updateStatistics();
         updateViewMoreButton();
     }
@@ -214,8 +216,6 @@ public class EmployeeController {
 
         tableEmployees.setItems(filteredList);
         updateStatistics();
-        int totalCount = userDAO.getTotalCount();
-        hasMoreData = (currentPage + 1) * PAGE_SIZE < totalCount;
         updateViewMoreButton();
     }
 
@@ -1,6 +1,7 @@
 package controller.manager;
 
 import dao.InventoryDAO;
+import dao.Page;
 import dao.TransactionDAO;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -15,13 +16,15 @@ import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import model.Inventory;
 import model.Transaction;
+import service.ProductAvailability;
+import utils.Refreshable;
 import utils.SessionManager;
 import utils.SweetAlert; // ← Thêm import
 import javafx.scene.text.Font;
 
 import java.util.List;
 
-public class InventoryController {
+public class InventoryController implements Refreshable {
 
     @FXML private TableView<Inventory> tableInventory;
     @FXML private TableColumn<Inventory, String> colId;
@@ -55,7 +58,8 @@ public class InventoryController {
     @FXML private Label lblTotalItemsInTable;   // ← mới
     @FXML private Label lblLowStockInTable;
 
-    private int currentPage = 0;
+    // Keyset cursor: the last item loaded so far
+    private Inventory lastLoaded;
     private static final int PAGE_SIZE = 10;
     private boolean hasMoreData = true;
 
@@ -78,10 +82,14 @@ public class InventoryController {
         filteredList = FXCollections.observableArrayList();
 
         setupTableColumns();
-        loadInventoryData();
         setupSearchAndFilter();
     }
 
+    @Override
+    public void onShow() {
+        loadInventoryData();
+    }
+
     private void setupTableColumns() {
         colId.setCellValueFactory(cellData -> {
             ObservableList<Inventory> items = tableInventory.getItems();
@@ -189,17 +197,14 @@ public class InventoryController {
     }
 
     private void loadInventoryData() {
-        currentPage = 0;
         inventoryList.clear();
         filteredList.clear();
-        hasMoreData = true;
-
-        List<Inventory> firstPage = inventoryDAO.getInventoryPage(0, PAGE_SIZE);
-        inventoryList.addAll(firstPage);
-        filteredList.setAll(firstPage);
 
-        int total = inventoryDAO.getTotalCount();
-        hasMoreData = (currentPage + 1) * PAGE_SIZE < total;
+        Page<Inventory> firstPage = inventoryDAO.getInventoryPage(null, PAGE_SIZE);
+        lastLoaded = firstPage.getLast();
+        hasMoreData = firstPage.hasMore();
+        inventoryList.addAll(firstPage.getItems());
+        filteredList.setAll(firstPage.getItems());
 
         tableInventory.setItems(filteredList);
         updateStatistics();
@@ -210,19 +215,14 @@ public class InventoryController {
     private void handleLoadMore() {
         if (!hasMoreData) return;
 
-        currentPage++;
-        List<Inventory> nextPage = inventoryDAO.getInventoryPage(currentPage * PAGE_SIZE, PAGE_SIZE);
-
-        if (nextPage.isEmpty()) {
-            hasMoreData = false;
-        } else {
-            inventoryList.addAll(nextPage);
+        Page<Inventory> nextPage = inventoryDAO.getInventoryPage(lastLoaded, PAGE_SIZE);
+        hasMoreData = nextPage.hasMore();
+        if (!nextPage.isEmpty()) {
+            lastLoaded = nextPage.getLast();
+            inventoryList.addAll(nextPage.getItems());
             applyFilters();
         }
 
-        int total = inventoryDAO.getTotalCount();
-        hasMoreData = (currentPage + 1) * PAGE_SIZE < total;
-
         updateStatistics();
         updateViewMoreButton();
     }
@@ -329,6 +329,7 @@ public class InventoryController {
         currentItemForStock.setQuantity(newQty);
 
         if (inventoryDAO.updateInventory(currentItemForStock)) {
+            ProductAvailability.getInstance().refresh();
             insertExpenseTransaction(expense, "Added " + addQty + " " + currentItemForStock.getUnit() + " of " + currentItemForStock.getName());
             showSweetAlert(SweetAlert.AlertType.SUCCESS, "Success", "Stock added successfully.");
             loadInventoryData();
@@ -371,6 +372,7 @@ public class InventoryController {
     private void handleDeleteInventory(Inventory inv) {
         showConfirmation("Confirm Delete", "Are you sure you want to delete this item?\nItem: " + inv.getName(), () -> {
             if (inventoryDAO.deleteInventory(inv.getId())) {
+                ProductAvailability.getInstance().refresh();
                 showSweetAlert(SweetAlert.AlertType.SUCCESS, "Success", "Item deleted successfully.");
                 loadInventoryData();
             } else {
@@ -400,6 +402,7 @@ public class InventoryController {
             currentInventory.setCostPerUnit(costPerUnit);
 
             if (inventoryDAO.updateInventory(currentInventory)) {
+                ProductAvailability.getInstance().refresh();
                 if (addedQty > 0) {
                     insertExpenseTransaction(expense, "Purchased additional " + addedQty + " " + unit + " of " + name);
                 }
@@ -418,6 +421,7 @@ public class InventoryController {
             newInv.setCostPerUnit(costPerUnit);
 
             if (inventoryDAO.addInventory(newInv)) {
+                ProductAvailability.getInstance().refresh();
                 if (qty > 0) {
                     insertExpenseTransaction(qty * costPerUnit, "Purchased initial " + qty + " " + unit + " of " + name);
                 }
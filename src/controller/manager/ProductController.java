@@ -1,6 +1,7 @@
 package controller.manager;
 
 import dao.InventoryDAO;
+import dao.Page;
 import dao.ProductDAO;
 import dao.ProductIngredientDAO;
 import javafx.collections.FXCollections;
@@ -9,7 +10,6 @@ import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.HBox;
@@ -19,6 +19,10 @@ import javafx.stage.FileChooser;
 import model.Inventory;
 import model.Product;
 import model.ProductIngredient;
+import service.OrderDetailsRepository;
+import service.RecipeCache;
+import utils.Refreshable;
+import utils.ImageCache;
 import utils.SweetAlert;
 
 import java.io.File;
@@ -33,7 +37,7 @@ import java.util.Set;
 import java.util.UUID;
 import javafx.fxml.FXML;
 
-public class ProductController {
+public class ProductController implements Refreshable {
 
     @FXML private TableView<Product> tableProducts;
     @FXML private TableColumn<Product, String> colId;
@@ -83,7 +87,8 @@ public class ProductController {
     private String selectedImagePath = "";
     @FXML private Button btnViewMore;
 
-    private int currentPage = 0;
+    // Keyset cursor: the last product loaded so far
+    private Product lastLoaded;
     private static final int PAGE_SIZE = 10;
     private boolean hasMoreData = true;
     @FXML
@@ -99,8 +104,6 @@ public class ProductController {
 
         setupTableColumns();
         setupIngredientsTable();
-        loadProductData();
-        loadInventoryOptions();
         setupSearchAndFilter();
 
         // Set overlay click handler
@@ -131,6 +134,12 @@ public class ProductController {
         });
     }
 
+    @Override
+    public void onShow() {
+        loadProductData();
+        loadInventoryOptions();
+    }
+
     private void handleOverlayClick(MouseEvent event) {
         if (dialogPane.isVisible()) {
             hideDialog();
@@ -366,14 +375,14 @@ public class ProductController {
     }
 
     private void loadProductData() {
-        currentPage = 0;
-        hasMoreData = true;
         productList.clear();
         filteredList.clear();
 
-        List<Product> firstPage = productDAO.getProductsPaginated(currentPage * PAGE_SIZE, PAGE_SIZE);
-        productList.addAll(firstPage);
-        filteredList.setAll(firstPage);
+        Page<Product> firstPage = productDAO.getProductsPage(null, PAGE_SIZE);
+        lastLoaded = firstPage.getLast();
+        hasMoreData = firstPage.hasMore();
+        productList.addAll(firstPage.getItems());
+        filteredList.setAll(firstPage.getItems());
 
         tableProducts.setItems(filteredList);
         updateStatistics();
@@ -384,13 +393,11 @@ public class ProductController {
     private void handleLoadMore() {
         if (!hasMoreData) return;
 
-        currentPage++;
-        List<Product> nextPage = productDAO.getProductsPaginated(currentPage * PAGE_SIZE, PAGE_SIZE);
-
-        if (nextPage.isEmpty()) {
-            hasMoreData = false;
-        } else {
-            productList.addAll(nextPage);
+        Page<Product> nextPage = productDAO.getProductsPage(lastLoaded, PAGE_SIZE);
+        hasMoreData = nextPage.hasMore();
+        if (!nextPage.isEmpty()) {
+            lastLoaded = nextPage.getLast();
+            productList.addAll(nextPage.getItems());
             applyFilters(); // Áp dụng lại filter
         }
 
@@ -469,7 +476,7 @@ public class ProductController {
         chkHot.setSelected(false);
         chkIced.setSelected(false);
         chkFrappe.setSelected(false);
-        imgPreview.setImage(new Image("file:img/temp_icon.png"));
+        imgPreview.setImage(ImageCache.getProductImage(ImageCache.DEFAULT_IMAGE, 150, 150));
 
         showDialog();
     }
@@ -488,12 +495,7 @@ public class ProductController {
         chkIced.setSelected(types.contains("iced"));
         chkFrappe.setSelected(types.contains("frappe"));
 
-        try {
-            Image image = new Image("file:" + product.getImage());
-            imgPreview.setImage(image);
-        } catch (Exception e) {
-            imgPreview.setImage(new Image("file:img/temp_icon.png"));
-        }
+        imgPreview.setImage(ImageCache.getProductImage(product.getImage(), 150, 150));
 
         showDialog();
     }
@@ -534,7 +536,7 @@ public class ProductController {
                 selectedImagePath = "img/product/" + uniqueFileName;
 
                 // Update the image preview
-                imgPreview.setImage(new Image("file:" + destPath.toAbsolutePath().toString()));
+                imgPreview.setImage(ImageCache.getProductImage(selectedImagePath, 150, 150));
 
                 showSweetAlert(SweetAlert.AlertType.SUCCESS, "Success", "Image uploaded successfully!");
 
@@ -566,6 +568,8 @@ public class ProductController {
             currentProduct.setImage(selectedImagePath);
 
             if (productDAO.updateProduct(currentProduct)) {
+                // Cached order details show product names and images
+                OrderDetailsRepository.getInstance().clear();
                 showSweetAlert(SweetAlert.AlertType.SUCCESS, "Success", "Product updated successfully.");
                 loadProductData();
                 handleCloseDialog();
@@ -592,6 +596,8 @@ public class ProductController {
     private void handleDeleteProduct(Product product) {
         showConfirmation("Confirm Delete", "Are you sure you want to delete this product?\nProduct: " + product.getName(), () -> {
             if (productDAO.deleteProduct(product.getId())) {
+                RecipeCache.getInstance().invalidate();
+                OrderDetailsRepository.getInstance().clear();
                 showSweetAlert(SweetAlert.AlertType.SUCCESS, "Success", "Product deleted successfully.");
                 loadProductData();
             } else {
@@ -682,6 +688,7 @@ public class ProductController {
             pi.setQuantity(row.getQuantity());
             productIngredientDAO.addProductIngredient(pi);
         }
+        RecipeCache.getInstance().invalidate();
 
         showSweetAlert(SweetAlert.AlertType.SUCCESS, "Success", "Ingredients saved successfully.");
         hideIngredientsDialog();
@@ -1,40 +1,41 @@
 package controller.manager;
 
 import dao.*;
-import javafx.animation.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.geometry.Insets;
-import javafx.geometry.Pos;
 import javafx.scene.chart.*;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
-import javafx.util.Duration;
 import model.*;
 
-import java.io.FileWriter;
-import java.io.IOException;
 import java.sql.*;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.time.temporal.WeekFields;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.CompletionException;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
-import javafx.print.PrinterJob;
-import javafx.print.PageLayout;
-import javafx.print.PageOrientation;
-import javafx.print.Paper;
+import service.CsvExporter;
+import service.ReportCache;
+import service.ReportEngine;
+import service.ReportRenderer;
+import utils.Refreshable;
+import utils.IconRegistry;
 import utils.SweetAlert;
 import javafx.application.Platform;
 
-public class ReportController {
+public class ReportController implements Refreshable {
 
     @FXML private Label lblCurrentDate;
     @FXML private ComboBox<String> cmbReportType;
@@ -63,28 +64,38 @@ public class ReportController {
 
     // Table
     @FXML private Label lblTableTitle;
-    @FXML private TableView<Map<String, Object>> tableReport;
+    @FXML private TableView<ReportDataset.Row> tableReport;
     @FXML private TextField txtTableSearch;
     @FXML private Label lblTableSummary;
+    @FXML private Label lblCacheStatus;
 
     // Loading
     @FXML private StackPane loadingOverlay;
+    @FXML private ProgressIndicator pbLoading;
+    @FXML private Label lblLoadingStatus;
     @FXML private Button btnGenerateReport;
 
-    private ObservableList<Map<String, Object>> reportData;
-    private ObservableList<Map<String, Object>> filteredData;
+    private ReportDataset reportData;
+    private ObservableList<ReportDataset.Row> filteredData;
     private DecimalFormat currencyFormat = new DecimalFormat("$#,##0.00");
     private DecimalFormat percentFormat = new DecimalFormat("#0.0%");
+    private final ReportEngine reportEngine = new ReportEngine();
+    private ReportEngine.Job currentJob;
+    private CsvExporter.Export currentExport;
+    private ReportRenderer.Batch currentBatch;
+    private ReportEngine.Result currentResult;
+    private static final DateTimeFormatter CACHE_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter TABLE_DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+    private static final DateTimeFormatter CHART_DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd");
 
     // Lưu dữ liệu kỳ trước để tính toán % thay đổi
     private double previousRevenue = 0;
     private int previousOrders = 0;
     private double previousAvgOrder = 0;
-    private double previousCost = 0;
 
     @FXML
     public void initialize() {
-        reportData = FXCollections.observableArrayList();
+        reportData = ReportDataset.builder().build();
         filteredData = FXCollections.observableArrayList();
 
         updateCurrentDate();
@@ -94,7 +105,10 @@ public class ReportController {
         xAxis.setTickLabelRotation(45);
         mainChart.setBarGap(3);
         mainChart.setCategoryGap(20);
+    }
 
+    @Override
+    public void onShow() {
         // Defer report generation until after scene is set
         Platform.runLater(this::handleGenerateReport);
     }
@@ -174,638 +188,179 @@ public class ReportController {
 
     @FXML
     private void handleGenerateReport() {
-        showLoading(true);
-
-        Timeline timeline = new Timeline(new KeyFrame(Duration.millis(500), e -> {
-            generateReport();
-            showLoading(false);
-        }));
-        timeline.play();
-    }
-
-    private void generateReport() {
         String reportType = cmbReportType.getValue();
-
-        switch (reportType) {
-            case "Revenue by Date":
-                generateRevenueByDateReport();
-                break;
-            case "Revenue by Staff":
-                generateRevenueByStaffReport();
-                break;
-            case "Product Performance":
-                generateProductPerformanceReport();
-                break;
-            case "Profit Analysis":
-                generateProfitAnalysisReport();
-                break;
-            case "Inventory Usage":
-                generateInventoryUsageReport();
-                break;
-            default:
-                generateRevenueByDateReport();
+        TimeRange dateRange = getDateRange();
+        if (currentJob != null && !currentJob.isDone() && currentJob.matches(reportType, dateRange)) {
+            return;
         }
-    }
 
-    private void generateRevenueByDateReport() {
-        reportData.clear();
-        tableReport.getColumns().clear();
-
-        DateRange dateRange = getDateRange();
-        DateRange previousDateRange = getPreviousDateRange();
-
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            // Lấy dữ liệu kỳ hiện tại
-            String sql = "SELECT DATE(o.created_at) as order_date, " +
-                    "COUNT(DISTINCT o.id) as total_orders, " +
-                    "SUM(p.total_price) as revenue, " +
-                    "SUM(p.total_price - p.vat) as revenue_no_vat " +
-                    "FROM orders o " +
-                    "JOIN payments p ON o.id = p.order_id " +
-                    "WHERE o.created_at BETWEEN ? AND ? " +
-                    "AND o.status = 'paid' " +
-                    "GROUP BY DATE(o.created_at) " +
-                    "ORDER BY order_date DESC";
-
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setTimestamp(1, new Timestamp(dateRange.fromDate.getTime()));
-            ps.setTimestamp(2, new Timestamp(dateRange.toDate.getTime()));
-
-            ResultSet rs = ps.executeQuery();
-
-            double totalRevenue = 0;
-            int totalOrders = 0;
-
-            while (rs.next()) {
-                Map<String, Object> row = new HashMap<>();
-                row.put("date", rs.getDate("order_date"));
-                row.put("orders", rs.getInt("total_orders"));
-                row.put("revenue", rs.getDouble("revenue"));
-                row.put("revenue_no_vat", rs.getDouble("revenue_no_vat"));
-
-                reportData.add(row);
-                totalRevenue += rs.getDouble("revenue");
-                totalOrders += rs.getInt("total_orders");
+        // Cancels the previous report if it is still running
+        ReportEngine.Job job = reportEngine.submit(reportType, dateRange, (progress, message) ->
+                Platform.runLater(() -> {
+                    if (currentJob != null && currentJob.matches(reportType, dateRange)) {
+                        pbLoading.setProgress(progress);
+                        lblLoadingStatus.setText(message + "...");
+                    }
+                }));
+        currentJob = job;
+        if (!job.isDone()) {
+            showLoading(true);
+            pbLoading.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
+            lblLoadingStatus.setText("Generating Report...");
+        }
+
+        job.getResult().whenComplete((result, error) -> Platform.runLater(() -> {
+            if (job != currentJob) {
+                // superseded by a newer request
+                return;
             }
-
-            // Lấy dữ liệu kỳ trước
-            calculatePreviousPeriodData(conn, previousDateRange);
-
-            double totalCost = getTotalExpenses(conn, dateRange);
-
-            updateSummaryCards(totalRevenue, totalOrders, totalCost);
-            setupRevenueByDateTable();
-            updateRevenueChart();
-            updateRevenuePieChart();
-
-            filteredData.setAll(reportData);
-            tableReport.setItems(filteredData);
-            lblTableSummary.setText("Showing " + filteredData.size() + " records");
-
-            lblChartTitle.setText("Revenue Trend");
-            lblTableTitle.setText("Revenue by Date Details");
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showSweetAlert(SweetAlert.AlertType.ERROR, "Error", "Failed to generate report: " + e.getMessage());
-        }
-    }
-
-    private void generateRevenueByStaffReport() {
-        reportData.clear();
-        tableReport.getColumns().clear();
-
-        DateRange dateRange = getDateRange();
-        DateRange previousDateRange = getPreviousDateRange();
-
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            String sql = "SELECT u.id, u.username, u.role, " +
-                    "COUNT(DISTINCT o.id) as total_orders, " +
-                    "SUM(p.total_price) as revenue, " +
-                    "AVG(p.total_price) as avg_order_value " +
-                    "FROM users u " +
-                    "LEFT JOIN orders o ON u.id = o.staff_id " +
-                    "LEFT JOIN payments p ON o.id = p.order_id " +
-                    "WHERE o.created_at BETWEEN ? AND ? " +
-                    "AND o.status = 'paid' " +
-                    "GROUP BY u.id, u.username, u.role " +
-                    "ORDER BY revenue DESC";
-
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setTimestamp(1, new Timestamp(dateRange.fromDate.getTime()));
-            ps.setTimestamp(2, new Timestamp(dateRange.toDate.getTime()));
-
-            ResultSet rs = ps.executeQuery();
-
-            double totalRevenue = 0;
-            int totalOrders = 0;
-
-            while (rs.next()) {
-                Map<String, Object> row = new HashMap<>();
-                row.put("staff_id", rs.getInt("id"));
-                row.put("username", rs.getString("username"));
-                row.put("role", rs.getString("role"));
-                row.put("orders", rs.getInt("total_orders"));
-                row.put("revenue", rs.getDouble("revenue"));
-                row.put("avg_order", rs.getDouble("avg_order_value"));
-
-                reportData.add(row);
-                totalRevenue += rs.getDouble("revenue");
-                totalOrders += rs.getInt("total_orders");
+            currentJob = null;
+            showLoading(currentExport != null || currentBatch != null);
+            if (error == null) {
+                applyReport(result);
+                updateCacheStatus(result, job.isCacheHit());
+            } else if (!job.isCancelled()) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                cause.printStackTrace();
+                showSweetAlert(SweetAlert.AlertType.ERROR, "Error", "Failed to generate report: " + cause.getMessage());
             }
-
-            calculatePreviousPeriodData(conn, previousDateRange);
-
-            double totalCost = getTotalExpenses(conn, dateRange);
-
-            updateSummaryCards(totalRevenue, totalOrders, totalCost);
-            setupRevenueByStaffTable();
-            updateStaffRevenueChart();
-            updateStaffPieChart();
-
-            filteredData.setAll(reportData);
-            tableReport.setItems(filteredData);
-            lblTableSummary.setText("Showing " + filteredData.size() + " staff members");
-
-            lblChartTitle.setText("Revenue by Staff");
-            lblTableTitle.setText("Staff Performance Details");
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Error", "Failed to generate report: " + e.getMessage());
-        }
+        }));
     }
 
-    private void generateProductPerformanceReport() {
-        reportData.clear();
-        tableReport.getColumns().clear();
-
-        DateRange dateRange = getDateRange();
-        DateRange previousDateRange = getPreviousDateRange();
-
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            String sql = "SELECT p.id, p.name, p.price, " +
-                    "SUM(oi.quantity) as total_sold, " +
-                    "SUM(oi.quantity * oi.price) as revenue, " +
-                    "COUNT(DISTINCT oi.order_id) as num_orders " +
-                    "FROM products p " +
-                    "JOIN order_items oi ON p.id = oi.product_id " +
-                    "JOIN orders o ON oi.order_id = o.id " +
-                    "WHERE o.created_at BETWEEN ? AND ? " +
-                    "AND o.status = 'paid' " +
-                    "GROUP BY p.id, p.name, p.price " +
-                    "ORDER BY revenue DESC";
-
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setTimestamp(1, new Timestamp(dateRange.fromDate.getTime()));
-            ps.setTimestamp(2, new Timestamp(dateRange.toDate.getTime()));
-
-            ResultSet rs = ps.executeQuery();
-
-            double totalRevenue = 0;
-            int totalSold = 0;
-            int totalOrders = 0;
-
-            while (rs.next()) {
-                Map<String, Object> row = new HashMap<>();
-                row.put("product_id", rs.getInt("id"));
-                row.put("product_name", rs.getString("name"));
-                row.put("unit_price", rs.getDouble("price"));
-                row.put("quantity_sold", rs.getInt("total_sold"));
-                row.put("revenue", rs.getDouble("revenue"));
-                row.put("num_orders", rs.getInt("num_orders"));
-
-                reportData.add(row);
-                totalRevenue += rs.getDouble("revenue");
-                totalSold += rs.getInt("total_sold");
-                totalOrders += rs.getInt("num_orders");
-            }
-
-            calculatePreviousPeriodData(conn, previousDateRange);
-
-            double totalCost = getTotalExpenses(conn, dateRange);
-
-            updateSummaryCards(totalRevenue, totalOrders, totalCost);
-            setupProductPerformanceTable();
-            updateProductChart();
-            updateProductPieChart();
-
-            filteredData.setAll(reportData);
-            tableReport.setItems(filteredData);
-            lblTableSummary.setText("Showing " + filteredData.size() + " products | Total Sold: " + totalSold);
-
-            lblChartTitle.setText("Product Performance");
-            lblTableTitle.setText("Product Sales Details");
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Error", "Failed to generate report: " + e.getMessage());
+    @FXML
+    private void handleCancelReport() {
+        if (currentJob != null) {
+            currentJob.cancel();
+            currentJob = null;
         }
-    }
-
-    private void generateProfitAnalysisReport() {
-        reportData.clear();
-        tableReport.getColumns().clear();
-
-        DateRange dateRange = getDateRange();
-        DateRange previousDateRange = getPreviousDateRange();
-
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            String sql = "SELECT DATE(o.created_at) as order_date, " +
-                    "SUM(p.total_price) as revenue, " +
-                    "SUM(p.vat) as total_vat, " +
-                    "COUNT(DISTINCT o.id) as orders " +
-                    "FROM orders o " +
-                    "JOIN payments p ON o.id = p.order_id " +
-                    "WHERE o.created_at BETWEEN ? AND ? " +
-                    "AND o.status = 'paid' " +
-                    "GROUP BY DATE(o.created_at) " +
-                    "ORDER BY order_date DESC";
-
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setTimestamp(1, new Timestamp(dateRange.fromDate.getTime()));
-            ps.setTimestamp(2, new Timestamp(dateRange.toDate.getTime()));
-
-            ResultSet rs = ps.executeQuery();
-
-            TreeSet<Date> allDates = new TreeSet<>();
-            Map<Date, Double> revenueMap = new HashMap<>();
-            Map<Date, Integer> ordersMap = new HashMap<>();
-
-            while (rs.next()) {
-                Date date = rs.getDate("order_date");
-                allDates.add(date);
-                revenueMap.put(date, rs.getDouble("revenue"));
-                ordersMap.put(date, rs.getInt("orders"));
-            }
-
-            String expenseSql = "SELECT DATE(created_at) as expense_date, " +
-                    "SUM(amount) as total_expense " +
-                    "FROM transactions " +
-                    "WHERE type = 'expense' " +
-                    "AND created_at BETWEEN ? AND ? " +
-                    "GROUP BY DATE(created_at)";
-
-            PreparedStatement psExpense = conn.prepareStatement(expenseSql);
-            psExpense.setTimestamp(1, new Timestamp(dateRange.fromDate.getTime()));
-            psExpense.setTimestamp(2, new Timestamp(dateRange.toDate.getTime()));
-
-            ResultSet rsExpense = psExpense.executeQuery();
-
-            Map<Date, Double> expenseMap = new HashMap<>();
-
-            while (rsExpense.next()) {
-                Date date = rsExpense.getDate("expense_date");
-                allDates.add(date);
-                expenseMap.put(date, rsExpense.getDouble("total_expense"));
-            }
-
-            double totalRevenue = 0;
-            double totalCost = 0;
-            int totalOrders = 0;
-
-            for (Date date : allDates) {
-                double revenue = revenueMap.getOrDefault(date, 0.0);
-                double cost = expenseMap.getOrDefault(date, 0.0);
-                double profit = revenue - cost;
-                int orders = ordersMap.getOrDefault(date, 0);
-
-                Map<String, Object> row = new HashMap<>();
-                row.put("date", date);
-                row.put("revenue", revenue);
-                row.put("cost", cost);
-                row.put("profit", profit);
-                row.put("profit_margin", revenue > 0 ? profit / revenue : 0);
-                row.put("orders", orders);
-
-                reportData.add(row);
-                totalRevenue += revenue;
-                totalCost += cost;
-                totalOrders += orders;
-            }
-
-            calculatePreviousPeriodData(conn, previousDateRange);
-
-            double netProfit = totalRevenue - totalCost;
-            lblTotalRevenue.setText(currencyFormat.format(totalRevenue));
-            lblTotalOrders.setText(String.valueOf(totalOrders));
-            lblNetProfit.setText(currencyFormat.format(netProfit));
-            lblProfitMargin.setText("Margin: " + percentFormat.format(totalRevenue > 0 ? netProfit / totalRevenue : 0));
-            lblAvgOrderValue.setText(currencyFormat.format(totalOrders > 0 ? totalRevenue / totalOrders : 0));
-
-            updateSummaryCardChanges(totalRevenue, totalOrders);
-
-            setupProfitAnalysisTable();
-            updateProfitChart();
-            updateProfitPieChart();
-
-            filteredData.setAll(reportData);
-            tableReport.setItems(filteredData);
-            lblTableSummary.setText("Showing " + filteredData.size() + " records");
-
-            lblChartTitle.setText("Profit Analysis");
-            lblTableTitle.setText("Profit Details by Date");
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Error", "Failed to generate report: " + e.getMessage());
+        if (currentExport != null) {
+            currentExport.cancel();
+            currentExport = null;
         }
-    }
-
-    private void generateInventoryUsageReport() {
-        reportData.clear();
-        tableReport.getColumns().clear();
-
-        DateRange dateRange = getDateRange();
-
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            String sql = "SELECT i.id, i.name, i.unit, i.cost_per_unit, i.quantity as current_stock, " +
-                    "SUM(pi.quantity * oi.quantity) as total_used, " +
-                    "SUM(pi.quantity * oi.quantity * i.cost_per_unit) as total_cost " +
-                    "FROM inventory i " +
-                    "JOIN product_ingredients pi ON i.id = pi.inventory_id " +
-                    "JOIN order_items oi ON pi.product_id = oi.product_id " +
-                    "JOIN orders o ON oi.order_id = o.id " +
-                    "WHERE o.created_at BETWEEN ? AND ? " +
-                    "AND o.status = 'paid' " +
-                    "GROUP BY i.id, i.name, i.unit, i.cost_per_unit, i.quantity " +
-                    "ORDER BY total_cost DESC";
-
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setTimestamp(1, new Timestamp(dateRange.fromDate.getTime()));
-            ps.setTimestamp(2, new Timestamp(dateRange.toDate.getTime()));
-
-            ResultSet rs = ps.executeQuery();
-
-            double totalCost = 0;
-
-            while (rs.next()) {
-                Map<String, Object> row = new HashMap<>();
-                row.put("inventory_id", rs.getInt("id"));
-                row.put("item_name", rs.getString("name"));
-                row.put("unit", rs.getString("unit"));
-                row.put("cost_per_unit", rs.getDouble("cost_per_unit"));
-                row.put("current_stock", rs.getDouble("current_stock"));
-                row.put("total_used", rs.getDouble("total_used"));
-                row.put("total_cost", rs.getDouble("total_cost"));
-
-                reportData.add(row);
-                totalCost += rs.getDouble("total_cost");
-            }
-
-            lblTotalRevenue.setText("N/A");
-            lblTotalOrders.setText(String.valueOf(reportData.size()));
-            lblNetProfit.setText(currencyFormat.format(-totalCost));
-            lblProfitMargin.setText("Total Cost");
-            lblAvgOrderValue.setText(currencyFormat.format(reportData.size() > 0 ? totalCost / reportData.size() : 0));
-
-            // Ẩn các change labels cho inventory report
-            lblRevenueChange.setVisible(false);
-            lblOrdersChange.setVisible(false);
-            lblAvgChange.setVisible(false);
-
-            setupInventoryUsageTable();
-            updateInventoryChart();
-            updateInventoryPieChart();
-
-            filteredData.setAll(reportData);
-            tableReport.setItems(filteredData);
-            lblTableSummary.setText("Showing " + filteredData.size() + " inventory items");
-
-            lblChartTitle.setText("Inventory Usage");
-            lblTableTitle.setText("Inventory Consumption Details");
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Error", "Failed to generate report: " + e.getMessage());
+        if (currentBatch != null) {
+            currentBatch.cancel();
+            currentBatch = null;
         }
+        showLoading(false);
     }
 
-    // Tính toán dữ liệu kỳ trước
-    private void calculatePreviousPeriodData(Connection conn, DateRange previousDateRange) {
-        try {
-            String sql = "SELECT " +
-                    "SUM(p.total_price) as revenue, " +
-                    "COUNT(DISTINCT o.id) as orders " +
-                    "FROM orders o " +
-                    "JOIN payments p ON o.id = p.order_id " +
-                    "WHERE o.created_at BETWEEN ? AND ? " +
-                    "AND o.status = 'paid'";
-
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setTimestamp(1, new Timestamp(previousDateRange.fromDate.getTime()));
-            ps.setTimestamp(2, new Timestamp(previousDateRange.toDate.getTime()));
-
-            ResultSet rs = ps.executeQuery();
-
-            if (rs.next()) {
-                previousRevenue = rs.getDouble("revenue");
-                previousOrders = rs.getInt("orders");
-                previousAvgOrder = previousOrders > 0 ? previousRevenue / previousOrders : 0;
-            }
-
-            previousCost = getTotalExpenses(conn, previousDateRange);
-
-        } catch (SQLException e) {
-            e.printStackTrace();
+    private void updateCacheStatus(ReportEngine.Result result, boolean cacheHit) {
+        if (cacheHit) {
+            lblCacheStatus.setText("Cached \u00b7 data as of " + result.getGeneratedAt().format(CACHE_TIME_FORMAT));
+            lblCacheStatus.setStyle("-fx-font-size: 12px; -fx-text-fill: #10b981; -fx-font-weight: 600;");
+        } else {
+            lblCacheStatus.setText("Live query \u00b7 " + result.getElapsedMs() + " ms");
+            lblCacheStatus.setStyle("-fx-font-size: 12px; -fx-text-fill: #7f8c8d;");
         }
+        lblCacheStatus.setTooltip(new Tooltip("Report cache: " + ReportCache.getInstance().getStats()));
     }
 
-    private double getTotalExpenses(Connection conn, DateRange range) throws SQLException {
-        String sql = "SELECT SUM(amount) FROM transactions WHERE type = 'expense' AND created_at BETWEEN ? AND ?";
-        PreparedStatement ps = conn.prepareStatement(sql);
-        ps.setTimestamp(1, new Timestamp(range.fromDate.getTime()));
-        ps.setTimestamp(2, new Timestamp(range.toDate.getTime()));
-        ResultSet rs = ps.executeQuery();
-        return rs.next() ? rs.getDouble(1) : 0.0;
-    }
-
-    // Table Setup Methods
-    private void setupRevenueByDateTable() {
-        TableColumn<Map<String, Object>, Date> colDate = new TableColumn<>("Date");
-        colDate.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Date) data.getValue().get("date")));
-        colDate.setCellFactory(col -> new TableCell<Map<String, Object>, Date>() {
-            @Override
-            protected void updateItem(Date item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : new SimpleDateFormat("MMM dd, yyyy").format(item));
-            }
-        });
-
-        TableColumn<Map<String, Object>, Integer> colOrders = new TableColumn<>("Orders");
-        colOrders.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Integer) data.getValue().get("orders")));
-
-        TableColumn<Map<String, Object>, Double> colRevenue = new TableColumn<>("Revenue");
-        colRevenue.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("revenue")));
-        colRevenue.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : currencyFormat.format(item));
-            }
-        });
-
-        tableReport.getColumns().addAll(colDate, colOrders, colRevenue);
-    }
-
-    private void setupRevenueByStaffTable() {
-        TableColumn<Map<String, Object>, String> colUsername = new TableColumn<>("Staff");
-        colUsername.setCellValueFactory(data -> new javafx.beans.property.SimpleStringProperty((String) data.getValue().get("username")));
-
-        TableColumn<Map<String, Object>, String> colRole = new TableColumn<>("Role");
-        colRole.setCellValueFactory(data -> new javafx.beans.property.SimpleStringProperty((String) data.getValue().get("role")));
-
-        TableColumn<Map<String, Object>, Integer> colOrders = new TableColumn<>("Orders");
-        colOrders.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Integer) data.getValue().get("orders")));
-
-        TableColumn<Map<String, Object>, Double> colRevenue = new TableColumn<>("Revenue");
-        colRevenue.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("revenue")));
-        colRevenue.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : currencyFormat.format(item));
-            }
-        });
-
-        TableColumn<Map<String, Object>, Double> colAvg = new TableColumn<>("Avg Order");
-        colAvg.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("avg_order")));
-        colAvg.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : currencyFormat.format(item));
-            }
-        });
+    // Bind a finished report to the cards, charts and table (FX thread)
+    private void applyReport(ReportEngine.Result result) {
+        currentResult = result;
+        reportData = result.getData();
+        tableReport.getColumns().clear();
 
-        tableReport.getColumns().addAll(colUsername, colRole, colOrders, colRevenue, colAvg);
-    }
+        previousRevenue = result.getPreviousRevenue();
+        previousOrders = result.getPreviousOrders();
+        previousAvgOrder = result.getPreviousAvgOrder();
+
+        String summary = "Showing " + reportData.getRowCount() + " records";
+        switch (result.getType()) {
+            case ReportEngine.REVENUE_BY_STAFF:
+                updateSummaryCards(result.getTotalRevenue(), result.getTotalOrders(), result.getTotalCost());
+                setupTable(reportData);
+                updateStaffRevenueChart();
+                updateStaffPieChart();
+                summary = "Showing " + reportData.getRowCount() + " staff members";
+                lblChartTitle.setText("Revenue by Staff");
+                lblTableTitle.setText("Staff Performance Details");
+                break;
 
-    private void setupProductPerformanceTable() {
-        TableColumn<Map<String, Object>, String> colProduct = new TableColumn<>("Product");
-        colProduct.setCellValueFactory(data -> new javafx.beans.property.SimpleStringProperty((String) data.getValue().get("product_name")));
-
-        TableColumn<Map<String, Object>, Double> colPrice = new TableColumn<>("Unit Price");
-        colPrice.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("unit_price")));
-        colPrice.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : currencyFormat.format(item));
-            }
-        });
+            case ReportEngine.PRODUCT_PERFORMANCE:
+                updateSummaryCards(result.getTotalRevenue(), result.getTotalOrders(), result.getTotalCost());
+                setupTable(reportData);
+                updateProductChart();
+                updateProductPieChart();
+                summary = "Showing " + reportData.getRowCount() + " products | Total Sold: " + result.getTotalQuantity();
+                lblChartTitle.setText("Product Performance");
+                lblTableTitle.setText("Product Sales Details");
+                break;
 
-        TableColumn<Map<String, Object>, Integer> colSold = new TableColumn<>("Qty Sold");
-        colSold.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Integer) data.getValue().get("quantity_sold")));
+            case ReportEngine.PROFIT_ANALYSIS:
+                updateSummaryCards(result.getTotalRevenue(), result.getTotalOrders(), result.getTotalCost());
+                setupTable(reportData);
+                updateProfitChart();
+                updateProfitPieChart();
+                lblChartTitle.setText("Profit Analysis");
+                lblTableTitle.setText("Profit Details by Date");
+                break;
 
-        TableColumn<Map<String, Object>, Double> colRevenue = new TableColumn<>("Revenue");
-        colRevenue.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("revenue")));
-        colRevenue.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : currencyFormat.format(item));
-            }
-        });
+            case ReportEngine.INVENTORY_USAGE:
+                double totalCost = result.getTotalCost();
+                lblTotalRevenue.setText("N/A");
+                lblTotalOrders.setText(String.valueOf(reportData.getRowCount()));
+                lblNetProfit.setText(currencyFormat.format(-totalCost));
+                lblProfitMargin.setText("Total Cost");
+                lblAvgOrderValue.setText(currencyFormat.format(reportData.getRowCount() > 0 ? totalCost / reportData.getRowCount() : 0));
+
+                // Ẩn các change labels cho inventory report
+                lblRevenueChange.setVisible(false);
+                lblOrdersChange.setVisible(false);
+                lblAvgChange.setVisible(false);
+
+                setupTable(reportData);
+                updateInventoryChart();
+                updateInventoryPieChart();
+                summary = "Showing " + reportData.getRowCount() + " inventory items";
+                lblChartTitle.setText("Inventory Usage");
+                lblTableTitle.setText("Inventory Consumption Details");
+                break;
 
-        TableColumn<Map<String, Object>, Integer> colOrders = new TableColumn<>("Orders");
-        colOrders.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Integer) data.getValue().get("num_orders")));
+            case ReportEngine.REVENUE_BY_DATE:
+            default:
+                updateSummaryCards(result.getTotalRevenue(), result.getTotalOrders(), result.getTotalCost());
+                setupTable(reportData);
+                updateRevenueChart();
+                updateRevenuePieChart();
+                lblChartTitle.setText("Revenue Trend");
+                lblTableTitle.setText("Revenue by Date Details");
+        }
 
-        tableReport.getColumns().addAll(colProduct, colPrice, colSold, colRevenue, colOrders);
+        filteredData.setAll(reportData.rows());
+        tableReport.setItems(filteredData);
+        lblTableSummary.setText(summary);
     }
 
-    private void setupProfitAnalysisTable() {
-        TableColumn<Map<String, Object>, Date> colDate = new TableColumn<>("Date");
-        colDate.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Date) data.getValue().get("date")));
-        colDate.setCellFactory(col -> new TableCell<Map<String, Object>, Date>() {
-            @Override
-            protected void updateItem(Date item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : new SimpleDateFormat("MMM dd, yyyy").format(item));
+    // Table columns come from the dataset schema; cells are read straight from its arrays
+    private void setupTable(ReportDataset data) {
+        for (int c = 0; c < data.getColumnCount(); c++) {
+            ReportDataset.Column column = data.getColumn(c);
+            if (!column.isShown()) {
+                continue;
             }
-        });
-
-        TableColumn<Map<String, Object>, Double> colRevenue = new TableColumn<>("Revenue");
-        colRevenue.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("revenue")));
-        colRevenue.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : currencyFormat.format(item));
-            }
-        });
-
-        TableColumn<Map<String, Object>, Double> colCost = new TableColumn<>("Cost");
-        colCost.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("cost")));
-        colCost.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : currencyFormat.format(item));
-            }
-        });
-
-        TableColumn<Map<String, Object>, Double> colProfit = new TableColumn<>("Profit");
-        colProfit.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("profit")));
-        colProfit.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : currencyFormat.format(item));
-            }
-        });
-
-        TableColumn<Map<String, Object>, Double> colMargin = new TableColumn<>("Margin %");
-        colMargin.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("profit_margin")));
-        colMargin.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : percentFormat.format(item));
-            }
-        });
-
-        tableReport.getColumns().addAll(colDate, colRevenue, colCost, colProfit, colMargin);
+            int index = c;
+            TableColumn<ReportDataset.Row, Object> tableColumn = new TableColumn<>(column.getHeader());
+            tableColumn.setCellValueFactory(cell -> new javafx.beans.property.SimpleObjectProperty<>(cell.getValue().getValue(index)));
+            tableColumn.setCellFactory(col -> new TableCell<ReportDataset.Row, Object>() {
+                @Override
+                protected void updateItem(Object item, boolean empty) {
+                    super.updateItem(item, empty);
+                    setText(empty || item == null ? null : formatCell(column.getKind(), item));
+                }
+            });
+            tableReport.getColumns().add(tableColumn);
+        }
     }
 
-    private void setupInventoryUsageTable() {
-        TableColumn<Map<String, Object>, String> colItem = new TableColumn<>("Item");
-        colItem.setCellValueFactory(data -> new javafx.beans.property.SimpleStringProperty((String) data.getValue().get("item_name")));
-
-        TableColumn<Map<String, Object>, String> colUnit = new TableColumn<>("Unit");
-        colUnit.setCellValueFactory(data -> new javafx.beans.property.SimpleStringProperty((String) data.getValue().get("unit")));
-
-        TableColumn<Map<String, Object>, Double> colUsed = new TableColumn<>("Used");
-        colUsed.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("total_used")));
-        colUsed.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : String.format("%.2f", item));
-            }
-        });
-
-        TableColumn<Map<String, Object>, Double> colStock = new TableColumn<>("Current Stock");
-        colStock.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("current_stock")));
-        colStock.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : String.format("%.2f", item));
-            }
-        });
-
-        TableColumn<Map<String, Object>, Double> colCost = new TableColumn<>("Total Cost");
-        colCost.setCellValueFactory(data -> new javafx.beans.property.SimpleObjectProperty<>((Double) data.getValue().get("total_cost")));
-        colCost.setCellFactory(col -> new TableCell<Map<String, Object>, Double>() {
-            @Override
-            protected void updateItem(Double item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : currencyFormat.format(item));
-            }
-        });
-
-        tableReport.getColumns().addAll(colItem, colUnit, colUsed, colStock, colCost);
+    private String formatCell(ReportDataset.Kind kind, Object value) {
+        switch (kind) {
+            case DATE: return ((LocalDate) value).format(TABLE_DATE_FORMAT);
+            case MONEY: return currencyFormat.format(value);
+            case PERCENT: return percentFormat.format(value);
+            case DECIMAL: return String.format("%.2f", value);
+            default: return value.toString();
+        }
     }
 
     // Chart Update Methods - SỬA ĐỂ TRÁNH LABEL BỊ TRÙNG
@@ -814,14 +369,14 @@ public class ReportController {
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("Daily Revenue");
 
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd");
+        int dateCol = reportData.indexOf("date");
+        int revenueCol = reportData.indexOf("revenue");
 
         // Lấy tối đa 15 ngày gần nhất để tránh chart quá đông
-        int maxItems = Math.min(15, reportData.size());
+        int maxItems = Math.min(15, reportData.getRowCount());
         for (int i = 0; i < maxItems; i++) {
-            Map<String, Object> row = reportData.get(i);
-            String date = sdf.format((Date) row.get("date"));
-            double revenue = (Double) row.get("revenue");
+            String date = reportData.getDate(i, dateCol).format(CHART_DATE_FORMAT);
+            double revenue = reportData.getDouble(i, revenueCol);
             series.getData().add(new XYChart.Data<>(date, revenue));
         }
 
@@ -835,13 +390,13 @@ public class ReportController {
     private void updateRevenuePieChart() {
         pieChart.getData().clear();
 
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd");
+        int dateCol = reportData.indexOf("date");
+        int revenueCol = reportData.indexOf("revenue");
         // Giới hạn 8 items cho pie chart
-        int maxItems = Math.min(8, reportData.size());
+        int maxItems = Math.min(8, reportData.getRowCount());
         for (int i = 0; i < maxItems; i++) {
-            Map<String, Object> row = reportData.get(i);
-            String date = sdf.format((Date) row.get("date"));
-            double revenue = (Double) row.get("revenue");
+            String date = reportData.getDate(i, dateCol).format(CHART_DATE_FORMAT);
+            double revenue = reportData.getDouble(i, revenueCol);
             pieChart.getData().add(new PieChart.Data(date, revenue));
         }
     }
@@ -851,11 +406,12 @@ public class ReportController {
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("Staff Revenue");
 
-        int maxItems = Math.min(10, reportData.size());
+        int staffCol = reportData.indexOf("username");
+        int revenueCol = reportData.indexOf("revenue");
+        int maxItems = Math.min(10, reportData.getRowCount());
         for (int i = 0; i < maxItems; i++) {
-            Map<String, Object> row = reportData.get(i);
-            String staff = (String) row.get("username");
-            double revenue = (Double) row.get("revenue");
+            String staff = reportData.getText(i, staffCol);
+            double revenue = reportData.getDouble(i, revenueCol);
             series.getData().add(new XYChart.Data<>(staff, revenue));
         }
 
@@ -867,11 +423,12 @@ public class ReportController {
     private void updateStaffPieChart() {
         pieChart.getData().clear();
 
-        int maxItems = Math.min(8, reportData.size());
+        int staffCol = reportData.indexOf("username");
+        int revenueCol = reportData.indexOf("revenue");
+        int maxItems = Math.min(8, reportData.getRowCount());
         for (int i = 0; i < maxItems; i++) {
-            Map<String, Object> row = reportData.get(i);
-            String staff = (String) row.get("username");
-            double revenue = (Double) row.get("revenue");
+            String staff = reportData.getText(i, staffCol);
+            double revenue = reportData.getDouble(i, revenueCol);
             pieChart.getData().add(new PieChart.Data(staff, revenue));
         }
     }
@@ -881,15 +438,16 @@ public class ReportController {
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("Product Sales");
 
-        int maxItems = Math.min(10, reportData.size());
+        int productCol = reportData.indexOf("product_name");
+        int revenueCol = reportData.indexOf("revenue");
+        int maxItems = Math.min(10, reportData.getRowCount());
         for (int i = 0; i < maxItems; i++) {
-            Map<String, Object> row = reportData.get(i);
-            String product = (String) row.get("product_name");
+            String product = reportData.getText(i, productCol);
             // Rút ngắn tên sản phẩm nếu quá dài
             if (product.length() > 15) {
                 product = product.substring(0, 12) + "...";
             }
-            double revenue = (Double) row.get("revenue");
+            double revenue = reportData.getDouble(i, revenueCol);
             series.getData().add(new XYChart.Data<>(product, revenue));
         }
 
@@ -901,11 +459,12 @@ public class ReportController {
     private void updateProductPieChart() {
         pieChart.getData().clear();
 
-        int maxItems = Math.min(8, reportData.size());
+        int productCol = reportData.indexOf("product_name");
+        int revenueCol = reportData.indexOf("revenue");
+        int maxItems = Math.min(8, reportData.getRowCount());
         for (int i = 0; i < maxItems; i++) {
-            Map<String, Object> row = reportData.get(i);
-            String product = (String) row.get("product_name");
-            double revenue = (Double) row.get("revenue");
+            String product = reportData.getText(i, productCol);
+            double revenue = reportData.getDouble(i, revenueCol);
             pieChart.getData().add(new PieChart.Data(product, revenue));
         }
     }
@@ -918,13 +477,14 @@ public class ReportController {
         XYChart.Series<String, Number> profitSeries = new XYChart.Series<>();
         profitSeries.setName("Profit");
 
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd");
-        int maxItems = Math.min(15, reportData.size());
+        int dateCol = reportData.indexOf("date");
+        int revenueCol = reportData.indexOf("revenue");
+        int profitCol = reportData.indexOf("profit");
+        int maxItems = Math.min(15, reportData.getRowCount());
         for (int i = 0; i < maxItems; i++) {
-            Map<String, Object> row = reportData.get(i);
-            String date = sdf.format((Date) row.get("date"));
-            double revenue = (Double) row.get("revenue");
-            double profit = (Double) row.get("profit");
+            String date = reportData.getDate(i, dateCol).format(CHART_DATE_FORMAT);
+            double revenue = reportData.getDouble(i, revenueCol);
+            double profit = reportData.getDouble(i, profitCol);
 
             revenueSeriesSeries.getData().add(new XYChart.Data<>(date, revenue));
             profitSeries.getData().add(new XYChart.Data<>(date, profit));
@@ -938,13 +498,8 @@ public class ReportController {
     private void updateProfitPieChart() {
         pieChart.getData().clear();
 
-        double totalRevenue = 0;
-        double totalCost = 0;
-
-        for (Map<String, Object> row : reportData) {
-            totalRevenue += (Double) row.get("revenue");
-            totalCost += (Double) row.get("cost");
-        }
+        double totalRevenue = reportData.sum(reportData.indexOf("revenue"));
+        double totalCost = reportData.sum(reportData.indexOf("cost"));
 
         double profit = totalRevenue - totalCost;
 
@@ -958,14 +513,15 @@ public class ReportController {
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("Inventory Usage");
 
-        int maxItems = Math.min(10, reportData.size());
+        int itemCol = reportData.indexOf("item_name");
+        int usedCol = reportData.indexOf("total_used");
+        int maxItems = Math.min(10, reportData.getRowCount());
         for (int i = 0; i < maxItems; i++) {
-            Map<String, Object> row = reportData.get(i);
-            String item = (String) row.get("item_name");
+            String item = reportData.getText(i, itemCol);
             if (item.length() > 15) {
                 item = item.substring(0, 12) + "...";
             }
-            double used = (Double) row.get("total_used");
+            double used = reportData.getDouble(i, usedCol);
             series.getData().add(new XYChart.Data<>(item, used));
         }
 
@@ -977,11 +533,12 @@ public class ReportController {
     private void updateInventoryPieChart() {
         pieChart.getData().clear();
 
-        int maxItems = Math.min(8, reportData.size());
+        int itemCol = reportData.indexOf("item_name");
+        int costCol = reportData.indexOf("total_cost");
+        int maxItems = Math.min(8, reportData.getRowCount());
         for (int i = 0; i < maxItems; i++) {
-            Map<String, Object> row = reportData.get(i);
-            String item = (String) row.get("item_name");
-            double cost = (Double) row.get("total_cost");
+            String item = reportData.getText(i, itemCol);
+            double cost = reportData.getDouble(i, costCol);
             pieChart.getData().add(new PieChart.Data(item, cost));
         }
     }
@@ -1037,8 +594,7 @@ public class ReportController {
     private ImageView loadArrowIcon(boolean isUp) {
         ImageView arrow = new ImageView();
         try {
-            String path = isUp ? "/resources/img/arrow-trend-up-solid-full.png" : "/resources/img/arrow-trend-down-solid-full.png";
-            Image icon = new Image(getClass().getResourceAsStream(path));
+            Image icon = IconRegistry.get(isUp ? IconRegistry.ARROW_UP : IconRegistry.ARROW_DOWN);
             arrow.setImage(icon);
             arrow.setFitWidth(14);
             arrow.setFitHeight(14);
@@ -1049,86 +605,36 @@ public class ReportController {
         return arrow;
     }
 
-    private DateRange getDateRange() {
-        DateRange range = new DateRange();
+    // Các kỳ đều kết thúc hết ngày hôm nay: [đầu kỳ, 0h ngày mai)
+    private TimeRange getDateRange() {
         String period = cmbTimePeriod.getValue();
-
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.HOUR_OF_DAY, 23);
-        cal.set(Calendar.MINUTE, 59);
-        cal.set(Calendar.SECOND, 59);
-        range.toDate = cal.getTime();
+        LocalDate today = LocalDate.now();
 
         switch (period) {
             case "Today":
-                cal.set(Calendar.HOUR_OF_DAY, 0);
-                cal.set(Calendar.MINUTE, 0);
-                cal.set(Calendar.SECOND, 0);
-                range.fromDate = cal.getTime();
-                break;
+                return TimeRange.day(today);
 
             case "This Week":
-                cal.set(Calendar.DAY_OF_WEEK, cal.getFirstDayOfWeek());
-                cal.set(Calendar.HOUR_OF_DAY, 0);
-                cal.set(Calendar.MINUTE, 0);
-                cal.set(Calendar.SECOND, 0);
-                range.fromDate = cal.getTime();
-                break;
+                DayOfWeek firstDay = WeekFields.of(Locale.getDefault()).getFirstDayOfWeek();
+                return TimeRange.days(today.with(TemporalAdjusters.previousOrSame(firstDay)), today);
 
             case "This Month":
-                cal.set(Calendar.DAY_OF_MONTH, 1);
-                cal.set(Calendar.HOUR_OF_DAY, 0);
-                cal.set(Calendar.MINUTE, 0);
-                cal.set(Calendar.SECOND, 0);
-                range.fromDate = cal.getTime();
-                break;
+                return TimeRange.days(today.withDayOfMonth(1), today);
 
             case "This Year":
-                cal.set(Calendar.DAY_OF_YEAR, 1);
-                cal.set(Calendar.HOUR_OF_DAY, 0);
-                cal.set(Calendar.MINUTE, 0);
-                cal.set(Calendar.SECOND, 0);
-                range.fromDate = cal.getTime();
-                break;
+                return TimeRange.days(today.withDayOfYear(1), today);
 
             case "Custom Range":
-                if (dpFromDate.getValue() != null && dpToDate.getValue() != null) {
-                    range.fromDate = Date.from(dpFromDate.getValue().atStartOfDay(ZoneId.systemDefault()).toInstant());
-                    range.toDate = Date.from(dpToDate.getValue().atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant());
-                } else {
-                    cal.set(Calendar.DAY_OF_MONTH, 1);
-                    cal.set(Calendar.HOUR_OF_DAY, 0);
-                    cal.set(Calendar.MINUTE, 0);
-                    cal.set(Calendar.SECOND, 0);
-                    range.fromDate = cal.getTime();
-
-                    cal = Calendar.getInstance();
-                    cal.set(Calendar.HOUR_OF_DAY, 23);
-                    cal.set(Calendar.MINUTE, 59);
-                    cal.set(Calendar.SECOND, 59);
-                    range.toDate = cal.getTime();
+                LocalDate from = dpFromDate.getValue();
+                LocalDate to = dpToDate.getValue();
+                if (from != null && to != null) {
+                    return to.isBefore(from) ? TimeRange.days(to, from) : TimeRange.days(from, to);
                 }
-                break;
+                return TimeRange.days(today.withDayOfMonth(1), today);
 
             default:
-                cal.add(Calendar.DAY_OF_MONTH, -30);
-                range.fromDate = cal.getTime();
+                return TimeRange.days(today.minusDays(30), today);
         }
-
-        return range;
-    }
-
-    // Lấy khoảng thời gian của kỳ trước
-    private DateRange getPreviousDateRange() {
-        DateRange current = getDateRange();
-        DateRange previous = new DateRange();
-
-        long duration = current.toDate.getTime() - current.fromDate.getTime();
-
-        previous.toDate = new Date(current.fromDate.getTime() - 1000); // 1 giây trước kỳ hiện tại
-        previous.fromDate = new Date(previous.toDate.getTime() - duration);
-
-        return previous;
     }
 
     @FXML
@@ -1136,30 +642,32 @@ public class ReportController {
         String searchText = txtTableSearch.getText().toLowerCase().trim();
 
         if (searchText.isEmpty()) {
-            filteredData.setAll(reportData);
+            filteredData.setAll(reportData.rows());
         } else {
-            filteredData.clear();
-            for (Map<String, Object> row : reportData) {
-                boolean matches = false;
-                for (Object value : row.values()) {
-                    if (value != null && value.toString().toLowerCase().contains(searchText)) {
-                        matches = true;
-                        break;
-                    }
-                }
-                if (matches) {
-                    filteredData.add(row);
+            List<ReportDataset.Row> matches = new ArrayList<>();
+            for (ReportDataset.Row row : reportData.rows()) {
+                if (reportData.rowContains(row.getIndex(), searchText)) {
+                    matches.add(row);
                 }
             }
+            filteredData.setAll(matches);
         }
 
         tableReport.setItems(filteredData);
-        lblTableSummary.setText("Showing " + filteredData.size() + " of " + reportData.size() + " records");
+        lblTableSummary.setText("Showing " + filteredData.size() + " of " + reportData.getRowCount() + " records");
     }
 
     @FXML
     private void handleExportChart() {
-        showAlert(Alert.AlertType.INFORMATION, "Export Chart", "Chart export feature coming soon!");
+        if (currentResult == null || currentResult.getData().isEmpty()) {
+            showSweetAlert(SweetAlert.AlertType.WARNING, "No Data", "No data to export!");
+            return;
+        }
+        java.io.File file = chooseFile("Save Chart", reportFileName(currentResult) + ".png",
+                new FileChooser.ExtensionFilter("PNG Images", "*.png"));
+        if (file != null) {
+            notifyWhenWritten(ReportRenderer.exportChartPng(currentResult, file), "Chart");
+        }
     }
 
     @FXML
@@ -1169,351 +677,163 @@ public class ReportController {
             return;
         }
 
-        try {
-            // Mở file chooser để người dùng chọn vị trí lưu
-            FileChooser fileChooser = new FileChooser();
-            fileChooser.setTitle("Save CSV File");
-            fileChooser.setInitialFileName("report_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".csv");
-            fileChooser.getExtensionFilters().add(
-                    new FileChooser.ExtensionFilter("CSV Files", "*.csv")
-            );
-
-            java.io.File file = fileChooser.showSaveDialog(tableReport.getScene().getWindow());
-
-            if (file != null) {
-                FileWriter writer = new FileWriter(file);
-
-                // Write headers
-                Map<String, Object> firstRow = reportData.get(0);
-                List<String> headers = new ArrayList<>(firstRow.keySet());
-                writer.append(String.join(",", headers));
-                writer.append("\n");
-
-                // Write data với proper CSV escaping
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-                for (Map<String, Object> row : reportData) {
-                    List<String> values = new ArrayList<>();
-                    for (String key : headers) {
-                        Object value = row.get(key);
-                        String stringValue = "";
-
-                        if (value != null) {
-                            if (value instanceof Date) {
-                                stringValue = dateFormat.format((Date) value);
-                            } else if (value instanceof Double) {
-                                stringValue = String.format("%.2f", (Double) value);
-                            } else {
-                                stringValue = value.toString();
-                            }
-
-                            // Escape commas and quotes
-                            if (stringValue.contains(",") || stringValue.contains("\"")) {
-                                stringValue = "\"" + stringValue.replace("\"", "\"\"") + "\"";
-                            }
-                        }
-                        values.add(stringValue);
-                    }
-                    writer.append(String.join(",", values));
-                    writer.append("\n");
-                }
-
-                writer.flush();
-                writer.close();
-
-                showSweetAlert(SweetAlert.AlertType.SUCCESS, "Export Successful",
-                        "Data exported successfully to:\n" + file.getAbsolutePath());
-            }
-
-        } catch (IOException e) {
-            e.printStackTrace();
-            showSweetAlert(SweetAlert.AlertType.ERROR, "Export Failed",
-                    "Failed to export CSV: " + e.getMessage());
+        java.io.File file = chooseCsvFile("report_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".csv");
+        if (file != null) {
+            long total = reportData.getRowCount();
+            startExport(CsvExporter.exportDataset(reportData, file, (rows, expected) -> showExportProgress(rows, total)));
         }
     }
 
+    // Orders / order items / payments for the selected period, streamed from the database
     @FXML
-    private void handleExportPDF() {
-        if (reportData.isEmpty()) {
-            showSweetAlert(SweetAlert.AlertType.WARNING, "No Data", "No data to export!");
+    private void handleExportRawData() {
+        ChoiceDialog<CsvExporter.Source> dialog = new ChoiceDialog<>(CsvExporter.Source.ORDERS, CsvExporter.Source.values());
+        dialog.setTitle("Export Raw Data");
+        dialog.setHeaderText("Export every row for " + cmbTimePeriod.getValue());
+        dialog.setContentText("Data:");
+        Optional<CsvExporter.Source> source = dialog.showAndWait();
+        if (!source.isPresent()) {
             return;
         }
 
-        // Tạo nội dung report để in
-        VBox reportContent = createPrintableReport();
-
-        // Sử dụng PrinterJob để in hoặc save as PDF
-        PrinterJob printerJob = PrinterJob.createPrinterJob();
-
-        if (printerJob == null) {
-            showSweetAlert(SweetAlert.AlertType.ERROR, "Print Failed",
-                    "Failed to print the report. Please try again.");
-            return;
+        TimeRange range = getDateRange();
+        String name = source.get().name().toLowerCase() + "_" + range.getFirstDay() + "_" + range.getLastDay() + ".csv";
+        java.io.File file = chooseCsvFile(name);
+        if (file != null) {
+            startExport(CsvExporter.exportRaw(source.get(), range, file, this::showExportProgress));
         }
+    }
 
-        // Hiển thị print dialog
-        boolean proceed = printerJob.showPrintDialog(tableReport.getScene().getWindow());
-
-        if (proceed) {
-            // Set page layout
-            PageLayout pageLayout = printerJob.getPrinter().createPageLayout(
-                    Paper.A4,
-                    PageOrientation.LANDSCAPE,
-                    0, 0, 0, 0
-            );
+    private java.io.File chooseCsvFile(String initialName) {
+        // Mở file chooser để người dùng chọn vị trí lưu
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save CSV File");
+        fileChooser.setInitialFileName(initialName);
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("CSV Files", "*.csv")
+        );
+        return fileChooser.showSaveDialog(tableReport.getScene().getWindow());
+    }
 
-            // Scale content to fit page
-            double scaleX = pageLayout.getPrintableWidth() / reportContent.getBoundsInParent().getWidth();
-            double scaleY = pageLayout.getPrintableHeight() / reportContent.getBoundsInParent().getHeight();
-            double scale = Math.min(scaleX, scaleY);
+    private void startExport(CsvExporter.Export export) {
+        if (currentExport != null) {
+            currentExport.cancel();
+        }
+        currentExport = export;
+        showLoading(true);
+        pbLoading.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
+        lblLoadingStatus.setText("Exporting...");
 
-            if (scale < 1.0) {
-                reportContent.getTransforms().add(new javafx.scene.transform.Scale(scale, scale));
+        export.getResult().whenComplete((rows, error) -> Platform.runLater(() -> {
+            if (export != currentExport) {
+                return;
             }
-
-            // Print the report
-            boolean success = printerJob.printPage(pageLayout, reportContent);
-
-            if (success) {
-                printerJob.endJob();
-
-                showSweetAlert(SweetAlert.AlertType.SUCCESS, "Print Successful",
-                        "Your report has been sent to the printer.\n\n" +
-                                "Tip: To save as PDF:\n" +
-                                "   Select 'Microsoft Print to PDF' or\n" +
-                                "   Select 'Save as PDF' in the print dialog");
-            } else {
-                showSweetAlert(SweetAlert.AlertType.ERROR, "Print Failed",
-                        "Failed to print the report. Please try again.");
+            currentExport = null;
+            showLoading(currentJob != null || currentBatch != null);
+            if (error == null) {
+                showSweetAlert(SweetAlert.AlertType.SUCCESS, "Export Successful",
+                        rows + " rows exported successfully to:\n" + export.getTarget().getAbsolutePath());
+            } else if (!export.isCancelled()) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                cause.printStackTrace();
+                showSweetAlert(SweetAlert.AlertType.ERROR, "Export Failed",
+                        "Failed to export CSV: " + cause.getMessage());
             }
-        }
+        }));
     }
 
-    // Tạo nội dung report có thể in
-    private VBox createPrintableReport() {
-        VBox report = new VBox(15);
-        report.setPadding(new Insets(30));
-        report.setStyle("-fx-background-color: white;");
-        report.setPrefWidth(1000);
-
-        // === HEADER SECTION ===
-        VBox headerSection = new VBox(10);
-        headerSection.setAlignment(Pos.CENTER);
-
-        // Logo & Title
-        HBox titleBox = new HBox(12);
-        titleBox.setAlignment(Pos.CENTER);
+    // Called on the export thread
+    private void showExportProgress(long rows, long total) {
+        Platform.runLater(() -> {
+            if (currentExport == null) {
+                return;
+            }
+            pbLoading.setProgress(total > 0 ? (double) rows / total : ProgressIndicator.INDETERMINATE_PROGRESS);
+            lblLoadingStatus.setText(total > 0
+                    ? String.format("Exporting %,d / %,d rows...", rows, total)
+                    : String.format("Exporting %,d rows...", rows));
+        });
+    }
 
-        ImageView logoIcon = new ImageView();
-        try {
-            Image icon = new Image(getClass().getResourceAsStream("/resources/img/chart-simple-solid-full.png"));
-            logoIcon.setImage(icon);
-            logoIcon.setFitWidth(40);
-            logoIcon.setFitHeight(40);
-            logoIcon.setPreserveRatio(true);
-        } catch (Exception e) {
-            System.err.println("Failed to load logo");
+    @FXML
+    private void handleExportPDF() {
+        if (currentResult == null || currentResult.getData().isEmpty()) {
+            showSweetAlert(SweetAlert.AlertType.WARNING, "No Data", "No data to export!");
+            return;
         }
-
-        Label titleLabel = new Label("COFFEE SHOP MANAGEMENT");
-        titleLabel.setStyle("-fx-font-size: 28px; -fx-font-weight: bold; -fx-text-fill: #2c3e50;");
-
-        titleBox.getChildren().addAll(logoIcon, titleLabel);
-
-        Label reportTitle = new Label(lblTableTitle.getText().toUpperCase());
-        reportTitle.setStyle("-fx-font-size: 20px; -fx-font-weight: bold; -fx-text-fill: #667eea;");
-
-        Label dateLabel = new Label("Generated: " + new SimpleDateFormat("EEEE, MMMM dd, yyyy HH:mm:ss").format(new Date()));
-        dateLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #7f8c8d;");
-
-        Separator headerSep = new Separator();
-        headerSep.setMaxWidth(900);
-        headerSep.setStyle("-fx-background-color: #bdc3c7;");
-
-        headerSection.getChildren().addAll(titleBox, reportTitle, dateLabel, headerSep);
-
-        // === SUMMARY SECTION ===
-        VBox summarySection = new VBox(12);
-        summarySection.setPadding(new Insets(15));
-        summarySection.setStyle("-fx-background-color: #ecf0f1; -fx-background-radius: 10;");
-
-        Label summaryTitle = new Label("SUMMARY");
-        summaryTitle.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #34495e;");
-
-        HBox summaryBox = new HBox(40);
-        summaryBox.setAlignment(Pos.CENTER);
-
-        // Total Revenue
-        VBox revenueBox = new VBox(5);
-        revenueBox.setAlignment(Pos.CENTER);
-        Label revenueLabel = new Label("Total Revenue");
-        revenueLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #7f8c8d;");
-        Label revenueValue = new Label(lblTotalRevenue.getText());
-        revenueValue.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #667eea;");
-        revenueBox.getChildren().addAll(revenueLabel, revenueValue);
-
-        // Total Orders
-        VBox ordersBox = new VBox(5);
-        ordersBox.setAlignment(Pos.CENTER);
-        Label ordersLabel = new Label("Total Orders");
-        ordersLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #7f8c8d;");
-        Label ordersValue = new Label(lblTotalOrders.getText());
-        ordersValue.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #e74c3c;");
-        ordersBox.getChildren().addAll(ordersLabel, ordersValue);
-
-        // Net Profit
-        if (!lblNetProfit.getText().equals("N/A")) {
-            VBox profitBox = new VBox(5);
-            profitBox.setAlignment(Pos.CENTER);
-            Label profitLabel = new Label("Net Profit");
-            profitLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #7f8c8d;");
-            Label profitValue = new Label(lblNetProfit.getText());
-            profitValue.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #27ae60;");
-            profitBox.getChildren().addAll(profitLabel, profitValue);
-            summaryBox.getChildren().addAll(revenueBox, ordersBox, profitBox);
-        } else {
-            summaryBox.getChildren().addAll(revenueBox, ordersBox);
+        java.io.File file = chooseFile("Save PDF Report", reportFileName(currentResult) + ".pdf",
+                new FileChooser.ExtensionFilter("PDF Files", "*.pdf"));
+        if (file != null) {
+            notifyWhenWritten(ReportRenderer.exportPdf(currentResult, file), "Report");
         }
+    }
 
-        // Average Order Value
-        VBox avgBox = new VBox(5);
-        avgBox.setAlignment(Pos.CENTER);
-        Label avgLabel = new Label("Avg Order Value");
-        avgLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #7f8c8d;");
-        Label avgValue = new Label(lblAvgOrderValue.getText());
-        avgValue.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #f39c12;");
-        avgBox.getChildren().addAll(avgLabel, avgValue);
-        summaryBox.getChildren().add(avgBox);
-
-        summarySection.getChildren().addAll(summaryTitle, summaryBox);
-
-        // === DATA TABLE SECTION ===
-        VBox tableSection = new VBox(10);
-        tableSection.setPadding(new Insets(10, 0, 0, 0));
-
-        Label tableTitle = new Label("DETAILED DATA");
-        tableTitle.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #34495e;");
-
-        // Create table
-        GridPane dataTable = new GridPane();
-        dataTable.setStyle("-fx-border-color: #bdc3c7; -fx-border-width: 1;");
-        dataTable.setHgap(0);
-        dataTable.setVgap(0);
-
-        // Get headers
-        Map<String, Object> firstRow = reportData.get(0);
-        List<String> headers = new ArrayList<>(firstRow.keySet());
-
-        // Column widths
-        int columnWidth = 900 / headers.size();
-
-        // Add header row
-        int col = 0;
-        for (String header : headers) {
-            Label headerLabel = new Label(formatHeader(header));
-            headerLabel.setStyle(
-                    "-fx-font-size: 11px; -fx-font-weight: bold; -fx-text-fill: white; " +
-                            "-fx-background-color: #34495e; -fx-padding: 10; " +
-                            "-fx-border-color: #2c3e50; -fx-border-width: 0 1 1 0; -fx-alignment: center;"
-            );
-            headerLabel.setPrefWidth(columnWidth);
-            headerLabel.setMaxWidth(columnWidth);
-            dataTable.add(headerLabel, col, 0);
-            col++;
+    // Every report type for the selected period, as PDF + chart PNG, into one folder
+    @FXML
+    private void handleExportAllReports() {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Export All Reports To");
+        java.io.File directory = chooser.showDialog(tableReport.getScene().getWindow());
+        if (directory == null) {
+            return;
         }
 
-        // Add data rows
-        SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy");
-        int maxRows = Math.min(20, reportData.size()); // Limit to 20 rows for printing
-
-        for (int row = 0; row < maxRows; row++) {
-            Map<String, Object> dataRow = reportData.get(row);
-            col = 0;
-
-            for (String key : headers) {
-                Object value = dataRow.get(key);
-                String cellValue = "";
-
-                if (value != null) {
-                    if (value instanceof Date) {
-                        cellValue = dateFormat.format((Date) value);
-                    } else if (value instanceof Double) {
-                        if (key.toLowerCase().contains("margin")) {
-                            cellValue = percentFormat.format((Double) value);
-                        } else {
-                            cellValue = currencyFormat.format((Double) value);
-                        }
-                    } else {
-                        cellValue = value.toString();
+        if (currentBatch != null) {
+            currentBatch.cancel();
+        }
+        ReportRenderer.Batch batch = ReportRenderer.exportAll(getDateRange(), directory, (done, total, type) ->
+                Platform.runLater(() -> {
+                    if (currentBatch != null) {
+                        pbLoading.setProgress((double) done / total);
+                        lblLoadingStatus.setText(type == null ? "Finishing..." : "Exporting " + type + " (" + (done + 1) + "/" + total + ")...");
                     }
-                }
+                }));
+        currentBatch = batch;
+        showLoading(true);
+        pbLoading.setProgress(0);
+        lblLoadingStatus.setText("Exporting reports...");
 
-                Label cellLabel = new Label(cellValue);
-                cellLabel.setStyle(
-                        "-fx-font-size: 10px; -fx-padding: 8; " +
-                                "-fx-border-color: #bdc3c7; -fx-border-width: 0 1 1 0; " +
-                                "-fx-background-color: " + (row % 2 == 0 ? "white" : "#f9f9f9") + ";"
-                );
-                cellLabel.setPrefWidth(columnWidth);
-                cellLabel.setMaxWidth(columnWidth);
-                cellLabel.setWrapText(true);
-                dataTable.add(cellLabel, col, row + 1);
-                col++;
+        batch.getResult().whenComplete((files, error) -> Platform.runLater(() -> {
+            if (batch != currentBatch) {
+                return;
             }
-        }
-
-        // Show info if more rows exist
-        if (reportData.size() > maxRows) {
-            Label moreRowsLabel = new Label("... and " + (reportData.size() - maxRows) + " more rows");
-            moreRowsLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #7f8c8d; -fx-font-style: italic; -fx-padding: 10 0 0 0;");
-            tableSection.getChildren().addAll(tableTitle, dataTable, moreRowsLabel);
-        } else {
-            tableSection.getChildren().addAll(tableTitle, dataTable);
-        }
-
-        // === FOOTER SECTION ===
-        Separator footerSep = new Separator();
-        footerSep.setMaxWidth(900);
-        footerSep.setStyle("-fx-background-color: #bdc3c7;");
-
-        VBox footerSection = new VBox(8);
-        footerSection.setAlignment(Pos.CENTER);
-        footerSection.setPadding(new Insets(15, 0, 0, 0));
-
-        Label totalRecords = new Label("Total Records: " + reportData.size());
-        totalRecords.setStyle("-fx-font-size: 11px; -fx-text-fill: #7f8c8d;");
-
-        Label systemLabel = new Label("Coffee Shop Management System - Report");
-        systemLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: #95a5a6; -fx-font-style: italic;");
-
-        footerSection.getChildren().addAll(totalRecords, systemLabel);
+            currentBatch = null;
+            showLoading(currentJob != null || currentExport != null);
+            if (error == null) {
+                showSweetAlert(SweetAlert.AlertType.SUCCESS, "Export Successful",
+                        files.size() + " files exported to:\n" + directory.getAbsolutePath());
+            } else if (!batch.isCancelled()) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                cause.printStackTrace();
+                showSweetAlert(SweetAlert.AlertType.ERROR, "Export Failed", "Failed to export reports: " + cause.getMessage());
+            }
+        }));
+    }
 
-        // Add all sections to report
-        report.getChildren().addAll(
-                headerSection,
-                summarySection,
-                tableSection,
-                footerSep,
-                footerSection
-        );
+    private java.io.File chooseFile(String title, String initialName, FileChooser.ExtensionFilter filter) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(title);
+        fileChooser.setInitialFileName(initialName);
+        fileChooser.getExtensionFilters().add(filter);
+        return fileChooser.showSaveDialog(tableReport.getScene().getWindow());
+    }
 
-        return report;
+    private static String reportFileName(ReportEngine.Result result) {
+        return result.getType().toLowerCase().replace(' ', '_') + "_"
+                + result.getRange().getFirstDay() + "_" + result.getRange().getLastDay();
     }
 
-    // Helper method để format header names
-    private String formatHeader(String header) {
-        // Chuyển từ snake_case/camelCase sang Title Case
-        String[] words = header.split("_");
-        StringBuilder formatted = new StringBuilder();
-        for (String word : words) {
-            if (formatted.length() > 0) formatted.append(" ");
-            if (word.length() > 0) {
-                formatted.append(word.substring(0, 1).toUpperCase());
-                if (word.length() > 1) {
-                    formatted.append(word.substring(1).toLowerCase());
-                }
+    private void notifyWhenWritten(java.util.concurrent.CompletableFuture<java.io.File> export, String what) {
+        export.whenComplete((file, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                showSweetAlert(SweetAlert.AlertType.SUCCESS, "Export Successful",
+                        what + " exported successfully to:\n" + file.getAbsolutePath());
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                cause.printStackTrace();
+                showSweetAlert(SweetAlert.AlertType.ERROR, "Export Failed", "Failed to export: " + cause.getMessage());
             }
-        }
-        return formatted.toString();
+        }));
     }
 
     private void showLoading(boolean show) {
@@ -1528,10 +848,4 @@ public class ReportController {
 //        alert.setContentText(message);
 //        alert.showAndWait();
 //    }
-
-    // Inner class for date range
-    private static class DateRange {
-        Date fromDate;
-        Date toDate;
-    }
 }
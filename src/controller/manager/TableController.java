@@ -16,10 +16,12 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import model.Table;
+import utils.Refreshable;
+import utils.IconRegistry;
 import utils.SweetAlert;
 import java.util.List;
 
-public class TableController {
+public class TableController implements Refreshable {
 
     @FXML private TabPane floorTabPane;
     @FXML private Pane floor1Pane;
@@ -57,10 +59,14 @@ public class TableController {
         tableList = FXCollections.observableArrayList();
         filteredList = FXCollections.observableArrayList();
 
-        loadTableData();
         setupSearchAndFilter();
     }
 
+    @Override
+    public void onShow() {
+        loadTableData();
+    }
+
     private void loadTableData() {
         tableList.clear();
         tableList.addAll(tableDAO.getAllTables());
@@ -170,7 +176,7 @@ public class TableController {
 
         ImageView tableIcon = new ImageView();
         try {
-            Image icon = new Image(getClass().getResourceAsStream("/resources/img/table-icon.png"));
+            Image icon = IconRegistry.get(IconRegistry.TABLE);
             tableIcon.setImage(icon);
         } catch (Exception e) {
             System.err.println("Failed to load table icon");
@@ -194,7 +200,7 @@ public class TableController {
 
         ImageView seatsIcon = new ImageView();
         try {
-            Image icon = new Image(getClass().getResourceAsStream("/resources/img/user-group-solid-full.png"));
+            Image icon = IconRegistry.get(IconRegistry.USER_GROUP);
             seatsIcon.setImage(icon);
             seatsIcon.setFitWidth(14);
             seatsIcon.setFitHeight(14);
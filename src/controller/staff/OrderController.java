@@ -1,8 +1,8 @@
 package controller.staff;
 
 import dao.DatabaseConnection;
-import dao.OrderDAO;
-import dao.ProductIngredientDAO;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
 import javafx.animation.KeyFrame;
@@ -23,27 +23,40 @@ import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import model.OrderItem;
+import utils.IconRegistry;
+import utils.ImageCache;
 import utils.SessionManager;
 import utils.SweetAlert; // ← Thêm import
 import model.Product;
 import model.Table;
+import service.CheckoutService;
+import service.ProductAvailability;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.DecimalFormat;
+import java.text.Normalizer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class OrderController implements Initializable {
 
+    // Checkouts commit one at a time, in the order staff submitted them, off the FX thread
+    private static final ExecutorService CHECKOUT_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "checkout-worker");
+        t.setDaemon(true);
+        return t;
+    });
+
     // FXML Components
     @FXML private Label lblStaffName, lblDateTime, lblSelectedTable, lblItemCount;
     @FXML private Label lblSubtotal, lblVAT, lblTotal, lblNotification;
@@ -61,13 +74,20 @@ public class OrderController implements Initializable {
     private String paymentMethod = "cash";
     private Map<String, OrderItem> orderItems = new LinkedHashMap<>();
     private List<Product> allProducts = new ArrayList<>();
+    // Menu cards are built once per product and reused across filters
+    private final Map<Integer, VBox> productCards = new HashMap<>();
+    private final Map<Integer, String> searchKeys = new HashMap<>();
+    private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(100));
     private final DecimalFormat df = new DecimalFormat("#,##0.00");
-    private final OrderDAO orderDAO = new OrderDAO();
-    private final ProductIngredientDAO piDAO = new ProductIngredientDAO();
+    private final CheckoutService checkoutService = new CheckoutService();
+    private final ProductAvailability availability = ProductAvailability.getInstance();
+    private final Consumer<Set<Integer>> availabilityListener = changed -> Platform.runLater(() -> refreshMenu(changed));
     private int currentStaffId;
     private Integer selectedTableId = null;
     private VBox paymentOverlay;
     private VBox confirmationOverlay;
+    private Task<CheckoutService.Receipt> checkoutTask;
+    private String paymentButtonText;
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
@@ -79,6 +99,8 @@ public class OrderController implements Initializable {
         setupSearchFilter();
         loadTables();
         loadProducts();
+        availability.addListener(availabilityListener);
+        availability.refresh();
 
         btnPayment.setDisable(true);
         startDateTimeUpdater();
@@ -133,18 +155,26 @@ public class OrderController implements Initializable {
     }
 
     private void setupSearchFilter() {
-        txtSearchProduct.textProperty()
-                .addListener((obs, oldVal, newVal) -> filterProducts(newVal.trim().toLowerCase()));
+        searchDebounce.setOnFinished(e -> filterProducts(txtSearchProduct.getText()));
+        txtSearchProduct.textProperty().addListener((obs, oldVal, newVal) -> searchDebounce.playFromStart());
+    }
+
+    // Lowercase, accents stripped and đ -> d, so "ca phe" matches "Cà Phê"
+    private static String searchKey(String text) {
+        String decomposed = Normalizer.normalize(text.trim().toLowerCase(), Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").replace('đ', 'd');
     }
 
     private void filterProducts(String searchText) {
-        menuGrid.getChildren().clear();
+        String query = searchKey(searchText);
+        List<VBox> visible = new ArrayList<>();
         int col = 0, row = 0;
 
         for (Product product : allProducts) {
-            if (searchText.isEmpty() || product.getName().toLowerCase().contains(searchText)) {
-                VBox productBox = createProductCard(product);
-                menuGrid.add(productBox, col, row);
+            if (query.isEmpty() || searchKeys.get(product.getId()).contains(query)) {
+                VBox productBox = productCards.computeIfAbsent(product.getId(), id -> createProductCard(product));
+                GridPane.setConstraints(productBox, col, row);
+                visible.add(productBox);
                 col++;
                 if (col >= 3) {
                     col = 0;
@@ -152,12 +182,22 @@ public class OrderController implements Initializable {
                 }
             }
         }
+        menuGrid.getChildren().setAll(visible);
+    }
+
+    // Rebuild the cards whose availability changed (sold-out badges) and re-render
+    private void refreshMenu(Set<Integer> changedProductIds) {
+        productCards.keySet().removeAll(changedProductIds);
+        if (menuPane.isVisible()) {
+            filterProducts(txtSearchProduct.getText());
+        }
     }
 
     // Table Management
     @FXML
     private void handleRefreshTables(ActionEvent event) {
         loadTables();
+        availability.refresh();
         showSweetAlert(SweetAlert.AlertType.SUCCESS, "Success", "Tables refreshed!");
     }
 
@@ -223,7 +263,7 @@ public class OrderController implements Initializable {
                 borderColor));
 
         ImageView tableIcon = new ImageView();
-        try { Image icon = new Image(getClass().getResourceAsStream("/resources/img/table-icon.png")); tableIcon.setImage(icon); } catch (Exception e) { System.err.println("Failed to load table icon"); }
+        try { Image icon = IconRegistry.get(IconRegistry.TABLE); tableIcon.setImage(icon); } catch (Exception e) { System.err.println("Failed to load table icon"); }
         tableIcon.setFitWidth(40); tableIcon.setFitHeight(40); tableIcon.setPreserveRatio(true);
         if (!"available".equals(table.getStatus())) tableIcon.setOpacity(0.6);
 
@@ -233,7 +273,7 @@ public class OrderController implements Initializable {
 
         HBox seatsBox = new HBox(4); seatsBox.setAlignment(Pos.CENTER);
         ImageView seatsIcon = new ImageView();
-        try { Image icon = new Image(getClass().getResourceAsStream("/resources/img/user-solid-full.png")); seatsIcon.setImage(icon); seatsIcon.setFitWidth(12); seatsIcon.setFitHeight(12); seatsIcon.setPreserveRatio(true); } catch (Exception e) { System.err.println("Failed to load people icon"); }
+        try { Image icon = IconRegistry.get(IconRegistry.USER); seatsIcon.setImage(icon); seatsIcon.setFitWidth(12); seatsIcon.setFitHeight(12); seatsIcon.setPreserveRatio(true); } catch (Exception e) { System.err.println("Failed to load people icon"); }
         Label lblSeats = new Label(table.getSeats() + " seats");
         lblSeats.setStyle(String.format("-fx-font-size: 11px; -fx-text-fill: %s; -fx-font-weight: 600;", textColor));
         seatsBox.getChildren().addAll(seatsIcon, lblSeats);
@@ -274,6 +314,8 @@ public class OrderController implements Initializable {
     // Product Management
     private void loadProducts() {
         allProducts.clear();
+        productCards.clear();
+        searchKeys.clear();
         try (Connection conn = DatabaseConnection.getConnection()) {
             String sql = "SELECT id, name, price, drink_types, image FROM products ORDER BY name";
             PreparedStatement stmt = conn.prepareStatement(sql);
@@ -290,6 +332,7 @@ public class OrderController implements Initializable {
                         rs.getString("image")
                 );
                 allProducts.add(product);
+                searchKeys.put(product.getId(), searchKey(product.getName()));
             }
         } catch (SQLException e) {
             showSweetAlert(SweetAlert.AlertType.ERROR, "Error", "Failed to load products: " + e.getMessage());
@@ -297,14 +340,7 @@ public class OrderController implements Initializable {
     }
 
     private void displayProducts() {
-        menuGrid.getChildren().clear();
-        int col = 0, row = 0;
-        for (Product product : allProducts) {
-            VBox productBox = createProductCard(product);
-            menuGrid.add(productBox, col, row);
-            col++;
-            if (col >= 3) { col = 0; row++; }
-        }
+        filterProducts(txtSearchProduct.getText());
     }
 
     private VBox createProductCard(Product product) {
@@ -314,19 +350,7 @@ public class OrderController implements Initializable {
         box.setStyle("-fx-background-color: white; -fx-background-radius: 8; -fx-cursor: hand; -fx-border-color: #BDC3C7; -fx-border-radius: 8; -fx-border-width: 1;");
         box.setPrefSize(150, 200);
 
-        ImageView imgView = new ImageView();
-        String imagePath = product.getImage() != null && !product.getImage().isEmpty() ? product.getImage() : "img/temp_icon.png";
-        String fullPath = Paths.get("src/resources/" + imagePath).toAbsolutePath().toString();
-        try {
-            File file = new File(fullPath);
-            if (file.exists()) {
-                imgView.setImage(new Image("file:" + fullPath));
-            } else {
-                loadDefaultImage(imgView);
-            }
-        } catch (Exception e) {
-            loadDefaultImage(imgView);
-        }
+        ImageView imgView = new ImageView(ImageCache.getProductImage(product.getImage(), 80, 80));
         imgView.setFitWidth(80); imgView.setFitHeight(80); imgView.setPreserveRatio(true);
 
         Label lblName = new Label(product.getName());
@@ -334,6 +358,14 @@ public class OrderController implements Initializable {
         lblName.setWrapText(true); lblName.setAlignment(Pos.CENTER);
 
         box.getChildren().addAll(imgView, lblName);
+        if (availability.isSoldOut(product.getId())) {
+            Label lblSoldOut = new Label("Sold out");
+            lblSoldOut.setStyle("-fx-background-color: #e53e3e; -fx-text-fill: white; -fx-font-size: 11px; -fx-font-weight: bold; -fx-padding: 2 8 2 8; -fx-background-radius: 10;");
+            box.getChildren().add(lblSoldOut);
+            box.setOpacity(0.5);
+            box.setDisable(true);
+            return box;
+        }
         box.setOnMouseClicked(e -> addToOrder(product, product.getDrinkTypes().iterator().next(), product.getPrice(), ""));
         box.setOnMouseEntered(e -> box.setStyle(box.getStyle() + "-fx-background-color: #ECF0F1;"));
         box.setOnMouseExited(e -> box.setStyle(box.getStyle().replace("-fx-background-color: #ECF0F1;", "-fx-background-color: white;")));
@@ -341,15 +373,11 @@ public class OrderController implements Initializable {
         return box;
     }
 
-    private void loadDefaultImage(ImageView imgView) {
-        try {
-            String path = "src/resources/img/temp_icon.png";
-            File file = new File(path);
-            if (file.exists()) imgView.setImage(new Image(file.toURI().toString()));
-        } catch (Exception e) { System.err.println("Default image failed"); }
-    }
-
     private void addToOrder(Product product, String drinkType, double price, String note) {
+        if (!availability.canMake(orderItems.values(), product.getId(), 1)) {
+            showSweetAlert(SweetAlert.AlertType.WARNING, "Out of Stock", "Not enough ingredients for another " + product.getName() + "!");
+            return;
+        }
         String key = product.getId() + "-" + drinkType + "-" + note.hashCode();
         if (orderItems.containsKey(key)) {
             orderItems.get(key).setQuantity(orderItems.get(key).getQuantity() + 1);
@@ -376,26 +404,14 @@ public class OrderController implements Initializable {
         lblVAT.setText("$" + df.format(vat));
         lblTotal.setText("$" + df.format(total));
         lblItemCount.setText(itemCount + " items");
-        btnPayment.setDisable(orderItems.isEmpty());
+        btnPayment.setDisable(orderItems.isEmpty() || checkoutTask != null);
     }
 
     private HBox createOrderItemBox(OrderItem item) {
         HBox box = new HBox(10); box.setAlignment(Pos.TOP_LEFT); box.setPadding(new Insets(10));
         box.setStyle("-fx-background-color: #ECF0F1; -fx-background-radius: 5;");
 
-        ImageView imgView = new ImageView();
-        String imagePath = item.getImage() != null && !item.getImage().isEmpty() ? item.getImage() : "img/temp_icon.png";
-        String fullPath = Paths.get("src/resources/" + imagePath).toAbsolutePath().toString();
-        try {
-            File file = new File(fullPath);
-            if (file.exists()) {
-                imgView.setImage(new Image("file:" + fullPath));
-            } else {
-                loadDefaultImage(imgView);
-            }
-        } catch (Exception e) {
-            loadDefaultImage(imgView);
-        }
+        ImageView imgView = new ImageView(ImageCache.getProductImage(item.getImage(), 50, 50));
         imgView.setFitWidth(50); imgView.setFitHeight(50); imgView.setPreserveRatio(true);
 
         VBox infoBox = new VBox(4); infoBox.setAlignment(Pos.CENTER_LEFT); HBox.setHgrow(infoBox, Priority.ALWAYS);
@@ -434,11 +450,17 @@ public class OrderController implements Initializable {
         btnMinus.setOnAction(e -> { if (item.getQuantity() > 1) { item.setQuantity(item.getQuantity() - 1); updateOrderDisplay(); } });
         Label lblQty = new Label(String.valueOf(item.getQuantity())); lblQty.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #1a1a1a;"); lblQty.setAlignment(Pos.CENTER); lblQty.setMinWidth(40);
         Button btnPlus = new Button("+"); btnPlus.setStyle("-fx-background-color: #d1fae5; -fx-text-fill: #10b981; -fx-font-size: 16px; -fx-font-weight: bold; -fx-pref-width: 36; -fx-pref-height: 36; -fx-background-radius: 8; -fx-cursor: hand;");
-        btnPlus.setOnAction(e -> { item.setQuantity(item.getQuantity() + 1); updateOrderDisplay(); });
+        btnPlus.setOnAction(e -> {
+            if (!availability.canMake(orderItems.values(), item.getProductId(), 1)) {
+                showSweetAlert(SweetAlert.AlertType.WARNING, "Out of Stock", "Not enough ingredients for another " + item.getProductName() + "!");
+                return;
+            }
+            item.setQuantity(item.getQuantity() + 1); updateOrderDisplay();
+        });
         quantityBox.getChildren().addAll(btnPlus, lblQty, btnMinus);
 
         Button btnDelete = new Button(); ImageView deleteIcon = new ImageView();
-        try { Image icon = new Image(getClass().getResourceAsStream("/resources/img/trash-can-solid-full.png")); deleteIcon.setImage(icon); deleteIcon.setFitWidth(20); deleteIcon.setFitHeight(20); deleteIcon.setPreserveRatio(true); } catch (Exception e) { System.err.println("Failed to load delete icon"); }
+        try { Image icon = IconRegistry.get(IconRegistry.TRASH); deleteIcon.setImage(icon); deleteIcon.setFitWidth(20); deleteIcon.setFitHeight(20); deleteIcon.setPreserveRatio(true); } catch (Exception e) { System.err.println("Failed to load delete icon"); }
         btnDelete.setGraphic(deleteIcon); btnDelete.setStyle("-fx-background-color: #fee; -fx-pref-width: 40; -fx-pref-height: 40; -fx-background-radius: 10; -fx-cursor: hand;");
         btnDelete.setOnAction(e -> { String key = findItemKey(item); if (key != null) { orderItems.remove(key); updateOrderDisplay(); showSweetAlert(SweetAlert.AlertType.INFO, "Removed", "Item removed"); } });
 
@@ -481,7 +503,7 @@ public class OrderController implements Initializable {
 
         ImageView titleIcon = new ImageView();
         try {
-            Image icon = new Image(getClass().getResourceAsStream("/resources/img/money-bill-wave-solid-full.png"));
+            Image icon = IconRegistry.get(IconRegistry.MONEY);
             titleIcon.setImage(icon);
             titleIcon.setFitWidth(32);
             titleIcon.setFitHeight(32);
@@ -642,7 +664,7 @@ public class OrderController implements Initializable {
         cashContent.setAlignment(Pos.CENTER);
         ImageView cashIcon = new ImageView();
         try {
-            Image icon = new Image(getClass().getResourceAsStream("/resources/img/money-bill-wave-solid-full.png"));
+            Image icon = IconRegistry.get(IconRegistry.MONEY);
             cashIcon.setImage(icon);
             cashIcon.setFitWidth(20);
             cashIcon.setFitHeight(20);
@@ -659,7 +681,7 @@ public class OrderController implements Initializable {
         cardContent.setAlignment(Pos.CENTER);
         ImageView cardIcon = new ImageView();
         try {
-            Image icon = new Image(getClass().getResourceAsStream("/resources/img/money-bill-wave-solid-full.png"));
+            Image icon = IconRegistry.get(IconRegistry.MONEY);
             cardIcon.setImage(icon);
             cardIcon.setFitWidth(20);
             cardIcon.setFitHeight(20);
@@ -676,7 +698,7 @@ public class OrderController implements Initializable {
         ewalletContent.setAlignment(Pos.CENTER);
         ImageView ewalletIcon = new ImageView();
         try {
-            Image icon = new Image(getClass().getResourceAsStream("/resources/img/wallet-solid-full.png"));
+            Image icon = IconRegistry.get(IconRegistry.WALLET);
             ewalletIcon.setImage(icon);
             ewalletIcon.setFitWidth(20);
             ewalletIcon.setFitHeight(20);
@@ -693,7 +715,7 @@ public class OrderController implements Initializable {
         qrContent.setAlignment(Pos.CENTER);
         ImageView qrIcon = new ImageView();
         try {
-            Image icon = new Image(getClass().getResourceAsStream("/resources/img/qrcode-solid-full.png"));
+            Image icon = IconRegistry.get(IconRegistry.QRCODE);
             qrIcon.setImage(icon);
             qrIcon.setFitWidth(20);
             qrIcon.setFitHeight(20);
@@ -822,6 +844,8 @@ public class OrderController implements Initializable {
             } else {
                 paidAmount = total;
             }
+            if (checkoutTask != null) return;
+            confirmBtn.setDisable(true);
             hidePaymentOverlay();
             payment(paidAmount, discount);
         });
@@ -866,74 +890,64 @@ public class OrderController implements Initializable {
     }
 
     private void payment(double paidAmount, double discount) {
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            conn.setAutoCommit(false);
-
-            Map<Integer, Double> totalIngredientsNeeded = new HashMap<>();
-            for (OrderItem item : orderItems.values()) {
-                Map<Integer, Double> ingNeeded = piDAO.getIngredientsByProduct(item.getProductId());
-                for (Map.Entry<Integer, Double> entry : ingNeeded.entrySet()) {
-                    totalIngredientsNeeded.merge(entry.getKey(), entry.getValue() * item.getQuantity(), Double::sum);
-                }
-            }
-
-            boolean sufficient = piDAO.consumeIngredients(conn, totalIngredientsNeeded);
-            if (!sufficient) {
-                conn.rollback();
-                showSweetAlert(SweetAlert.AlertType.WARNING,"error", "✗ Insufficient ingredients!");
-                return;
-            }
+        // Double-submit guard: one checkout in flight per terminal
+        if (checkoutTask != null) {
+            showSweetAlert(SweetAlert.AlertType.WARNING, "Please wait", "The previous payment is still processing!");
+            return;
+        }
 
-            int orderId = orderDAO.createOrder(selectedTableId, currentStaffId, orderType);
-            if (orderId == -1) {
-                conn.rollback();
-                showSweetAlert(SweetAlert.AlertType.WARNING,"error", "✗ Failed to create order!");
-                return;
-            }
+        CheckoutService.Tender tender = new CheckoutService.Tender(paymentMethod, paidAmount, discount);
+        Map<String, OrderItem> cart = new LinkedHashMap<>(orderItems);
+        Integer tableId = selectedTableId;
+        String tableText = lblSelectedTable.getText();
+        String type = orderType;
 
-            for (OrderItem item : orderItems.values()) {
-                boolean success = orderDAO.addOrderItem(
-                        orderId, item.getProductId(), item.getDrinkType(),
-                        item.getQuantity(), item.getPrice(), item.getNote());
-                if (!success) {
-                    conn.rollback();
-                    showSweetAlert(SweetAlert.AlertType.WARNING,"error", "✗ Failed to add items!");
-                    return;
-                }
+        Task<CheckoutService.Receipt> task = new Task<>() {
+            @Override
+            protected CheckoutService.Receipt call() throws Exception {
+                return checkoutService.checkout(cart, tableId, currentStaffId, type, tender);
             }
-
-            if (selectedTableId != null) {
-                String updateTable = "UPDATE tables SET status = 'occupied' WHERE id = ?";
-                try (PreparedStatement stmt = conn.prepareStatement(updateTable)) {
-                    stmt.setInt(1, selectedTableId);
-                    stmt.executeUpdate();
+        };
+        task.setOnSucceeded(e -> {
+            finishCheckout();
+            CheckoutService.Receipt receipt = task.getValue();
+            showSuccessConfirmation(receipt.getOrderId(), receipt.getTotal(), receipt.getAmountPaid(), receipt.getChangeReturned());
+            loadTables();
+        });
+        task.setOnFailed(e -> {
+            finishCheckout();
+            Throwable error = task.getException();
+            String message = error instanceof CheckoutService.CheckoutException ? error.getMessage() : "Error: " + error.getMessage();
+            if (orderItems.isEmpty()) {
+                // Nothing new was started: put the failed order back so staff can fix and retry
+                orderItems.putAll(cart);
+                updateOrderDisplay();
+                if ("takeaway".equals(type)) {
+                    btnTakeaway.setSelected(true);
+                } else if (tableId != null) {
+                    selectedTableId = tableId;
+                    lblSelectedTable.setText(tableText);
+                    showMenu();
                 }
+                showSweetAlert(SweetAlert.AlertType.WARNING, "error", "✗ " + message);
+            } else {
+                showSweetAlert(SweetAlert.AlertType.WARNING, "error", "✗ Previous order was not saved: " + message);
             }
+        });
 
-            double subtotal = orderDAO.calculateOrderTotal(orderId);
-            double vat = subtotal * 0.1;
-            double total = subtotal + vat - discount;
-            double changeReturned = paymentMethod.equals("cash") ? paidAmount - total : 0;
-
-            boolean paymentSuccess = orderDAO.processPayment(
-                    orderId, total, vat, paidAmount, changeReturned);
-
-            if (!paymentSuccess) {
-                conn.rollback();
-                showSweetAlert(SweetAlert.AlertType.WARNING,"error", "✗ Payment failed!");
-                return;
-            }
-
-            conn.commit();
-            showSuccessConfirmation(orderId, total, paidAmount, changeReturned);
+        // Staff can start the next order while this one commits
+        checkoutTask = task;
+        paymentButtonText = btnPayment.getText();
+        btnPayment.setText("Processing...");
+        orderItems.clear(); updateOrderDisplay(); selectedTableId = null; lblSelectedTable.setText(""); menuPane.setVisible(false); menuPane.setManaged(false); btnDineIn.setSelected(true);
 
-            orderItems.clear(); updateOrderDisplay(); selectedTableId = null; lblSelectedTable.setText(""); menuPane.setVisible(false); menuPane.setManaged(false); btnDineIn.setSelected(true);
-            loadTables();
+        CHECKOUT_EXECUTOR.execute(task);
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showSweetAlert(SweetAlert.AlertType.WARNING,"error", "✗ Error: " + e.getMessage());
-        }
+    private void finishCheckout() {
+        checkoutTask = null;
+        btnPayment.setText(paymentButtonText);
+        updateOrderDisplay();
     }
 
     private void showSuccessConfirmation(int orderId, double total, double paidAmount, double change) {
@@ -950,7 +964,7 @@ public class OrderController implements Initializable {
 
         ImageView successIcon = new ImageView();
         try {
-            Image icon = new Image(getClass().getResourceAsStream("/resources/img/circle-check-solid-full.png"));
+            Image icon = IconRegistry.get(IconRegistry.CHECK);
             successIcon.setImage(icon);
             successIcon.setFitWidth(80);
             successIcon.setFitHeight(80);
@@ -1035,7 +1049,7 @@ public class OrderController implements Initializable {
 
         ImageView coffeeIcon = new ImageView();
         try {
-            Image icon = new Image(getClass().getResourceAsStream("/resources/img/mug-hot-solid-full.png"));
+            Image icon = IconRegistry.get(IconRegistry.MUG);
             coffeeIcon.setImage(icon);
             coffeeIcon.setFitWidth(24);
             coffeeIcon.setFitHeight(24);
@@ -1128,6 +1142,7 @@ public class OrderController implements Initializable {
     // Navigation
     @FXML
     private void handleDashboard(ActionEvent event) {
+        availability.removeListener(availabilityListener);
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/common/sidebar.fxml"));
             Parent root = loader.load();
@@ -1143,6 +1158,7 @@ public class OrderController implements Initializable {
         showConfirmation("Confirm Logout", "Are you sure you want to logout?", () -> {
             try {
                 SessionManager.logout();
+                availability.removeListener(availabilityListener);
                 FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/auth/login.fxml"));
                 Parent root = loader.load();
                 Stage stage = (Stage) btnLogout.getScene().getWindow();
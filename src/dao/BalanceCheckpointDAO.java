@@ -0,0 +1,277 @@
+package dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Daily closing balances (income minus expense of every transaction up to the end of
+ * the day) kept in balance_checkpoints, so a balance is the last checkpoint plus the
+ * transactions after it instead of a SUM over the whole table.
+ *
+ * checkpoint() closes every finished day that has no row yet, starting from the latest
+ * one; it runs on its own the first time a balance is asked for on a new day. A day is
+ * only closed CLOSE_GRACE after it ended, so a payment written just before midnight is
+ * never left out. Editing or deleting a transaction shifts every checkpoint from its
+ * day on by the difference, in the same database transaction (see repair()).
+ * checkpoint() and repair() both hold a MySQL named lock, so a day cannot be closed
+ * from amounts that an edit on another terminal is changing.
+ *
+ * If the table does not exist (database created from an older script) isAvailable()
+ * is false and balances are summed from transactions as before.
+ */
+public class BalanceCheckpointDAO {
+
+    private static final String LOCK_NAME = "coffeeshop.balance_checkpoints";
+    private static final int LOCK_TIMEOUT_SECONDS = 10;
+    private static final long CLOSE_GRACE_MINUTES = 10;
+    private static final String SIGNED_AMOUNT = "CASE WHEN type = 'income' THEN amount ELSE -amount END";
+
+    private static volatile Boolean available;
+    // Last day known to be checkpointed; saves a lookup on every balance read
+    private static volatile LocalDate closedThrough;
+
+    public static boolean isAvailable() {
+        Boolean result = available;
+        if (result != null) {
+            return result;
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                // unknown yet; ask again once the database is reachable
+                return false;
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SELECT 1 FROM balance_checkpoints LIMIT 1");
+                available = true;
+                return true;
+            }
+        } catch (SQLException e) {
+            System.err.println("balance_checkpoints unavailable, summing balances from transactions: " + e.getMessage());
+            if (DatabaseConnection.isMissingTable(e)) {
+                available = false;
+            }
+            // anything else may be transient; ask again next time
+            return false;
+        }
+    }
+
+    /** Balance including every transaction recorded so far. */
+    public double getCurrentBalance() {
+        return balanceBefore(null);
+    }
+
+    /** Balance at the end of day, i.e. what getCurrentBalance() showed at midnight after it. */
+    public double getClosingBalance(LocalDate day) {
+        return balanceBefore(day.plusDays(1).atStartOfDay());
+    }
+
+    /** Balance of every transaction created before time. */
+    public double getBalanceAt(LocalDateTime time) {
+        return balanceBefore(time);
+    }
+
+    // time == null means no upper bound
+    private double balanceBefore(LocalDateTime time) {
+        if (isAvailable()) {
+            ensureClosed();
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            LocalDate checkpoint = null;
+            BigDecimal balance = BigDecimal.ZERO;
+            if (isAvailable()) {
+                // The latest day that ended by time
+                String sql = "SELECT day, closing_balance FROM balance_checkpoints " +
+                        (time != null ? "WHERE day < ? " : "") +
+                        "ORDER BY day DESC LIMIT 1";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    if (time != null) {
+                        stmt.setDate(1, Date.valueOf(time.toLocalDate()));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            checkpoint = rs.getDate("day").toLocalDate();
+                            balance = rs.getBigDecimal("closing_balance");
+                        }
+                    }
+                }
+            }
+            return balance.add(sumBetween(conn, checkpoint != null ? checkpoint.plusDays(1).atStartOfDay() : null, time))
+                    .doubleValue();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0.0;
+    }
+
+    // Signed sum over [from, to); null bounds are open. A range scan on idx_transactions_created_at.
+    private static BigDecimal sumBetween(Connection conn, LocalDateTime from, LocalDateTime to) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) FROM transactions" +
+                (from != null || to != null ? " WHERE " : "") +
+                (from != null ? "created_at >= ?" : "") +
+                (from != null && to != null ? " AND " : "") +
+                (to != null ? "created_at < ?" : "");
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (from != null) stmt.setTimestamp(index++, Timestamp.valueOf(from));
+            if (to != null) stmt.setTimestamp(index, Timestamp.valueOf(to));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getBigDecimal(1);
+            }
+        }
+    }
+
+    // Transactions are stamped with the database clock; the grace covers a small skew too
+    private static LocalDate lastClosableDay() {
+        return LocalDateTime.now().minusMinutes(CLOSE_GRACE_MINUTES).toLocalDate().minusDays(1);
+    }
+
+    private void ensureClosed() {
+        LocalDate closed = closedThrough;
+        if (closed != null && !closed.isBefore(lastClosableDay())) {
+            return;
+        }
+        try {
+            checkpoint();
+        } catch (SQLException e) {
+            // balances still add up from the older checkpoint; try again next time
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Write a checkpoint for every finished day after the latest one, in one transaction.
+     * @return number of days written
+     */
+    public int checkpoint() throws SQLException {
+        LocalDate lastDay = lastClosableDay();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                throw new SQLException("Cannot connect to database");
+            }
+            lock(conn);
+            try {
+                conn.setAutoCommit(false);
+                try {
+                    int written = closeDays(conn, lastDay);
+                    conn.commit();
+                    closedThrough = lastDay;
+                    return written;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } finally {
+                unlock(conn);
+            }
+        }
+    }
+
+    private static int closeDays(Connection conn, LocalDate lastDay) throws SQLException {
+        LocalDate firstDay;
+        BigDecimal balance;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT day, closing_balance FROM balance_checkpoints ORDER BY day DESC LIMIT 1")) {
+            if (rs.next()) {
+                firstDay = rs.getDate("day").toLocalDate().plusDays(1);
+                balance = rs.getBigDecimal("closing_balance");
+            } else {
+                firstDay = null;
+                balance = BigDecimal.ZERO;
+            }
+        }
+        if (firstDay == null) {
+            // First run: start at the oldest transaction
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT MIN(created_at) FROM transactions")) {
+                Timestamp oldest = rs.next() ? rs.getTimestamp(1) : null;
+                if (oldest == null) {
+                    return 0;
+                }
+                firstDay = oldest.toLocalDateTime().toLocalDate();
+            }
+        }
+        if (firstDay.isAfter(lastDay)) {
+            return 0;
+        }
+
+        Map<LocalDate, BigDecimal> daily = new HashMap<>();
+        String sql = "SELECT DATE(created_at) AS day, SUM(" + SIGNED_AMOUNT + ") AS net FROM transactions " +
+                "WHERE created_at >= ? AND created_at < ? GROUP BY DATE(created_at)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(firstDay.atStartOfDay()));
+            stmt.setTimestamp(2, Timestamp.valueOf(lastDay.plusDays(1).atStartOfDay()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    daily.put(rs.getDate("day").toLocalDate(), rs.getBigDecimal("net"));
+                }
+            }
+        }
+
+        // One row per day, quiet days included, so the latest row marks how far closing got
+        int written = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO balance_checkpoints (day, closing_balance) VALUES (?, ?)")) {
+            for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+                balance = balance.add(daily.getOrDefault(day, BigDecimal.ZERO));
+                stmt.setDate(1, Date.valueOf(day));
+                stmt.setBigDecimal(2, balance);
+                stmt.addBatch();
+                written++;
+            }
+            stmt.executeBatch();
+        }
+        return written;
+    }
+
+    /**
+     * Shift every checkpoint from the day of createdAt on by delta (new signed amount
+     * minus old). Runs on the caller's connection and transaction, which must hold lock().
+     */
+    void repair(Connection conn, LocalDateTime createdAt, BigDecimal delta) throws SQLException {
+        if (delta.signum() == 0) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE balance_checkpoints SET closing_balance = closing_balance + ? WHERE day >= ?")) {
+            stmt.setBigDecimal(1, delta);
+            stmt.setDate(2, Date.valueOf(createdAt.toLocalDate()));
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Take the checkpoint lock on conn. It is held by the session, not the transaction,
+     * so it must be released with unlock() before the connection goes back to the pool.
+     */
+    static void lock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for lock " + LOCK_NAME);
+                }
+            }
+        }
+    }
+
+    static void unlock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package dao;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.ref.Cleaner;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool.
+ * Connections handed out are proxies: close() returns the physical connection
+ * to the pool (rolled back and reset to auto-commit) instead of closing it.
+ * Handles that are never closed are reported by the leak detector and
+ * reclaimed once they become unreachable.
+ */
+public class ConnectionPool implements DataSource {
+
+    /**
+     * Pool settings. Defaults can be overridden with -Dcoffeeshop.db.pool.* system properties.
+     */
+    public static class Config {
+        int minIdle = 2;
+        int maxSize = 10;
+        long connectionTimeoutMs = 10_000;
+        long idleTimeoutMs = 5 * 60_000;
+        long validationIntervalMs = 5_000;
+        long leakDetectionThresholdMs = 60_000;
+        long housekeepingPeriodMs = 30_000;
+        String validationQuery = "SELECT 1";
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.minIdle = Integer.getInteger("coffeeshop.db.pool.minIdle", c.minIdle);
+            c.maxSize = Integer.getInteger("coffeeshop.db.pool.maxSize", c.maxSize);
+            c.connectionTimeoutMs = Long.getLong("coffeeshop.db.pool.connectionTimeoutMs", c.connectionTimeoutMs);
+            c.idleTimeoutMs = Long.getLong("coffeeshop.db.pool.idleTimeoutMs", c.idleTimeoutMs);
+            c.validationIntervalMs = Long.getLong("coffeeshop.db.pool.validationIntervalMs", c.validationIntervalMs);
+            c.leakDetectionThresholdMs = Long.getLong("coffeeshop.db.pool.leakDetectionThresholdMs", c.leakDetectionThresholdMs);
+            c.housekeepingPeriodMs = Long.getLong("coffeeshop.db.pool.housekeepingPeriodMs", c.housekeepingPeriodMs);
+            c.validationQuery = System.getProperty("coffeeshop.db.pool.validationQuery", c.validationQuery);
+            return c;
+        }
+
+        public Config minIdle(int minIdle) { this.minIdle = minIdle; return this; }
+        public Config maxSize(int maxSize) { this.maxSize = maxSize; return this; }
+        public Config connectionTimeoutMs(long ms) { this.connectionTimeoutMs = ms; return this; }
+        public Config idleTimeoutMs(long ms) { this.idleTimeoutMs = ms; return this; }
+        public Config validationIntervalMs(long ms) { this.validationIntervalMs = ms; return this; }
+        public Config leakDetectionThresholdMs(long ms) { this.leakDetectionThresholdMs = ms; return this; }
+        public Config validationQuery(String query) { this.validationQuery = query; return this; }
+    }
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Config config;
+
+    // LIFO so the most recently used (warmest) connection is borrowed first
+    private final ConcurrentLinkedDeque<PooledEntry> idle = new ConcurrentLinkedDeque<>();
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown = false;
+    private PrintWriter logWriter;
+
+    public ConnectionPool(String url, String user, String password, Config config) {
+        if (config.maxSize < 1 || config.minIdle < 0 || config.minIdle > config.maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + config.minIdle + ", max=" + config.maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.execute(this::fillToMinIdle);
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                config.housekeepingPeriodMs, config.housekeepingPeriodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool is shut down");
+        }
+        try {
+            if (!permits.tryAcquire(config.connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + config.connectionTimeoutMs + "ms waiting for a connection ("
+                        + leased.size() + "/" + config.maxSize + " in use)", "08001");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledEntry entry;
+            while ((entry = idle.pollFirst()) != null) {
+                if (isUsable(entry)) {
+                    return lease(entry);
+                }
+                destroy(entry);
+            }
+            return lease(createEntry());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool is bound to a single account");
+    }
+
+    public int getTotalConnections() { return totalConnections.get(); }
+    public int getIdleConnections() { return idle.size(); }
+    public int getActiveConnections() { return leased.size(); }
+
+    /**
+     * Close every idle connection and stop housekeeping.
+     * Connections still in use are closed as they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+    }
+
+    private PooledEntry createEntry() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        return new PooledEntry(physical);
+    }
+
+    // Only connections that sat idle longer than the validation interval are checked,
+    // so a busy POS terminal borrows without an extra round trip.
+    private boolean isUsable(PooledEntry entry) {
+        if (System.currentTimeMillis() - entry.lastReturnedAt < config.validationIntervalMs) {
+            return true;
+        }
+        try {
+            if (config.validationQuery == null || config.validationQuery.isEmpty()) {
+                return entry.physical.isValid(5);
+            }
+            try (Statement stmt = entry.physical.createStatement()) {
+                stmt.setQueryTimeout(5);
+                stmt.execute(config.validationQuery);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lease(PooledEntry entry) {
+        Lease lease = new Lease(this, entry);
+        Connection handle = (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new Handle(lease));
+        lease.cleanable = CLEANER.register(handle, lease);
+        leased.add(lease);
+        return handle;
+    }
+
+    private void release(Lease lease) {
+        leased.remove(lease);
+        PooledEntry entry = lease.entry;
+        for (Statement stmt : lease.statements) {
+            try {
+                stmt.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        lease.statements.clear();
+
+        boolean reusable = !shutdown && !entry.broken;
+        if (reusable) {
+            try {
+                if (!entry.physical.getAutoCommit()) {
+                    entry.physical.rollback();
+                    entry.physical.setAutoCommit(true);
+                }
+                entry.physical.clearWarnings();
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+
+        if (reusable) {
+            entry.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(entry);
+        } else {
+            destroy(entry);
+        }
+        permits.release();
+    }
+
+    private void destroy(PooledEntry entry) {
+        totalConnections.decrementAndGet();
+        try {
+            entry.physical.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void housekeep() {
+        try {
+            evictIdle();
+            fillToMinIdle();
+            detectLeaks();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - config.idleTimeoutMs;
+        // Oldest entries sit at the tail of the deque
+        Iterator<PooledEntry> it = idle.descendingIterator();
+        while (it.hasNext() && totalConnections.get() > config.minIdle) {
+            PooledEntry entry = it.next();
+            if (entry.lastReturnedAt < cutoff && idle.removeFirstOccurrence(entry)) {
+                destroy(entry);
+            }
+        }
+    }
+
+    private void fillToMinIdle() {
+        while (!shutdown && totalConnections.get() < config.minIdle && permits.tryAcquire()) {
+            try {
+                PooledEntry entry = createEntry();
+                entry.lastReturnedAt = System.currentTimeMillis();
+                idle.offerLast(entry);
+            } catch (SQLException e) {
+                System.err.println("Connection pool could not open a connection: " + e.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void detectLeaks() {
+        long threshold = config.leakDetectionThresholdMs;
+        if (threshold <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Lease lease : leased) {
+            if (!lease.leakReported && now - lease.borrowedAt > threshold) {
+                lease.leakReported = true;
+                System.err.println("Connection leak detected: connection held for "
+                        + (now - lease.borrowedAt) + "ms by thread '" + lease.borrowerThread
+                        + "', borrowed at:");
+                lease.borrowSite.printStackTrace();
+            }
+        }
+    }
+
+    private static class PooledEntry {
+        final Connection physical;
+        volatile long lastReturnedAt = System.currentTimeMillis();
+        volatile boolean broken = false;
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection. Runs exactly once, either from close()
+     * or from the Cleaner when the handle was dropped without being closed.
+     * Must never reference the proxy handle, or the handle could not be collected.
+     */
+    private static class Lease implements Runnable {
+        final ConnectionPool pool;
+        final PooledEntry entry;
+        final long borrowedAt = System.currentTimeMillis();
+        final String borrowerThread = Thread.currentThread().getName();
+        final Throwable borrowSite;
+        final List<Statement> statements = new ArrayList<>();
+        Cleaner.Cleanable cleanable;
+        volatile boolean closedExplicitly = false;
+        volatile boolean leakReported = false;
+
+        Lease(ConnectionPool pool, PooledEntry entry) {
+            this.pool = pool;
+            this.entry = entry;
+            this.borrowSite = pool.config.leakDetectionThresholdMs > 0 ? new Throwable("Connection borrowed here") : null;
+        }
+
+        synchronized void track(Statement stmt) {
+            // Callers that never close their statements would otherwise grow this forever
+            if (statements.size() >= 64) {
+                statements.removeIf(s -> {
+                    try {
+                        return s.isClosed();
+                    } catch (SQLException e) {
+                        return true;
+                    }
+                });
+            }
+            statements.add(stmt);
+        }
+
+        @Override
+        public synchronized void run() {
+            if (!closedExplicitly) {
+                System.err.println("Reclaimed a connection that was never closed (borrowed by '" + borrowerThread + "')");
+            }
+            pool.release(this);
+        }
+    }
+
+    private static class Handle implements InvocationHandler {
+        private final Lease lease;
+        private volatile boolean closed = false;
+
+        Handle(Lease lease) {
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        lease.closedExplicitly = true;
+                        lease.cleanable.clean();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || lease.entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + lease.entry.physical + "]";
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy) || lease.entry.physical.isWrapperFor((Class<?>) args[0]);
+                case "unwrap":
+                    return ((Class<?>) args[0]).isInstance(proxy) ? proxy : lease.entry.physical.unwrap((Class<?>) args[0]);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed", "08003");
+            }
+            try {
+                Object result = method.invoke(lease.entry.physical, args);
+                if (result instanceof Statement) {
+                    lease.track((Statement) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08")) {
+                        lease.entry.broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+
+    // DataSource boilerplate
+
+    @Override
+    public PrintWriter getLogWriter() { return logWriter; }
+
+    @Override
+    public void setLogWriter(PrintWriter out) { this.logWriter = out; }
+
+    @Override
+    public void setLoginTimeout(int seconds) { DriverManager.setLoginTimeout(seconds); }
+
+    @Override
+    public int getLoginTimeout() { return DriverManager.getLoginTimeout(); }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -1,24 +1,66 @@
 package dao;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/coffeeshop";
+    private static final String URL = "jdbc:mysql://localhost:3306/coffeeshop?rewriteBatchedStatements=true";
     private static final String USER = "root";
     private static final String PASSWORD = "12345678";
 
+    // Created on first use so the pool only starts once a DAO actually needs it
+    private static class PoolHolder {
+        static final ConnectionPool POOL = new ConnectionPool(URL, USER, PASSWORD, ConnectionPool.Config.fromSystemProperties());
+    }
+
     private static Connection connect() {
         try {
-            return DriverManager.getConnection(URL, USER, PASSWORD);
+            return PoolHolder.POOL.getConnection();
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
         }
     }
 
+    /**
+     * Borrow a pooled connection. Closing it returns it to the pool.
+     */
     public static Connection getConnection() {
         return connect();
     }
+
+    public static DataSource getDataSource() {
+        return PoolHolder.POOL;
+    }
+
+    /**
+     * Open a dedicated connection that bypasses the pool (benchmarks, bulk exports).
+     */
+    public static Connection openUnpooledConnection() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
+
+    /**
+     * Open an unpooled, read-only connection that fetches rows through a server-side
+     * cursor, setFetchSize() rows at a time, instead of buffering the whole result.
+     */
+    public static Connection openStreamingConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(URL + "&useCursorFetch=true", USER, PASSWORD);
+        conn.setReadOnly(true);
+        return conn;
+    }
+
+    /**
+     * Whether e means the table does not exist (SQLState 42S02, MySQL error 1146), as
+     * opposed to a failure that may go away, like a lost connection or a lock timeout.
+     */
+    public static boolean isMissingTable(SQLException e) {
+        return "42S02".equals(e.getSQLState()) || e.getErrorCode() == 1146;
+    }
+
+    public static void shutdown() {
+        PoolHolder.POOL.shutdown();
+    }
 }
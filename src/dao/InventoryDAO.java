@@ -7,9 +7,24 @@ import java.util.List;
 
 public class InventoryDAO {
 
+    // Stock on hand = stored quantity minus hot-ingredient sales not yet flushed by StockLedger
+    static final String JOURNALED_QUANTITY =
+            "(i.quantity - COALESCE((SELECT SUM(m.quantity) FROM stock_movements m WHERE m.inventory_id = i.id), 0))";
+
+    public static StockLedger getStockLedger() {
+        return StockLedger.getInstance();
+    }
+
+    /**
+     * SQL expression for the current stock of inventory alias "i".
+     */
+    public static String quantityExpression() {
+        return getStockLedger().isEnabled() ? JOURNALED_QUANTITY : "i.quantity";
+    }
+
     public List<Inventory> getAllInventory() {
         List<Inventory> inventoryList = new ArrayList<>();
-        String sql = "SELECT id, name, quantity, unit, min_stock, cost_per_unit FROM inventory";
+        String sql = "SELECT i.id, i.name, " + quantityExpression() + " AS quantity, i.unit, i.min_stock, i.cost_per_unit FROM inventory i";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
@@ -61,7 +76,11 @@ public class InventoryDAO {
     }
 
     public boolean updateInventory(Inventory inv) {
-        String sql = "UPDATE inventory SET name = ?, quantity = ?, unit = ?, min_stock = ?, cost_per_unit = ? WHERE id = ?";
+        // The entered quantity is stock on hand, so unflushed sales are added back to the stored value
+        String sql = getStockLedger().isEnabled()
+                ? "UPDATE inventory SET name = ?, quantity = ? + COALESCE((SELECT SUM(m.quantity) FROM stock_movements m WHERE m.inventory_id = inventory.id), 0), " +
+                  "unit = ?, min_stock = ?, cost_per_unit = ? WHERE id = ?"
+                : "UPDATE inventory SET name = ?, quantity = ?, unit = ?, min_stock = ?, cost_per_unit = ? WHERE id = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -74,6 +93,9 @@ public class InventoryDAO {
             stmt.setInt(6, inv.getId());
             int rows = stmt.executeUpdate();
 
+            if (rows > 0) {
+                refreshStockLedger();
+            }
             return rows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -90,6 +112,9 @@ public class InventoryDAO {
 
             stmt.setInt(1, id);
             int rows = stmt.executeUpdate();
+            if (rows > 0) {
+                refreshStockLedger();
+            }
             return rows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -99,7 +124,7 @@ public class InventoryDAO {
     }
 
     public Inventory getInventoryById(int id) {
-        String sql = "SELECT id, name, quantity, unit, min_stock, cost_per_unit FROM inventory WHERE id = ?";
+        String sql = "SELECT i.id, i.name, " + quantityExpression() + " AS quantity, i.unit, i.min_stock, i.cost_per_unit FROM inventory i WHERE i.id = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -124,14 +149,24 @@ public class InventoryDAO {
         return null;
     }
 
-    public List<Inventory> getInventoryPage(int offset, int limit) {
+    /**
+     * By name; after is the last item of the previous page, or null.
+     */
+    public Page<Inventory> getInventoryPage(Inventory after, int limit) {
         List<Inventory> list = new ArrayList<>();
-        String sql = "SELECT * FROM inventory ORDER BY name ASC LIMIT ? OFFSET ?"; // hoặc ORDER BY id DESC
+        String sql = "SELECT i.id, i.name, " + quantityExpression() + " AS quantity, i.unit, i.min_stock, i.cost_per_unit " +
+                "FROM inventory i " +
+                (after != null ? "WHERE (i.name, i.id) > (?, ?) " : "") +
+                "ORDER BY i.name ASC, i.id ASC LIMIT ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, limit);
-            stmt.setInt(2, offset);
+            int index = 1;
+            if (after != null) {
+                stmt.setString(index++, after.getName());
+                stmt.setInt(index++, after.getId());
+            }
+            stmt.setInt(index, limit + 1);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 Inventory inv = new Inventory();
@@ -146,7 +181,7 @@ public class InventoryDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return list;
+        return Page.fromOverfetch(list, limit);
     }
     public int getTotalCount() {
         String sql = "SELECT COUNT(*) FROM inventory";
@@ -162,4 +197,34 @@ public class InventoryDAO {
         }
         return 0;
     }
+
+    public int getLowStockCount() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return getLowStockCount(conn);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    public int getLowStockCount(Connection conn) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM inventory i WHERE " + quantityExpression() + " <= i.min_stock";
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Pick up manual stock edits in the hot-ingredient counters right away
+    private void refreshStockLedger() {
+        StockLedger ledger = getStockLedger();
+        if (!ledger.isEnabled()) {
+            return;
+        }
+        try {
+            ledger.refresh();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
 }
\ No newline at end of file
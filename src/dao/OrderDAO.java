@@ -2,18 +2,38 @@ package dao;
 
 import model.Order;
 import model.OrderItem;
+import model.OrderDetails;
 import model.Payment;
 import java.sql.*;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class OrderDAO {
 
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final SalesRollupDAO salesRollupDAO = new SalesRollupDAO();
+    private final TransactionSearchDAO transactionSearch = new TransactionSearchDAO();
+
     // Create new order (Takeaway or Dine-in)
     public int createOrder(Integer tableId, int staffId, String orderType) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return createOrder(conn, tableId, staffId, orderType);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    // Create new order on the caller's connection (joins its transaction)
+    public int createOrder(Connection conn, Integer tableId, int staffId, String orderType) throws SQLException {
         String sql = "INSERT INTO orders (table_id, staff_id, order_type, status) VALUES (?, ?, ?, 'unpaid')";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             if (tableId != null) {
                 stmt.setInt(1, tableId);
@@ -25,22 +45,29 @@ public class OrderDAO {
 
             int affected = stmt.executeUpdate();
             if (affected > 0) {
-                ResultSet rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    return rs.getInt(1);
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        return rs.getInt(1);
+                    }
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
         return -1;
     }
 
     // Add item to order
     public boolean addOrderItem(int orderId, int productId, String drinkType, int quantity, double price, String note) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return addOrderItem(conn, orderId, productId, drinkType, quantity, price, note);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    public boolean addOrderItem(Connection conn, int orderId, int productId, String drinkType, int quantity, double price, String note) throws SQLException {
         String sql = "INSERT INTO order_items (order_id, product_id, drink_type, quantity, price, note) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, orderId);
             stmt.setInt(2, productId);
@@ -50,12 +77,46 @@ public class OrderDAO {
             stmt.setString(6, note != null ? note : "");
 
             return stmt.executeUpdate() > 0;
+        }
+    }
+
+    // Add all items of an order in one batch (one round trip with rewriteBatchedStatements)
+    public boolean addOrderItems(int orderId, Collection<OrderItem> items) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return addOrderItems(conn, orderId, items);
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return false;
     }
 
+    public boolean addOrderItems(Connection conn, int orderId, Collection<OrderItem> items) throws SQLException {
+        if (items.isEmpty()) {
+            return true;
+        }
+        String sql = "INSERT INTO order_items (order_id, product_id, drink_type, quantity, price, note) VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (OrderItem item : items) {
+                stmt.setInt(1, orderId);
+                stmt.setInt(2, item.getProductId());
+                stmt.setString(3, item.getDrinkType());
+                stmt.setInt(4, item.getQuantity());
+                stmt.setDouble(5, item.getPrice());
+                stmt.setString(6, item.getNote() != null ? item.getNote() : "");
+                stmt.addBatch();
+            }
+
+            int[] results = stmt.executeBatch();
+            for (int result : results) {
+                // A rewritten multi-row insert reports SUCCESS_NO_INFO instead of a row count
+                if (result == 0 || result == Statement.EXECUTE_FAILED) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     // Get order items
     public List<OrderItem> getOrderItems(int orderId) {
         List<OrderItem> items = new ArrayList<>();
@@ -186,35 +247,14 @@ public class OrderDAO {
 
     // Process payment
     public boolean processPayment(int orderId, double totalPrice, double vat, double amountReceived, double changeReturned) {
+        SalesRollupDAO.isAvailable();
         Connection conn = null;
         try {
             conn = DatabaseConnection.getConnection();
             conn.setAutoCommit(false);
 
-            // Insert payment
-            String paymentSql = "INSERT INTO payments (order_id, total_price, vat, amount_received, change_returned) VALUES (?, ?, ?, ?, ?)";
-            PreparedStatement paymentStmt = conn.prepareStatement(paymentSql);
-            paymentStmt.setInt(1, orderId);
-            paymentStmt.setDouble(2, totalPrice);
-            paymentStmt.setDouble(3, vat);
-            paymentStmt.setDouble(4, amountReceived);
-            paymentStmt.setDouble(5, changeReturned);
-            paymentStmt.executeUpdate();
-
-            // Update order status
-            String orderSql = "UPDATE orders SET status = 'paid' WHERE id = ?";
-            PreparedStatement orderStmt = conn.prepareStatement(orderSql);
-            orderStmt.setInt(1, orderId);
-            orderStmt.executeUpdate();
-
-            // Add income transaction WITH order_id ← CẬP NHẬT PHẦN NÀY
-            String transSql = "INSERT INTO transactions (type, amount, reason, created_by, order_id) VALUES ('income', ?, ?, ?, ?)";
-            PreparedStatement transStmt = conn.prepareStatement(transSql);
-            transStmt.setDouble(1, totalPrice + vat);
-            transStmt.setString(2, "Payment for order #" + orderId);
-            transStmt.setInt(3, utils.SessionManager.getCurrentUserId());
-            transStmt.setInt(4, orderId); // ← THÊM ORDER_ID
-            transStmt.executeUpdate();
+            processPayment(conn, orderId, totalPrice, vat, amountReceived, changeReturned,
+                    utils.SessionManager.getCurrentUserId());
 
             conn.commit();
             return true;
@@ -232,6 +272,7 @@ public class OrderDAO {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
+                    conn.close();
                 } catch (SQLException e) {
                     e.printStackTrace();
                 }
@@ -240,6 +281,50 @@ public class OrderDAO {
         return false;
     }
 
+    // Record payment, mark the order paid and log the income transaction.
+    // Runs on the caller's connection; committing is the caller's job.
+    public void processPayment(Connection conn, int orderId, double totalPrice, double vat,
+                               double amountReceived, double changeReturned, int createdBy) throws SQLException {
+        // Insert payment
+        String paymentSql = "INSERT INTO payments (order_id, total_price, vat, amount_received, change_returned) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement paymentStmt = conn.prepareStatement(paymentSql)) {
+            paymentStmt.setInt(1, orderId);
+            paymentStmt.setDouble(2, totalPrice);
+            paymentStmt.setDouble(3, vat);
+            paymentStmt.setDouble(4, amountReceived);
+            paymentStmt.setDouble(5, changeReturned);
+            paymentStmt.executeUpdate();
+        }
+
+        // Fold it into the hourly sales rollup in the same transaction
+        salesRollupDAO.record(conn, orderId);
+
+        // Update order status
+        String orderSql = "UPDATE orders SET status = 'paid' WHERE id = ?";
+        try (PreparedStatement orderStmt = conn.prepareStatement(orderSql)) {
+            orderStmt.setInt(1, orderId);
+            orderStmt.executeUpdate();
+        }
+
+        // Add income transaction WITH order_id
+        String transSql = "INSERT INTO transactions (type, amount, reason, created_by, order_id) VALUES ('income', ?, ?, ?, ?)";
+        String reason = "Payment for order #" + orderId;
+        try (PreparedStatement transStmt = conn.prepareStatement(transSql, Statement.RETURN_GENERATED_KEYS)) {
+            transStmt.setDouble(1, totalPrice + vat);
+            transStmt.setString(2, reason);
+            transStmt.setInt(3, createdBy);
+            transStmt.setInt(4, orderId);
+            transStmt.executeUpdate();
+
+            // Index the reason and the item notes so the cashbook can find this payment by them
+            try (ResultSet keys = transStmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    transactionSearch.index(conn, keys.getInt(1), reason, orderId);
+                }
+            }
+        }
+    }
+
     // Get all orders (for history/reports)
     public List<Order> getAllOrders() {
         List<Order> orders = new ArrayList<>();
@@ -290,4 +375,98 @@ public class OrderDAO {
         }
         return null;
     }
+
+    /**
+     * Orders with their staff name, items (product name and image) and payment, in one
+     * query: one row per item with the order and payment columns repeated. Orders whose
+     * staff is missing or deleted are kept with a null staff name. Ids not found are absent;
+     * a failed query throws rather than looking like orders that do not exist.
+     */
+    public Map<Integer, OrderDetails> getOrderDetails(Collection<Integer> orderIds) throws SQLException {
+        Map<Integer, OrderDetails> details = new LinkedHashMap<>();
+        if (orderIds.isEmpty()) {
+            return details;
+        }
+        String sql = "SELECT o.id, o.table_id, o.staff_id, o.order_type, o.status, o.created_at, " +
+                "u.username AS staff_name, " +
+                "p.id AS payment_id, p.total_price, p.vat, p.amount_received, p.change_returned, p.paid_at, " +
+                "oi.id AS item_id, oi.product_id, oi.drink_type, oi.quantity, oi.price, oi.note, " +
+                "pr.name AS product_name, pr.image " +
+                "FROM orders o " +
+                "LEFT JOIN users u ON u.id = o.staff_id " +
+                "LEFT JOIN payments p ON p.order_id = o.id " +
+                "LEFT JOIN order_items oi ON oi.order_id = o.id " +
+                "LEFT JOIN products pr ON pr.id = oi.product_id " +
+                "WHERE o.id IN (" + String.join(", ", Collections.nCopies(orderIds.size(), "?")) + ") " +
+                "ORDER BY o.id, oi.id";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                throw new SQLException("Cannot connect to database");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int index = 1;
+                for (int orderId : orderIds) {
+                    stmt.setInt(index++, orderId);
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    int currentId = -1;
+                    Order order = null;
+                    String staffName = null;
+                    Payment payment = null;
+                    List<OrderItem> items = new ArrayList<>();
+                    while (rs.next()) {
+                        int orderId = rs.getInt("id");
+                        if (orderId != currentId) {
+                            if (order != null) {
+                                details.put(currentId, new OrderDetails(order, staffName, items, payment));
+                            }
+                            currentId = orderId;
+                            order = new Order();
+                            order.setId(orderId);
+                            order.setTableId(rs.getObject("table_id", Integer.class));
+                            // NULL once the staff account was deleted; the order then keeps staffId 0
+                            Integer staffId = rs.getObject("staff_id", Integer.class);
+                            if (staffId != null) {
+                                order.setStaffId(staffId);
+                            }
+                            order.setOrderType(rs.getString("order_type"));
+                            order.setStatus(rs.getString("status"));
+                            order.setCreatedAt(format(rs.getTimestamp("created_at")));
+                            staffName = rs.getString("staff_name");
+                            payment = null;
+                            if (rs.getObject("payment_id") != null) {
+                                payment = new Payment(rs.getInt("payment_id"), orderId, rs.getDouble("total_price"),
+                                        rs.getDouble("vat"), rs.getDouble("amount_received"),
+                                        rs.getDouble("change_returned"), format(rs.getTimestamp("paid_at")));
+                            }
+                            items = new ArrayList<>();
+                        }
+                        if (rs.getObject("item_id") != null) {
+                            OrderItem item = new OrderItem();
+                            item.setId(rs.getInt("item_id"));
+                            item.setOrderId(orderId);
+                            item.setProductId(rs.getInt("product_id"));
+                            item.setProductName(rs.getString("product_name"));
+                            item.setDrinkType(rs.getString("drink_type"));
+                            item.setQuantity(rs.getInt("quantity"));
+                            item.setPrice(rs.getDouble("price"));
+                            item.setNote(rs.getString("note"));
+                            item.setImage(rs.getString("image"));
+                            items.add(item);
+                        }
+                    }
+                    if (order != null) {
+                        details.put(currentId, new OrderDetails(order, staffName, items, payment));
+                    }
+                }
+            }
+        }
+        return details;
+    }
+
+    private static String format(Timestamp time) {
+        return time != null ? time.toLocalDateTime().format(TIMESTAMP_FORMAT) : null;
+    }
 }
\ No newline at end of file
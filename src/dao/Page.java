@@ -0,0 +1,42 @@
+package dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list ("View More").
+ *
+ * The DAO page methods take the last item of the previous page (null for the first)
+ * and seek past its sort key with WHERE (key, id) > (?, ?) instead of LIMIT/OFFSET,
+ * so MySQL starts reading at the right index entry and page 500 costs the same as
+ * page 1. They fetch one row more than asked for to know whether another page exists.
+ */
+public final class Page<T> {
+
+    private final List<T> items;
+    private final boolean hasMore;
+
+    private Page(List<T> items, boolean hasMore) {
+        this.items = items;
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * Wrap rows read with LIMIT limit + 1: the extra row, if any, is dropped and only
+     * marks that there is more.
+     */
+    static <T> Page<T> fromOverfetch(List<T> rows, int limit) {
+        boolean more = rows.size() > limit;
+        List<T> items = more ? rows.subList(0, limit) : rows;
+        return new Page<>(Collections.unmodifiableList(items), more);
+    }
+
+    public List<T> getItems() { return items; }
+    public boolean hasMore() { return hasMore; }
+    public boolean isEmpty() { return items.isEmpty(); }
+
+    /** The item to pass as "after" when asking for the next page. */
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+}
@@ -117,15 +117,24 @@ public class ProductDAO {
         return false;
     }
 
-    public List<Product> getProductsPaginated(int offset, int limit) {
+    /**
+     * By name; after is the last product of the previous page, or null.
+     */
+    public Page<Product> getProductsPage(Product after, int limit) {
         List<Product> products = new ArrayList<>();
-        String sql = "SELECT id, name, price, image, drink_types FROM products ORDER BY name ASC LIMIT ? OFFSET ?";
+        String sql = "SELECT id, name, price, image, drink_types FROM products " +
+                (after != null ? "WHERE (name, id) > (?, ?) " : "") +
+                "ORDER BY name ASC, id ASC LIMIT ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, limit);
-            stmt.setInt(2, offset);
+            int index = 1;
+            if (after != null) {
+                stmt.setString(index++, after.getName());
+                stmt.setInt(index++, after.getId());
+            }
+            stmt.setInt(index, limit + 1);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -150,6 +159,6 @@ public class ProductDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return products;
+        return Page.fromOverfetch(products, limit);
     }
 }
\ No newline at end of file
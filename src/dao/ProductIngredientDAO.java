@@ -2,10 +2,14 @@ package dao;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import model.IngredientShortage;
 import model.ProductIngredient;
 
 public class ProductIngredientDAO {
@@ -35,32 +39,69 @@ public class ProductIngredientDAO {
     }
 
     public boolean consumeIngredients(Connection conn, Map<Integer, Double> usedIngredients) throws SQLException {
-        for (Map.Entry<Integer, Double> entry : usedIngredients.entrySet()) {
-            int invId = entry.getKey();
-            double qtyNeeded = entry.getValue();
-
-            String checkSql = "SELECT quantity FROM inventory WHERE id = ? FOR UPDATE";
-            try (PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-                checkStmt.setInt(1, invId);
-                ResultSet rs = checkStmt.executeQuery();
-                if (rs.next()) {
+        return deductIngredients(conn, usedIngredients).isEmpty();
+    }
+
+    /**
+     * Check and decrement all ingredients with two set-based statements:
+     * one SELECT ... FOR UPDATE over every row (locked in id order so concurrent
+     * checkouts cannot deadlock) and one UPDATE with a CASE per row.
+     * Nothing is written when anything is short; the shortages are returned instead.
+     */
+    public List<IngredientShortage> deductIngredients(Connection conn, Map<Integer, Double> usedIngredients) throws SQLException {
+        List<IngredientShortage> shortages = new ArrayList<>();
+        if (usedIngredients.isEmpty()) {
+            return shortages;
+        }
+        List<Integer> ids = new ArrayList<>(usedIngredients.keySet());
+        Collections.sort(ids);
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+
+        String checkSql = "SELECT id, name, unit, quantity FROM inventory WHERE id IN (" + placeholders + ") ORDER BY id FOR UPDATE";
+        Set<Integer> found = new HashSet<>();
+        try (PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                checkStmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = checkStmt.executeQuery()) {
+                while (rs.next()) {
+                    int invId = rs.getInt("id");
                     double available = rs.getDouble("quantity");
-                    if (available < qtyNeeded) {
-                        return false; // Không đủ nguyên liệu
+                    double needed = usedIngredients.get(invId);
+                    found.add(invId);
+                    if (available < needed) {
+                        shortages.add(new IngredientShortage(invId, rs.getString("name"), rs.getString("unit"), needed, available));
                     }
-                } else {
-                    return false; // Nguyên liệu không tồn tại
                 }
             }
+        }
+        for (Integer invId : ids) {
+            if (!found.contains(invId)) { // ingredient row was deleted
+                shortages.add(new IngredientShortage(invId, null, null, usedIngredients.get(invId), 0));
+            }
+        }
+        if (!shortages.isEmpty()) {
+            return shortages;
+        }
 
-            String updateSql = "UPDATE inventory SET quantity = quantity - ? WHERE id = ?";
-            try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                updateStmt.setDouble(1, qtyNeeded);
-                updateStmt.setInt(2, invId);
-                updateStmt.executeUpdate();
+        StringBuilder updateSql = new StringBuilder("UPDATE inventory SET quantity = quantity - CASE id");
+        for (int i = 0; i < ids.size(); i++) {
+            updateSql.append(" WHEN ? THEN ?");
+        }
+        updateSql.append(" END WHERE id IN (").append(placeholders).append(")");
+
+        try (PreparedStatement updateStmt = conn.prepareStatement(updateSql.toString())) {
+            int index = 1;
+            for (Integer invId : ids) {
+                updateStmt.setInt(index++, invId);
+                updateStmt.setDouble(index++, usedIngredients.get(invId));
+            }
+            for (Integer invId : ids) {
+                updateStmt.setInt(index++, invId);
             }
+            updateStmt.executeUpdate();
         }
-        return true;
+        return shortages;
     }
 
     public List<ProductIngredient> getIngredientsByProductId(int productId) {
@@ -89,6 +130,33 @@ public class ProductIngredientDAO {
         return list;
     }
 
+    // Every recipe row, ordered by product (used to build the in-memory recipe cache).
+    // Throws instead of returning an empty list so a failed read is never cached as "no recipes".
+    public List<ProductIngredient> getAllProductIngredients() throws SQLException {
+        List<ProductIngredient> list = new ArrayList<>();
+        String sql = "SELECT id, product_id, inventory_id, quantity FROM product_ingredients ORDER BY product_id, inventory_id";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                throw new SQLException("Cannot connect to database");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+
+                while (rs.next()) {
+                    list.add(new ProductIngredient(
+                            rs.getInt("id"),
+                            rs.getInt("product_id"),
+                            rs.getInt("inventory_id"),
+                            rs.getDouble("quantity")
+                    ));
+                }
+            }
+        }
+
+        return list;
+    }
+
     public boolean deleteByProductId(int productId) {
         String sql = "DELETE FROM product_ingredients WHERE product_id = ?";
 
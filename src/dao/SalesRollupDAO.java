@@ -0,0 +1,189 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hourly sales totals (revenue, VAT, paid orders, items) kept in sales_rollup.
+ *
+ * processPayment() adds each payment to its hour bucket inside the payment's own
+ * transaction, so the rollup never disagrees with payments. Readers get a day or a
+ * date range from a few rows per hour instead of scanning every payment.
+ * Buckets follow payments.paid_at. rebuild() recomputes everything from payments.
+ *
+ * Each hour is split into SLOTS rows picked by order id, so concurrent checkouts
+ * upsert different rows instead of queueing on one row lock until they commit.
+ * Readers always SUM over the slots; rebuild() writes everything to slot 0.
+ *
+ * If the table does not exist (database created from an older script) recording is
+ * skipped and isAvailable() is false, so readers fall back to the raw tables.
+ */
+public class SalesRollupDAO {
+
+    // Sums over one bucket_date; revenue includes VAT like payments.total_price
+    public static class DailySales {
+        private final LocalDate date;
+        private final double revenue;
+        private final double vat;
+        private final int orders;
+        private final int items;
+
+        public DailySales(LocalDate date, double revenue, double vat, int orders, int items) {
+            this.date = date;
+            this.revenue = revenue;
+            this.vat = vat;
+            this.orders = orders;
+            this.items = items;
+        }
+
+        public LocalDate getDate() { return date; }
+        public double getRevenue() { return revenue; }
+        public double getVat() { return vat; }
+        public int getOrders() { return orders; }
+        public int getItems() { return items; }
+    }
+
+    private static final int SLOTS = 8;
+
+    private static final String INSERT_FROM_PAYMENTS =
+            "INSERT INTO sales_rollup (bucket_date, bucket_hour, slot, revenue, vat, order_count, item_count) " +
+            "SELECT DATE(p.paid_at), HOUR(p.paid_at), ?, SUM(p.total_price), SUM(p.vat), COUNT(*), " +
+            "COALESCE(SUM(i.items), 0) " +
+            "FROM payments p " +
+            "LEFT JOIN (SELECT order_id, SUM(quantity) AS items FROM order_items GROUP BY order_id) i ON i.order_id = p.order_id ";
+
+    private static volatile Boolean available;
+
+    /**
+     * Whether sales_rollup exists. Borrows a connection of its own, so call it before
+     * opening the transaction that will record().
+     */
+    public static boolean isAvailable() {
+        Boolean result = available;
+        if (result != null) {
+            return result;
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                // unknown yet; ask again once the database is reachable
+                return false;
+            }
+            return probe(conn);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static boolean probe(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SELECT 1 FROM sales_rollup LIMIT 1");
+            available = true;
+            return true;
+        } catch (SQLException e) {
+            System.err.println("sales_rollup unavailable, reading sales from payments: " + e.getMessage());
+            if (DatabaseConnection.isMissingTable(e)) {
+                available = false;
+            }
+            // anything else may be transient; ask again next time
+            return false;
+        }
+    }
+
+    /**
+     * Add one payment to its hour bucket. Runs on the payment's connection and transaction,
+     * and only probes the table on that connection if isAvailable() was not asked first.
+     */
+    public void record(Connection conn, int orderId) throws SQLException {
+        Boolean known = available;
+        if (known == null ? !probe(conn) : !known) {
+            return;
+        }
+        String sql = INSERT_FROM_PAYMENTS +
+                "WHERE p.order_id = ? " +
+                "GROUP BY DATE(p.paid_at), HOUR(p.paid_at) " +
+                "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), vat = vat + VALUES(vat), " +
+                "order_count = order_count + VALUES(order_count), item_count = item_count + VALUES(item_count)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, orderId % SLOTS);
+            stmt.setInt(2, orderId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Recompute the whole rollup from payments in one transaction.
+     * @return number of hour buckets written
+     */
+    public int rebuild() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                throw new SQLException("Cannot connect to database");
+            }
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement();
+                 PreparedStatement insert = conn.prepareStatement(
+                         INSERT_FROM_PAYMENTS + "GROUP BY DATE(p.paid_at), HOUR(p.paid_at)")) {
+                stmt.executeUpdate("DELETE FROM sales_rollup");
+                insert.setInt(1, 0);
+                int buckets = insert.executeUpdate();
+                conn.commit();
+                available = true;
+                return buckets;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Per-day totals for from..to inclusive, oldest first. Days without sales are omitted.
+     */
+    public List<DailySales> getDailySales(Connection conn, LocalDate from, LocalDate to) throws SQLException {
+        List<DailySales> list = new ArrayList<>();
+        String sql = "SELECT bucket_date, SUM(revenue) AS revenue, SUM(vat) AS vat, " +
+                "SUM(order_count) AS orders, SUM(item_count) AS items " +
+                "FROM sales_rollup WHERE bucket_date >= ? AND bucket_date <= ? " +
+                "GROUP BY bucket_date ORDER BY bucket_date";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, from);
+            stmt.setObject(2, to);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new DailySales(
+                            rs.getObject("bucket_date", LocalDate.class),
+                            rs.getDouble("revenue"),
+                            rs.getDouble("vat"),
+                            rs.getInt("orders"),
+                            rs.getInt("items")
+                    ));
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Totals over from..to inclusive as a single DailySales (date = from).
+     */
+    public DailySales getTotals(Connection conn, LocalDate from, LocalDate to) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(revenue), 0) AS revenue, COALESCE(SUM(vat), 0) AS vat, " +
+                "COALESCE(SUM(order_count), 0) AS orders, COALESCE(SUM(item_count), 0) AS items " +
+                "FROM sales_rollup WHERE bucket_date >= ? AND bucket_date <= ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, from);
+            stmt.setObject(2, to);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return new DailySales(from, rs.getDouble("revenue"), rs.getDouble("vat"),
+                        rs.getInt("orders"), rs.getInt("items"));
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package dao;
+
+import java.text.Normalizer;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Tokenizer shared by the transaction search index and its queries, and the parsed form
+ * of a search box entry.
+ *
+ * Text is lowercased, accents stripped and đ turned into d, then split on anything that
+ * is not a letter or digit, so "Sữa Đá" and "sua da" give the same terms. A query term
+ * ending in * matches every term starting with it, and so does the last term (the word
+ * still being typed), once it has MIN_PREFIX_LENGTH characters; shorter ones match only
+ * that exact term, since "c%" would scan a large share of the index. Phrases such as
+ * "last month" or "tháng trước" are taken out of the terms and become a time range.
+ */
+public final class SearchQuery {
+
+    /** Longest term kept; longer words are cut to this. */
+    public static final int MAX_TERM_LENGTH = 40;
+    /** Terms beyond this are ignored. */
+    public static final int MAX_TERMS = 8;
+    /** Shortest term matched as a prefix; shorter prefix terms are matched exactly. */
+    public static final int MIN_PREFIX_LENGTH = 3;
+
+    private static final Map<String, Function<LocalDate, TimeRange>> PHRASES = new HashMap<>();
+
+    static {
+        Function<LocalDate, TimeRange> today = TimeRange::day;
+        Function<LocalDate, TimeRange> yesterday = d -> TimeRange.day(d.minusDays(1));
+        Function<LocalDate, TimeRange> thisWeek = d -> TimeRange.days(d.with(DayOfWeek.MONDAY), d);
+        Function<LocalDate, TimeRange> lastWeek = d -> TimeRange.days(d.with(DayOfWeek.MONDAY).minusWeeks(1),
+                d.with(DayOfWeek.MONDAY).minusDays(1));
+        Function<LocalDate, TimeRange> thisMonth = d -> TimeRange.month(YearMonth.from(d));
+        Function<LocalDate, TimeRange> lastMonth = d -> TimeRange.month(YearMonth.from(d).minusMonths(1));
+        Function<LocalDate, TimeRange> thisYear = d -> TimeRange.days(d.withDayOfYear(1), d.withDayOfYear(d.lengthOfYear()));
+        Function<LocalDate, TimeRange> lastYear = d -> TimeRange.days(d.minusYears(1).withDayOfYear(1), d.withDayOfYear(1).minusDays(1));
+
+        PHRASES.put("today", today);
+        PHRASES.put("hom nay", today);
+        PHRASES.put("yesterday", yesterday);
+        PHRASES.put("hom qua", yesterday);
+        PHRASES.put("this week", thisWeek);
+        PHRASES.put("tuan nay", thisWeek);
+        PHRASES.put("last week", lastWeek);
+        PHRASES.put("tuan truoc", lastWeek);
+        PHRASES.put("this month", thisMonth);
+        PHRASES.put("thang nay", thisMonth);
+        PHRASES.put("last month", lastMonth);
+        PHRASES.put("thang truoc", lastMonth);
+        PHRASES.put("this year", thisYear);
+        PHRASES.put("nam nay", thisYear);
+        PHRASES.put("last year", lastYear);
+        PHRASES.put("nam truoc", lastYear);
+        PHRASES.put("nam ngoai", lastYear);
+    }
+
+    /** One query term; a prefix term matches any indexed term that starts with it. */
+    public static final class Term {
+        private final String text;
+        private final boolean prefix;
+
+        Term(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+
+        public String getText() { return text; }
+        public boolean isPrefix() { return prefix; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Term)) return false;
+            Term other = (Term) o;
+            return prefix == other.prefix && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * text.hashCode() + (prefix ? 1 : 0);
+        }
+    }
+
+    private final List<Term> terms;
+    private final TimeRange range;
+
+    private SearchQuery(List<Term> terms, TimeRange range) {
+        this.terms = terms;
+        this.range = range;
+    }
+
+    public List<Term> getTerms() { return terms; }
+
+    /** The time phrase found in the query, or null. */
+    public TimeRange getRange() { return range; }
+
+    public boolean isEmpty() {
+        return terms.isEmpty() && range == null;
+    }
+
+    /**
+     * Parse what was typed in a search box; today anchors phrases like "last month".
+     */
+    public static SearchQuery parse(String text, LocalDate today) {
+        if (text == null) {
+            return new SearchQuery(Collections.emptyList(), null);
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : fold(text).split("[^a-z0-9*]+")) {
+            if (!word.replace("*", "").isEmpty()) {
+                words.add(word);
+            }
+        }
+
+        List<Term> terms = new ArrayList<>();
+        TimeRange range = null;
+        for (int i = 0; i < words.size(); i++) {
+            Function<LocalDate, TimeRange> phrase = i + 1 < words.size() ? PHRASES.get(words.get(i) + " " + words.get(i + 1)) : null;
+            if (phrase != null) {
+                range = phrase.apply(today);
+                i++;
+                continue;
+            }
+            phrase = PHRASES.get(words.get(i));
+            if (phrase != null) {
+                range = phrase.apply(today);
+                continue;
+            }
+            if (terms.size() < MAX_TERMS) {
+                String word = words.get(i);
+                terms.add(term(clip(word.replace("*", "")), word.endsWith("*")));
+            }
+        }
+        if (!terms.isEmpty()) {
+            Term last = terms.get(terms.size() - 1);
+            terms.set(terms.size() - 1, term(last.text, true));
+        }
+        return new SearchQuery(Collections.unmodifiableList(terms), range);
+    }
+
+    /**
+     * The terms of text with how often each occurs, in order of first appearance.
+     */
+    public static Map<String, Integer> termCounts(String text) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        if (text == null) {
+            return counts;
+        }
+        for (String word : fold(text).split("[^a-z0-9]+")) {
+            if (!word.isEmpty()) {
+                counts.merge(clip(word), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static Term term(String text, boolean prefix) {
+        return new Term(text, prefix && text.length() >= MIN_PREFIX_LENGTH);
+    }
+
+    // Lowercase, accents stripped and đ -> d, so "ca phe" matches "Cà Phê"
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").replace('đ', 'd');
+    }
+
+    private static String clip(String term) {
+        return term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof SearchQuery)) return false;
+        SearchQuery other = (SearchQuery) o;
+        return terms.equals(other.terms) && Objects.equals(range, other.range);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * terms.hashCode() + Objects.hashCode(range);
+    }
+}
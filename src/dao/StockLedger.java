@@ -0,0 +1,433 @@
+package dao;
+
+import model.IngredientShortage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind stock counters for hot ingredients (beans, milk, sugar...).
+ *
+ * Checkout reserves hot ingredients with a lock-free CAS on in-memory counters and,
+ * inside its own transaction, appends the consumption to the stock_movements journal
+ * instead of updating the contended inventory rows. A background flush folds the
+ * journal into inventory in one transaction (one UPDATE + one DELETE), so a crash
+ * mid-flush rolls back and the same movements are applied by the next flush.
+ *
+ * Readers see inventory.quantity minus unflushed movements (see InventoryDAO), so
+ * numbers stay consistent across terminals. Counters are resynced from the database
+ * after each flush to pick up other terminals' sales and manual stock edits.
+ *
+ * Counters are per process, so two terminals can both reserve the last of an
+ * ingredient. journal() therefore re-checks the database (quantity minus the journal,
+ * this checkout's rows included) before the checkout commits and reports a shortage
+ * if it went negative. What remains is checkouts on different terminals that journal
+ * at the same instant and cannot see each other's uncommitted rows; they can oversell
+ * by at most their own amounts, never by a whole flush period of sales.
+ *
+ * Hot ids come from -Dcoffeeshop.stock.hotIds (default 1,2,3). If the journal table
+ * is missing the ledger disables itself and every ingredient is deducted directly;
+ * any other flush error is retried on the next flush.
+ */
+public class StockLedger {
+
+    // inventory quantities are DECIMAL(10,2), so counters work in exact hundredths
+    private static final int SCALE = 100;
+
+    private static class Counter {
+        final int inventoryId;
+        volatile String name;
+        volatile String unit;
+        // what this terminal can still sell
+        final AtomicLong available = new AtomicLong();
+        // reserved by checkouts that have not committed yet
+        final AtomicLong inFlight = new AtomicLong();
+
+        Counter(int inventoryId) {
+            this.inventoryId = inventoryId;
+        }
+    }
+
+    /**
+     * Hot-ingredient quantities held for one checkout.
+     */
+    public static class Reservation {
+        private final Map<Integer, Long> amounts = new TreeMap<>();
+        private final List<IngredientShortage> shortages = new ArrayList<>();
+        private boolean settled = false;
+
+        public boolean isEmpty() { return amounts.isEmpty(); }
+        public boolean hasShortages() { return !shortages.isEmpty(); }
+        public List<IngredientShortage> getShortages() { return shortages; }
+    }
+
+    private static volatile StockLedger instance;
+
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+    private final long flushPeriodMs;
+    private ScheduledExecutorService flusher;
+    private volatile boolean enabled;
+
+    public static StockLedger getInstance() {
+        if (instance == null) {
+            synchronized (StockLedger.class) {
+                if (instance == null) {
+                    StockLedger ledger = new StockLedger(parseHotIds(System.getProperty("coffeeshop.stock.hotIds", "1,2,3")),
+                            Long.getLong("coffeeshop.stock.flushPeriodMs", 5_000));
+                    ledger.start();
+                    instance = ledger;
+                }
+            }
+        }
+        return instance;
+    }
+
+    StockLedger(Set<Integer> hotIds, long flushPeriodMs) {
+        for (Integer id : hotIds) {
+            counters.put(id, new Counter(id));
+        }
+        this.flushPeriodMs = flushPeriodMs;
+    }
+
+    private void start() {
+        // Applying whatever a previous run left in the journal is the crash recovery
+        try {
+            flush();
+        } catch (SQLException e) {
+            if (DatabaseConnection.isMissingTable(e)) {
+                System.err.println("Stock ledger disabled, deducting hot ingredients directly: " + e.getMessage());
+                enabled = false;
+                return;
+            }
+            // may be transient; the scheduled flush retries and resyncs the counters
+            System.err.println("Stock ledger could not apply the journal yet: " + e.getMessage());
+        }
+        enabled = true;
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-ledger-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (SQLException e) {
+                if (DatabaseConnection.isMissingTable(e)) {
+                    System.err.println("Stock ledger disabled, deducting hot ingredients directly: " + e.getMessage());
+                    enabled = false;
+                    flusher.shutdown();
+                    return;
+                }
+                e.printStackTrace();
+            }
+        }, flushPeriodMs, flushPeriodMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isHot(int inventoryId) {
+        return enabled && counters.containsKey(inventoryId);
+    }
+
+    /**
+     * Reserve the hot part of needed (other ids are ignored). When anything is short
+     * nothing stays reserved and the shortages are reported on the reservation.
+     */
+    public Reservation reserve(Map<Integer, Double> needed) {
+        Reservation reservation = new Reservation();
+        for (Map.Entry<Integer, Double> entry : needed.entrySet()) {
+            if (isHot(entry.getKey())) {
+                reservation.amounts.put(entry.getKey(), toUnits(entry.getValue()));
+            }
+        }
+
+        List<Integer> taken = new ArrayList<>();
+        for (Map.Entry<Integer, Long> entry : reservation.amounts.entrySet()) {
+            Counter counter = counters.get(entry.getKey());
+            long amount = entry.getValue();
+            while (true) {
+                long current = counter.available.get();
+                if (current < amount) {
+                    reservation.shortages.add(new IngredientShortage(counter.inventoryId, counter.name, counter.unit,
+                            fromUnits(amount), fromUnits(Math.max(0, current))));
+                    break;
+                }
+                if (counter.available.compareAndSet(current, current - amount)) {
+                    counter.inFlight.addAndGet(amount);
+                    taken.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+
+        if (reservation.hasShortages()) {
+            for (Integer id : taken) {
+                Counter counter = counters.get(id);
+                long amount = reservation.amounts.get(id);
+                counter.inFlight.addAndGet(-amount);
+                counter.available.addAndGet(amount);
+            }
+            reservation.settled = true;
+        }
+        return reservation;
+    }
+
+    /**
+     * Append the reservation to the journal on the checkout's connection and transaction,
+     * then re-check the hot rows against the database.
+     * @return ingredients that other terminals sold meanwhile; the checkout must roll back
+     */
+    public List<IngredientShortage> journal(Connection conn, Reservation reservation, int orderId) throws SQLException {
+        List<IngredientShortage> shortages = new ArrayList<>();
+        if (reservation.isEmpty()) {
+            return shortages;
+        }
+        String sql = "INSERT INTO stock_movements (inventory_id, quantity, order_id) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Long> entry : reservation.amounts.entrySet()) {
+                stmt.setInt(1, entry.getKey());
+                stmt.setDouble(2, fromUnits(entry.getValue()));
+                stmt.setInt(3, orderId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        String check = "SELECT i.id, i.name, i.unit, " + InventoryDAO.JOURNALED_QUANTITY + " AS quantity " +
+                "FROM inventory i WHERE i.id IN (" + String.join(",", Collections.nCopies(reservation.amounts.size(), "?")) + ")";
+        try (PreparedStatement stmt = conn.prepareStatement(check)) {
+            int index = 1;
+            for (Integer id : reservation.amounts.keySet()) {
+                stmt.setInt(index++, id);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long left = toUnits(rs.getDouble("quantity"));
+                    if (left < 0) {
+                        long amount = reservation.amounts.get(rs.getInt("id"));
+                        shortages.add(new IngredientShortage(rs.getInt("id"), rs.getString("name"), rs.getString("unit"),
+                                fromUnits(amount), fromUnits(Math.max(0, left + amount))));
+                    }
+                }
+            }
+        }
+        return shortages;
+    }
+
+    /**
+     * The checkout committed: the journal rows now carry the consumption.
+     */
+    public void confirm(Reservation reservation) {
+        settle(reservation, false);
+    }
+
+    /**
+     * The checkout rolled back: give the quantities back.
+     */
+    public void release(Reservation reservation) {
+        settle(reservation, true);
+    }
+
+    private synchronized void settle(Reservation reservation, boolean giveBack) {
+        if (reservation.settled) {
+            return;
+        }
+        reservation.settled = true;
+        for (Map.Entry<Integer, Long> entry : reservation.amounts.entrySet()) {
+            Counter counter = counters.get(entry.getKey());
+            counter.inFlight.addAndGet(-entry.getValue());
+            if (giveBack) {
+                counter.available.addAndGet(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Fold every journaled movement into inventory in one transaction, then resync counters.
+     * @return number of journal rows applied
+     */
+    public int flush() throws SQLException {
+        int applied;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                throw new SQLException("Cannot connect to database");
+            }
+            // No gap locks: checkouts keep appending to the journal while it is folded
+            int isolation = conn.getTransactionIsolation();
+            conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            conn.setAutoCommit(false);
+            try {
+                applied = applyJournal(conn);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+                conn.setTransactionIsolation(isolation);
+            }
+        }
+        refresh();
+        return applied;
+    }
+
+    private int applyJournal(Connection conn) throws SQLException {
+        // Only rows up to the newest committed id; later inserts wait for the next flush
+        long maxId;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT MAX(id) FROM stock_movements");
+             ResultSet rs = stmt.executeQuery()) {
+            maxId = rs.next() ? rs.getLong(1) : 0;
+        }
+        if (maxId == 0) {
+            return 0;
+        }
+
+        // Record locks on that range only: waits for a checkout still committing a lower id,
+        // so the rows summed are exactly the rows deleted below
+        Map<Integer, Double> totals = new LinkedHashMap<>();
+        int rows = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT inventory_id, quantity FROM stock_movements WHERE id <= ? FOR UPDATE")) {
+            stmt.setLong(1, maxId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.merge(rs.getInt("inventory_id"), rs.getDouble("quantity"), Double::sum);
+                    rows++;
+                }
+            }
+        }
+        if (rows == 0) {
+            return 0;
+        }
+
+        List<Integer> ids = new ArrayList<>(totals.keySet());
+        Collections.sort(ids);
+        StringBuilder sql = new StringBuilder("UPDATE inventory SET quantity = quantity - CASE id");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(" WHEN ? THEN ?");
+        }
+        sql.append(" END WHERE id IN (").append(String.join(",", Collections.nCopies(ids.size(), "?"))).append(")");
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Integer id : ids) {
+                stmt.setInt(index++, id);
+                stmt.setDouble(index++, totals.get(id));
+            }
+            for (Integer id : ids) {
+                stmt.setInt(index++, id);
+            }
+            stmt.executeUpdate();
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM stock_movements WHERE id <= ?")) {
+            stmt.setLong(1, maxId);
+            stmt.executeUpdate();
+        }
+        return rows;
+    }
+
+    /**
+     * Re-read hot rows and correct each counter by the drift between what this
+     * terminal expected and what the database holds (other terminals, manual edits).
+     */
+    public void refresh() throws SQLException {
+        if (counters.isEmpty()) {
+            return;
+        }
+        // Snapshot local expectations before reading the database: a commit racing
+        // with us then only makes the counter briefly conservative, never oversold.
+        Map<Integer, Long> expected = new HashMap<>();
+        for (Counter counter : counters.values()) {
+            expected.put(counter.inventoryId, counter.available.get() + counter.inFlight.get());
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(counters.size(), "?"));
+        String sql = "SELECT i.id, i.name, i.unit, " + InventoryDAO.JOURNALED_QUANTITY + " AS quantity " +
+                "FROM inventory i WHERE i.id IN (" + placeholders + ")";
+        Set<Integer> seen = new HashSet<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                throw new SQLException("Cannot connect to database");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int index = 1;
+                for (Integer id : counters.keySet()) {
+                    stmt.setInt(index++, id);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Counter counter = counters.get(rs.getInt("id"));
+                        counter.name = rs.getString("name");
+                        counter.unit = rs.getString("unit");
+                        long drift = toUnits(rs.getDouble("quantity")) - expected.get(counter.inventoryId);
+                        counter.available.addAndGet(drift);
+                        seen.add(counter.inventoryId);
+                    }
+                }
+            }
+        }
+        // A deleted hot ingredient can no longer be sold from
+        for (Counter counter : counters.values()) {
+            if (!seen.contains(counter.inventoryId)) {
+                counter.available.addAndGet(-expected.get(counter.inventoryId));
+            }
+        }
+    }
+
+    /**
+     * Flush the journal and stop the background flusher.
+     */
+    public static void shutdown() {
+        StockLedger ledger = instance;
+        if (ledger == null) {
+            return;
+        }
+        if (ledger.flusher != null) {
+            ledger.flusher.shutdownNow();
+        }
+        if (ledger.enabled) {
+            try {
+                ledger.flush();
+            } catch (SQLException e) {
+                // the journal survives; the next start applies it
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static long toUnits(double quantity) {
+        return Math.round(quantity * SCALE);
+    }
+
+    private static double fromUnits(long units) {
+        return units / (double) SCALE;
+    }
+
+    private static Set<Integer> parseHotIds(String value) {
+        Set<Integer> ids = new HashSet<>();
+        for (String part : value.split(",")) {
+            if (!part.trim().isEmpty()) {
+                ids.add(Integer.parseInt(part.trim()));
+            }
+        }
+        return ids;
+    }
+}
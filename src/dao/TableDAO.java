@@ -94,4 +94,15 @@ public class TableDAO {
 
         return false;
     }
+
+    // Update table status on the caller's connection (used inside checkout)
+    public boolean updateStatus(Connection conn, int id, String status) throws SQLException {
+        String sql = "UPDATE tables SET status = ? WHERE id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, status);
+            stmt.setInt(2, id);
+            return stmt.executeUpdate() > 0;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+package dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.regex.Pattern;
+
+/**
+ * A half-open time range [from, to) for filtering DATETIME columns.
+ *
+ * on("o.created_at") emits "o.created_at >= ? AND o.created_at < ?" and bind() fills
+ * the two parameters. The column is compared as stored, never wrapped in DATE(),
+ * YEAR() or MONTH(), so MySQL can range-scan an index on it. Half-open bounds also
+ * mean adjacent ranges neither overlap nor lose the last second of a day.
+ */
+public final class TimeRange {
+
+    private static final Pattern COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    private TimeRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Range bounds must not be null");
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Range end " + to + " is before start " + from);
+        }
+        this.from = from;
+        this.to = to;
+    }
+
+    public static TimeRange of(LocalDateTime from, LocalDateTime to) {
+        return new TimeRange(from, to);
+    }
+
+    /** The whole of one day. */
+    public static TimeRange day(LocalDate date) {
+        return days(date, date);
+    }
+
+    /** From the start of first to the end of last, both days included. */
+    public static TimeRange days(LocalDate first, LocalDate last) {
+        return new TimeRange(first.atStartOfDay(), last.plusDays(1).atStartOfDay());
+    }
+
+    public static TimeRange month(YearMonth month) {
+        return new TimeRange(month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
+    }
+
+    /** The range of the same length that ends where this one starts. */
+    public TimeRange previous() {
+        return new TimeRange(from.minus(Duration.between(from, to)), from);
+    }
+
+    public LocalDateTime getFrom() { return from; }
+    public LocalDateTime getTo() { return to; }
+
+    /** First calendar day touched by the range. */
+    public LocalDate getFirstDay() {
+        return from.toLocalDate();
+    }
+
+    /** Last calendar day touched by the range (to itself is excluded). */
+    public LocalDate getLastDay() {
+        return to.isAfter(from) ? to.minusNanos(1).toLocalDate() : from.toLocalDate();
+    }
+
+    public boolean contains(LocalDateTime time) {
+        return !time.isBefore(from) && time.isBefore(to);
+    }
+
+    /**
+     * The predicate for column, with two placeholders for bind().
+     */
+    public String on(String column) {
+        if (!COLUMN.matcher(column).matches()) {
+            throw new IllegalArgumentException("Not a column name: " + column);
+        }
+        return column + " >= ? AND " + column + " < ?";
+    }
+
+    /**
+     * Set the two placeholders of on() starting at index.
+     * @return the next free parameter index
+     */
+    public int bind(PreparedStatement stmt, int index) throws SQLException {
+        stmt.setTimestamp(index, Timestamp.valueOf(from));
+        stmt.setTimestamp(index + 1, Timestamp.valueOf(to));
+        return index + 2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TimeRange)) return false;
+        TimeRange other = (TimeRange) o;
+        return from.equals(other.from) && to.equals(other.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * from.hashCode() + to.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + from + ", " + to + ")";
+    }
+}
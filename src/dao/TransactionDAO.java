@@ -1,12 +1,45 @@
 package dao;
 
 import model.Transaction;
+import service.ReportCache;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TransactionDAO {
 
+    private final BalanceCheckpointDAO checkpoints = new BalanceCheckpointDAO();
+    private final TransactionSearchDAO search = new TransactionSearchDAO();
+
+    // Totals per query, least recently used out first. The TTL picks up writes from other terminals.
+    private static final int TOTALS_CAPACITY = 64;
+    private static final long TOTALS_TTL_MS = Long.getLong("coffeeshop.cashbook.totalsTtlMs", 60_000);
+    private static final Map<TransactionQuery, CachedTotals> TOTALS =
+            new LinkedHashMap<TransactionQuery, CachedTotals>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<TransactionQuery, CachedTotals> eldest) {
+                    return size() > TOTALS_CAPACITY;
+                }
+            };
+    // bumped by every invalidation; totals computed across one are not stored
+    private static long totalsGeneration;
+
+    private static final class CachedTotals {
+        final TransactionQuery.Totals totals;
+        final long cachedAtMs;
+
+        CachedTotals(TransactionQuery.Totals totals) {
+            this.totals = totals;
+            this.cachedAtMs = System.currentTimeMillis();
+        }
+    }
+
     public List<Transaction> getAllTransactions() {
         List<Transaction> transactionList = new ArrayList<>();
         String sql = "SELECT id, type, amount, reason, created_by, created_at, order_id " +
@@ -36,18 +69,43 @@ public class TransactionDAO {
         return transactionList;
     }
 
-    public List<Transaction> getTransactionsPaginated(int offset, int limit) {
+    /**
+     * Newest first among the transactions matching query; after is the last transaction
+     * of the previous page, or null. Seeks on idx_transactions_created_at (or
+     * idx_transactions_type_created_at with a type filter), whose entries end in (created_at, id).
+     * A query with search terms is ordered by relevance first (TransactionQuery.rankJoin)
+     * and seeks on (score, created_at, id) instead.
+     */
+    public Page<Transaction> getTransactionsPage(TransactionQuery query, Transaction after, int limit) {
         List<Transaction> transactions = new ArrayList<>();
-        String sql = "SELECT id, type, amount, reason, created_by, created_at, order_id " + // THÊM order_id
+        boolean ranked = query.isRanked();
+        String where = query.where();
+        if (after != null) {
+            where += (where.isEmpty() ? "WHERE " : "AND ")
+                    + (ranked ? "(s.score, created_at, id) < (?, ?, ?) " : "(created_at, id) < (?, ?) ");
+        }
+        // A search lists the best matches first, newest first among equal scores
+        String sql = "SELECT id, type, amount, reason, created_by, created_at, order_id" + // THÊM order_id
+                (ranked ? ", s.score " : " ") +
                 "FROM transactions " +
-                "ORDER BY created_at DESC, id DESC " +
-                "LIMIT ? OFFSET ?";
+                query.rankJoin() +
+                where +
+                "ORDER BY " + (ranked ? "s.score DESC, " : "") + "created_at DESC, id DESC " +
+                "LIMIT ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, limit);
-            stmt.setInt(2, offset);
+            int index = query.bindRank(stmt, 1);
+            index = query.bind(stmt, index);
+            if (after != null) {
+                if (ranked) {
+                    stmt.setInt(index++, after.getSearchScore());
+                }
+                stmt.setTimestamp(index++, after.getCreatedAt());
+                stmt.setInt(index++, after.getId());
+            }
+            stmt.setInt(index, limit + 1);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -61,6 +119,9 @@ public class TransactionDAO {
                     // THÊM DÒNG NÀY:
                     Integer orderId = rs.getObject("order_id") != null ? rs.getInt("order_id") : null;
                     transaction.setOrderId(orderId);
+                    if (ranked) {
+                        transaction.setSearchScore(rs.getInt("score"));
+                    }
 
                     transactions.add(transaction);
                 }
@@ -68,58 +129,101 @@ public class TransactionDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return transactions;
+        return Page.fromOverfetch(transactions, limit);
     }
 
-    public boolean addTransaction(Transaction transaction) {
-        String sql = "INSERT INTO transactions (type, amount, reason, created_by, created_at, order_id) " + // THÊM
-                // order_id
-                "VALUES (?, ?, ?, ?, NOW(), ?)"; // + ?
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setString(1, transaction.getType());
-            stmt.setDouble(2, transaction.getAmount());
-            stmt.setString(3, transaction.getReason());
-            stmt.setInt(4, transaction.getCreatedBy());
-            // THÊM:
-            if (transaction.getOrderId() != null) {
-                stmt.setInt(5, transaction.getOrderId());
-            } else {
-                stmt.setNull(5, Types.INTEGER);
+    /**
+     * Count and income/expense sums over everything matching query, from the cache when
+     * nothing has been written since they were computed. Returns null if the query fails.
+     */
+    public TransactionQuery.Totals getTotals(TransactionQuery query) {
+        long generation;
+        synchronized (TOTALS) {
+            CachedTotals cached = TOTALS.get(query);
+            if (cached != null && System.currentTimeMillis() - cached.cachedAtMs < TOTALS_TTL_MS) {
+                return cached.totals;
             }
+            generation = totalsGeneration;
+        }
 
-            int rows = stmt.executeUpdate();
+        String sql = "SELECT COUNT(*) AS cnt, " +
+                "COALESCE(SUM(CASE WHEN type = 'income' THEN amount END), 0) AS income, " +
+                "COALESCE(SUM(CASE WHEN type = 'expense' THEN amount END), 0) AS expense " +
+                "FROM transactions " + query.where();
 
-            if (rows > 0) {
-                ResultSet generatedKeys = stmt.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    transaction.setId(generatedKeys.getInt(1));
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            query.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
                 }
-                return true;
+                TransactionQuery.Totals totals = new TransactionQuery.Totals(
+                        rs.getInt("cnt"), rs.getDouble("income"), rs.getDouble("expense"));
+                synchronized (TOTALS) {
+                    // A write landed while this ran; the next call recomputes
+                    if (generation == totalsGeneration) {
+                        TOTALS.put(query, new CachedTotals(totals));
+                    }
+                }
+                return totals;
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return null;
+    }
 
-        return false;
+    /**
+     * Drop every cached total. Called after each write to transactions; writes outside
+     * this DAO (checkout) call it once they have committed.
+     */
+    public static void invalidateTotals() {
+        synchronized (TOTALS) {
+            TOTALS.clear();
+            totalsGeneration++;
+        }
     }
 
-    public boolean updateTransaction(Transaction transaction) {
-        String sql = "UPDATE transactions SET type = ?, amount = ?, reason = ?, created_by = ? WHERE id = ?";
+    public boolean addTransaction(Transaction transaction) {
+        String sql = "INSERT INTO transactions (type, amount, reason, created_by, created_at, order_id) " + // THÊM
+                // order_id
+                "VALUES (?, ?, ?, ?, NOW(), ?)"; // + ?
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            // The row and its search terms commit together
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            stmt.setString(1, transaction.getType());
-            stmt.setDouble(2, transaction.getAmount());
-            stmt.setString(3, transaction.getReason());
-            stmt.setInt(4, transaction.getCreatedBy());
-            stmt.setInt(5, transaction.getId());
-            int rows = stmt.executeUpdate();
+                stmt.setString(1, transaction.getType());
+                stmt.setDouble(2, transaction.getAmount());
+                stmt.setString(3, transaction.getReason());
+                stmt.setInt(4, transaction.getCreatedBy());
+                // THÊM:
+                if (transaction.getOrderId() != null) {
+                    stmt.setInt(5, transaction.getOrderId());
+                } else {
+                    stmt.setNull(5, Types.INTEGER);
+                }
 
-            return rows > 0;
+                int rows = stmt.executeUpdate();
+
+                if (rows > 0) {
+                    ResultSet generatedKeys = stmt.getGeneratedKeys();
+                    if (generatedKeys.next()) {
+                        transaction.setId(generatedKeys.getInt(1));
+                        search.index(conn, transaction.getId(), transaction.getReason(), transaction.getOrderId());
+                    }
+                    conn.commit();
+                    invalidateTotals();
+                    ReportCache.getInstance().invalidate(LocalDateTime.now());
+                    return true;
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -127,15 +231,89 @@ public class TransactionDAO {
         return false;
     }
 
+    public boolean updateTransaction(Transaction transaction) {
+        return rewrite(transaction.getId(), transaction);
+    }
+
     public boolean deleteTransaction(int id) {
-        String sql = "DELETE FROM transactions WHERE id = ?";
+        return rewrite(id, null);
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /**
+     * Update (replacement != null) or delete one transaction, and shift the balance
+     * checkpoints from its day on by the change and re-index its search terms, all in
+     * the same database transaction.
+     */
+    private boolean rewrite(int id, Transaction replacement) {
+        boolean ledger = BalanceCheckpointDAO.isAvailable();
+        Timestamp createdAt;
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (ledger) {
+                BalanceCheckpointDAO.lock(conn);
+            }
+            try {
+                conn.setAutoCommit(false);
+                try {
+                    BigDecimal oldAmount;
+                    Integer orderId;
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "SELECT type, amount, created_at, order_id FROM transactions WHERE id = ? FOR UPDATE")) {
+                        stmt.setInt(1, id);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            if (!rs.next()) {
+                                conn.rollback();
+                                return false;
+                            }
+                            createdAt = rs.getTimestamp("created_at");
+                            orderId = rs.getObject("order_id") != null ? rs.getInt("order_id") : null;
+                            oldAmount = signed(rs.getString("type"), rs.getBigDecimal("amount"));
+                        }
+                    }
+
+                    BigDecimal newAmount = BigDecimal.ZERO;
+                    if (replacement != null) {
+                        String sql = "UPDATE transactions SET type = ?, amount = ?, reason = ?, created_by = ? WHERE id = ?";
+                        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                            stmt.setString(1, replacement.getType());
+                            stmt.setDouble(2, replacement.getAmount());
+                            stmt.setString(3, replacement.getReason());
+                            stmt.setInt(4, replacement.getCreatedBy());
+                            stmt.setInt(5, id);
+                            stmt.executeUpdate();
+                        }
+                        // The column keeps two decimals
+                        newAmount = signed(replacement.getType(),
+                                BigDecimal.valueOf(replacement.getAmount()).setScale(2, RoundingMode.HALF_UP));
+                    } else {
+                        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM transactions WHERE id = ?")) {
+                            stmt.setInt(1, id);
+                            stmt.executeUpdate();
+                        }
+                    }
 
-            stmt.setInt(1, id);
-            int rows = stmt.executeUpdate();
-            return rows > 0;
+                    search.remove(conn, id);
+                    if (replacement != null) {
+                        search.index(conn, id, replacement.getReason(), orderId);
+                    }
+
+                    if (ledger && createdAt != null) {
+                        checkpoints.repair(conn, createdAt.toLocalDateTime(), newAmount.subtract(oldAmount));
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } finally {
+                if (ledger) {
+                    BalanceCheckpointDAO.unlock(conn);
+                }
+            }
+            invalidateTotals();
+            // reports covering its time are stale now; null (unknown) drops every cached report
+            ReportCache.getInstance().invalidate(createdAt != null ? createdAt.toLocalDateTime() : null);
+            return true;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -143,30 +321,21 @@ public class TransactionDAO {
         return false;
     }
 
-    public double calculateBalance() {
-        String sql = "SELECT SUM(CASE WHEN type = 'income' THEN amount ELSE -amount END) as balance FROM transactions";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+    private static BigDecimal signed(String type, BigDecimal amount) {
+        return "income".equalsIgnoreCase(type) ? amount : amount.negate();
+    }
 
-            if (rs.next()) {
-                return rs.getDouble("balance");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return 0.0;
+    /**
+     * Current balance: the latest daily checkpoint plus the transactions since.
+     */
+    public double calculateBalance() {
+        return checkpoints.getCurrentBalance();
     }
 
-    public int getTotalCount() {
-        String sql = "SELECT COUNT(*) FROM transactions";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            return rs.next() ? rs.getInt(1) : 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return 0;
-        }
+    /**
+     * Balance at the end of day.
+     */
+    public double calculateBalance(LocalDate day) {
+        return checkpoints.getClosingBalance(day);
     }
 }
\ No newline at end of file
@@ -0,0 +1,197 @@
+package dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Cashbook filter criteria (reason text, type, days) pushed down to SQL, so a search
+ * covers every transaction in the database and not just the pages loaded so far.
+ *
+ * where() emits the predicate with placeholders and bind() fills them. Days are turned
+ * into half-open created_at bounds like TimeRange, so the filter stays a range scan on
+ * idx_transactions_created_at (or idx_transactions_type_created_at with a type).
+ * Search text is parsed by SearchQuery: each term becomes a semi-join on the
+ * transaction_search index (reasons and order item notes), bounded by the same days
+ * so it reads only the (term, created_at) range it needs, and a phrase like
+ * "last month" narrows the days. With terms, rankJoin() scores each match so the
+ * cashbook lists the best matches first. Without the index it falls back to LIKE on
+ * the reason.
+ * Instances are immutable and compare by value, which lets TransactionDAO cache totals
+ * per query.
+ */
+public final class TransactionQuery {
+
+    private static final TransactionQuery ALL = new TransactionQuery(null, Collections.emptyList(), null, null, null);
+
+    // Raw text for the LIKE fallback, or terms for the index; never both
+    private final String search;
+    private final List<SearchQuery.Term> terms;
+    private final String type;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    private TransactionQuery(String search, List<SearchQuery.Term> terms, String type, LocalDateTime from, LocalDateTime to) {
+        this.search = search;
+        this.terms = terms;
+        this.type = type;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static TransactionQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Blank search, a null or "All" type and null days mean no filter on that field.
+     * The days are inclusive.
+     */
+    public static TransactionQuery of(String search, String type, LocalDate firstDay, LocalDate lastDay) {
+        String text = search != null && !search.trim().isEmpty() ? search.trim() : null;
+        String kind = type != null && !"All".equalsIgnoreCase(type) ? type.toLowerCase() : null;
+        LocalDateTime from = firstDay != null ? firstDay.atStartOfDay() : null;
+        LocalDateTime to = lastDay != null ? lastDay.plusDays(1).atStartOfDay() : null;
+        if (text == null || !TransactionSearchDAO.isAvailable()) {
+            return new TransactionQuery(text, Collections.emptyList(), kind, from, to);
+        }
+
+        SearchQuery parsed = SearchQuery.parse(text, LocalDate.now());
+        TimeRange range = parsed.getRange();
+        if (range != null) {
+            // Both the date pickers and the phrase apply
+            from = from == null || range.getFrom().isAfter(from) ? range.getFrom() : from;
+            to = to == null || range.getTo().isBefore(to) ? range.getTo() : to;
+        }
+        return new TransactionQuery(null, parsed.getTerms(), kind, from, to);
+    }
+
+    /** "WHERE ..." for the active filters, or an empty string. */
+    public String where() {
+        List<String> predicates = new ArrayList<>();
+        if (type != null) predicates.add("type = ?");
+        if (from != null) predicates.add("created_at >= ?");
+        if (to != null) predicates.add("created_at < ?");
+        if (search != null) predicates.add("reason LIKE ?");
+        for (SearchQuery.Term term : terms) {
+            predicates.add("id IN (SELECT transaction_id FROM transaction_search WHERE term "
+                    + (term.isPrefix() ? "LIKE ?" : "= ?")
+                    + (from != null ? " AND created_at >= ?" : "")
+                    + (to != null ? " AND created_at < ?" : "") + ")");
+        }
+        return predicates.isEmpty() ? "" : "WHERE " + String.join(" AND ", predicates) + " ";
+    }
+
+    /** Whether matches are ordered by relevance (rankJoin) before date. */
+    public boolean isRanked() {
+        return !terms.isEmpty();
+    }
+
+    /**
+     * "JOIN (...) s ON ..." adding s.score, the relevance of each matching transaction,
+     * or an empty string when isRanked() is false. Bind it with bindRank() before bind().
+     *
+     * A term scores its occurrences in the transaction, doubled when it is in the reason
+     * rather than an item note and doubled again for a whole word rather than a prefix.
+     */
+    public String rankJoin() {
+        if (terms.isEmpty()) {
+            return "";
+        }
+        StringBuilder postings = new StringBuilder();
+        for (SearchQuery.Term term : terms) {
+            if (postings.length() > 0) postings.append(" UNION ALL ");
+            postings.append("SELECT transaction_id, hits * (CASE WHEN field = ")
+                    .append(TransactionSearchDAO.FIELD_REASON).append(" THEN 2 ELSE 1 END) ")
+                    .append("* (CASE WHEN term = ? THEN 2 ELSE 1 END) AS weight ")
+                    .append("FROM transaction_search WHERE term ").append(term.isPrefix() ? "LIKE ?" : "= ?")
+                    .append(from != null ? " AND created_at >= ?" : "")
+                    .append(to != null ? " AND created_at < ?" : "");
+        }
+        return "JOIN (SELECT transaction_id, SUM(weight) AS score FROM (" + postings + ") m "
+                + "GROUP BY transaction_id) s ON s.transaction_id = transactions.id ";
+    }
+
+    /**
+     * Bind the parameters of rankJoin() starting at index; returns the next free index.
+     */
+    public int bindRank(PreparedStatement stmt, int index) throws SQLException {
+        for (SearchQuery.Term term : terms) {
+            stmt.setString(index++, term.getText());
+            stmt.setString(index++, term.isPrefix() ? term.getText() + "%" : term.getText());
+            if (from != null) stmt.setTimestamp(index++, Timestamp.valueOf(from));
+            if (to != null) stmt.setTimestamp(index++, Timestamp.valueOf(to));
+        }
+        return index;
+    }
+
+    /**
+     * Bind the parameters of where() starting at index; returns the next free index.
+     */
+    public int bind(PreparedStatement stmt, int index) throws SQLException {
+        if (type != null) stmt.setString(index++, type);
+        if (from != null) stmt.setTimestamp(index++, Timestamp.valueOf(from));
+        if (to != null) stmt.setTimestamp(index++, Timestamp.valueOf(to));
+        if (search != null) stmt.setString(index++, "%" + escapeLike(search) + "%");
+        // Folded terms are [a-z0-9] only, so nothing needs escaping
+        for (SearchQuery.Term term : terms) {
+            stmt.setString(index++, term.isPrefix() ? term.getText() + "%" : term.getText());
+            if (from != null) stmt.setTimestamp(index++, Timestamp.valueOf(from));
+            if (to != null) stmt.setTimestamp(index++, Timestamp.valueOf(to));
+        }
+        return index;
+    }
+
+    // % and _ typed by the user are literal characters, not wildcards
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof TransactionQuery)) return false;
+        TransactionQuery other = (TransactionQuery) o;
+        return Objects.equals(search, other.search) && terms.equals(other.terms) && Objects.equals(type, other.type)
+                && Objects.equals(from, other.from) && Objects.equals(to, other.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(search, terms, type, from, to);
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionQuery[search=" + search + ", terms=" + terms.size() + ", type=" + type + ", from=" + from + ", to=" + to + "]";
+    }
+
+    /**
+     * Count and income/expense sums over every transaction matching a query.
+     */
+    public static final class Totals {
+        private final int count;
+        private final double income;
+        private final double expense;
+
+        Totals(int count, double income, double expense) {
+            this.count = count;
+            this.income = income;
+            this.expense = expense;
+        }
+
+        public int getCount() { return count; }
+        public double getIncome() { return income; }
+        public double getExpense() { return expense; }
+
+        /** Income minus expense. */
+        public double getNet() {
+            return income - expense;
+        }
+    }
+}
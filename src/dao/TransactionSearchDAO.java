@@ -0,0 +1,185 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * Inverted index over transaction reasons and the item notes of the order a payment
+ * transaction belongs to, kept in transaction_search as one row per (term, transaction,
+ * field) with the number of times the term occurs.
+ *
+ * Terms come from SearchQuery.termCounts, so they are folded (no accents, đ -> d).
+ * The primary key starts with (term, created_at): an exact term, a prefix term or a
+ * term within a month are each one short range scan, however many transactions there
+ * are. Rows are written in the same database transaction as the transaction they
+ * index (TransactionDAO, OrderDAO.processPayment); rebuild() recomputes everything.
+ *
+ * If the table does not exist (database created from an older script), or exists but
+ * was never filled, isAvailable() is false, nothing is indexed and the cashbook falls
+ * back to LIKE on the reason until app.RebuildSearchIndex has run.
+ */
+public class TransactionSearchDAO {
+
+    public static final int FIELD_REASON = 1;
+    public static final int FIELD_NOTE = 2;
+    private static final int REBUILD_BATCH = 1_000;
+
+    private static final String INSERT =
+            "INSERT INTO transaction_search (term, created_at, transaction_id, field, hits) " +
+            "SELECT ?, COALESCE(created_at, NOW()), id, ?, ? FROM transactions WHERE id = ?";
+
+    private static volatile Boolean available;
+
+    public static boolean isAvailable() {
+        Boolean result = available;
+        if (result != null) {
+            return result;
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                // unknown yet; ask again once the database is reachable
+                return false;
+            }
+            try (Statement stmt = conn.createStatement()) {
+                boolean indexed;
+                try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM transaction_search LIMIT 1")) {
+                    indexed = rs.next();
+                }
+                if (!indexed) {
+                    // Created but never filled: searching it would miss every older transaction
+                    try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM transactions LIMIT 1")) {
+                        if (rs.next()) {
+                            System.err.println("transaction_search is empty, searching reasons with LIKE until "
+                                    + "java app.RebuildSearchIndex has run");
+                            available = false;
+                            return false;
+                        }
+                    }
+                }
+                available = true;
+            }
+        } catch (SQLException e) {
+            System.err.println("transaction_search unavailable, searching reasons with LIKE: " + e.getMessage());
+            if (DatabaseConnection.isMissingTable(e)) {
+                available = false;
+            }
+            // anything else may be transient; ask again next time
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Index one transaction: its reason, plus the item notes of orderId when it is the
+     * payment of an order. Runs on the caller's connection and transaction.
+     */
+    public void index(Connection conn, int transactionId, String reason, Integer orderId) throws SQLException {
+        if (!isAvailable()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT)) {
+            int rows = addPostings(stmt, transactionId, FIELD_REASON, SearchQuery.termCounts(reason));
+            if (orderId != null) {
+                rows += addPostings(stmt, transactionId, FIELD_NOTE, SearchQuery.termCounts(notesOf(conn, orderId)));
+            }
+            if (rows > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    /** Drop everything indexed for a transaction. Runs on the caller's connection. */
+    public void remove(Connection conn, int transactionId) throws SQLException {
+        if (!isAvailable()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM transaction_search WHERE transaction_id = ?")) {
+            stmt.setInt(1, transactionId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static int addPostings(PreparedStatement stmt, int transactionId, int field, Map<String, Integer> counts) throws SQLException {
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            stmt.setString(1, entry.getKey());
+            stmt.setInt(2, field);
+            stmt.setInt(3, Math.min(entry.getValue(), Short.MAX_VALUE));
+            stmt.setInt(4, transactionId);
+            stmt.addBatch();
+        }
+        return counts.size();
+    }
+
+    private static String notesOf(Connection conn, int orderId) throws SQLException {
+        StringBuilder notes = new StringBuilder();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT note FROM order_items WHERE order_id = ? AND note <> ''")) {
+            stmt.setInt(1, orderId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    notes.append(rs.getString("note")).append('\n');
+                }
+            }
+        }
+        return notes.toString();
+    }
+
+    /**
+     * Recompute the whole index from transactions and order items in one transaction.
+     * @return number of transactions indexed
+     */
+    public int rebuild() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                throw new SQLException("Cannot connect to database");
+            }
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement();
+                 PreparedStatement insert = conn.prepareStatement(INSERT)) {
+                stmt.executeUpdate("DELETE FROM transaction_search");
+                available = true;
+
+                stmt.execute("SET SESSION group_concat_max_len = 1048576");
+
+                // Walk transactions by id in chunks so the result set never holds the whole table
+                String sql = "SELECT t.id, t.reason, GROUP_CONCAT(oi.note SEPARATOR '\\n') AS notes " +
+                        "FROM transactions t LEFT JOIN order_items oi ON oi.order_id = t.order_id AND oi.note <> '' " +
+                        "WHERE t.id > ? GROUP BY t.id, t.reason ORDER BY t.id LIMIT " + REBUILD_BATCH;
+                int indexed = 0;
+                int pending = 0;
+                int lastId = 0;
+                try (PreparedStatement select = conn.prepareStatement(sql)) {
+                    boolean more = true;
+                    while (more) {
+                        select.setInt(1, lastId);
+                        more = false;
+                        try (ResultSet rs = select.executeQuery()) {
+                            while (rs.next()) {
+                                lastId = rs.getInt("id");
+                                pending += addPostings(insert, lastId, FIELD_REASON, SearchQuery.termCounts(rs.getString("reason")));
+                                pending += addPostings(insert, lastId, FIELD_NOTE, SearchQuery.termCounts(rs.getString("notes")));
+                                indexed++;
+                                more = true;
+                            }
+                        }
+                        if (pending >= REBUILD_BATCH) {
+                            insert.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                }
+                if (pending > 0) {
+                    insert.executeBatch();
+                }
+                conn.commit();
+                return indexed;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+}
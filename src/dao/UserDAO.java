@@ -232,15 +232,21 @@ public class UserDAO {
     }
 
     // ← THÊM VÀO UserDAO.java
-    public List<User> getUsersPaginated(int offset, int limit) {
+    // By id; after is the last user of the previous page, or null
+    public Page<User> getUsersPage(User after, int limit) {
         List<User> users = new ArrayList<>();
-        String sql = "SELECT id, username, role, password, status FROM users ORDER BY id LIMIT ? OFFSET ?";
+        String sql = "SELECT id, username, role, password, status FROM users " +
+                (after != null ? "WHERE id > ? " : "") +
+                "ORDER BY id LIMIT ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, limit);
-            stmt.setInt(2, offset);
+            int index = 1;
+            if (after != null) {
+                stmt.setInt(index++, after.getId());
+            }
+            stmt.setInt(index, limit + 1);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -256,18 +262,6 @@ public class UserDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return users;
-    }
-
-    public int getTotalCount() {
-        String sql = "SELECT COUNT(*) FROM users";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            return rs.next() ? rs.getInt(1) : 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return 0;
-        }
+        return Page.fromOverfetch(users, limit);
     }
 }
\ No newline at end of file
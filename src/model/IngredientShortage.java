@@ -0,0 +1,43 @@
+package model;
+
+public class IngredientShortage {
+    private int inventoryId;
+    private String name; // null when the inventory row no longer exists
+    private String unit;
+    private double required;
+    private double available;
+
+    public IngredientShortage() {}
+
+    public IngredientShortage(int inventoryId, String name, String unit, double required, double available) {
+        this.inventoryId = inventoryId;
+        this.name = name;
+        this.unit = unit;
+        this.required = required;
+        this.available = available;
+    }
+
+    public int getInventoryId() { return inventoryId; }
+    public void setInventoryId(int inventoryId) { this.inventoryId = inventoryId; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getUnit() { return unit; }
+    public void setUnit(String unit) { this.unit = unit; }
+
+    public double getRequired() { return required; }
+    public void setRequired(double required) { this.required = required; }
+
+    public double getAvailable() { return available; }
+    public void setAvailable(double available) { this.available = available; }
+
+    public double getMissing() { return required - available; }
+
+    @Override
+    public String toString() {
+        String label = name != null ? name : "Ingredient #" + inventoryId;
+        String u = unit != null ? " " + unit : "";
+        return label + " (need " + required + u + ", have " + available + u + ")";
+    }
+}
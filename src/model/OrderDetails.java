@@ -0,0 +1,34 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything the order details dialog shows: the order, who served it, its items with
+ * product names and images, and the payment (null while unpaid).
+ */
+public class OrderDetails {
+    private final Order order;
+    private final String staffName;
+    private final List<OrderItem> items;
+    private final Payment payment;
+
+    public OrderDetails(Order order, String staffName, List<OrderItem> items, Payment payment) {
+        this.order = order;
+        this.staffName = staffName;
+        this.items = Collections.unmodifiableList(items);
+        this.payment = payment;
+    }
+
+    public Order getOrder() { return order; }
+
+    /** Null when the order has no staff or the staff account was deleted. */
+    public String getStaffName() { return staffName; }
+
+    public List<OrderItem> getItems() { return items; }
+    public Payment getPayment() { return payment; }
+
+    public boolean isPaid() {
+        return "paid".equalsIgnoreCase(order.getStatus());
+    }
+}
@@ -0,0 +1,305 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Report rows stored column by column in primitive arrays, with a schema describing
+ * each column (key, header, kind, whether the table shows it).
+ *
+ * A cell costs 4-8 bytes instead of a boxed value plus a map entry, and reading one
+ * allocates nothing. rows() exposes lightweight Row handles (dataset + index) for
+ * TableView and other list-based code. Instances are immutable once built.
+ */
+public final class ReportDataset {
+
+    public enum Kind {
+        TEXT, INT, MONEY, DECIMAL, PERCENT, DATE
+    }
+
+    public static final class Column {
+        private final String key;
+        private final String header;
+        private final Kind kind;
+        private final boolean shown;
+
+        private Column(String key, String header, Kind kind, boolean shown) {
+            this.key = key;
+            this.header = header;
+            this.kind = kind;
+            this.shown = shown;
+        }
+
+        /** A column the report table displays. */
+        public static Column shown(String key, String header, Kind kind) {
+            return new Column(key, header, kind, true);
+        }
+
+        /** A column kept for export only. */
+        public static Column hidden(String key, Kind kind) {
+            return new Column(key, key, kind, false);
+        }
+
+        public String getKey() { return key; }
+        public String getHeader() { return header; }
+        public Kind getKind() { return kind; }
+        public boolean isShown() { return shown; }
+    }
+
+    /**
+     * One row of a dataset; holds only the index, so creating them is cheap.
+     */
+    public static final class Row {
+        private final ReportDataset data;
+        private final int index;
+
+        private Row(ReportDataset data, int index) {
+            this.data = data;
+            this.index = index;
+        }
+
+        public int getIndex() { return index; }
+        public ReportDataset getData() { return data; }
+        public double getDouble(int column) { return data.getDouble(index, column); }
+        public int getInt(int column) { return data.getInt(index, column); }
+        public String getText(int column) { return data.getText(index, column); }
+        public LocalDate getDate(int column) { return data.getDate(index, column); }
+        public Object getValue(int column) { return data.getValue(index, column); }
+    }
+
+    private final Column[] columns;
+    // per column: int[] (INT), double[] (MONEY/DECIMAL/PERCENT), long[] epoch days (DATE), String[] (TEXT)
+    private final Object[] values;
+    private final int rowCount;
+    private final List<Row> rows;
+
+    private ReportDataset(Column[] columns, Object[] values, int rowCount) {
+        this.columns = columns;
+        this.values = values;
+        this.rowCount = rowCount;
+        Row[] handles = new Row[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            handles[i] = new Row(this, i);
+        }
+        this.rows = new AbstractList<Row>() {
+            @Override
+            public Row get(int index) { return handles[index]; }
+
+            @Override
+            public int size() { return rowCount; }
+        };
+    }
+
+    public static Builder builder(Column... columns) {
+        return new Builder(columns);
+    }
+
+    public int getRowCount() { return rowCount; }
+    public int getColumnCount() { return columns.length; }
+    public Column getColumn(int column) { return columns[column]; }
+    public boolean isEmpty() { return rowCount == 0; }
+
+    /** Unmodifiable view of the row handles, in dataset order. */
+    public List<Row> rows() { return rows; }
+
+    /**
+     * @return the column with this key, or -1 if the dataset has none
+     */
+    public int indexOf(String key) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].key.equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public double getDouble(int row, int column) {
+        Object array = values[column];
+        return array instanceof int[] ? ((int[]) array)[row] : ((double[]) array)[row];
+    }
+
+    public int getInt(int row, int column) {
+        Object array = values[column];
+        return array instanceof int[] ? ((int[]) array)[row] : (int) ((double[]) array)[row];
+    }
+
+    public String getText(int row, int column) {
+        return ((String[]) values[column])[row];
+    }
+
+    public LocalDate getDate(int row, int column) {
+        return LocalDate.ofEpochDay(((long[]) values[column])[row]);
+    }
+
+    /**
+     * The cell as an object (Integer, Double, String or LocalDate), for generic rendering.
+     */
+    public Object getValue(int row, int column) {
+        switch (columns[column].kind) {
+            case TEXT: return getText(row, column);
+            case INT: return getInt(row, column);
+            case DATE: return getDate(row, column);
+            default: return getDouble(row, column);
+        }
+    }
+
+    /**
+     * True if any cell's plain text form (as String.valueOf would print it) contains query.
+     * query must already be lower case.
+     */
+    public boolean rowContains(int row, String query) {
+        for (int c = 0; c < columns.length; c++) {
+            String text;
+            switch (columns[c].kind) {
+                case TEXT:
+                    text = getText(row, c);
+                    break;
+                case INT:
+                    text = Integer.toString(getInt(row, c));
+                    break;
+                case DATE:
+                    text = getDate(row, c).toString();
+                    break;
+                default:
+                    text = Double.toString(getDouble(row, c));
+            }
+            if (text != null && text.toLowerCase().contains(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Sum of a numeric column. */
+    public double sum(int column) {
+        double total = 0;
+        for (int i = 0; i < rowCount; i++) {
+            total += getDouble(i, column);
+        }
+        return total;
+    }
+
+    /**
+     * Approximate heap footprint, for cache budgets.
+     */
+    public long estimateBytes() {
+        long bytes = 64 + 16L * rowCount;
+        for (int c = 0; c < columns.length; c++) {
+            switch (columns[c].kind) {
+                case TEXT:
+                    for (String s : (String[]) values[c]) {
+                        bytes += s == null ? 4 : 48 + s.length();
+                    }
+                    break;
+                case INT:
+                    bytes += 16 + 4L * rowCount;
+                    break;
+                default:
+                    bytes += 16 + 8L * rowCount;
+            }
+        }
+        return bytes;
+    }
+
+    public static final class Builder {
+        private final Column[] columns;
+        private final Object[] values;
+        private int rowCount;
+        private int capacity = 16;
+
+        private Builder(Column[] columns) {
+            this.columns = columns.clone();
+            this.values = new Object[columns.length];
+            for (int c = 0; c < columns.length; c++) {
+                values[c] = newArray(columns[c].kind, capacity);
+            }
+        }
+
+        /**
+         * Append an empty row (zeros / null) and return its index for the set methods.
+         */
+        public int addRow() {
+            if (rowCount == capacity) {
+                capacity *= 2;
+                for (int c = 0; c < columns.length; c++) {
+                    values[c] = grow(values[c], capacity);
+                }
+            }
+            return rowCount++;
+        }
+
+        public Builder set(int row, int column, double value) {
+            Object array = values[column];
+            if (array instanceof int[]) {
+                ((int[]) array)[row] = (int) value;
+            } else {
+                ((double[]) array)[row] = value;
+            }
+            return this;
+        }
+
+        public Builder set(int row, int column, int value) {
+            Object array = values[column];
+            if (array instanceof int[]) {
+                ((int[]) array)[row] = value;
+            } else {
+                ((double[]) array)[row] = value;
+            }
+            return this;
+        }
+
+        public Builder set(int row, int column, String value) {
+            ((String[]) values[column])[row] = value;
+            return this;
+        }
+
+        public Builder set(int row, int column, LocalDate value) {
+            ((long[]) values[column])[row] = value.toEpochDay();
+            return this;
+        }
+
+        public Builder set(int row, String key, double value) { return set(row, column(key), value); }
+        public Builder set(int row, String key, int value) { return set(row, column(key), value); }
+        public Builder set(int row, String key, String value) { return set(row, column(key), value); }
+        public Builder set(int row, String key, LocalDate value) { return set(row, column(key), value); }
+
+        public int getRowCount() { return rowCount; }
+
+        public ReportDataset build() {
+            Object[] trimmed = new Object[columns.length];
+            for (int c = 0; c < columns.length; c++) {
+                trimmed[c] = grow(values[c], rowCount);
+            }
+            return new ReportDataset(columns, trimmed, rowCount);
+        }
+
+        private int column(String key) {
+            for (int c = 0; c < columns.length; c++) {
+                if (columns[c].key.equals(key)) {
+                    return c;
+                }
+            }
+            throw new IllegalArgumentException("No column " + key);
+        }
+
+        private static Object newArray(Kind kind, int size) {
+            switch (kind) {
+                case TEXT: return new String[size];
+                case INT: return new int[size];
+                case DATE: return new long[size];
+                default: return new double[size];
+            }
+        }
+
+        // copyOf for whichever primitive array the column uses
+        private static Object grow(Object array, int size) {
+            if (array instanceof int[]) return Arrays.copyOf((int[]) array, size);
+            if (array instanceof double[]) return Arrays.copyOf((double[]) array, size);
+            if (array instanceof long[]) return Arrays.copyOf((long[]) array, size);
+            return Arrays.copyOf((String[]) array, size);
+        }
+    }
+}
@@ -10,6 +10,8 @@ public class Transaction {
     private int createdBy;
     private Integer orderId;
     private Timestamp createdAt;
+    // Relevance to the search it was listed by (see TransactionQuery.rankJoin), else 0
+    private int searchScore;
 
     public Transaction() {}
 
@@ -43,4 +45,7 @@ public class Transaction {
     public Integer getOrderId() { return orderId; }
     public void setOrderId(Integer orderId) { this.orderId = orderId; }
 
+    public int getSearchScore() { return searchScore; }
+    public void setSearchScore(int searchScore) { this.searchScore = searchScore; }
+
 }
\ No newline at end of file
@@ -0,0 +1,235 @@
+package service;
+
+import dao.DatabaseConnection;
+import dao.InventoryDAO;
+import dao.OrderDAO;
+import dao.ProductIngredientDAO;
+import dao.SalesRollupDAO;
+import dao.StockLedger;
+import dao.TableDAO;
+import dao.TransactionDAO;
+import model.IngredientShortage;
+import model.OrderItem;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a POS cart into a paid order.
+ * Inventory deduction, order + items, table status, payment and the income
+ * transaction all run on one connection and commit together, so a failure at
+ * any step leaves nothing behind.
+ */
+public class CheckoutService {
+
+    public static final double VAT_RATE = 0.1;
+
+    private final OrderDAO orderDAO = new OrderDAO();
+    private final ProductIngredientDAO piDAO = new ProductIngredientDAO();
+    private final TableDAO tableDAO = new TableDAO();
+    private final RecipeCache recipes = RecipeCache.getInstance();
+    private final ProductAvailability availability = ProductAvailability.getInstance();
+    private final OrderEventBus events = OrderEventBus.getInstance();
+
+    /**
+     * How the customer pays. amountReceived is ignored for non-cash methods.
+     */
+    public static class Tender {
+        private final String paymentMethod;
+        private final double amountReceived;
+        private final double discount;
+
+        public Tender(String paymentMethod, double amountReceived, double discount) {
+            this.paymentMethod = paymentMethod;
+            this.amountReceived = amountReceived;
+            this.discount = discount;
+        }
+
+        public String getPaymentMethod() { return paymentMethod; }
+        public double getAmountReceived() { return amountReceived; }
+        public double getDiscount() { return discount; }
+        public boolean isCash() { return "cash".equals(paymentMethod); }
+    }
+
+    /**
+     * Outcome of a committed checkout.
+     */
+    public static class Receipt {
+        private final int orderId;
+        private final double subtotal;
+        private final double vat;
+        private final double total;
+        private final double amountPaid;
+        private final double changeReturned;
+
+        Receipt(int orderId, double subtotal, double vat, double total, double amountPaid, double changeReturned) {
+            this.orderId = orderId;
+            this.subtotal = subtotal;
+            this.vat = vat;
+            this.total = total;
+            this.amountPaid = amountPaid;
+            this.changeReturned = changeReturned;
+        }
+
+        public int getOrderId() { return orderId; }
+        public double getSubtotal() { return subtotal; }
+        public double getVat() { return vat; }
+        public double getTotal() { return total; }
+        public double getAmountPaid() { return amountPaid; }
+        public double getChangeReturned() { return changeReturned; }
+    }
+
+    /**
+     * Thrown when checkout is rolled back. The message is safe to show to staff.
+     */
+    public static class CheckoutException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public CheckoutException(String message) {
+            super(message);
+        }
+
+        public CheckoutException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * @param cart      cart lines keyed as in OrderController
+     * @param tableId   dine-in table, or null for takeaway
+     * @param staffId   staff member taking the order
+     * @param orderType "dine-in" or "takeaway"
+     */
+    public Receipt checkout(Map<String, OrderItem> cart, Integer tableId, int staffId, String orderType, Tender tender)
+            throws CheckoutException {
+        if (cart.isEmpty()) {
+            throw new CheckoutException("No items in order!");
+        }
+
+        double subtotal = 0;
+        for (OrderItem item : cart.values()) {
+            subtotal += item.getPrice() * item.getQuantity();
+        }
+        double vat = subtotal * VAT_RATE;
+        double total = subtotal + vat - tender.getDiscount();
+        double paid = tender.isCash() ? tender.getAmountReceived() : total;
+        double change = tender.isCash() ? paid - total : 0;
+        if (tender.isCash() && change < 0) {
+            throw new CheckoutException("Insufficient amount received!");
+        }
+
+        Map<Integer, Double> needed;
+        try {
+            needed = totalIngredientsNeeded(cart);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new CheckoutException("Cannot load recipes: " + e.getMessage(), e);
+        }
+
+        // probe on its own connection now rather than mid-transaction
+        SalesRollupDAO.isAvailable();
+        Connection conn = DatabaseConnection.getConnection();
+        if (conn == null) {
+            throw new CheckoutException("Cannot connect to database!");
+        }
+        StockLedger ledger = InventoryDAO.getStockLedger();
+        StockLedger.Reservation reservation = null;
+        try (conn) {
+            conn.setAutoCommit(false);
+            try {
+                // Hot ingredients are reserved in memory and journaled; the rest lock their rows
+                reservation = ledger.reserve(needed);
+                Map<Integer, Double> direct = new HashMap<>();
+                for (Map.Entry<Integer, Double> entry : needed.entrySet()) {
+                    if (!ledger.isHot(entry.getKey())) {
+                        direct.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                List<IngredientShortage> shortages = new ArrayList<>(reservation.getShortages());
+                shortages.addAll(piDAO.deductIngredients(conn, direct));
+                if (!shortages.isEmpty()) {
+                    conn.rollback();
+                    ledger.release(reservation);
+                    // our view of stock was stale; catch the menu up
+                    availability.refresh();
+                    throw new CheckoutException("Insufficient ingredients: " + describe(shortages));
+                }
+
+                int orderId = orderDAO.createOrder(conn, tableId, staffId, orderType);
+                if (orderId == -1) {
+                    conn.rollback();
+                    ledger.release(reservation);
+                    throw new CheckoutException("Failed to create order!");
+                }
+
+                if (!orderDAO.addOrderItems(conn, orderId, cart.values())) {
+                    conn.rollback();
+                    ledger.release(reservation);
+                    throw new CheckoutException("Failed to add items!");
+                }
+
+                List<IngredientShortage> sold = ledger.journal(conn, reservation, orderId);
+                if (!sold.isEmpty()) {
+                    // another terminal sold it since our counters were last resynced
+                    conn.rollback();
+                    ledger.release(reservation);
+                    try {
+                        ledger.refresh();
+                    } catch (SQLException e) {
+                        e.printStackTrace();
+                    }
+                    availability.refresh();
+                    throw new CheckoutException("Insufficient ingredients: " + describe(sold));
+                }
+
+                if (tableId != null) {
+                    tableDAO.updateStatus(conn, tableId, "occupied");
+                }
+
+                orderDAO.processPayment(conn, orderId, total, vat, paid, change, staffId);
+
+                conn.commit();
+                ledger.confirm(reservation);
+                TransactionDAO.invalidateTotals();
+                availability.applyConsumption(needed);
+                events.publish(new OrderEventBus.OrderEvent(OrderEventBus.Type.CREATED, orderId, tableId));
+                events.publish(new OrderEventBus.OrderEvent(OrderEventBus.Type.PAID, orderId, tableId));
+                return new Receipt(orderId, subtotal, vat, total, paid, change);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            if (reservation != null) {
+                ledger.release(reservation);
+            }
+            e.printStackTrace();
+            throw new CheckoutException("Error: " + e.getMessage(), e);
+        }
+    }
+
+    private static String describe(List<IngredientShortage> shortages) {
+        StringBuilder sb = new StringBuilder();
+        for (IngredientShortage shortage : shortages) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(shortage);
+        }
+        return sb.toString();
+    }
+
+    // Sum recipe quantities across the cart from the in-memory recipe cache
+    private Map<Integer, Double> totalIngredientsNeeded(Map<String, OrderItem> cart) throws SQLException {
+        Map<Integer, Double> totals = new HashMap<>();
+        for (OrderItem item : cart.values()) {
+            RecipeCache.Recipe recipe = recipes.get(item.getProductId());
+            for (int i = 0; i < recipe.size(); i++) {
+                totals.merge(recipe.inventoryIdAt(i), recipe.quantityAt(i) * item.getQuantity(), Double::sum);
+            }
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,304 @@
+package service;
+
+import dao.DatabaseConnection;
+import dao.TimeRange;
+import model.ReportDataset;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes CSV files on a background thread: either a finished report's dataset, or raw
+ * orders / order items / payments for a period streamed straight from the database.
+ *
+ * Raw exports use their own connection with useCursorFetch, so MySQL hands rows over
+ * FETCH_SIZE at a time and memory stays flat however many rows the period has. Output
+ * goes through a buffered UTF-8 writer (with a BOM so Excel keeps Vietnamese text) to a
+ * temporary file that replaces the target only once the export has finished.
+ */
+public class CsvExporter {
+
+    /** Rows per server round trip while streaming. */
+    public static final int FETCH_SIZE = 5_000;
+    private static final int PROGRESS_EVERY = 10_000;
+    private static final int BUFFER_CHARS = 64 * 1024;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "csv-export");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Raw tables that can be exported for a period. The SQL has the range predicate
+     * on an indexed time column and keeps to one ordered pass over it.
+     */
+    public enum Source {
+        ORDERS("Orders",
+                "SELECT o.id, o.created_at, o.status, o.order_type, t.name AS table_name, " +
+                "u.username AS staff, p.total_price, p.vat, p.paid_at " +
+                "FROM orders o " +
+                "LEFT JOIN tables t ON t.id = o.table_id " +
+                "LEFT JOIN users u ON u.id = o.staff_id " +
+                "LEFT JOIN payments p ON p.order_id = o.id " +
+                "WHERE %s ORDER BY o.created_at, o.id",
+                "o.created_at", "orders o"),
+        ORDER_ITEMS("Order Items",
+                "SELECT oi.id, oi.order_id, o.created_at, o.status, pr.name AS product, oi.drink_type, " +
+                "oi.quantity, oi.price, oi.quantity * oi.price AS line_total, oi.note " +
+                "FROM order_items oi " +
+                "JOIN orders o ON o.id = oi.order_id " +
+                "LEFT JOIN products pr ON pr.id = oi.product_id " +
+                "WHERE %s ORDER BY o.created_at, oi.id",
+                "o.created_at", "order_items oi JOIN orders o ON o.id = oi.order_id"),
+        PAYMENTS("Payments",
+                "SELECT p.id, p.order_id, p.paid_at, p.total_price, p.vat, p.amount_received, p.change_returned " +
+                "FROM payments p WHERE %s ORDER BY p.paid_at, p.id",
+                "p.paid_at", "payments p");
+
+        private final String label;
+        private final String sql;
+        private final String timeColumn;
+        private final String countFrom;
+
+        Source(String label, String sql, String timeColumn, String countFrom) {
+            this.label = label;
+            this.sql = sql;
+            this.timeColumn = timeColumn;
+            this.countFrom = countFrom;
+        }
+
+        public String getLabel() { return label; }
+
+        @Override
+        public String toString() { return label; }
+    }
+
+    /**
+     * Called on the export thread with the rows written so far and the expected total
+     * (-1 when unknown).
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(long rows, long total);
+    }
+
+    /**
+     * One export. cancel() stops it at the next row, aborts the query and leaves the
+     * target file untouched.
+     */
+    public static final class Export {
+        private final File target;
+        private final ProgressListener listener;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private volatile boolean cancelled;
+        private volatile Statement running;
+
+        private Export(File target, ProgressListener listener) {
+            this.target = target;
+            this.listener = listener;
+        }
+
+        public File getTarget() { return target; }
+
+        /** Completes with the number of data rows written. */
+        public CompletableFuture<Long> getResult() { return result; }
+
+        public boolean isDone() { return result.isDone(); }
+        public boolean isCancelled() { return cancelled; }
+
+        public void cancel() {
+            cancelled = true;
+            result.cancel(false);
+            Statement stmt = running;
+            if (stmt != null) {
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        stmt.cancel();
+                    } catch (SQLException e) {
+                        // already finished or closed
+                    }
+                });
+            }
+        }
+
+        private void progress(long rows, long total) {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            if (listener != null && (rows % PROGRESS_EVERY == 0 || rows == total)) {
+                listener.onProgress(rows, total);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        long write(Writer out) throws IOException, SQLException;
+    }
+
+    /**
+     * Write a report dataset, every column in schema order.
+     */
+    public static Export exportDataset(ReportDataset data, File target, ProgressListener listener) {
+        Export export = new Export(target, listener);
+        run(export, out -> {
+            for (int c = 0; c < data.getColumnCount(); c++) {
+                if (c > 0) out.write(',');
+                writeField(out, data.getColumn(c).getKey());
+            }
+            out.write('\n');
+
+            long total = data.getRowCount();
+            for (int row = 0; row < data.getRowCount(); row++) {
+                for (int c = 0; c < data.getColumnCount(); c++) {
+                    if (c > 0) out.write(',');
+                    writeField(out, formatCell(data, row, c));
+                }
+                out.write('\n');
+                export.progress(row + 1, total);
+            }
+            return total;
+        });
+        return export;
+    }
+
+    /**
+     * Stream every row of source in range from a server-side cursor.
+     */
+    public static Export exportRaw(Source source, TimeRange range, File target, ProgressListener listener) {
+        Export export = new Export(target, listener);
+        run(export, out -> {
+            try (Connection conn = DatabaseConnection.openStreamingConnection()) {
+                long total = count(conn, source, range, export);
+                try (PreparedStatement stmt = conn.prepareStatement(String.format(source.sql, range.on(source.timeColumn)),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    export.running = stmt;
+                    stmt.setFetchSize(FETCH_SIZE);
+                    range.bind(stmt, 1);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        ResultSetMetaData meta = rs.getMetaData();
+                        int columns = meta.getColumnCount();
+                        for (int c = 1; c <= columns; c++) {
+                            if (c > 1) out.write(',');
+                            writeField(out, meta.getColumnLabel(c));
+                        }
+                        out.write('\n');
+
+                        long rows = 0;
+                        while (rs.next()) {
+                            for (int c = 1; c <= columns; c++) {
+                                if (c > 1) out.write(',');
+                                writeField(out, formatValue(rs.getObject(c)));
+                            }
+                            out.write('\n');
+                            export.progress(++rows, total);
+                        }
+                        return rows;
+                    }
+                }
+            }
+        });
+        return export;
+    }
+
+    private static void run(Export export, Body body) {
+        EXECUTOR.execute(() -> {
+            if (export.cancelled) {
+                return;
+            }
+            File temp = new File(export.target.getAbsoluteFile().getParentFile(), export.target.getName() + ".part");
+            try {
+                long rows;
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8), BUFFER_CHARS)) {
+                    out.write('\ufeff');
+                    rows = body.write(out);
+                }
+                Files.move(temp.toPath(), export.target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                export.result.complete(rows);
+            } catch (Throwable e) {
+                temp.delete();
+                if (export.cancelled) {
+                    export.result.cancel(false);
+                } else {
+                    export.result.completeExceptionally(e);
+                }
+            } finally {
+                export.running = null;
+            }
+        });
+    }
+
+    // Row count for the progress bar; the range scan on the time index is cheap next to the export
+    private static long count(Connection conn, Source source, TimeRange range, Export export) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM " + source.countFrom + " WHERE " + range.on(source.timeColumn);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            export.running = stmt;
+            range.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        }
+    }
+
+    private static String formatCell(ReportDataset data, int row, int column) {
+        Object value = data.getValue(row, column);
+        if (value == null) {
+            return "";
+        }
+        switch (data.getColumn(column).getKind()) {
+            case MONEY:
+            case DECIMAL:
+            case PERCENT:
+                return String.format("%.2f", (Double) value);
+            default:
+                // LocalDate prints as yyyy-MM-dd
+                return value.toString();
+        }
+    }
+
+    private static String formatValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime().format(TIMESTAMP_FORMAT);
+        }
+        return value.toString();
+    }
+
+    // Quote fields containing a separator, quote or line break
+    private static void writeField(Writer out, String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,374 @@
+package service;
+
+import dao.DatabaseConnection;
+import dao.InventoryDAO;
+import dao.SalesRollupDAO;
+import dao.TimeRange;
+import model.Order;
+import model.ProductSales;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads everything the dashboard shows as one immutable Snapshot.
+ *
+ * The sub-queries run concurrently on a small background pool, each on its own
+ * pooled connection, and related figures are merged into a single statement
+ * (today + yesterday + average, this month + last month, table + staff counters).
+ * Date filters are half-open ranges on the raw column so they can use indexes.
+ * Revenue figures come from the hourly sales_rollup when it exists.
+ * Every sub-query is timed; the timings travel with the snapshot, and so do the
+ * sub-queries that failed, so the dashboard can tell a partial snapshot from zeros.
+ */
+public class DashboardSnapshotService {
+
+    public static final String PERIOD_TODAY = "Today";
+    public static final String PERIOD_WEEK = "This Week";
+    public static final String PERIOD_MONTH = "This Month";
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r, "dashboard-query");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final InventoryDAO inventoryDAO = new InventoryDAO();
+    private final SalesRollupDAO salesRollupDAO = new SalesRollupDAO();
+
+    /**
+     * Everything shown on the dashboard at one point in time.
+     */
+    public static final class Snapshot {
+        private final LocalDate date;
+        private final double dailyRevenue;
+        private final double yesterdayRevenue;
+        private final double avgOrderValue;
+        private final double monthlyRevenue;
+        private final double lastMonthRevenue;
+        private final int todayOrders;
+        private final int paidOrders;
+        private final int unpaidOrders;
+        private final int occupiedTables;
+        private final int totalTables;
+        private final int staffOnline;
+        private final int totalStaff;
+        private final int lowStockCount;
+        private final int peakHour;
+        private final List<ProductSales> bestSellers;
+        private final List<Order> recentOrders;
+        private final Map<String, Long> timingsMs;
+        private final long totalMs;
+        private final Map<String, String> failures;
+
+        private Snapshot(Builder b, Map<String, Long> timingsMs, long totalMs, Map<String, String> failures) {
+            this.date = b.date;
+            this.dailyRevenue = b.dailyRevenue;
+            this.yesterdayRevenue = b.yesterdayRevenue;
+            this.avgOrderValue = b.avgOrderValue;
+            this.monthlyRevenue = b.monthlyRevenue;
+            this.lastMonthRevenue = b.lastMonthRevenue;
+            this.todayOrders = b.todayOrders;
+            this.paidOrders = b.paidOrders;
+            this.unpaidOrders = b.unpaidOrders;
+            this.occupiedTables = b.occupiedTables;
+            this.totalTables = b.totalTables;
+            this.staffOnline = b.staffOnline;
+            this.totalStaff = b.totalStaff;
+            this.lowStockCount = b.lowStockCount;
+            this.peakHour = b.peakHour;
+            this.bestSellers = Collections.unmodifiableList(new ArrayList<>(b.bestSellers));
+            this.recentOrders = Collections.unmodifiableList(new ArrayList<>(b.recentOrders));
+            this.timingsMs = Collections.unmodifiableMap(new LinkedHashMap<>(timingsMs));
+            this.totalMs = totalMs;
+            this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        }
+
+        public LocalDate getDate() { return date; }
+        public double getDailyRevenue() { return dailyRevenue; }
+        public double getYesterdayRevenue() { return yesterdayRevenue; }
+        public double getAvgOrderValue() { return avgOrderValue; }
+        public double getMonthlyRevenue() { return monthlyRevenue; }
+        public double getLastMonthRevenue() { return lastMonthRevenue; }
+        public int getTodayOrders() { return todayOrders; }
+        public int getPaidOrders() { return paidOrders; }
+        public int getUnpaidOrders() { return unpaidOrders; }
+        public int getOccupiedTables() { return occupiedTables; }
+        public int getTotalTables() { return totalTables; }
+        public int getStaffOnline() { return staffOnline; }
+        public int getTotalStaff() { return totalStaff; }
+        public int getLowStockCount() { return lowStockCount; }
+        /** Hour with the most orders today, or -1 when there were none. */
+        public int getPeakHour() { return peakHour; }
+        public List<ProductSales> getBestSellers() { return bestSellers; }
+        public List<Order> getRecentOrders() { return recentOrders; }
+        /** Wall time of each sub-query, in the order they were started. */
+        public Map<String, Long> getTimingsMs() { return timingsMs; }
+        public long getTotalMs() { return totalMs; }
+
+        /** Sub-queries that failed, with their error; their figures are left at zero. */
+        public Map<String, String> getFailures() { return failures; }
+
+        public boolean isPartial() { return !failures.isEmpty(); }
+
+        public double getDailyChangePercent() { return percentChange(dailyRevenue, yesterdayRevenue); }
+        public double getMonthlyChangePercent() { return percentChange(monthlyRevenue, lastMonthRevenue); }
+
+        private static double percentChange(double current, double previous) {
+            return previous > 0 ? (current - previous) / previous * 100 : 0;
+        }
+    }
+
+    // Mutable accumulator filled by the sub-queries (each writes its own fields)
+    private static class Builder {
+        final LocalDate date;
+        volatile double dailyRevenue, yesterdayRevenue, avgOrderValue, monthlyRevenue, lastMonthRevenue;
+        volatile int todayOrders, paidOrders, unpaidOrders, occupiedTables, totalTables, staffOnline, totalStaff, lowStockCount;
+        volatile int peakHour = -1;
+        volatile List<ProductSales> bestSellers = Collections.emptyList();
+        volatile List<Order> recentOrders = Collections.emptyList();
+
+        Builder(LocalDate date) {
+            this.date = date;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Query {
+        void run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Load a snapshot for date in the background. Best sellers cover the given period
+     * (PERIOD_TODAY, PERIOD_WEEK or PERIOD_MONTH). A failing sub-query leaves its
+     * figures at zero and is listed in getFailures(); if every one fails (database down)
+     * the future fails with the first error instead.
+     */
+    public CompletableFuture<Snapshot> load(LocalDate date, String bestSellerPeriod) {
+        long start = System.nanoTime();
+        Builder b = new Builder(date);
+        Map<String, Long> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+        Map<String, SQLException> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+        TimeRange day = TimeRange.day(date);
+        LocalDateTime dayStart = day.getFrom();
+        YearMonth month = YearMonth.from(date);
+
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        parts.add(timed("revenue.daily", timings, failures, conn -> {
+            if (SalesRollupDAO.isAvailable()) {
+                SalesRollupDAO.DailySales today = salesRollupDAO.getTotals(conn, date, date);
+                SalesRollupDAO.DailySales yesterday = salesRollupDAO.getTotals(conn, date.minusDays(1), date.minusDays(1));
+                b.dailyRevenue = today.getRevenue();
+                b.yesterdayRevenue = yesterday.getRevenue();
+                b.avgOrderValue = today.getOrders() > 0 ? today.getRevenue() / today.getOrders() : 0;
+                return;
+            }
+            TimeRange twoDays = TimeRange.days(date.minusDays(1), date);
+            String sql = "SELECT SUM(CASE WHEN paid_at >= ? THEN total_price END) AS today, " +
+                    "SUM(CASE WHEN paid_at < ? THEN total_price END) AS yesterday, " +
+                    "AVG(CASE WHEN paid_at >= ? THEN total_price END) AS avg_today " +
+                    "FROM payments WHERE " + twoDays.on("paid_at");
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setTimestamp(1, Timestamp.valueOf(dayStart));
+                stmt.setTimestamp(2, Timestamp.valueOf(dayStart));
+                stmt.setTimestamp(3, Timestamp.valueOf(dayStart));
+                twoDays.bind(stmt, 4);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        b.dailyRevenue = rs.getDouble("today");
+                        b.yesterdayRevenue = rs.getDouble("yesterday");
+                        b.avgOrderValue = rs.getDouble("avg_today");
+                    }
+                }
+            }
+        }));
+        parts.add(timed("revenue.monthly", timings, failures, conn -> {
+            if (SalesRollupDAO.isAvailable()) {
+                YearMonth lastMonth = month.minusMonths(1);
+                b.monthlyRevenue = salesRollupDAO.getTotals(conn, month.atDay(1), month.atEndOfMonth()).getRevenue();
+                b.lastMonthRevenue = salesRollupDAO.getTotals(conn, lastMonth.atDay(1), lastMonth.atEndOfMonth()).getRevenue();
+                return;
+            }
+            LocalDateTime monthStart = month.atDay(1).atStartOfDay();
+            TimeRange twoMonths = TimeRange.of(monthStart.minusMonths(1), TimeRange.month(month).getTo());
+            String sql = "SELECT SUM(CASE WHEN paid_at >= ? THEN total_price END) AS this_month, " +
+                    "SUM(CASE WHEN paid_at < ? THEN total_price END) AS last_month " +
+                    "FROM payments WHERE " + twoMonths.on("paid_at");
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setTimestamp(1, Timestamp.valueOf(monthStart));
+                stmt.setTimestamp(2, Timestamp.valueOf(monthStart));
+                twoMonths.bind(stmt, 3);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        b.monthlyRevenue = rs.getDouble("this_month");
+                        b.lastMonthRevenue = rs.getDouble("last_month");
+                    }
+                }
+            }
+        }));
+        parts.add(timed("orders.count", timings, failures, conn -> {
+            String sql = "SELECT COUNT(id) AS total, " +
+                    "SUM(CASE WHEN status = 'paid' THEN 1 ELSE 0 END) AS paid, " +
+                    "SUM(CASE WHEN status = 'unpaid' THEN 1 ELSE 0 END) AS unpaid " +
+                    "FROM orders WHERE " + day.on("created_at");
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                day.bind(stmt, 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        b.todayOrders = rs.getInt("total");
+                        b.paidOrders = rs.getInt("paid");
+                        b.unpaidOrders = rs.getInt("unpaid");
+                    }
+                }
+            }
+        }));
+        parts.add(timed("orders.peakHour", timings, failures, conn -> {
+            String sql = "SELECT HOUR(created_at) AS hour, COUNT(id) AS count FROM orders " +
+                    "WHERE " + day.on("created_at") + " GROUP BY hour ORDER BY count DESC LIMIT 1";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                day.bind(stmt, 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        b.peakHour = rs.getInt("hour");
+                    }
+                }
+            }
+        }));
+        parts.add(timed("counters", timings, failures, conn -> {
+            String sql = "SELECT (SELECT COUNT(id) FROM tables WHERE status = 'occupied') AS occupied, " +
+                    "(SELECT COUNT(id) FROM tables) AS tables_total, " +
+                    "(SELECT COUNT(id) FROM users WHERE status = 'online') AS online, " +
+                    "(SELECT COUNT(id) FROM users) AS users_total";
+            try (PreparedStatement stmt = conn.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    b.occupiedTables = rs.getInt("occupied");
+                    b.totalTables = rs.getInt("tables_total");
+                    b.staffOnline = rs.getInt("online");
+                    b.totalStaff = rs.getInt("users_total");
+                }
+            }
+        }));
+        parts.add(timed("inventory.lowStock", timings, failures, conn -> b.lowStockCount = inventoryDAO.getLowStockCount(conn)));
+        parts.add(timed("products.bestSellers", timings, failures, conn -> b.bestSellers = queryBestSellers(conn, date, bestSellerPeriod)));
+        parts.add(timed("orders.recent", timings, failures, conn -> {
+            String sql = "SELECT o.id, o.table_id, o.staff_id, o.order_type, o.status, o.created_at, COALESCE(p.total_price, 0) AS total_price " +
+                    "FROM orders o LEFT JOIN payments p ON o.id = p.order_id " +
+                    "ORDER BY o.created_at DESC LIMIT 10";
+            List<Order> orders = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    orders.add(new Order(
+                            rs.getInt("id"),
+                            rs.getObject("table_id", Integer.class),
+                            rs.getInt("staff_id"),
+                            rs.getString("order_type"),
+                            rs.getString("status"),
+                            rs.getString("created_at"),
+                            rs.getDouble("total_price")
+                    ));
+                }
+            }
+            b.recentOrders = orders;
+        }));
+
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> {
+                    Map<String, String> failed = new LinkedHashMap<>();
+                    synchronized (failures) {
+                        if (failures.size() == parts.size()) {
+                            throw new CompletionException(failures.values().iterator().next());
+                        }
+                        failures.forEach((name, e) -> failed.put(name, e.getMessage()));
+                    }
+                    return new Snapshot(b, timings, (System.nanoTime() - start) / 1_000_000, failed);
+                });
+    }
+
+    /**
+     * Best sellers only, for switching the period filter without reloading the rest.
+     */
+    public CompletableFuture<List<ProductSales>> loadBestSellers(LocalDate date, String period) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                if (conn == null) {
+                    throw new SQLException("Cannot connect to database");
+                }
+                return queryBestSellers(conn, date, period);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    private static List<ProductSales> queryBestSellers(Connection conn, LocalDate date, String period) throws SQLException {
+        TimeRange range;
+        if (PERIOD_WEEK.equals(period)) {
+            range = TimeRange.days(date.minusDays(7), date);
+        } else if (PERIOD_MONTH.equals(period)) {
+            range = TimeRange.month(YearMonth.from(date));
+        } else {
+            range = TimeRange.day(date);
+        }
+
+        String sql = "SELECT p.id AS productId, p.name, SUM(oi.quantity) AS quantitySold, SUM(oi.quantity * oi.price) AS totalRevenue " +
+                "FROM order_items oi " +
+                "JOIN products p ON oi.product_id = p.id " +
+                "JOIN orders o ON oi.order_id = o.id " +
+                "WHERE " + range.on("o.created_at") + " " +
+                "GROUP BY p.id, p.name " +
+                "ORDER BY quantitySold DESC " +
+                "LIMIT 10";
+        List<ProductSales> list = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            range.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new ProductSales(
+                            rs.getInt("productId"),
+                            rs.getString("name"),
+                            rs.getInt("quantitySold"),
+                            rs.getDouble("totalRevenue")
+                    ));
+                }
+            }
+        }
+        return list;
+    }
+
+    // Run one sub-query on its own connection and record how long it took
+    private static CompletableFuture<Void> timed(String name, Map<String, Long> timings,
+                                                 Map<String, SQLException> failures, Query query) {
+        timings.put(name, -1L);
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                if (conn == null) {
+                    throw new SQLException("Cannot connect to database");
+                }
+                query.run(conn);
+            } catch (SQLException e) {
+                System.err.println("Dashboard query " + name + " failed: " + e.getMessage());
+                failures.put(name, e);
+            } finally {
+                timings.put(name, (System.nanoTime() - start) / 1_000_000);
+            }
+        }, EXECUTOR);
+    }
+}
@@ -0,0 +1,127 @@
+package service;
+
+import dao.OrderDAO;
+import model.OrderDetails;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Order details for the cashbook dialog, loaded with OrderDAO.getOrderDetails (one query
+ * for any number of orders) and kept in a least-recently-used cache of
+ * -Dcoffeeshop.orderDetails.cacheSize entries (default 512).
+ *
+ * Only paid orders are cached: nothing changes them afterwards except renaming or
+ * deleting a product, after which ProductController calls clear(). prefetch() loads a
+ * page of orders on a background thread so the dialog usually opens from the cache; get()
+ * for an order that is still being prefetched waits for that load instead of starting
+ * another. A failed prefetch is only logged; get() then queries again and throws.
+ */
+public class OrderDetailsRepository {
+
+    private static final OrderDetailsRepository INSTANCE = new OrderDetailsRepository();
+    private static final int CAPACITY = Integer.getInteger("coffeeshop.orderDetails.cacheSize", 512);
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "order-details-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final OrderDAO orderDAO = new OrderDAO();
+    // access order, so the eldest entry is the least recently used
+    private final Map<Integer, OrderDetails> cache = new LinkedHashMap<Integer, OrderDetails>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, OrderDetails> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    private final Map<Integer, CompletableFuture<OrderDetails>> loading = new ConcurrentHashMap<>();
+
+    public static OrderDetailsRepository getInstance() {
+        return INSTANCE;
+    }
+
+    private OrderDetailsRepository() {
+    }
+
+    /**
+     * Details of one order, or null if it does not exist.
+     */
+    public OrderDetails get(int orderId) throws SQLException {
+        OrderDetails details = cached(orderId);
+        if (details != null) {
+            return details;
+        }
+        CompletableFuture<OrderDetails> pending = loading.get(orderId);
+        if (pending != null) {
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                // the prefetch failed; query again so the caller gets that error, or the order
+            }
+        }
+        return load(Collections.singletonList(orderId)).get(orderId);
+    }
+
+    /**
+     * Load the orders that are neither cached nor already loading, in the background.
+     */
+    public void prefetch(Collection<Integer> orderIds) {
+        List<Integer> missing = new ArrayList<>();
+        CompletableFuture<Map<Integer, OrderDetails>> batch = new CompletableFuture<>();
+        for (Integer orderId : orderIds) {
+            if (orderId == null || cached(orderId) != null || missing.contains(orderId)) {
+                continue;
+            }
+            if (loading.putIfAbsent(orderId, batch.thenApply(loaded -> loaded.get(orderId))) == null) {
+                missing.add(orderId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        EXECUTOR.execute(() -> {
+            try {
+                batch.complete(load(missing));
+            } catch (Throwable e) {
+                e.printStackTrace();
+                batch.completeExceptionally(e);
+            } finally {
+                missing.forEach(loading::remove);
+            }
+        });
+    }
+
+    /** Forget every cached order. */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    private synchronized OrderDetails cached(int orderId) {
+        return cache.get(orderId);
+    }
+
+    private Map<Integer, OrderDetails> load(Collection<Integer> orderIds) throws SQLException {
+        Map<Integer, OrderDetails> loaded = orderDAO.getOrderDetails(orderIds);
+        synchronized (this) {
+            for (Map.Entry<Integer, OrderDetails> entry : loaded.entrySet()) {
+                if (entry.getValue().isPaid()) {
+                    cache.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return loaded;
+    }
+}
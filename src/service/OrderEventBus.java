@@ -0,0 +1,160 @@
+package service;
+
+import dao.DatabaseConnection;
+import dao.TimeRange;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * In-process order events plus today's unpaid-order count.
+ *
+ * Code that creates or pays orders publishes after its transaction commits, so
+ * subscribers on this terminal react immediately. Orders from other terminals are
+ * picked up by one reconciliation query (-Dcoffeeshop.orders.reconcileMs, default
+ * 30 s) that runs only while someone is watching the count and is shared by all of them.
+ *
+ * Listeners are called on the publishing / polling thread; UI code must hop to the
+ * FX thread itself.
+ */
+public class OrderEventBus {
+
+    public enum Type { CREATED, PAID }
+
+    public static class OrderEvent {
+        private final Type type;
+        private final int orderId;
+        private final Integer tableId;
+
+        public OrderEvent(Type type, int orderId, Integer tableId) {
+            this.type = type;
+            this.orderId = orderId;
+            this.tableId = tableId;
+        }
+
+        public Type getType() { return type; }
+        public int getOrderId() { return orderId; }
+        public Integer getTableId() { return tableId; }
+    }
+
+    private static final OrderEventBus INSTANCE = new OrderEventBus();
+    private static final long RECONCILE_PERIOD_MS = Long.getLong("coffeeshop.orders.reconcileMs", 30_000);
+
+    private final List<Consumer<OrderEvent>> subscribers = new CopyOnWriteArrayList<>();
+    private final List<IntConsumer> unpaidListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "order-reconcile");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> reconcileTask;
+    // -1 until the first reconciliation
+    private int unpaidToday = -1;
+
+    public static OrderEventBus getInstance() {
+        return INSTANCE;
+    }
+
+    private OrderEventBus() {
+    }
+
+    public void subscribe(Consumer<OrderEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<OrderEvent> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Call after the change is committed.
+     */
+    public void publish(OrderEvent event) {
+        for (Consumer<OrderEvent> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        synchronized (this) {
+            if (unpaidToday < 0) {
+                return;
+            }
+            int delta = event.getType() == Type.CREATED ? 1 : -1;
+            setUnpaidToday(Math.max(0, unpaidToday + delta));
+        }
+    }
+
+    /**
+     * Watch today's unpaid-order count. The listener gets the current value right away
+     * (from the poller thread) and then every change.
+     */
+    public synchronized void subscribeUnpaidCount(IntConsumer listener) {
+        unpaidListeners.add(listener);
+        if (reconcileTask == null) {
+            reconcileTask = poller.scheduleWithFixedDelay(this::reconcile, 0, RECONCILE_PERIOD_MS, TimeUnit.MILLISECONDS);
+        } else if (unpaidToday >= 0) {
+            int current = unpaidToday;
+            poller.execute(() -> listener.accept(current));
+        }
+    }
+
+    public synchronized void unsubscribeUnpaidCount(IntConsumer listener) {
+        unpaidListeners.remove(listener);
+        if (unpaidListeners.isEmpty() && reconcileTask != null) {
+            reconcileTask.cancel(false);
+            reconcileTask = null;
+            unpaidToday = -1;
+        }
+    }
+
+    /**
+     * Re-read today's unpaid count from the database (other terminals, day rollover).
+     */
+    public void reconcile() {
+        TimeRange today = TimeRange.day(LocalDate.now());
+        String sql = "SELECT COUNT(1) FROM orders WHERE status = 'unpaid' AND " + today.on("created_at");
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            // keep the schedule alive while the database is unreachable
+            if (conn == null) {
+                return;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                today.bind(stmt, 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        int count = rs.getInt(1);
+                        synchronized (this) {
+                            setUnpaidToday(count);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // caller holds the lock
+    private void setUnpaidToday(int count) {
+        boolean changed = count != unpaidToday;
+        unpaidToday = count;
+        if (changed) {
+            for (IntConsumer listener : unpaidListeners) {
+                listener.accept(count);
+            }
+        }
+    }
+}
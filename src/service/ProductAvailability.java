@@ -0,0 +1,274 @@
+package service;
+
+import dao.InventoryDAO;
+import model.Inventory;
+import model.OrderItem;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * How many of each product can still be made from current stock.
+ *
+ * Built from the recipe cache and one inventory read. After that, stock changes
+ * (a committed checkout, a refresh) only recompute the products that use the
+ * changed ingredients, found through an inventory -> products index.
+ * A product without a recipe is treated as unlimited. If the recipes cannot be
+ * loaded the counts stay as they were and the next call tries again.
+ *
+ * Database reads run on a background thread, never on the caller's: refresh() only
+ * queues one, and lookups made before it finishes (or after the recipes changed) answer
+ * UNLIMITED / true and queue a refresh. Listeners then report the real counts, and
+ * checkout checks stock again anyway.
+ */
+public class ProductAvailability {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private static final ProductAvailability INSTANCE = new ProductAvailability();
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "availability-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final RecipeCache recipes = RecipeCache.getInstance();
+    private final InventoryDAO inventoryDAO = new InventoryDAO();
+
+    private final Map<Integer, Double> stock = new HashMap<>();
+    private final Map<Integer, Set<Integer>> productsByIngredient = new HashMap<>();
+    private final Map<Integer, Integer> makeable = new ConcurrentHashMap<>();
+    private final List<Consumer<Set<Integer>>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private long recipeVersion = -1;
+    private boolean loaded = false;
+
+    public static ProductAvailability getInstance() {
+        return INSTANCE;
+    }
+
+    private ProductAvailability() {
+    }
+
+    /**
+     * Called with the ids of products whose makeable count changed, on the thread that
+     * made the change (usually not the FX thread).
+     */
+    public void addListener(Consumer<Set<Integer>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Set<Integer>> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Re-read inventory in the background and recompute the products whose ingredients
+     * moved. Call after stock was changed other than by a checkout.
+     */
+    public void refresh() {
+        // One queued refresh covers every call made before it starts
+        if (refreshQueued.compareAndSet(false, true)) {
+            EXECUTOR.execute(() -> {
+                refreshQueued.set(false);
+                reload();
+            });
+        }
+    }
+
+    private void reload() {
+        List<Inventory> inventory = inventoryDAO.getAllInventory();
+        Set<Integer> changed;
+        synchronized (this) {
+            Map<Integer, Double> latest = new HashMap<>();
+            for (Inventory inv : inventory) {
+                latest.put(inv.getId(), inv.getQuantity());
+            }
+            Set<Integer> moved = new HashSet<>();
+            for (Map.Entry<Integer, Double> entry : latest.entrySet()) {
+                if (!entry.getValue().equals(stock.get(entry.getKey()))) {
+                    moved.add(entry.getKey());
+                }
+            }
+            for (Integer id : stock.keySet()) {
+                if (!latest.containsKey(id)) {
+                    moved.add(id);
+                }
+            }
+            stock.clear();
+            stock.putAll(latest);
+            loaded = true;
+            changed = recalculate(moved);
+        }
+        notifyListeners(changed);
+    }
+
+    /**
+     * A checkout committed: subtract what it used without going back to the database.
+     */
+    public void applyConsumption(Map<Integer, Double> used) {
+        Set<Integer> changed;
+        synchronized (this) {
+            if (!loaded) {
+                return;
+            }
+            for (Map.Entry<Integer, Double> entry : used.entrySet()) {
+                stock.computeIfPresent(entry.getKey(), (id, qty) -> qty - entry.getValue());
+            }
+            changed = recalculate(used.keySet());
+        }
+        notifyListeners(changed);
+    }
+
+    /**
+     * @return how many more of the product can be made, or UNLIMITED (also while loading)
+     */
+    public int getMakeable(int productId) {
+        if (isStale()) {
+            refresh();
+        }
+        return makeable.getOrDefault(productId, UNLIMITED);
+    }
+
+    public boolean isSoldOut(int productId) {
+        return getMakeable(productId) == 0;
+    }
+
+    /**
+     * Whether stock covers the whole cart plus extra more of productId (true while loading).
+     */
+    public boolean canMake(Collection<OrderItem> cart, int productId, int extra) {
+        if (isStale()) {
+            refresh();
+            return true;
+        }
+        Map<Integer, Double> needed = new HashMap<>();
+        try {
+            for (OrderItem item : cart) {
+                addRecipe(needed, item.getProductId(), item.getQuantity());
+            }
+            addRecipe(needed, productId, extra);
+        } catch (SQLException e) {
+            // Checkout checks stock again and reports the failure
+            e.printStackTrace();
+            return true;
+        }
+
+        synchronized (this) {
+            for (Map.Entry<Integer, Double> entry : needed.entrySet()) {
+                double available = stock.getOrDefault(entry.getKey(), 0.0);
+                if (entry.getValue() > available + 1e-9) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void addRecipe(Map<Integer, Double> needed, int productId, int quantity) throws SQLException {
+        RecipeCache.Recipe recipe = recipes.get(productId);
+        for (int i = 0; i < recipe.size(); i++) {
+            needed.merge(recipe.inventoryIdAt(i), recipe.quantityAt(i) * quantity, Double::sum);
+        }
+    }
+
+    // Not loaded yet, or the recipes changed since the last rebuild
+    private synchronized boolean isStale() {
+        return !loaded || recipesChanged();
+    }
+
+    private boolean recipesChanged() {
+        return recipeVersion != recipes.getVersion();
+    }
+
+    // Rebuild if the recipes changed, else recompute the products using the moved ingredients;
+    // caller holds the lock. On a failed recipe load the next call rebuilds everything.
+    private Set<Integer> recalculate(Collection<Integer> movedIngredients) {
+        try {
+            return recipesChanged() ? rebuild() : recompute(movedIngredients);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            recipeVersion = -1;
+            return Collections.emptySet();
+        }
+    }
+
+    // Full recompute after the recipes themselves changed; caller holds the lock
+    private Set<Integer> rebuild() throws SQLException {
+        long version = recipes.getVersion();
+        Map<Integer, RecipeCache.Recipe> all = recipes.snapshot();
+        recipeVersion = version;
+
+        productsByIngredient.clear();
+        for (Map.Entry<Integer, RecipeCache.Recipe> entry : all.entrySet()) {
+            RecipeCache.Recipe recipe = entry.getValue();
+            for (int i = 0; i < recipe.size(); i++) {
+                productsByIngredient.computeIfAbsent(recipe.inventoryIdAt(i), k -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+
+        Set<Integer> changed = new HashSet<>(makeable.keySet());
+        changed.addAll(all.keySet());
+        makeable.keySet().retainAll(all.keySet());
+        Set<Integer> result = new HashSet<>();
+        for (Integer productId : changed) {
+            if (update(productId, all.get(productId))) {
+                result.add(productId);
+            }
+        }
+        return result;
+    }
+
+    // Recompute only the products that use the moved ingredients; caller holds the lock
+    private Set<Integer> recompute(Collection<Integer> movedIngredients) throws SQLException {
+        Set<Integer> affected = new HashSet<>();
+        for (Integer inventoryId : movedIngredients) {
+            affected.addAll(productsByIngredient.getOrDefault(inventoryId, Collections.emptySet()));
+        }
+        Set<Integer> result = new HashSet<>();
+        for (Integer productId : affected) {
+            if (update(productId, recipes.get(productId))) {
+                result.add(productId);
+            }
+        }
+        return result;
+    }
+
+    private boolean update(int productId, RecipeCache.Recipe recipe) {
+        int count = UNLIMITED;
+        if (recipe != null) {
+            for (int i = 0; i < recipe.size(); i++) {
+                double perUnit = recipe.quantityAt(i);
+                if (perUnit <= 0) continue;
+                double available = stock.getOrDefault(recipe.inventoryIdAt(i), 0.0);
+                count = Math.min(count, (int) Math.max(0, Math.floor(available / perUnit + 1e-9)));
+            }
+        }
+        Integer previous = makeable.put(productId, count);
+        return previous == null || previous != count;
+    }
+
+    private void notifyListeners(Set<Integer> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        Set<Integer> view = Collections.unmodifiableSet(new HashSet<>(changed));
+        for (Consumer<Set<Integer>> listener : new ArrayList<>(listeners)) {
+            listener.accept(view);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package service;
+
+import dao.ProductIngredientDAO;
+import model.ProductIngredient;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory product recipes (productId -> inventory ids + quantities as primitive arrays).
+ * Loaded with one query on first use and reloaded after invalidate(), which
+ * ProductController calls whenever a recipe is saved. A failed load is not cached:
+ * the SQLException reaches the caller and the next lookup queries again.
+ */
+public class RecipeCache {
+
+    /**
+     * One product's recipe. Arrays are parallel and must not be modified.
+     */
+    public static class Recipe {
+        private final int[] inventoryIds;
+        private final double[] quantities;
+
+        Recipe(int[] inventoryIds, double[] quantities) {
+            this.inventoryIds = inventoryIds;
+            this.quantities = quantities;
+        }
+
+        public int size() { return inventoryIds.length; }
+        public int inventoryIdAt(int i) { return inventoryIds[i]; }
+        public double quantityAt(int i) { return quantities[i]; }
+    }
+
+    private static final Recipe EMPTY = new Recipe(new int[0], new double[0]);
+    private static final RecipeCache INSTANCE = new RecipeCache();
+
+    private final ProductIngredientDAO piDAO = new ProductIngredientDAO();
+    private final AtomicLong version = new AtomicLong();
+    private volatile Map<Integer, Recipe> recipes;
+    private volatile long loadedVersion = -1;
+
+    public static RecipeCache getInstance() {
+        return INSTANCE;
+    }
+
+    private RecipeCache() {
+    }
+
+    public Recipe get(int productId) throws SQLException {
+        return snapshot().getOrDefault(productId, EMPTY);
+    }
+
+    /**
+     * All recipes as of the current version.
+     */
+    public Map<Integer, Recipe> snapshot() throws SQLException {
+        Map<Integer, Recipe> current = recipes;
+        if (current == null || loadedVersion != version.get()) {
+            current = reload();
+        }
+        return current;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Drop the cached recipes; the next lookup reloads them.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    private synchronized Map<Integer, Recipe> reload() throws SQLException {
+        long target = version.get();
+        if (recipes != null && loadedVersion == target) {
+            return recipes;
+        }
+
+        Map<Integer, List<ProductIngredient>> grouped = new HashMap<>();
+        for (ProductIngredient pi : piDAO.getAllProductIngredients()) {
+            grouped.computeIfAbsent(pi.getProductId(), k -> new ArrayList<>()).add(pi);
+        }
+        Map<Integer, Recipe> loaded = new HashMap<>();
+        for (Map.Entry<Integer, List<ProductIngredient>> entry : grouped.entrySet()) {
+            List<ProductIngredient> rows = entry.getValue();
+            int[] ids = new int[rows.size()];
+            double[] quantities = new double[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                ids[i] = rows.get(i).getInventoryId();
+                quantities[i] = rows.get(i).getQuantity();
+            }
+            loaded.put(entry.getKey(), new Recipe(ids, quantities));
+        }
+
+        recipes = Collections.unmodifiableMap(loaded);
+        loadedVersion = target;
+        return recipes;
+    }
+}
@@ -0,0 +1,171 @@
+package service;
+
+import dao.TimeRange;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Finished report results keyed by (report type, from, to), least recently used first
+ * out once the estimated size passes -Dcoffeeshop.report.cacheBytes (default 8 MB).
+ *
+ * A report over a period that had already ended when it ran is kept until evicted:
+ * nothing can change it except an edit to an old transaction, which calls
+ * invalidate() with that transaction's time. A report whose range reaches into the
+ * future (or that shows current stock) is "open": writing a payment or expense drops
+ * it, and it expires after -Dcoffeeshop.report.openTtlMs (default 60 s) so writes
+ * from other terminals show up too.
+ */
+public class ReportCache {
+
+    private static final ReportCache INSTANCE = new ReportCache();
+    private static final long BUDGET_BYTES = Long.getLong("coffeeshop.report.cacheBytes", 8L * 1024 * 1024);
+    private static final long OPEN_TTL_MS = Long.getLong("coffeeshop.report.openTtlMs", 60_000);
+
+    private static final class Key {
+        private final String type;
+        private final TimeRange range;
+
+        Key(String type, TimeRange range) {
+            this.type = type;
+            this.range = range;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return type.equals(other.type) && range.equals(other.range);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + range.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final ReportEngine.Result result;
+        final long bytes;
+        final boolean open;
+        final long cachedAtMs;
+
+        Entry(ReportEngine.Result result, long bytes, boolean open) {
+            this.result = result;
+            this.bytes = bytes;
+            this.open = open;
+            this.cachedAtMs = System.currentTimeMillis();
+        }
+    }
+
+    // access order, so iteration starts at the least recently used entry
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+    private long hits;
+    private long misses;
+    // bumped by every invalidation; results computed across one are not stored
+    private long generation;
+
+    public static ReportCache getInstance() {
+        return INSTANCE;
+    }
+
+    private ReportCache() {
+        OrderEventBus.getInstance().subscribe(event -> {
+            if (event.getType() == OrderEventBus.Type.PAID) {
+                invalidate(LocalDateTime.now());
+            }
+        });
+    }
+
+    /**
+     * The cached result, or null (counted as a miss) if there is none or it expired.
+     */
+    public synchronized ReportEngine.Result get(String type, TimeRange range) {
+        Key key = new Key(type, range);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.open && System.currentTimeMillis() - entry.cachedAtMs > OPEN_TTL_MS) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    /**
+     * Read before running a report and pass to put(), so a result that raced with a write is dropped.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    public synchronized void put(ReportEngine.Result result, long generationAtStart) {
+        if (generationAtStart != generation) {
+            return;
+        }
+        long bytes = estimateBytes(result);
+        if (bytes > BUDGET_BYTES) {
+            return;
+        }
+        boolean open = ReportEngine.INVENTORY_USAGE.equals(result.getType())
+                || result.getRange().getTo().isAfter(result.getGeneratedAt());
+        remove(new Key(result.getType(), result.getRange()));
+        entries.put(new Key(result.getType(), result.getRange()), new Entry(result, bytes, open));
+        sizeBytes += bytes;
+
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (sizeBytes > BUDGET_BYTES && it.hasNext()) {
+            sizeBytes -= it.next().getValue().bytes;
+            it.remove();
+        }
+    }
+
+    /**
+     * Something was written at the given time: drop every open entry and every entry
+     * whose range contains it. A null time drops everything.
+     */
+    public synchronized void invalidate(LocalDateTime at) {
+        generation++;
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (at == null || e.getValue().open || e.getKey().range.contains(at)) {
+                sizeBytes -= e.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getSizeBytes() { return sizeBytes; }
+    public synchronized int size() { return entries.size(); }
+
+    public synchronized String getStats() {
+        return String.format("%d reports, %d KB, %d hits / %d misses", entries.size(), sizeBytes / 1024, hits, misses);
+    }
+
+    private void remove(Key key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            sizeBytes -= old.bytes;
+        }
+    }
+
+    // The dataset's column arrays plus the result's own fields
+    private static long estimateBytes(ReportEngine.Result result) {
+        return 256 + result.getData().estimateBytes();
+    }
+}
@@ -0,0 +1,627 @@
+package service;
+
+import dao.DatabaseConnection;
+import dao.InventoryDAO;
+import dao.SalesRollupDAO;
+import dao.TimeRange;
+import model.ReportDataset;
+import model.ReportDataset.Column;
+import model.ReportDataset.Kind;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the manager reports (revenue by date / staff, product performance, profit
+ * analysis, inventory usage) off the FX thread and hands back an immutable Result.
+ *
+ * submit() runs a report on a background worker and reports progress as it goes.
+ * Each engine keeps one report in flight: submitting a different type or range cancels
+ * the previous job, including the SQL statement it is waiting on, while submitting the
+ * same request again just returns the running job. generate() runs a report on the
+ * calling thread for batch use. Both go through ReportCache first.
+ */
+public class ReportEngine {
+
+    public static final String REVENUE_BY_DATE = "Revenue by Date";
+    public static final String REVENUE_BY_STAFF = "Revenue by Staff";
+    public static final String PRODUCT_PERFORMANCE = "Product Performance";
+    public static final String PROFIT_ANALYSIS = "Profit Analysis";
+    public static final String INVENTORY_USAGE = "Inventory Usage";
+
+    public static final List<String> TYPES = Collections.unmodifiableList(Arrays.asList(
+            REVENUE_BY_DATE, REVENUE_BY_STAFF, PRODUCT_PERFORMANCE, PROFIT_ANALYSIS, INVENTORY_USAGE));
+
+    // Table columns in display order, then export-only ones
+    private static final Column[] REVENUE_BY_DATE_COLUMNS = {
+            Column.shown("date", "Date", Kind.DATE),
+            Column.shown("orders", "Orders", Kind.INT),
+            Column.shown("revenue", "Revenue", Kind.MONEY),
+            Column.hidden("revenue_no_vat", Kind.MONEY)
+    };
+    private static final Column[] REVENUE_BY_STAFF_COLUMNS = {
+            Column.shown("username", "Staff", Kind.TEXT),
+            Column.shown("role", "Role", Kind.TEXT),
+            Column.shown("orders", "Orders", Kind.INT),
+            Column.shown("revenue", "Revenue", Kind.MONEY),
+            Column.shown("avg_order", "Avg Order", Kind.MONEY),
+            Column.hidden("staff_id", Kind.INT)
+    };
+    private static final Column[] PRODUCT_PERFORMANCE_COLUMNS = {
+            Column.shown("product_name", "Product", Kind.TEXT),
+            Column.shown("unit_price", "Unit Price", Kind.MONEY),
+            Column.shown("quantity_sold", "Qty Sold", Kind.INT),
+            Column.shown("revenue", "Revenue", Kind.MONEY),
+            Column.shown("num_orders", "Orders", Kind.INT),
+            Column.hidden("product_id", Kind.INT)
+    };
+    private static final Column[] PROFIT_ANALYSIS_COLUMNS = {
+            Column.shown("date", "Date", Kind.DATE),
+            Column.shown("revenue", "Revenue", Kind.MONEY),
+            Column.shown("cost", "Cost", Kind.MONEY),
+            Column.shown("profit", "Profit", Kind.MONEY),
+            Column.shown("profit_margin", "Margin %", Kind.PERCENT),
+            Column.hidden("orders", Kind.INT)
+    };
+    private static final Column[] INVENTORY_USAGE_COLUMNS = {
+            Column.shown("item_name", "Item", Kind.TEXT),
+            Column.shown("unit", "Unit", Kind.TEXT),
+            Column.shown("total_used", "Used", Kind.DECIMAL),
+            Column.shown("current_stock", "Current Stock", Kind.DECIMAL),
+            Column.shown("total_cost", "Total Cost", Kind.MONEY),
+            Column.hidden("inventory_id", Kind.INT),
+            Column.hidden("cost_per_unit", Kind.MONEY)
+    };
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "report-worker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Called on the worker thread; progress goes from 0 to 1.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(double progress, String message);
+    }
+
+    /**
+     * One report run. cancel() stops it at the next step and aborts the running statement.
+     */
+    public static final class Job {
+        private final String type;
+        private final TimeRange range;
+        private final ProgressListener listener;
+        private final CompletableFuture<Result> result = new CompletableFuture<>();
+        private volatile boolean cancelled;
+        private volatile boolean cacheHit;
+        private volatile Statement running;
+
+        private Job(String type, TimeRange range, ProgressListener listener) {
+            this.type = type;
+            this.range = range;
+            this.listener = listener;
+        }
+
+        public String getType() { return type; }
+        public TimeRange getRange() { return range; }
+
+        /** Completes with the result, or exceptionally (CancellationException when cancelled). */
+        public CompletableFuture<Result> getResult() { return result; }
+
+        public boolean isDone() { return result.isDone(); }
+        public boolean isCancelled() { return cancelled; }
+        /** True when the result came from ReportCache without running any SQL. */
+        public boolean isCacheHit() { return cacheHit; }
+
+        public boolean matches(String type, TimeRange range) {
+            return this.type.equals(type) && this.range.equals(range);
+        }
+
+        public void cancel() {
+            cancelled = true;
+            result.cancel(false);
+            Statement stmt = running;
+            if (stmt != null) {
+                // Connector/J kills the query over a second connection; keep that off the caller's thread
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        stmt.cancel();
+                    } catch (SQLException e) {
+                        // already finished or closed
+                    }
+                });
+            }
+        }
+
+        // Check for cancellation between steps and report how far along we are
+        private void step(int done, int total, String message) {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            if (listener != null) {
+                listener.onProgress((double) done / total, message);
+            }
+        }
+
+        private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            running = stmt;
+            if (cancelled) {
+                stmt.close();
+                throw new CancellationException();
+            }
+            return stmt;
+        }
+    }
+
+    /**
+     * A finished report: rows for the table (newest / largest first) plus the summary figures.
+     */
+    public static final class Result {
+        private final String type;
+        private final TimeRange range;
+        private final ReportDataset data;
+        private final double totalRevenue;
+        private final int totalOrders;
+        private final double totalCost;
+        private final int totalQuantity;
+        private final boolean hasPrevious;
+        private final double previousRevenue;
+        private final int previousOrders;
+        private final LocalDateTime generatedAt;
+        private final long elapsedMs;
+
+        private Result(Builder b, LocalDateTime generatedAt, long elapsedMs) {
+            this.type = b.type;
+            this.range = b.range;
+            this.data = b.rows.build();
+            this.totalRevenue = b.totalRevenue;
+            this.totalOrders = b.totalOrders;
+            this.totalCost = b.totalCost;
+            this.totalQuantity = b.totalQuantity;
+            this.hasPrevious = b.hasPrevious;
+            this.previousRevenue = b.previousRevenue;
+            this.previousOrders = b.previousOrders;
+            this.generatedAt = generatedAt;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public String getType() { return type; }
+        public TimeRange getRange() { return range; }
+        public ReportDataset getData() { return data; }
+        public double getTotalRevenue() { return totalRevenue; }
+        /** Orders, or for inventory usage the number of ingredients. */
+        public int getTotalOrders() { return totalOrders; }
+        /** Expenses, or for inventory usage the cost of ingredients used. */
+        public double getTotalCost() { return totalCost; }
+        /** Items sold (product performance only). */
+        public int getTotalQuantity() { return totalQuantity; }
+        /** False for reports without a previous-period comparison. */
+        public boolean hasPrevious() { return hasPrevious; }
+        public double getPreviousRevenue() { return previousRevenue; }
+        public int getPreviousOrders() { return previousOrders; }
+        public double getPreviousAvgOrder() { return previousOrders > 0 ? previousRevenue / previousOrders : 0; }
+        /** When the queries started, i.e. the data is as of this time. */
+        public LocalDateTime getGeneratedAt() { return generatedAt; }
+        public long getElapsedMs() { return elapsedMs; }
+    }
+
+    private static class Builder {
+        final String type;
+        final TimeRange range;
+        ReportDataset.Builder rows;
+        double totalRevenue, totalCost, previousRevenue;
+        int totalOrders, totalQuantity, previousOrders;
+        boolean hasPrevious;
+
+        Builder(String type, TimeRange range) {
+            this.type = type;
+            this.range = range;
+        }
+    }
+
+    private final SalesRollupDAO salesRollupDAO = new SalesRollupDAO();
+    private final ReportCache cache = ReportCache.getInstance();
+    private Job latest;
+
+    /**
+     * Run a report in the background, cancelling this engine's previous job if it was
+     * for a different type or range. A cached result comes back as an already completed job.
+     */
+    public Job submit(String type, TimeRange range, ProgressListener listener) {
+        Job job;
+        synchronized (this) {
+            if (latest != null && !latest.isDone()) {
+                if (latest.matches(type, range)) {
+                    return latest;
+                }
+                latest.cancel();
+            }
+            job = new Job(type, range, listener);
+            latest = job;
+        }
+        Result cached = cache.get(type, range);
+        if (cached != null) {
+            job.cacheHit = true;
+            job.result.complete(cached);
+            return job;
+        }
+        EXECUTOR.execute(() -> run(job));
+        return job;
+    }
+
+    /**
+     * Run a report on the calling thread, or take it from the cache.
+     */
+    public Result generate(String type, TimeRange range) throws SQLException {
+        Result cached = cache.get(type, range);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = cache.getGeneration();
+        Result result = generate(new Job(type, range, null));
+        cache.put(result, generation);
+        return result;
+    }
+
+    private void run(Job job) {
+        if (job.isCancelled()) {
+            return;
+        }
+        try {
+            long generation = cache.getGeneration();
+            Result result = generate(job);
+            cache.put(result, generation);
+            job.result.complete(result);
+        } catch (CancellationException e) {
+            job.result.cancel(false);
+        } catch (Exception e) {
+            if (job.isCancelled()) {
+                // the statement was aborted by cancel()
+                job.result.cancel(false);
+            } else {
+                job.result.completeExceptionally(e);
+            }
+        } finally {
+            job.running = null;
+        }
+    }
+
+    private Result generate(Job job) throws SQLException {
+        long start = System.nanoTime();
+        LocalDateTime generatedAt = LocalDateTime.now();
+        Builder b = new Builder(job.type, job.range);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                throw new SQLException("Cannot connect to database");
+            }
+            switch (job.type) {
+                case REVENUE_BY_STAFF:
+                    revenueByStaff(conn, job, b);
+                    break;
+                case PRODUCT_PERFORMANCE:
+                    productPerformance(conn, job, b);
+                    break;
+                case PROFIT_ANALYSIS:
+                    profitAnalysis(conn, job, b);
+                    break;
+                case INVENTORY_USAGE:
+                    inventoryUsage(conn, job, b);
+                    break;
+                case REVENUE_BY_DATE:
+                default:
+                    revenueByDate(conn, job, b);
+            }
+        }
+        return new Result(b, generatedAt, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void revenueByDate(Connection conn, Job job, Builder b) throws SQLException {
+        job.step(0, 3, "Loading sales");
+        b.rows = ReportDataset.builder(REVENUE_BY_DATE_COLUMNS);
+        boolean rollup = SalesRollupDAO.isAvailable();
+        if (rollup) {
+            // One row per day from the hourly rollup, newest first
+            List<SalesRollupDAO.DailySales> days = salesRollupDAO.getDailySales(conn,
+                    b.range.getFirstDay(), b.range.getLastDay());
+            for (int i = days.size() - 1; i >= 0; i--) {
+                SalesRollupDAO.DailySales day = days.get(i);
+                int row = b.rows.addRow();
+                b.rows.set(row, "date", day.getDate())
+                        .set(row, "orders", day.getOrders())
+                        .set(row, "revenue", day.getRevenue())
+                        .set(row, "revenue_no_vat", day.getRevenue() - day.getVat());
+
+                b.totalRevenue += day.getRevenue();
+                b.totalOrders += day.getOrders();
+            }
+        } else {
+            String sql = "SELECT DATE(o.created_at) as order_date, " +
+                    "COUNT(DISTINCT o.id) as total_orders, " +
+                    "SUM(p.total_price) as revenue, " +
+                    "SUM(p.total_price - p.vat) as revenue_no_vat " +
+                    "FROM orders o " +
+                    "JOIN payments p ON o.id = p.order_id " +
+                    "WHERE " + b.range.on("o.created_at") + " " +
+                    "AND o.status = 'paid' " +
+                    "GROUP BY DATE(o.created_at) " +
+                    "ORDER BY order_date DESC";
+            try (PreparedStatement ps = job.prepare(conn, sql)) {
+                b.range.bind(ps, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int row = b.rows.addRow();
+                        b.rows.set(row, "date", rs.getDate("order_date").toLocalDate())
+                                .set(row, "orders", rs.getInt("total_orders"))
+                                .set(row, "revenue", rs.getDouble("revenue"))
+                                .set(row, "revenue_no_vat", rs.getDouble("revenue_no_vat"));
+
+                        b.totalRevenue += rs.getDouble("revenue");
+                        b.totalOrders += rs.getInt("total_orders");
+                    }
+                }
+            }
+        }
+
+        job.step(1, 3, "Comparing with previous period");
+        previousPeriod(conn, job, b, rollup);
+
+        job.step(2, 3, "Loading expenses");
+        b.totalCost = totalExpenses(conn, job, b.range);
+        job.step(3, 3, "Done");
+    }
+
+    private void revenueByStaff(Connection conn, Job job, Builder b) throws SQLException {
+        job.step(0, 3, "Loading staff sales");
+        b.rows = ReportDataset.builder(REVENUE_BY_STAFF_COLUMNS);
+        String sql = "SELECT u.id, u.username, u.role, " +
+                "COUNT(DISTINCT o.id) as total_orders, " +
+                "SUM(p.total_price) as revenue, " +
+                "AVG(p.total_price) as avg_order_value " +
+                "FROM users u " +
+                "LEFT JOIN orders o ON u.id = o.staff_id " +
+                "LEFT JOIN payments p ON o.id = p.order_id " +
+                "WHERE " + b.range.on("o.created_at") + " " +
+                "AND o.status = 'paid' " +
+                "GROUP BY u.id, u.username, u.role " +
+                "ORDER BY revenue DESC";
+        try (PreparedStatement ps = job.prepare(conn, sql)) {
+            b.range.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int row = b.rows.addRow();
+                    b.rows.set(row, "staff_id", rs.getInt("id"))
+                            .set(row, "username", rs.getString("username"))
+                            .set(row, "role", rs.getString("role"))
+                            .set(row, "orders", rs.getInt("total_orders"))
+                            .set(row, "revenue", rs.getDouble("revenue"))
+                            .set(row, "avg_order", rs.getDouble("avg_order_value"));
+
+                    b.totalRevenue += rs.getDouble("revenue");
+                    b.totalOrders += rs.getInt("total_orders");
+                }
+            }
+        }
+
+        job.step(1, 3, "Comparing with previous period");
+        previousPeriod(conn, job, b, false);
+
+        job.step(2, 3, "Loading expenses");
+        b.totalCost = totalExpenses(conn, job, b.range);
+        job.step(3, 3, "Done");
+    }
+
+    private void productPerformance(Connection conn, Job job, Builder b) throws SQLException {
+        job.step(0, 3, "Loading product sales");
+        b.rows = ReportDataset.builder(PRODUCT_PERFORMANCE_COLUMNS);
+        String sql = "SELECT p.id, p.name, p.price, " +
+                "SUM(oi.quantity) as total_sold, " +
+                "SUM(oi.quantity * oi.price) as revenue, " +
+                "COUNT(DISTINCT oi.order_id) as num_orders " +
+                "FROM products p " +
+                "JOIN order_items oi ON p.id = oi.product_id " +
+                "JOIN orders o ON oi.order_id = o.id " +
+                "WHERE " + b.range.on("o.created_at") + " " +
+                "AND o.status = 'paid' " +
+                "GROUP BY p.id, p.name, p.price " +
+                "ORDER BY revenue DESC";
+        try (PreparedStatement ps = job.prepare(conn, sql)) {
+            b.range.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int row = b.rows.addRow();
+                    b.rows.set(row, "product_id", rs.getInt("id"))
+                            .set(row, "product_name", rs.getString("name"))
+                            .set(row, "unit_price", rs.getDouble("price"))
+                            .set(row, "quantity_sold", rs.getInt("total_sold"))
+                            .set(row, "revenue", rs.getDouble("revenue"))
+                            .set(row, "num_orders", rs.getInt("num_orders"));
+
+                    b.totalRevenue += rs.getDouble("revenue");
+                    b.totalQuantity += rs.getInt("total_sold");
+                    b.totalOrders += rs.getInt("num_orders");
+                }
+            }
+        }
+
+        job.step(1, 3, "Comparing with previous period");
+        previousPeriod(conn, job, b, false);
+
+        job.step(2, 3, "Loading expenses");
+        b.totalCost = totalExpenses(conn, job, b.range);
+        job.step(3, 3, "Done");
+    }
+
+    private void profitAnalysis(Connection conn, Job job, Builder b) throws SQLException {
+        job.step(0, 3, "Loading sales");
+        b.rows = ReportDataset.builder(PROFIT_ANALYSIS_COLUMNS);
+        String sql = "SELECT DATE(o.created_at) as order_date, " +
+                "SUM(p.total_price) as revenue, " +
+                "SUM(p.vat) as total_vat, " +
+                "COUNT(DISTINCT o.id) as orders " +
+                "FROM orders o " +
+                "JOIN payments p ON o.id = p.order_id " +
+                "WHERE " + b.range.on("o.created_at") + " " +
+                "AND o.status = 'paid' " +
+                "GROUP BY DATE(o.created_at) " +
+                "ORDER BY order_date DESC";
+
+        TreeSet<LocalDate> allDates = new TreeSet<>();
+        Map<LocalDate, Double> revenueMap = new HashMap<>();
+        Map<LocalDate, Integer> ordersMap = new HashMap<>();
+        try (PreparedStatement ps = job.prepare(conn, sql)) {
+            b.range.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate date = rs.getDate("order_date").toLocalDate();
+                    allDates.add(date);
+                    revenueMap.put(date, rs.getDouble("revenue"));
+                    ordersMap.put(date, rs.getInt("orders"));
+                }
+            }
+        }
+
+        job.step(1, 3, "Loading expenses");
+        String expenseSql = "SELECT DATE(created_at) as expense_date, " +
+                "SUM(amount) as total_expense " +
+                "FROM transactions " +
+                "WHERE type = 'expense' " +
+                "AND " + b.range.on("created_at") + " " +
+                "GROUP BY DATE(created_at)";
+
+        Map<LocalDate, Double> expenseMap = new HashMap<>();
+        try (PreparedStatement ps = job.prepare(conn, expenseSql)) {
+            b.range.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate date = rs.getDate("expense_date").toLocalDate();
+                    allDates.add(date);
+                    expenseMap.put(date, rs.getDouble("total_expense"));
+                }
+            }
+        }
+
+        for (LocalDate date : allDates) {
+            double revenue = revenueMap.getOrDefault(date, 0.0);
+            double cost = expenseMap.getOrDefault(date, 0.0);
+            double profit = revenue - cost;
+            int orders = ordersMap.getOrDefault(date, 0);
+
+            int row = b.rows.addRow();
+            b.rows.set(row, "date", date)
+                    .set(row, "revenue", revenue)
+                    .set(row, "cost", cost)
+                    .set(row, "profit", profit)
+                    .set(row, "profit_margin", revenue > 0 ? profit / revenue : 0)
+                    .set(row, "orders", orders);
+
+            b.totalRevenue += revenue;
+            b.totalCost += cost;
+            b.totalOrders += orders;
+        }
+
+        job.step(2, 3, "Comparing with previous period");
+        previousPeriod(conn, job, b, false);
+        job.step(3, 3, "Done");
+    }
+
+    private void inventoryUsage(Connection conn, Job job, Builder b) throws SQLException {
+        job.step(0, 1, "Loading ingredient usage");
+        b.rows = ReportDataset.builder(INVENTORY_USAGE_COLUMNS);
+        String sql = "SELECT i.id, i.name, i.unit, i.cost_per_unit, " + InventoryDAO.quantityExpression() + " as current_stock, " +
+                "SUM(pi.quantity * oi.quantity) as total_used, " +
+                "SUM(pi.quantity * oi.quantity * i.cost_per_unit) as total_cost " +
+                "FROM inventory i " +
+                "JOIN product_ingredients pi ON i.id = pi.inventory_id " +
+                "JOIN order_items oi ON pi.product_id = oi.product_id " +
+                "JOIN orders o ON oi.order_id = o.id " +
+                "WHERE " + b.range.on("o.created_at") + " " +
+                "AND o.status = 'paid' " +
+                "GROUP BY i.id, i.name, i.unit, i.cost_per_unit, i.quantity " +
+                "ORDER BY total_cost DESC";
+        try (PreparedStatement ps = job.prepare(conn, sql)) {
+            b.range.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int row = b.rows.addRow();
+                    b.rows.set(row, "inventory_id", rs.getInt("id"))
+                            .set(row, "item_name", rs.getString("name"))
+                            .set(row, "unit", rs.getString("unit"))
+                            .set(row, "cost_per_unit", rs.getDouble("cost_per_unit"))
+                            .set(row, "current_stock", rs.getDouble("current_stock"))
+                            .set(row, "total_used", rs.getDouble("total_used"))
+                            .set(row, "total_cost", rs.getDouble("total_cost"));
+
+                    b.totalCost += rs.getDouble("total_cost");
+                }
+            }
+        }
+        b.totalOrders = b.rows.getRowCount();
+        job.step(1, 1, "Done");
+    }
+
+    // Revenue and paid orders of the same-length period right before the report's range.
+    // fromRollup only when the current period was read from the rollup too: it buckets by
+    // payments.paid_at, the raw queries by orders.created_at.
+    private void previousPeriod(Connection conn, Job job, Builder b, boolean fromRollup) throws SQLException {
+        TimeRange previous = b.range.previous();
+        b.hasPrevious = true;
+        if (fromRollup) {
+            SalesRollupDAO.DailySales totals = salesRollupDAO.getTotals(conn,
+                    previous.getFirstDay(), previous.getLastDay());
+            b.previousRevenue = totals.getRevenue();
+            b.previousOrders = totals.getOrders();
+            return;
+        }
+        String sql = "SELECT " +
+                "SUM(p.total_price) as revenue, " +
+                "COUNT(DISTINCT o.id) as orders " +
+                "FROM orders o " +
+                "JOIN payments p ON o.id = p.order_id " +
+                "WHERE " + previous.on("o.created_at") + " " +
+                "AND o.status = 'paid'";
+        try (PreparedStatement ps = job.prepare(conn, sql)) {
+            previous.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    b.previousRevenue = rs.getDouble("revenue");
+                    b.previousOrders = rs.getInt("orders");
+                }
+            }
+        } catch (SQLException e) {
+            if (job.isCancelled()) {
+                throw e;
+            }
+            // the report itself is still valid, only the % change is missing
+            e.printStackTrace();
+        }
+    }
+
+    private double totalExpenses(Connection conn, Job job, TimeRange range) throws SQLException {
+        String sql = "SELECT SUM(amount) FROM transactions WHERE type = 'expense' AND " + range.on("created_at");
+        try (PreparedStatement ps = job.prepare(conn, sql)) {
+            range.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0.0;
+            }
+        }
+    }
+}
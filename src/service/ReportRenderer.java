@@ -0,0 +1,724 @@
+package service;
+
+import dao.TimeRange;
+import model.ReportDataset;
+import utils.PdfWriter;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Renders finished reports straight to files without touching the scene graph:
+ * a paginated A4 landscape PDF (header, summary, bar and pie chart, then the table
+ * with its header repeated on every page) and a PNG of the two charts.
+ *
+ * Charts are drawn once against a small Canvas interface, implemented over PdfWriter
+ * (vector) and Java2D (PNG), so both outputs match. Everything runs on a background
+ * "report-export" thread; exportAll() generates and writes all five report types for
+ * a period in one go. Files are written next to the target and renamed into place.
+ */
+public class ReportRenderer {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "report-export");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final float MARGIN = 36;
+    private static final double ROW_HEIGHT = 15;
+    private static final double TABLE_FONT = 8;
+    private static final int PNG_WIDTH = 1200;
+    private static final int PNG_HEIGHT = 500;
+    private static final double PNG_SCALE = 1.5;
+
+    private static final Color TEXT = new Color(0x2c3e50);
+    private static final Color MUTED = new Color(0x7f8c8d);
+    private static final Color ACCENT = new Color(0x667eea);
+    private static final Color RULE = new Color(0xbdc3c7);
+    private static final Color PANEL = new Color(0xecf0f1);
+    private static final Color HEADER = new Color(0x34495e);
+    private static final Color STRIPE = new Color(0xf9f9f9);
+    private static final Color GRID = new Color(0xe5e8eb);
+    private static final Color[] PALETTE = {
+            new Color(0x667eea), new Color(0x27ae60), new Color(0xe67e22), new Color(0xe74c3c),
+            new Color(0x9b59b6), new Color(0x16a085), new Color(0xf1c40f), new Color(0x34495e)
+    };
+
+    private static final DateTimeFormatter PERIOD_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+    private static final DateTimeFormatter GENERATED_FORMAT = DateTimeFormatter.ofPattern("EEEE, MMMM dd, yyyy HH:mm:ss");
+    private static final DateTimeFormatter CHART_DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd");
+
+    /**
+     * Called on the export thread before each report of a batch.
+     */
+    @FunctionalInterface
+    public interface BatchListener {
+        void onProgress(int done, int total, String type);
+    }
+
+    /**
+     * A running exportAll(). cancel() stops it before the next report.
+     */
+    public static final class Batch {
+        private final CompletableFuture<List<File>> result = new CompletableFuture<>();
+        private volatile boolean cancelled;
+
+        /** Completes with the files written, two per report type. */
+        public CompletableFuture<List<File>> getResult() { return result; }
+
+        public boolean isDone() { return result.isDone(); }
+        public boolean isCancelled() { return cancelled; }
+
+        public void cancel() {
+            cancelled = true;
+            result.cancel(false);
+        }
+    }
+
+    // What each report type charts; mirrors the report screen
+    private static final class ChartSpec {
+        final String title;
+        final String labelKey;
+        final String[] seriesKeys;
+        final String[] seriesNames;
+        final int maxBars;
+        final boolean money;
+        final String pieTitle;
+        final String pieValueKey;
+
+        ChartSpec(String title, String labelKey, String[] seriesKeys, String[] seriesNames, int maxBars,
+                  boolean money, String pieTitle, String pieValueKey) {
+            this.title = title;
+            this.labelKey = labelKey;
+            this.seriesKeys = seriesKeys;
+            this.seriesNames = seriesNames;
+            this.maxBars = maxBars;
+            this.money = money;
+            this.pieTitle = pieTitle;
+            this.pieValueKey = pieValueKey;
+        }
+    }
+
+    private final DecimalFormat currencyFormat = new DecimalFormat("$#,##0.00");
+    private final DecimalFormat percentFormat = new DecimalFormat("#0.0%");
+    private final DecimalFormat axisMoneyFormat = new DecimalFormat("$#,##0.##");
+    private final DecimalFormat axisNumberFormat = new DecimalFormat("#,##0.##");
+
+    private ReportRenderer() {
+    }
+
+    public static CompletableFuture<File> exportPdf(ReportEngine.Result result, File target) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                new ReportRenderer().writePdf(result, target);
+                return target;
+            } catch (IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    public static CompletableFuture<File> exportChartPng(ReportEngine.Result result, File target) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                new ReportRenderer().writePng(result, target);
+                return target;
+            } catch (IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Generate every report type for range (through ReportCache) and write a PDF and a
+     * chart PNG for each into directory, named like revenue_by_date_2026-04-01_2026-04-30.pdf.
+     */
+    public static Batch exportAll(TimeRange range, File directory, BatchListener listener) {
+        Batch batch = new Batch();
+        EXECUTOR.execute(() -> {
+            ReportEngine engine = new ReportEngine();
+            ReportRenderer renderer = new ReportRenderer();
+            List<File> files = new ArrayList<>();
+            try {
+                int total = ReportEngine.TYPES.size();
+                for (int i = 0; i < total; i++) {
+                    if (batch.cancelled) {
+                        throw new CancellationException();
+                    }
+                    String type = ReportEngine.TYPES.get(i);
+                    if (listener != null) {
+                        listener.onProgress(i, total, type);
+                    }
+                    ReportEngine.Result result = engine.generate(type, range);
+                    String base = type.toLowerCase().replace(' ', '_') + "_" + range.getFirstDay() + "_" + range.getLastDay();
+                    File pdf = new File(directory, base + ".pdf");
+                    File png = new File(directory, base + ".png");
+                    renderer.writePdf(result, pdf);
+                    renderer.writePng(result, png);
+                    files.add(pdf);
+                    files.add(png);
+                }
+                if (listener != null) {
+                    listener.onProgress(total, total, null);
+                }
+                batch.result.complete(Collections.unmodifiableList(files));
+            } catch (Throwable e) {
+                if (batch.cancelled) {
+                    batch.result.cancel(false);
+                } else {
+                    batch.result.completeExceptionally(e);
+                }
+            }
+        });
+        return batch;
+    }
+
+    // ---- PDF ----
+
+    private void writePdf(ReportEngine.Result result, File target) throws IOException {
+        writeAtomically(target, out -> {
+            ReportDataset data = result.getData();
+            List<Integer> columns = shownColumns(data);
+            try (PdfWriter pdf = new PdfWriter(out, PdfWriter.A4_LONG, PdfWriter.A4_SHORT)) {
+                double contentWidth = pdf.getWidth() - 2 * MARGIN;
+                double tableTop = MARGIN + 24;
+                int rowsPerPage = (int) ((pdf.getHeight() - MARGIN - 20 - tableTop - ROW_HEIGHT - 4) / ROW_HEIGHT);
+                int tablePages = (data.getRowCount() + rowsPerPage - 1) / rowsPerPage;
+                int pages = 1 + tablePages;
+                String generated = result.getGeneratedAt().format(GENERATED_FORMAT);
+
+                // Page 1: header, summary cards, charts
+                pdf.newPage();
+                PdfCanvas canvas = new PdfCanvas(pdf);
+                double y = MARGIN;
+                canvas.textCentered("COFFEE SHOP MANAGEMENT", pdf.getWidth() / 2, y + 18, 18, true, TEXT);
+                canvas.textCentered(result.getType().toUpperCase(), pdf.getWidth() / 2, y + 40, 14, true, ACCENT);
+                canvas.textCentered("Period: " + period(result.getRange()) + "   |   Generated: " + generated,
+                        pdf.getWidth() / 2, y + 56, 9, false, MUTED);
+                y += 66;
+                pdf.line(MARGIN, y, pdf.getWidth() - MARGIN, y, RULE, 0.75);
+                y += 12;
+
+                y = drawSummary(canvas, result, MARGIN, y, contentWidth) + 16;
+
+                double chartHeight = pdf.getHeight() - MARGIN - 24 - y;
+                if (data.isEmpty()) {
+                    canvas.textCentered("No data for this period.", pdf.getWidth() / 2, y + chartHeight / 2, 12, false, MUTED);
+                } else {
+                    drawCharts(canvas, result, MARGIN, y, contentWidth, chartHeight);
+                }
+                footer(canvas, pdf, 1, pages);
+
+                // Table pages, header row repeated
+                double[] widths = columnWidths(data, columns, contentWidth);
+                for (int p = 0; p < tablePages; p++) {
+                    pdf.newPage();
+                    int from = p * rowsPerPage;
+                    int to = Math.min(data.getRowCount(), from + rowsPerPage);
+                    canvas.text(result.getType() + " - Details" + (p > 0 ? " (continued)" : ""),
+                            MARGIN, MARGIN + 14, 12, true, HEADER);
+                    canvas.textRight("Rows " + (from + 1) + "-" + to + " of " + data.getRowCount(),
+                            pdf.getWidth() - MARGIN, MARGIN + 14, 9, false, MUTED);
+                    drawTable(canvas, data, columns, widths, from, to, MARGIN, tableTop);
+                    footer(canvas, pdf, p + 2, pages);
+                }
+            }
+        });
+    }
+
+    private double drawSummary(Canvas canvas, ReportEngine.Result result, double x, double y, double width) {
+        String[] labels;
+        String[] values;
+        String[] notes;
+        if (ReportEngine.INVENTORY_USAGE.equals(result.getType())) {
+            int items = result.getData().getRowCount();
+            labels = new String[]{"Items Used", "Total Cost", "Avg Cost per Item"};
+            values = new String[]{String.valueOf(items), currencyFormat.format(result.getTotalCost()),
+                    currencyFormat.format(items > 0 ? result.getTotalCost() / items : 0)};
+            notes = new String[]{null, null, null};
+        } else {
+            double revenue = result.getTotalRevenue();
+            int orders = result.getTotalOrders();
+            double profit = revenue - result.getTotalCost();
+            double avg = orders > 0 ? revenue / orders : 0;
+            labels = new String[]{"Total Revenue", "Total Orders", "Net Profit", "Avg Order Value"};
+            values = new String[]{currencyFormat.format(revenue), String.valueOf(orders),
+                    currencyFormat.format(profit), currencyFormat.format(avg)};
+            notes = new String[]{
+                    change(result, revenue, result.getPreviousRevenue()),
+                    change(result, orders, result.getPreviousOrders()),
+                    "Margin: " + percentFormat.format(revenue > 0 ? profit / revenue : 0),
+                    change(result, avg, result.getPreviousAvgOrder())
+            };
+        }
+
+        double gap = 12;
+        double boxWidth = (width - gap * (labels.length - 1)) / labels.length;
+        double height = 54;
+        for (int i = 0; i < labels.length; i++) {
+            double bx = x + i * (boxWidth + gap);
+            canvas.fillRect(bx, y, boxWidth, height, PANEL);
+            canvas.textCentered(labels[i], bx + boxWidth / 2, y + 15, 9, false, MUTED);
+            canvas.textCentered(values[i], bx + boxWidth / 2, y + 34, 15, true, ACCENT);
+            if (notes[i] != null) {
+                canvas.textCentered(notes[i], bx + boxWidth / 2, y + 47, 8, false, MUTED);
+            }
+        }
+        return y + height;
+    }
+
+    private String change(ReportEngine.Result result, double current, double previous) {
+        if (!result.hasPrevious() || previous <= 0) {
+            return null;
+        }
+        double pct = (current - previous) / previous * 100;
+        return String.format("%s%.1f%% vs previous period", pct >= 0 ? "+" : "", pct);
+    }
+
+    private void footer(Canvas canvas, PdfWriter pdf, int page, int pages) {
+        double y = pdf.getHeight() - MARGIN + 8;
+        canvas.line(MARGIN, y - 12, pdf.getWidth() - MARGIN, y - 12, RULE, 0.5);
+        canvas.text("Coffee Shop Management System - Report", MARGIN, y, 8, false, MUTED);
+        canvas.textRight("Page " + page + " of " + pages, pdf.getWidth() - MARGIN, y, 8, false, MUTED);
+    }
+
+    private static List<Integer> shownColumns(ReportDataset data) {
+        List<Integer> columns = new ArrayList<>();
+        for (int c = 0; c < data.getColumnCount(); c++) {
+            if (data.getColumn(c).isShown()) {
+                columns.add(c);
+            }
+        }
+        return columns;
+    }
+
+    // Natural width of each column (header and the first rows), stretched or squeezed to fit
+    private double[] columnWidths(ReportDataset data, List<Integer> columns, double available) {
+        double[] widths = new double[columns.size()];
+        int sample = Math.min(data.getRowCount(), 500);
+        double total = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            int c = columns.get(i);
+            double w = PdfWriter.textWidth(data.getColumn(c).getHeader(), PdfWriter.Font.BOLD, TABLE_FONT);
+            for (int row = 0; row < sample; row++) {
+                w = Math.max(w, PdfWriter.textWidth(format(data, row, c), PdfWriter.Font.REGULAR, TABLE_FONT));
+            }
+            widths[i] = Math.min(w, 260) + 12;
+            total += widths[i];
+        }
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = widths[i] * available / total;
+        }
+        return widths;
+    }
+
+    private void drawTable(Canvas canvas, ReportDataset data, List<Integer> columns, double[] widths,
+                           int from, int to, double x, double y) {
+        double width = 0;
+        for (double w : widths) {
+            width += w;
+        }
+
+        canvas.fillRect(x, y, width, ROW_HEIGHT + 3, HEADER);
+        double cx = x;
+        for (int i = 0; i < columns.size(); i++) {
+            ReportDataset.Column column = data.getColumn(columns.get(i));
+            String header = canvas.fit(column.getHeader(), TABLE_FONT, true, widths[i] - 8);
+            if (isNumeric(column.getKind())) {
+                canvas.textRight(header, cx + widths[i] - 4, y + 12, TABLE_FONT, true, Color.WHITE);
+            } else {
+                canvas.text(header, cx + 4, y + 12, TABLE_FONT, true, Color.WHITE);
+            }
+            cx += widths[i];
+        }
+
+        double ry = y + ROW_HEIGHT + 3;
+        for (int row = from; row < to; row++) {
+            if ((row - from) % 2 == 1) {
+                canvas.fillRect(x, ry, width, ROW_HEIGHT, STRIPE);
+            }
+            cx = x;
+            for (int i = 0; i < columns.size(); i++) {
+                int c = columns.get(i);
+                String text = canvas.fit(format(data, row, c), TABLE_FONT, false, widths[i] - 8);
+                if (isNumeric(data.getColumn(c).getKind())) {
+                    canvas.textRight(text, cx + widths[i] - 4, ry + 10.5, TABLE_FONT, false, TEXT);
+                } else {
+                    canvas.text(text, cx + 4, ry + 10.5, TABLE_FONT, false, TEXT);
+                }
+                cx += widths[i];
+            }
+            ry += ROW_HEIGHT;
+        }
+        canvas.line(x, ry, x + width, ry, RULE, 0.75);
+    }
+
+    private static boolean isNumeric(ReportDataset.Kind kind) {
+        return kind != ReportDataset.Kind.TEXT && kind != ReportDataset.Kind.DATE;
+    }
+
+    private String format(ReportDataset data, int row, int column) {
+        Object value = data.getValue(row, column);
+        if (value == null) {
+            return "";
+        }
+        switch (data.getColumn(column).getKind()) {
+            case DATE: return ((LocalDate) value).format(PERIOD_FORMAT);
+            case MONEY: return currencyFormat.format(value);
+            case PERCENT: return percentFormat.format(value);
+            case DECIMAL: return String.format("%.2f", value);
+            default: return value.toString();
+        }
+    }
+
+    private static String period(TimeRange range) {
+        return range.getFirstDay().format(PERIOD_FORMAT) + " - " + range.getLastDay().format(PERIOD_FORMAT);
+    }
+
+    // ---- PNG ----
+
+    private void writePng(ReportEngine.Result result, File target) throws IOException {
+        BufferedImage image = new BufferedImage(PNG_WIDTH, PNG_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, PNG_WIDTH, PNG_HEIGHT);
+            g.scale(PNG_SCALE, PNG_SCALE);
+
+            ImageCanvas canvas = new ImageCanvas(g);
+            double width = PNG_WIDTH / PNG_SCALE;
+            double height = PNG_HEIGHT / PNG_SCALE;
+            canvas.text(result.getType() + "  |  " + period(result.getRange()), 16, 22, 12, true, TEXT);
+            if (result.getData().isEmpty()) {
+                canvas.textCentered("No data for this period.", width / 2, height / 2, 12, false, MUTED);
+            } else {
+                drawCharts(canvas, result, 16, 34, width - 32, height - 46);
+            }
+        } finally {
+            g.dispose();
+        }
+        writeAtomically(target, out -> ImageIO.write(image, "png", out));
+    }
+
+    // ---- Charts ----
+
+    private static ChartSpec chartFor(String type) {
+        switch (type) {
+            case ReportEngine.REVENUE_BY_STAFF:
+                return new ChartSpec("Revenue by Staff", "username", new String[]{"revenue"},
+                        new String[]{"Staff Revenue"}, 10, true, "Revenue Share", "revenue");
+            case ReportEngine.PRODUCT_PERFORMANCE:
+                return new ChartSpec("Product Performance", "product_name", new String[]{"revenue"},
+                        new String[]{"Product Sales"}, 10, true, "Revenue Share", "revenue");
+            case ReportEngine.PROFIT_ANALYSIS:
+                return new ChartSpec("Profit Analysis", "date", new String[]{"revenue", "profit"},
+                        new String[]{"Revenue", "Profit"}, 15, true, "Revenue / Cost / Profit", null);
+            case ReportEngine.INVENTORY_USAGE:
+                return new ChartSpec("Inventory Usage", "item_name", new String[]{"total_used"},
+                        new String[]{"Inventory Usage"}, 10, false, "Cost Share", "total_cost");
+            case ReportEngine.REVENUE_BY_DATE:
+            default:
+                return new ChartSpec("Revenue Trend", "date", new String[]{"revenue"},
+                        new String[]{"Daily Revenue"}, 15, true, "Revenue Share", "revenue");
+        }
+    }
+
+    private void drawCharts(Canvas canvas, ReportEngine.Result result, double x, double y, double width, double height) {
+        ChartSpec spec = chartFor(result.getType());
+        double barWidth = width * 0.6;
+        drawBarChart(canvas, spec, result.getData(), x, y, barWidth - 12, height);
+        drawPieChart(canvas, spec, result.getData(), x + barWidth + 12, y, width - barWidth - 12, height);
+    }
+
+    private String label(ReportDataset data, int row, int column) {
+        if (data.getColumn(column).getKind() == ReportDataset.Kind.DATE) {
+            return data.getDate(row, column).format(CHART_DATE_FORMAT);
+        }
+        return String.valueOf(data.getValue(row, column));
+    }
+
+    private void drawBarChart(Canvas canvas, ChartSpec spec, ReportDataset data, double x, double y, double width, double height) {
+        canvas.text(spec.title, x, y + 12, 11, true, TEXT);
+
+        int labelCol = data.indexOf(spec.labelKey);
+        int[] seriesCols = new int[spec.seriesKeys.length];
+        for (int s = 0; s < seriesCols.length; s++) {
+            seriesCols[s] = data.indexOf(spec.seriesKeys[s]);
+        }
+        int bars = Math.min(spec.maxBars, data.getRowCount());
+
+        double min = 0;
+        double max = 0;
+        for (int i = 0; i < bars; i++) {
+            for (int col : seriesCols) {
+                min = Math.min(min, data.getDouble(i, col));
+                max = Math.max(max, data.getDouble(i, col));
+            }
+        }
+        if (max == min) {
+            max = min + 1;
+        }
+        double step = niceStep((max - min) / 5);
+        min = Math.floor(min / step) * step;
+        max = Math.ceil(max / step) * step;
+
+        DecimalFormat axisFormat = spec.money ? axisMoneyFormat : axisNumberFormat;
+        double axisWidth = Math.max(canvas.textWidth(axisFormat.format(max), 7, false),
+                canvas.textWidth(axisFormat.format(min), 7, false)) + 6;
+        double legendHeight = seriesCols.length > 1 ? 14 : 0;
+        double plotX = x + axisWidth;
+        double plotY = y + 22;
+        double plotW = width - axisWidth;
+        double plotH = height - 22 - 14 - legendHeight;
+
+        for (double v = min; v <= max + step / 2; v += step) {
+            double gy = plotY + plotH - (v - min) / (max - min) * plotH;
+            canvas.line(plotX, gy, plotX + plotW, gy, GRID, 0.5);
+            canvas.textRight(axisFormat.format(v), plotX - 4, gy + 2.5, 7, false, MUTED);
+        }
+        double zeroY = plotY + plotH - (0 - min) / (max - min) * plotH;
+
+        double slot = plotW / Math.max(1, bars);
+        double barW = slot * 0.7 / seriesCols.length;
+        for (int i = 0; i < bars; i++) {
+            double slotX = plotX + i * slot;
+            for (int s = 0; s < seriesCols.length; s++) {
+                double value = data.getDouble(i, seriesCols[s]);
+                double top = plotY + plotH - (value - min) / (max - min) * plotH;
+                double bx = slotX + slot * 0.15 + s * barW;
+                canvas.fillRect(bx, Math.min(top, zeroY), barW, Math.abs(zeroY - top), PALETTE[s % PALETTE.length]);
+            }
+            String text = canvas.fit(label(data, i, labelCol), 7, false, slot - 2);
+            canvas.textCentered(text, slotX + slot / 2, plotY + plotH + 10, 7, false, TEXT);
+        }
+        canvas.line(plotX, zeroY, plotX + plotW, zeroY, MUTED, 0.75);
+
+        if (seriesCols.length > 1) {
+            double lx = plotX;
+            double ly = y + height - 4;
+            for (int s = 0; s < seriesCols.length; s++) {
+                canvas.fillRect(lx, ly - 7, 8, 8, PALETTE[s % PALETTE.length]);
+                canvas.text(spec.seriesNames[s], lx + 11, ly, 8, false, TEXT);
+                lx += 20 + canvas.textWidth(spec.seriesNames[s], 8, false);
+            }
+        }
+    }
+
+    private void drawPieChart(Canvas canvas, ChartSpec spec, ReportDataset data, double x, double y, double width, double height) {
+        canvas.text(spec.pieTitle, x, y + 12, 11, true, TEXT);
+
+        List<String> labels = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        if (spec.pieValueKey == null) {
+            // Profit analysis: period totals, as on screen
+            double revenue = data.sum(data.indexOf("revenue"));
+            double cost = data.sum(data.indexOf("cost"));
+            labels.add("Revenue");
+            values.add(revenue);
+            labels.add("Cost");
+            values.add(cost);
+            labels.add("Profit");
+            values.add(revenue - cost);
+        } else {
+            int labelCol = data.indexOf(spec.labelKey);
+            int valueCol = data.indexOf(spec.pieValueKey);
+            for (int i = 0; i < Math.min(8, data.getRowCount()); i++) {
+                labels.add(label(data, i, labelCol));
+                values.add(data.getDouble(i, valueCol));
+            }
+        }
+
+        double total = 0;
+        for (double v : values) {
+            total += Math.max(0, v);
+        }
+        double diameter = Math.min(height - 30, width * 0.5);
+        double cx = x + diameter / 2;
+        double cy = y + 22 + (height - 22) / 2;
+        double start = 90;
+        if (total > 0) {
+            for (int i = 0; i < values.size(); i++) {
+                double extent = Math.max(0, values.get(i)) / total * 360;
+                canvas.fillWedge(cx, cy, diameter / 2, start, extent, PALETTE[i % PALETTE.length]);
+                start += extent;
+            }
+        }
+
+        double lx = x + diameter + 14;
+        double ly = cy - values.size() * 14 / 2.0 + 8;
+        for (int i = 0; i < values.size(); i++) {
+            canvas.fillRect(lx, ly - 7, 8, 8, PALETTE[i % PALETTE.length]);
+            String pct = total > 0 && values.get(i) > 0 ? percentFormat.format(values.get(i) / total) : "-";
+            canvas.textRight(pct, x + width, ly, 8, false, MUTED);
+            double room = x + width - canvas.textWidth(pct, 8, false) - 6 - (lx + 11);
+            canvas.text(canvas.fit(labels.get(i), 8, false, room), lx + 11, ly, 8, false, TEXT);
+            ly += 14;
+        }
+    }
+
+    private static double niceStep(double rough) {
+        if (rough <= 0) {
+            return 1;
+        }
+        double magnitude = Math.pow(10, Math.floor(Math.log10(rough)));
+        double fraction = rough / magnitude;
+        double nice = fraction <= 1 ? 1 : fraction <= 2 ? 2 : fraction <= 5 ? 5 : 10;
+        return nice * magnitude;
+    }
+
+    // ---- Output ----
+
+    @FunctionalInterface
+    private interface Body {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static void writeAtomically(File target, Body body) throws IOException {
+        File temp = new File(target.getAbsoluteFile().getParentFile(), target.getName() + ".part");
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                body.write(out);
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            temp.delete();
+        }
+    }
+
+    // ---- Drawing surfaces ----
+
+    private interface Canvas {
+        void fillRect(double x, double y, double w, double h, Color color);
+        void line(double x1, double y1, double x2, double y2, Color color, double width);
+        void text(String text, double x, double baseline, double size, boolean bold, Color color);
+        double textWidth(String text, double size, boolean bold);
+        void fillWedge(double cx, double cy, double r, double startDeg, double extentDeg, Color color);
+
+        default void textRight(String text, double right, double baseline, double size, boolean bold, Color color) {
+            text(text, right - textWidth(text, size, bold), baseline, size, bold, color);
+        }
+
+        default void textCentered(String text, double center, double baseline, double size, boolean bold, Color color) {
+            text(text, center - textWidth(text, size, bold) / 2, baseline, size, bold, color);
+        }
+
+        default String fit(String text, double size, boolean bold, double maxWidth) {
+            if (text == null || textWidth(text, size, bold) <= maxWidth) {
+                return text;
+            }
+            int end = text.length();
+            while (end > 0 && textWidth(text.substring(0, end) + "...", size, bold) > maxWidth) {
+                end--;
+            }
+            return end == 0 ? "" : text.substring(0, end) + "...";
+        }
+    }
+
+    private static final class PdfCanvas implements Canvas {
+        private final PdfWriter pdf;
+
+        PdfCanvas(PdfWriter pdf) {
+            this.pdf = pdf;
+        }
+
+        @Override
+        public void fillRect(double x, double y, double w, double h, Color color) {
+            pdf.fillRect(x, y, w, h, color);
+        }
+
+        @Override
+        public void line(double x1, double y1, double x2, double y2, Color color, double width) {
+            pdf.line(x1, y1, x2, y2, color, width);
+        }
+
+        @Override
+        public void text(String text, double x, double baseline, double size, boolean bold, Color color) {
+            pdf.text(text, x, baseline, bold ? PdfWriter.Font.BOLD : PdfWriter.Font.REGULAR, size, color);
+        }
+
+        @Override
+        public double textWidth(String text, double size, boolean bold) {
+            return PdfWriter.textWidth(text, bold ? PdfWriter.Font.BOLD : PdfWriter.Font.REGULAR, size);
+        }
+
+        @Override
+        public void fillWedge(double cx, double cy, double r, double startDeg, double extentDeg, Color color) {
+            pdf.fillWedge(cx, cy, r, startDeg, extentDeg, color);
+        }
+    }
+
+    private static final class ImageCanvas implements Canvas {
+        private static final Font REGULAR = new Font(Font.SANS_SERIF, Font.PLAIN, 10);
+        private static final Font BOLD = new Font(Font.SANS_SERIF, Font.BOLD, 10);
+        private final Graphics2D g;
+
+        ImageCanvas(Graphics2D g) {
+            this.g = g;
+        }
+
+        @Override
+        public void fillRect(double x, double y, double w, double h, Color color) {
+            g.setColor(color);
+            g.fill(new Rectangle2D.Double(x, y, w, h));
+        }
+
+        @Override
+        public void line(double x1, double y1, double x2, double y2, Color color, double width) {
+            g.setColor(color);
+            g.setStroke(new BasicStroke((float) width));
+            g.draw(new Line2D.Double(x1, y1, x2, y2));
+        }
+
+        @Override
+        public void text(String text, double x, double baseline, double size, boolean bold, Color color) {
+            if (text == null || text.isEmpty()) {
+                return;
+            }
+            g.setColor(color);
+            g.setFont(font(size, bold));
+            g.drawString(text, (float) x, (float) baseline);
+        }
+
+        @Override
+        public double textWidth(String text, double size, boolean bold) {
+            return text == null ? 0 : font(size, bold).getStringBounds(text, g.getFontRenderContext()).getWidth();
+        }
+
+        @Override
+        public void fillWedge(double cx, double cy, double r, double startDeg, double extentDeg, Color color) {
+            g.setColor(color);
+            g.fill(new Arc2D.Double(cx - r, cy - r, 2 * r, 2 * r, startDeg, extentDeg, Arc2D.PIE));
+        }
+
+        private static Font font(double size, boolean bold) {
+            return (bold ? BOLD : REGULAR).deriveFont((float) size);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package utils;
+
+import javafx.scene.image.Image;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared UI icons from /resources/img, decoded once and handed out as the same Image.
+ *
+ * preload() decodes the known icons on a background thread at startup; an icon
+ * requested before that finishes (or one not in the list) is decoded on first use.
+ * Image instances are immutable, so any number of ImageViews can share them.
+ */
+public class IconRegistry {
+
+    public static final String ARROW_DOWN = "arrow-trend-down-solid-full.png";
+    public static final String ARROW_UP = "arrow-trend-up-solid-full.png";
+    public static final String CHART = "chart-simple-solid-full.png";
+    public static final String CHECK = "circle-check-solid-full.png";
+    public static final String CLIPBOARD = "clipboard-list-solid-full.png";
+    public static final String INFO = "circle-info-solid-full.png";
+    public static final String MONEY = "money-bill-wave-solid-full.png";
+    public static final String MUG = "mug-hot-solid-full.png";
+    public static final String QRCODE = "qrcode-solid-full.png";
+    public static final String QUESTION = "circle-question-solid-full.png";
+    public static final String TABLE = "table-icon.png";
+    public static final String TRASH = "trash-can-solid-full.png";
+    public static final String USER = "user-solid-full.png";
+    public static final String USER_GROUP = "user-group-solid-full.png";
+    public static final String WALLET = "wallet-solid-full.png";
+    public static final String WARNING = "triangle-exclamation-solid-full.png";
+    public static final String XMARK = "xmark-solid-full.png";
+
+    private static final String[] PRELOAD = {
+            ARROW_DOWN, ARROW_UP, CHART, CHECK, CLIPBOARD, INFO, MONEY, MUG, QRCODE,
+            QUESTION, TABLE, TRASH, USER, USER_GROUP, WALLET, WARNING, XMARK
+    };
+
+    private static final Map<String, Image> icons = new ConcurrentHashMap<>();
+
+    private IconRegistry() {
+    }
+
+    /**
+     * Decode every known icon on a daemon thread and log how long it took and how much it holds.
+     */
+    public static void preload() {
+        Thread t = new Thread(() -> {
+            long start = System.nanoTime();
+            for (String name : PRELOAD) {
+                get(name);
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Icons preloaded: " + icons.size() + " in " + elapsedMs + " ms, "
+                    + getFootprintBytes() / 1024 + " KB decoded");
+        }, "icon-preload");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * @param name file name under /resources/img
+     * @return the shared icon, or null if the resource is missing or unreadable
+     */
+    public static Image get(String name) {
+        Image icon = icons.get(name);
+        if (icon == null) {
+            icon = load(name);
+            if (icon != null) {
+                Image previous = icons.putIfAbsent(name, icon);
+                if (previous != null) {
+                    icon = previous;
+                }
+            }
+        }
+        return icon;
+    }
+
+    /**
+     * Decoded size of every loaded icon (4 bytes per pixel).
+     */
+    public static long getFootprintBytes() {
+        long total = 0;
+        for (Image icon : icons.values()) {
+            total += (long) (icon.getWidth() * icon.getHeight() * 4);
+        }
+        return total;
+    }
+
+    private static Image load(String name) {
+        try (InputStream in = IconRegistry.class.getResourceAsStream("/resources/img/" + name)) {
+            if (in == null) {
+                System.err.println("Icon not found: " + name);
+                return null;
+            }
+            Image icon = new Image(in);
+            return icon.isError() ? null : icon;
+        } catch (Exception e) {
+            System.err.println("Failed to load icon: " + name);
+            return null;
+        }
+    }
+}
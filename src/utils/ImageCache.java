@@ -0,0 +1,137 @@
+package utils;
+
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application-wide LRU cache of decoded images, keyed by url + requested size.
+ *
+ * Images are decoded in the background at the requested size, so a cache miss
+ * never blocks the FX thread and a 1000px product photo shown as an 80px card
+ * only costs 80px worth of memory. Entries are evicted least-recently-used once
+ * the estimated decoded size passes the byte budget (-Dcoffeeshop.image.cacheBytes,
+ * default 32 MB).
+ */
+public class ImageCache {
+
+    public static final String DEFAULT_IMAGE = "img/temp_icon.png";
+
+    private static final String RESOURCE_DIR = "src/resources/";
+    private static final long BUDGET_BYTES = Long.getLong("coffeeshop.image.cacheBytes", 32L * 1024 * 1024);
+    // used until a full-size image has finished loading and its real size is known
+    private static final long UNKNOWN_SIZE_ESTIMATE = 512L * 1024;
+
+    private static final Map<String, Image> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private ImageCache() {
+    }
+
+    /**
+     * Product image stored relative to src/resources (e.g. "img/product/x.png"),
+     * falling back to the default product icon when missing.
+     * A width/height of 0 keeps the original size.
+     */
+    public static Image getProductImage(String relativePath, double width, double height) {
+        String path = relativePath != null && !relativePath.isEmpty() ? relativePath : DEFAULT_IMAGE;
+        File file = Paths.get(RESOURCE_DIR + path).toAbsolutePath().toFile();
+        if (!file.exists() && !path.equals(DEFAULT_IMAGE)) {
+            file = Paths.get(RESOURCE_DIR + DEFAULT_IMAGE).toAbsolutePath().toFile();
+        }
+        if (file.exists()) {
+            return get(file.toURI().toString(), width, height);
+        }
+        URL bundled = ImageCache.class.getResource("/resources/" + DEFAULT_IMAGE);
+        return bundled != null ? get(bundled.toExternalForm(), width, height) : null;
+    }
+
+    /**
+     * Image at url, decoded in the background at width x height (ratio preserved).
+     */
+    public static Image get(String url, double width, double height) {
+        String key = url + "@" + width + "x" + height;
+        synchronized (cache) {
+            Image cached = cache.get(key);
+            if (cached != null && !cached.isError()) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        misses.incrementAndGet();
+        Image image = new Image(url, width, height, true, true, true);
+        // A failed decode must not stay pinned in the cache
+        image.errorProperty().addListener((obs, oldVal, failed) -> {
+            if (failed) {
+                synchronized (cache) {
+                    cache.remove(key, image);
+                }
+            }
+        });
+        synchronized (cache) {
+            cache.put(key, image);
+            trim();
+        }
+        return image;
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static long getSizeBytes() {
+        synchronized (cache) {
+            long total = 0;
+            for (Image image : cache.values()) {
+                total += estimateBytes(image);
+            }
+            return total;
+        }
+    }
+
+    public static String getStats() {
+        long h = hits.get(), m = misses.get();
+        int entries;
+        synchronized (cache) {
+            entries = cache.size();
+        }
+        return String.format("images: %d entries, %d KB, %d hits / %d misses (%.0f%% hit rate)",
+                entries, getSizeBytes() / 1024, h, m, h + m == 0 ? 0.0 : 100.0 * h / (h + m));
+    }
+
+    // Evict least recently used entries until the budget fits; caller holds the lock
+    private static void trim() {
+        long total = 0;
+        for (Image image : cache.values()) {
+            total += estimateBytes(image);
+        }
+        Iterator<Image> it = cache.values().iterator();
+        // always keep the entry that was just added
+        while (total > BUDGET_BYTES && cache.size() > 1 && it.hasNext()) {
+            total -= estimateBytes(it.next());
+            it.remove();
+        }
+    }
+
+    // Decoded images are 4 bytes per pixel
+    private static long estimateBytes(Image image) {
+        double w = image.getWidth() > 0 ? image.getWidth() : image.getRequestedWidth();
+        double h = image.getHeight() > 0 ? image.getHeight() : image.getRequestedHeight();
+        if (w <= 0 || h <= 0) {
+            return UNKNOWN_SIZE_ESTIMATE;
+        }
+        return (long) (w * h * 4);
+    }
+}
@@ -0,0 +1,539 @@
+package utils;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal PDF 1.4 writer for reports: pages of text, lines, rectangles and pie wedges,
+ * with no PDF library.
+ *
+ * Coordinates are in points with the origin at the top-left of the page and y growing
+ * down, like JavaFX; text y is the baseline. Each page is written out as soon as the
+ * next one starts, so long reports don't pile up in memory.
+ *
+ * Text uses a TrueType font with Vietnamese glyphs (-Dcoffeeshop.pdf.font and
+ * -Dcoffeeshop.pdf.boldFont, else Arial, DejaVu Sans or Liberation Sans from the system),
+ * embedded as an Identity-H CID font subset with a ToUnicode map, so Vietnamese keeps its
+ * marks and can be searched and copied. Without such a font it falls back to the built-in
+ * Helvetica, WinAnsi encoded: letters outside Latin-1 then lose the marks that don't fit
+ * (ấ -> â, đ -> d).
+ */
+public class PdfWriter implements Closeable {
+
+    public static final float A4_LONG = 841.89f;
+    public static final float A4_SHORT = 595.28f;
+
+    public enum Font {
+        REGULAR("F1", "Helvetica", "coffeeshop.pdf.font",
+                "Fonts/arial.ttf", "/Library/Fonts/Arial.ttf", "/System/Library/Fonts/Supplemental/Arial.ttf",
+                "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf", "/usr/share/fonts/dejavu/DejaVuSans.ttf",
+                "/usr/share/fonts/truetype/liberation/LiberationSans-Regular.ttf"),
+        BOLD("F2", "Helvetica-Bold", "coffeeshop.pdf.boldFont",
+                "Fonts/arialbd.ttf", "/Library/Fonts/Arial Bold.ttf", "/System/Library/Fonts/Supplemental/Arial Bold.ttf",
+                "/usr/share/fonts/truetype/dejavu/DejaVuSans-Bold.ttf", "/usr/share/fonts/dejavu/DejaVuSans-Bold.ttf",
+                "/usr/share/fonts/truetype/liberation/LiberationSans-Bold.ttf");
+
+        private final String resource;
+        private final String baseFont;
+        private final String property;
+        private final String[] candidates;
+
+        Font(String resource, String baseFont, String property, String... candidates) {
+            this.resource = resource;
+            this.baseFont = baseFont;
+            this.property = property;
+            this.candidates = candidates;
+        }
+    }
+
+    // Found on first use; null without a usable regular font, then every font is Helvetica
+    private static final class Embedded {
+        // a font must draw all of these to be picked
+        private static final String VIETNAMESE = "ăâđêôơưĂÂĐÊÔƠƯàảãáạằẳẵắặầẩẫấậèẻẽéẹềểễếệìỉĩíịòỏõóọồổỗốộờởỡớợùủũúụừửữứựỳỷỹýỵ";
+
+        static final TrueTypeFont[] FONTS = load();
+
+        private static TrueTypeFont[] load() {
+            TrueTypeFont[] fonts = new TrueTypeFont[Font.values().length];
+            for (Font font : Font.values()) {
+                fonts[font.ordinal()] = find(font);
+            }
+            if (fonts[Font.REGULAR.ordinal()] == null) {
+                System.err.println("No TrueType font with Vietnamese glyphs found, PDFs fall back to Helvetica");
+                return null;
+            }
+            if (fonts[Font.BOLD.ordinal()] == null) {
+                fonts[Font.BOLD.ordinal()] = fonts[Font.REGULAR.ordinal()];
+            }
+            return fonts;
+        }
+
+        private static TrueTypeFont find(Font font) {
+            List<Path> paths = new ArrayList<>();
+            String configured = System.getProperty(font.property);
+            if (configured != null) {
+                paths.add(Paths.get(configured));
+            }
+            String windows = System.getenv().getOrDefault("WINDIR", "C:\\Windows");
+            for (String candidate : font.candidates) {
+                paths.add(candidate.startsWith("/") ? Paths.get(candidate) : Paths.get(windows, candidate));
+            }
+            for (Path path : paths) {
+                if (!Files.isRegularFile(path)) {
+                    continue;
+                }
+                try {
+                    TrueTypeFont ttf = TrueTypeFont.load(path);
+                    if (ttf.covers(VIETNAMESE)) {
+                        return ttf;
+                    }
+                    System.err.println("PDF font " + path + " lacks Vietnamese glyphs, skipped");
+                } catch (IOException e) {
+                    System.err.println("PDF font " + path + " unreadable: " + e.getMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    // Glyph widths (1/1000 em) for ' ' .. '~', from the standard Helvetica AFM files
+    private static final short[] HELVETICA_WIDTHS = {
+            278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+            1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+            333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+            556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584
+    };
+    private static final short[] HELVETICA_BOLD_WIDTHS = {
+            278, 333, 474, 556, 556, 889, 722, 238, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 333, 333, 584, 584, 584, 611,
+            975, 722, 722, 722, 722, 667, 611, 778, 722, 278, 556, 722, 611, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 333, 278, 333, 584, 556,
+            333, 556, 611, 556, 611, 556, 333, 611, 611, 278, 278, 556, 278, 889, 611, 611,
+            611, 611, 389, 556, 333, 611, 556, 778, 556, 556, 500, 389, 280, 389, 584
+    };
+    private static final int DEFAULT_WIDTH = 556;
+
+    // Object numbers fixed up front; pages and their content streams follow from 5
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT_REGULAR = 3;
+    private static final int FONT_BOLD = 4;
+
+    private final OutputStream out;
+    private final float width;
+    private final float height;
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Integer> pageObjects = new ArrayList<>();
+    private long position;
+    private int nextObject = 5;
+    private ByteArrayOutputStream page;
+    private boolean closed;
+    // glyph id -> text it was drawn for, per embedded font, for the /W and ToUnicode tables
+    private final List<Map<Integer, String>> usedGlyphs = new ArrayList<>();
+
+    public PdfWriter(OutputStream out, float width, float height) throws IOException {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        this.width = width;
+        this.height = height;
+        for (int i = 0; i < nextObject; i++) {
+            offsets.add(0L);
+        }
+        for (int i = 0; i < Font.values().length; i++) {
+            usedGlyphs.add(new TreeMap<>());
+        }
+        write("%PDF-1.4\n%âãÏÓ\n");
+    }
+
+    public float getWidth() { return width; }
+    public float getHeight() { return height; }
+    public int getPageCount() { return pageObjects.size() + (page != null ? 1 : 0); }
+
+    /** Finish the current page (if any) and start drawing on a blank one. */
+    public void newPage() throws IOException {
+        flushPage();
+        page = new ByteArrayOutputStream(16 * 1024);
+    }
+
+    public void fillRect(double x, double y, double w, double h, Color color) {
+        op(fill(color) + " %s %s %s %s re f", n(x), n(height - y - h), n(w), n(h));
+    }
+
+    public void strokeRect(double x, double y, double w, double h, Color color, double lineWidth) {
+        op(stroke(color) + " %s w %s %s %s %s re S", n(lineWidth), n(x), n(height - y - h), n(w), n(h));
+    }
+
+    public void line(double x1, double y1, double x2, double y2, Color color, double lineWidth) {
+        op(stroke(color) + " %s w %s %s m %s %s l S", n(lineWidth), n(x1), n(height - y1), n(x2), n(height - y2));
+    }
+
+    /**
+     * Text with its left end at x and baseline at y.
+     */
+    public void text(String text, double x, double y, Font font, double size, Color color) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        TrueTypeFont[] embedded = Embedded.FONTS;
+        if (embedded != null) {
+            op("BT " + fill(color) + " /%s %s Tf %s %s Td <%s> Tj ET",
+                    font.resource, n(size), n(x), n(height - y),
+                    glyphHex(text, embedded[font.ordinal()], usedGlyphs.get(font.ordinal())));
+            return;
+        }
+        op("BT " + fill(color) + " /%s %s Tf %s %s Td (%s) Tj ET",
+                font.resource, n(size), n(x), n(height - y), escape(encode(text)));
+    }
+
+    /**
+     * A filled pie slice; angles in degrees, counter-clockwise from 3 o'clock.
+     */
+    public void fillWedge(double cx, double cy, double r, double startDeg, double extentDeg, Color color) {
+        if (extentDeg <= 0) {
+            return;
+        }
+        StringBuilder path = new StringBuilder(fill(color));
+        double pcy = height - cy;
+        path.append(' ').append(n(cx)).append(' ').append(n(pcy)).append(" m");
+        double a0 = Math.toRadians(startDeg);
+        path.append(' ').append(n(cx + r * Math.cos(a0))).append(' ').append(n(pcy + r * Math.sin(a0))).append(" l");
+        // One cubic Bezier per <= 90 degrees keeps the arc within a fraction of a point
+        int segments = (int) Math.ceil(extentDeg / 90.0);
+        double step = Math.toRadians(extentDeg / segments);
+        double k = 4.0 / 3.0 * Math.tan(step / 4);
+        for (int i = 0; i < segments; i++) {
+            double s = a0 + i * step;
+            double e = s + step;
+            path.append(' ')
+                    .append(n(cx + r * (Math.cos(s) - k * Math.sin(s)))).append(' ')
+                    .append(n(pcy + r * (Math.sin(s) + k * Math.cos(s)))).append(' ')
+                    .append(n(cx + r * (Math.cos(e) + k * Math.sin(e)))).append(' ')
+                    .append(n(pcy + r * (Math.sin(e) - k * Math.cos(e)))).append(' ')
+                    .append(n(cx + r * Math.cos(e))).append(' ')
+                    .append(n(pcy + r * Math.sin(e))).append(" c");
+        }
+        path.append(" h f");
+        op(path.toString());
+    }
+
+    /** Width of text in points, as it will be drawn. */
+    public static double textWidth(String text, Font font, double size) {
+        if (text == null) {
+            return 0;
+        }
+        TrueTypeFont[] embedded = Embedded.FONTS;
+        if (embedded != null) {
+            TrueTypeFont ttf = embedded[font.ordinal()];
+            String normalized = Normalizer.normalize(text, Normalizer.Form.NFC);
+            long total = 0;
+            for (int i = 0; i < normalized.length(); ) {
+                int cp = normalized.codePointAt(i);
+                i += Character.charCount(cp);
+                total += ttf.width(glyph(ttf, cp));
+            }
+            return total * size / 1000.0;
+        }
+        short[] widths = font == Font.BOLD ? HELVETICA_BOLD_WIDTHS : HELVETICA_WIDTHS;
+        byte[] bytes = encode(text);
+        long total = 0;
+        for (byte b : bytes) {
+            int c = b & 0xff;
+            total += c >= 32 && c <= 126 ? widths[c - 32] : DEFAULT_WIDTH;
+        }
+        return total * size / 1000.0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (pageObjects.isEmpty() && page == null) {
+                newPage();
+            }
+            flushPage();
+
+            StringBuilder kids = new StringBuilder();
+            for (int object : pageObjects) {
+                kids.append(object).append(" 0 R ");
+            }
+            writeObject(PAGES, "<< /Type /Pages /Kids [" + kids + "] /Count " + pageObjects.size() + " >>");
+            writeObject(CATALOG, "<< /Type /Catalog /Pages " + PAGES + " 0 R >>");
+            writeFont(FONT_REGULAR, Font.REGULAR);
+            writeFont(FONT_BOLD, Font.BOLD);
+
+            long xref = position;
+            StringBuilder table = new StringBuilder();
+            table.append("xref\n0 ").append(offsets.size()).append("\n0000000000 65535 f \n");
+            for (int i = 1; i < offsets.size(); i++) {
+                table.append(String.format("%010d 00000 n \n", offsets.get(i)));
+            }
+            table.append("trailer\n<< /Size ").append(offsets.size()).append(" /Root ").append(CATALOG)
+                    .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+            write(table.toString());
+        } finally {
+            out.close();
+        }
+    }
+
+    private void flushPage() throws IOException {
+        if (page == null) {
+            return;
+        }
+        byte[] content = page.toByteArray();
+        page = null;
+
+        int contentObject = allocate();
+        int pageObject = allocate();
+        writeStream(contentObject, "", content);
+
+        writeObject(pageObject, "<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + n(width) + " " + n(height) + "] " +
+                "/Resources << /Font << /F1 " + FONT_REGULAR + " 0 R /F2 " + FONT_BOLD + " 0 R >> >> " +
+                "/Contents " + contentObject + " 0 R >>");
+        pageObjects.add(pageObject);
+    }
+
+    private void writeFont(int number, Font font) throws IOException {
+        TrueTypeFont[] embedded = Embedded.FONTS;
+        if (embedded == null) {
+            writeObject(number, "<< /Type /Font /Subtype /Type1 /BaseFont /" + font.baseFont
+                    + " /Encoding /WinAnsiEncoding >>");
+            return;
+        }
+        TrueTypeFont ttf = embedded[font.ordinal()];
+        Map<Integer, String> used = usedGlyphs.get(font.ordinal());
+        int cidFont = allocate();
+        int descriptor = allocate();
+        int fontFile = allocate();
+        int toUnicode = allocate();
+        String name = subsetTag(ttf.getPostScriptName(), used) + "+" + ttf.getPostScriptName();
+
+        writeObject(number, "<< /Type /Font /Subtype /Type0 /BaseFont /" + name
+                + " /Encoding /Identity-H /DescendantFonts [" + cidFont + " 0 R] /ToUnicode " + toUnicode + " 0 R >>");
+
+        StringBuilder widths = new StringBuilder();
+        for (int glyph : used.keySet()) {
+            widths.append(glyph).append(" [").append(ttf.width(glyph)).append("] ");
+        }
+        writeObject(cidFont, "<< /Type /Font /Subtype /CIDFontType2 /BaseFont /" + name
+                + " /CIDSystemInfo << /Registry (Adobe) /Ordering (Identity) /Supplement 0 >>"
+                + " /FontDescriptor " + descriptor + " 0 R /CIDToGIDMap /Identity"
+                + " /DW " + ttf.width(0) + " /W [" + widths + "] >>");
+
+        int[] bbox = ttf.getBBox();
+        writeObject(descriptor, "<< /Type /FontDescriptor /FontName /" + name + " /Flags 32"
+                + " /FontBBox [" + bbox[0] + " " + bbox[1] + " " + bbox[2] + " " + bbox[3] + "]"
+                + " /ItalicAngle " + ttf.getItalicAngle() + " /Ascent " + ttf.getAscent()
+                + " /Descent " + ttf.getDescent() + " /CapHeight " + ttf.getCapHeight()
+                + " /StemV " + (font == Font.BOLD ? 140 : 80) + " /FontFile2 " + fontFile + " 0 R >>");
+
+        byte[] file = ttf.subset(used.keySet());
+        writeStream(fontFile, "/Length1 " + file.length + " /Filter /FlateDecode", deflate(file));
+        writeStream(toUnicode, "", toUnicodeCMap(used).getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    // Maps each glyph id back to its text so the PDF can be searched and copied
+    private static String toUnicodeCMap(Map<Integer, String> used) {
+        StringBuilder cmap = new StringBuilder();
+        cmap.append("/CIDInit /ProcSet findresource begin\n12 dict begin\nbegincmap\n")
+                .append("/CIDSystemInfo << /Registry (Adobe) /Ordering (UCS) /Supplement 0 >> def\n")
+                .append("/CMapName /Adobe-Identity-UCS def\n/CMapType 2 def\n")
+                .append("1 begincodespacerange\n<0000> <FFFF>\nendcodespacerange\n");
+        List<Map.Entry<Integer, String>> entries = new ArrayList<>(used.entrySet());
+        // at most 100 entries per bfchar block
+        for (int start = 0; start < entries.size(); start += 100) {
+            int end = Math.min(start + 100, entries.size());
+            cmap.append(end - start).append(" beginbfchar\n");
+            for (Map.Entry<Integer, String> entry : entries.subList(start, end)) {
+                cmap.append(String.format("<%04X> <", entry.getKey()));
+                for (char c : entry.getValue().toCharArray()) {
+                    cmap.append(String.format("%04X", (int) c));
+                }
+                cmap.append(">\n");
+            }
+            cmap.append("endbfchar\n");
+        }
+        cmap.append("endcmap\nCMapName currentdict /CMap defineresource pop\nend\nend\n");
+        return cmap.toString();
+    }
+
+    // Six capital letters naming this subset, as PDF requires for subset fonts
+    private static String subsetTag(String fontName, Map<Integer, String> used) {
+        int hash = 31 * fontName.hashCode() + used.keySet().hashCode();
+        char[] tag = new char[6];
+        for (int i = 0; i < tag.length; i++) {
+            tag[i] = (char) ('A' + Math.floorMod(hash, 26));
+            hash /= 26;
+        }
+        return new String(tag);
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+            deflater.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private int allocate() {
+        offsets.add(0L);
+        return nextObject++;
+    }
+
+    private void writeStream(int number, String dictionary, byte[] content) throws IOException {
+        offsets.set(number, position);
+        write(number + " 0 obj\n<< /Length " + content.length + (dictionary.isEmpty() ? "" : " " + dictionary)
+                + " >>\nstream\n");
+        writeBytes(content);
+        write("\nendstream\nendobj\n");
+    }
+
+    private void writeObject(int number, String body) throws IOException {
+        offsets.set(number, position);
+        write(number + " 0 obj\n" + body + "\nendobj\n");
+    }
+
+    private void op(String format, Object... args) {
+        if (page == null) {
+            throw new IllegalStateException("newPage() has not been called");
+        }
+        String line = (args.length == 0 ? format : String.format(Locale.ROOT, format, args)) + "\n";
+        page.write(line.getBytes(StandardCharsets.ISO_8859_1), 0, line.length());
+    }
+
+    private void write(String s) throws IOException {
+        writeBytes(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    private static String fill(Color c) {
+        return rgb(c) + " rg";
+    }
+
+    private static String stroke(Color c) {
+        return rgb(c) + " RG";
+    }
+
+    private static String rgb(Color c) {
+        return n(c.getRed() / 255.0) + " " + n(c.getGreen() / 255.0) + " " + n(c.getBlue() / 255.0);
+    }
+
+    // Short fixed-point number; PDF has no exponent notation
+    private static String n(double value) {
+        String s = String.format(Locale.ROOT, "%.2f", value);
+        if (s.indexOf('.') >= 0) {
+            s = s.replaceAll("0+$", "");
+            if (s.endsWith(".")) {
+                s = s.substring(0, s.length() - 1);
+            }
+        }
+        return s.equals("-0") ? "0" : s;
+    }
+
+    // Literal string body: bytes as ISO-8859-1 chars with \, ( and ) escaped
+    private static String escape(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length + 8);
+        for (byte b : bytes) {
+            char c = (char) (b & 0xff);
+            if (c == '\\' || c == '(' || c == ')') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // Identity-H string body: two hex bytes of glyph id per character, recording each glyph used
+    private static String glyphHex(String text, TrueTypeFont ttf, Map<Integer, String> used) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC);
+        StringBuilder hex = new StringBuilder(normalized.length() * 4);
+        for (int i = 0; i < normalized.length(); ) {
+            int cp = normalized.codePointAt(i);
+            i += Character.charCount(cp);
+            int glyph = glyph(ttf, cp);
+            if (glyph != 0) {
+                used.putIfAbsent(glyph, new String(Character.toChars(cp)));
+            }
+            hex.append(String.format("%04X", glyph));
+        }
+        return hex.toString();
+    }
+
+    // Glyph for a code point, else for its unaccented base letter, else for '?'
+    private static int glyph(TrueTypeFont ttf, int cp) {
+        int glyph = ttf.glyph(cp);
+        if (glyph == 0) {
+            String decomposed = Normalizer.normalize(new String(Character.toChars(cp)), Normalizer.Form.NFD);
+            glyph = ttf.glyph(decomposed.codePointAt(0));
+        }
+        return glyph != 0 ? glyph : ttf.glyph('?');
+    }
+
+    // WinAnsi bytes for text; Latin-1 passes through, the rest is folded or replaced with '?'
+    private static byte[] encode(String text) {
+        byte[] bytes = new byte[text.length()];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLowSurrogate(c)) {
+                continue;
+            }
+            bytes[length++] = (byte) winAnsi(c);
+        }
+        return length == bytes.length ? bytes : java.util.Arrays.copyOf(bytes, length);
+    }
+
+    private static int winAnsi(char c) {
+        if (c < 0x80 || (c >= 0xa0 && c <= 0xff)) {
+            return c;
+        }
+        switch (c) {
+            case '€': return 0x80;
+            case '…': return 0x85;
+            case '–': return 0x96;
+            case '—': return 0x97;
+            case '‘': return 0x91;
+            case '’': return 0x92;
+            case '“': return 0x93;
+            case '”': return 0x94;
+            case '•': return 0x95;
+            case 'đ': return 'd';
+            case 'Đ': return 'D';
+            default:
+                break;
+        }
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        if (decomposed.length() > 2) {
+            // keep the first mark when base + mark is Latin-1 (ấ -> â)
+            String partial = Normalizer.normalize(decomposed.substring(0, 2), Normalizer.Form.NFC);
+            if (partial.length() == 1 && partial.charAt(0) >= 0xa0 && partial.charAt(0) <= 0xff) {
+                return partial.charAt(0);
+            }
+        }
+        char base = decomposed.charAt(0);
+        return base < 0x80 || (base >= 0xa0 && base <= 0xff) ? base : '?';
+    }
+}
@@ -0,0 +1,11 @@
+package utils;
+
+/**
+ * Implemented by controllers of cached views (see ViewCache).
+ * Called on the FX thread each time the view is shown, the first time included, so
+ * initialize() only builds the UI and the data is loaded here. A view preloaded in
+ * the background therefore queries nothing until it is opened.
+ */
+public interface Refreshable {
+    void onShow();
+}
@@ -53,5 +53,6 @@ public class SessionManager {
     public static void logout() {
         setOfflineStatus();
         currentUser = null;
+        ViewCache.clear();
     }
 }
\ No newline at end of file
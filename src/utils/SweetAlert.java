@@ -274,22 +274,22 @@ public class SweetAlert {
     // === HÀM HỖ TRỢ ===
     private static ImageView createIcon(AlertType type) {
         ImageView icon = new ImageView();
-        String iconPath = switch (type) {
-            case SUCCESS -> "/resources/img/circle-check-solid-full.png";
-            case ERROR -> "/resources/img/circle-xmark-solid-full.png";
-            case WARNING -> "/resources/img/triangle-exclamation-solid-full.png";
-            case INFO -> "/resources/img/circle-info-solid-full.png";
-            case QUESTION -> "/resources/img/circle-question-solid-full.png";
+        String iconName = switch (type) {
+            case SUCCESS -> IconRegistry.CHECK;
+            case ERROR -> IconRegistry.XMARK;
+            case WARNING -> IconRegistry.WARNING;
+            case INFO -> IconRegistry.INFO;
+            case QUESTION -> IconRegistry.QUESTION;
         };
 
         try {
-            Image image = new Image(SweetAlert.class.getResourceAsStream(iconPath));
+            Image image = IconRegistry.get(iconName);
             icon.setImage(image);
             icon.setFitWidth(80);
             icon.setFitHeight(80);
             icon.setPreserveRatio(true);
         } catch (Exception e) {
-            System.err.println("Failed to load icon: " + iconPath);
+            System.err.println("Failed to load icon: " + iconName);
         }
         return icon;
     }
@@ -0,0 +1,339 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The parts of a TrueType font file PdfWriter needs to embed it: character to glyph
+ * mapping, advance widths, font descriptor metrics (all in 1/1000 em) and a subset
+ * of the file holding only the glyphs a document used.
+ * Only glyf-outline fonts with a Windows Unicode cmap (format 4 or 12) are supported.
+ */
+final class TrueTypeFont {
+
+    // Tables a PDF viewer needs to draw glyphs from an embedded FontFile2
+    private static final String[] EMBEDDED_TABLES = {"cvt ", "fpgm", "glyf", "head", "hhea", "hmtx", "loca", "maxp", "prep"};
+
+    private final byte[] data;
+    private final ByteBuffer buf;
+    private final Map<String, int[]> tables = new HashMap<>();
+    private final Map<Integer, Integer> glyphs = new HashMap<>();
+    private String postScriptName;
+    private int[] advances;
+    private int[] glyphOffsets;
+    private int unitsPerEm;
+    private int[] bbox;
+    private int ascent;
+    private int descent;
+    private int capHeight;
+    private int italicAngle;
+
+    private TrueTypeFont(byte[] data, String fallbackName) throws IOException {
+        this.data = data;
+        this.buf = ByteBuffer.wrap(data);
+        try {
+            parse(fallbackName);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Malformed font file", e);
+        }
+    }
+
+    static TrueTypeFont load(Path file) throws IOException {
+        String name = file.getFileName().toString().replaceFirst("\\.[^.]*$", "").replaceAll("[^A-Za-z0-9-]", "");
+        return new TrueTypeFont(Files.readAllBytes(file), name);
+    }
+
+    /** Glyph id for a code point, 0 (.notdef) if the font has none. */
+    int glyph(int codePoint) {
+        Integer glyph = glyphs.get(codePoint);
+        return glyph != null ? glyph : 0;
+    }
+
+    /** Whether every character of text has a glyph. */
+    boolean covers(String text) {
+        return text.codePoints().allMatch(cp -> glyphs.containsKey(cp));
+    }
+
+    /** Advance width of a glyph in 1/1000 em. */
+    int width(int glyph) {
+        return scale(advances[Math.min(glyph, advances.length - 1)]);
+    }
+
+    String getPostScriptName() { return postScriptName; }
+    int[] getBBox() { return bbox; }
+    int getAscent() { return ascent; }
+    int getDescent() { return descent; }
+    int getCapHeight() { return capHeight; }
+    int getItalicAngle() { return italicAngle; }
+
+    /**
+     * A font file with the same glyph ids whose glyf table only holds the given glyphs,
+     * .notdef and the parts of composite glyphs; every other glyph is left empty.
+     */
+    byte[] subset(Collection<Integer> used) {
+        int numGlyphs = glyphOffsets.length - 1;
+        BitSet keep = new BitSet(numGlyphs);
+        Deque<Integer> pending = new ArrayDeque<>(used);
+        pending.add(0);
+        while (!pending.isEmpty()) {
+            int glyph = pending.pop();
+            if (glyph < 0 || glyph >= numGlyphs || keep.get(glyph)) {
+                continue;
+            }
+            keep.set(glyph);
+            pending.addAll(components(glyph));
+        }
+
+        int glyf = tables.get("glyf")[0];
+        ByteArrayOutputStream newGlyf = new ByteArrayOutputStream();
+        ByteBuffer newLoca = ByteBuffer.allocate(4 * (numGlyphs + 1));
+        for (int glyph = 0; glyph < numGlyphs; glyph++) {
+            newLoca.putInt(newGlyf.size());
+            int start = glyphOffsets[glyph];
+            int length = glyphOffsets[glyph + 1] - start;
+            if (keep.get(glyph) && length > 0) {
+                newGlyf.write(data, glyf + start, length);
+                while (newGlyf.size() % 4 != 0) {
+                    newGlyf.write(0);
+                }
+            }
+        }
+        newLoca.putInt(newGlyf.size());
+
+        Map<String, byte[]> out = new TreeMap<>();
+        for (String tag : EMBEDDED_TABLES) {
+            int[] table = tables.get(tag);
+            if (table != null) {
+                byte[] copy = new byte[table[1]];
+                System.arraycopy(data, table[0], copy, 0, table[1]);
+                out.put(tag, copy);
+            }
+        }
+        out.put("glyf", newGlyf.toByteArray());
+        out.put("loca", newLoca.array());
+        ByteBuffer head = ByteBuffer.wrap(out.get("head"));
+        head.putInt(8, 0);          // checkSumAdjustment, no longer valid
+        head.putShort(50, (short) 1); // long loca offsets
+        return assemble(out);
+    }
+
+    // Glyph ids referenced by a composite glyph
+    private Collection<Integer> components(int glyph) {
+        Deque<Integer> result = new ArrayDeque<>();
+        int start = glyphOffsets[glyph];
+        if (glyphOffsets[glyph + 1] - start < 10) {
+            return result;
+        }
+        int at = tables.get("glyf")[0] + start;
+        if (buf.getShort(at) >= 0) {
+            return result;
+        }
+        at += 10;
+        int flags;
+        do {
+            flags = buf.getShort(at) & 0xffff;
+            result.add(buf.getShort(at + 2) & 0xffff);
+            at += 4;
+            at += (flags & 0x0001) != 0 ? 4 : 2;
+            if ((flags & 0x0008) != 0) {
+                at += 2;
+            } else if ((flags & 0x0040) != 0) {
+                at += 4;
+            } else if ((flags & 0x0080) != 0) {
+                at += 8;
+            }
+        } while ((flags & 0x0020) != 0);
+        return result;
+    }
+
+    private static byte[] assemble(Map<String, byte[]> tables) {
+        int count = tables.size();
+        int entrySelector = 31 - Integer.numberOfLeadingZeros(count);
+        int searchRange = 16 << entrySelector;
+        int offset = 12 + 16 * count;
+        int size = offset;
+        for (byte[] table : tables.values()) {
+            size += (table.length + 3) & ~3;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(0x00010000).putShort((short) count).putShort((short) searchRange)
+                .putShort((short) entrySelector).putShort((short) (count * 16 - searchRange));
+        for (Map.Entry<String, byte[]> entry : tables.entrySet()) {
+            byte[] table = entry.getValue();
+            out.put(entry.getKey().getBytes(StandardCharsets.ISO_8859_1))
+                    .putInt(checksum(table)).putInt(offset).putInt(table.length);
+            offset += (table.length + 3) & ~3;
+        }
+        for (byte[] table : tables.values()) {
+            out.put(table);
+            out.position((out.position() + 3) & ~3);
+        }
+        return out.array();
+    }
+
+    private static int checksum(byte[] table) {
+        int sum = 0;
+        for (int i = 0; i < table.length; i += 4) {
+            int word = 0;
+            for (int j = 0; j < 4; j++) {
+                word = (word << 8) | (i + j < table.length ? table[i + j] & 0xff : 0);
+            }
+            sum += word;
+        }
+        return sum;
+    }
+
+    private void parse(String fallbackName) throws IOException {
+        int numTables = buf.getShort(4) & 0xffff;
+        for (int i = 0; i < numTables; i++) {
+            int entry = 12 + 16 * i;
+            String tag = new String(data, entry, 4, StandardCharsets.ISO_8859_1);
+            tables.put(tag, new int[]{buf.getInt(entry + 8), buf.getInt(entry + 12)});
+        }
+        for (String required : new String[]{"head", "hhea", "hmtx", "maxp", "cmap", "loca", "glyf"}) {
+            if (!tables.containsKey(required)) {
+                throw new IOException("Not a TrueType outline font, missing " + required);
+            }
+        }
+
+        int head = tables.get("head")[0];
+        unitsPerEm = buf.getShort(head + 18) & 0xffff;
+        bbox = new int[]{
+                scale(buf.getShort(head + 36)), scale(buf.getShort(head + 38)),
+                scale(buf.getShort(head + 40)), scale(buf.getShort(head + 42))
+        };
+        boolean longLoca = buf.getShort(head + 50) != 0;
+
+        int hhea = tables.get("hhea")[0];
+        ascent = scale(buf.getShort(hhea + 4));
+        descent = scale(buf.getShort(hhea + 6));
+        int metrics = buf.getShort(hhea + 34) & 0xffff;
+
+        int numGlyphs = buf.getShort(tables.get("maxp")[0] + 4) & 0xffff;
+        int hmtx = tables.get("hmtx")[0];
+        advances = new int[Math.max(metrics, 1)];
+        for (int i = 0; i < metrics; i++) {
+            advances[i] = buf.getShort(hmtx + 4 * i) & 0xffff;
+        }
+
+        int loca = tables.get("loca")[0];
+        glyphOffsets = new int[numGlyphs + 1];
+        for (int i = 0; i <= numGlyphs; i++) {
+            glyphOffsets[i] = longLoca ? buf.getInt(loca + 4 * i) : 2 * (buf.getShort(loca + 2 * i) & 0xffff);
+        }
+
+        capHeight = ascent;
+        int[] os2 = tables.get("OS/2");
+        if (os2 != null && (buf.getShort(os2[0]) & 0xffff) >= 2) {
+            capHeight = scale(buf.getShort(os2[0] + 88));
+        }
+        int[] post = tables.get("post");
+        if (post != null) {
+            italicAngle = buf.getShort(post[0] + 4);
+        }
+        postScriptName = parseName(fallbackName);
+
+        parseCmap(tables.get("cmap")[0], numGlyphs);
+        if (glyphs.isEmpty()) {
+            throw new IOException("No Windows Unicode cmap");
+        }
+    }
+
+    // PostScript name (name id 6) from the Windows Unicode name records
+    private String parseName(String fallback) {
+        int[] name = tables.get("name");
+        if (name == null) {
+            return fallback;
+        }
+        int count = buf.getShort(name[0] + 2) & 0xffff;
+        int strings = name[0] + (buf.getShort(name[0] + 4) & 0xffff);
+        for (int i = 0; i < count; i++) {
+            int record = name[0] + 6 + 12 * i;
+            if (buf.getShort(record) == 3 && buf.getShort(record + 6) == 6) {
+                int length = buf.getShort(record + 8) & 0xffff;
+                int offset = buf.getShort(record + 10) & 0xffff;
+                String value = new String(data, strings + offset, length, StandardCharsets.UTF_16BE)
+                        .replaceAll("[^A-Za-z0-9-]", "");
+                return value.isEmpty() ? fallback : value;
+            }
+        }
+        return fallback;
+    }
+
+    // Prefers the full-repertoire subtable (3,10) and falls back to the BMP one (3,1)
+    private void parseCmap(int cmap, int numGlyphs) {
+        int count = buf.getShort(cmap + 2) & 0xffff;
+        int bmp = -1;
+        int full = -1;
+        for (int i = 0; i < count; i++) {
+            int record = cmap + 4 + 8 * i;
+            int platform = buf.getShort(record) & 0xffff;
+            int encoding = buf.getShort(record + 2) & 0xffff;
+            int offset = cmap + buf.getInt(record + 4);
+            int format = buf.getShort(offset) & 0xffff;
+            if (platform == 3 && encoding == 10 && format == 12) {
+                full = offset;
+            } else if (platform == 3 && encoding == 1 && format == 4) {
+                bmp = offset;
+            }
+        }
+        if (full >= 0) {
+            long groups = buf.getInt(full + 12) & 0xffffffffL;
+            for (int i = 0; i < groups; i++) {
+                int group = full + 16 + 12 * i;
+                int start = buf.getInt(group);
+                int end = buf.getInt(group + 4);
+                int glyph = buf.getInt(group + 8);
+                for (int c = start; c <= end; c++) {
+                    put(c, glyph + (c - start), numGlyphs);
+                }
+            }
+        } else if (bmp >= 0) {
+            int segments = (buf.getShort(bmp + 6) & 0xffff) / 2;
+            int ends = bmp + 14;
+            int starts = ends + 2 * segments + 2;
+            int deltas = starts + 2 * segments;
+            int rangeOffsets = deltas + 2 * segments;
+            for (int s = 0; s < segments; s++) {
+                int end = buf.getShort(ends + 2 * s) & 0xffff;
+                int start = buf.getShort(starts + 2 * s) & 0xffff;
+                int delta = buf.getShort(deltas + 2 * s);
+                int rangeAt = rangeOffsets + 2 * s;
+                int rangeOffset = buf.getShort(rangeAt) & 0xffff;
+                for (int c = start; c <= end && c != 0xffff; c++) {
+                    int glyph;
+                    if (rangeOffset == 0) {
+                        glyph = (c + delta) & 0xffff;
+                    } else {
+                        glyph = buf.getShort(rangeAt + rangeOffset + 2 * (c - start)) & 0xffff;
+                        if (glyph != 0) {
+                            glyph = (glyph + delta) & 0xffff;
+                        }
+                    }
+                    put(c, glyph, numGlyphs);
+                }
+            }
+        }
+    }
+
+    private void put(int codePoint, int glyph, int numGlyphs) {
+        if (glyph > 0 && glyph < numGlyphs) {
+            glyphs.put(codePoint, glyph);
+        }
+    }
+
+    private int scale(int units) {
+        return Math.round(units * 1000f / unitsPerEm);
+    }
+}
@@ -0,0 +1,190 @@
+package utils;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Parsed FXML views (root + controller) kept per login session, keyed by view path
+ * such as "/view/common/dashboard".
+ *
+ * The first get() parses the FXML; later calls hand back the same root. Every get(),
+ * the first included, calls the controller's onShow() (see Refreshable), which is
+ * where the view loads its data. preloadForCurrentUser() reads the FXML of the views
+ * the user's role can reach on a background thread right after login and builds each
+ * one on the FX thread in its own pulse, so nothing touches the scene graph off the FX
+ * thread and no view queries the database before it is opened.
+ * SessionManager.logout() clears the cache, since controllers capture the logged-in user.
+ */
+public class ViewCache {
+
+    public static class View {
+        private final Parent root;
+        private final Object controller;
+
+        View(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+
+        public Parent getRoot() { return root; }
+        public Object getController() { return controller; }
+    }
+
+    // The POS screen keeps its own cart and navigation state, so it is always built fresh
+    private static final Set<String> UNCACHED = Set.of("/view/staff/order");
+
+    private static final List<String> STAFF_VIEWS = Arrays.asList(
+            "/view/common/dashboard",
+            "/view/admin/table_management",
+            "/view/common/cashbook",
+            "/view/auth/change_password");
+
+    private static final List<String> MANAGER_VIEWS = Arrays.asList(
+            "/view/common/dashboard",
+            "/view/admin/product_management",
+            "/view/admin/table_management",
+            "/view/admin/inventory_management",
+            "/view/common/cashbook",
+            "/view/admin/user_management",
+            "/view/admin/report",
+            "/view/auth/change_password");
+
+    private static final Map<String, FutureTask<View>> views = new ConcurrentHashMap<>();
+
+    private ViewCache() {
+    }
+
+    /**
+     * The view for path, parsed on first use. Must be called on the FX thread.
+     */
+    public static View get(String path) throws IOException {
+        View view;
+        if (UNCACHED.contains(path)) {
+            view = load(path, null);
+        } else {
+            FutureTask<View> task = new FutureTask<>(() -> load(path, null));
+            FutureTask<View> existing = views.putIfAbsent(path, task);
+            if (existing != null) {
+                // cached, or queued by preload: both run on this thread, so run() either
+                // builds it now or does nothing because it is already built
+                task = existing;
+            }
+            task.run();
+            try {
+                view = task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading " + path, e);
+            } catch (ExecutionException e) {
+                // don't cache failures; the next attempt parses again
+                views.remove(path, task);
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+        }
+
+        if (view.controller instanceof Refreshable) {
+            ((Refreshable) view.controller).onShow();
+        }
+        return view;
+    }
+
+    /**
+     * Preload the views the current user's role can reach.
+     */
+    public static void preloadForCurrentUser() {
+        preload(SessionManager.isManager() ? MANAGER_VIEWS : STAFF_VIEWS);
+    }
+
+    /**
+     * Read the FXML of paths on a daemon thread, then build each view on the FX thread.
+     */
+    public static void preload(Collection<String> paths) {
+        Thread t = new Thread(() -> {
+            for (String path : paths) {
+                if (UNCACHED.contains(path) || views.containsKey(path)) continue;
+                byte[] fxml;
+                try {
+                    fxml = read(resolve(path));
+                } catch (IOException e) {
+                    // leave it to be loaded on demand
+                    System.err.println("Preloading " + path + " failed: " + e.getMessage());
+                    continue;
+                }
+                FutureTask<View> task = new FutureTask<>(() -> load(path, fxml));
+                if (views.putIfAbsent(path, task) != null) continue;
+                Platform.runLater(() -> {
+                    task.run();
+                    try {
+                        task.get();
+                    } catch (Exception e) {
+                        views.remove(path, task);
+                        System.err.println("Preloading " + path + " failed: " + e.getMessage());
+                    }
+                });
+            }
+        }, "view-preload");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    public static void clear() {
+        views.clear();
+    }
+
+    // Build the view on the FX thread, from fxml already read in the background if given
+    private static View load(String path, byte[] fxml) throws IOException {
+        URL url = resolve(path);
+        FXMLLoader loader = new FXMLLoader(url);
+        Parent root;
+        if (fxml != null) {
+            try (InputStream in = new ByteArrayInputStream(fxml)) {
+                root = loader.load(in);
+            }
+        } else {
+            root = loader.load();
+        }
+        if (root == null) {
+            throw new IOException("FXML content is null: " + path);
+        }
+        return new View(root, loader.getController());
+    }
+
+    private static byte[] read(URL url) throws IOException {
+        try (InputStream in = url.openStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    // Classpath first, then the source tree (running from an IDE without copied resources)
+    private static URL resolve(String path) throws IOException {
+        String fxmlPath = path + ".fxml";
+        URL url = ViewCache.class.getResource(fxmlPath.startsWith("/") ? fxmlPath : "/" + fxmlPath);
+        if (url == null) {
+            File file = new File(System.getProperty("user.dir"), "src" + fxmlPath);
+            if (file.exists()) {
+                url = file.toURI().toURL();
+            }
+        }
+        if (url == null) {
+            throw new IOException("Could not find FXML file: " + fxmlPath);
+        }
+        return url;
+    }
+}